@@ -0,0 +1,97 @@
+package asteroids.bench;
+
+import java.util.Random;
+
+import asteroids.model.BroadPhaseType;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.part2.CollisionListener;
+
+/**
+ * A benchmark measuring the cost of a tick of a world with each broad phase, for worlds of
+ * 1 000, 10 000 and 100 000 ships at a constant density.
+ *
+ * Every world is filled with the same ships, starting from the same seed, and is then advanced
+ * in ticks of 1/30 of a second, as the game does. The first ticks are not measured, so that the
+ * initial prediction of all collisions and the warm-up of the virtual machine are left out.
+ *
+ * Usage: BroadPhaseBenchmark [number of ships ...]
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class BroadPhaseBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = { 1000, 10000, 100000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int k = 0; k < args.length; k++) {
+				sizes[k] = Integer.parseInt(args[k]);
+			}
+		}
+		System.out.printf("%-16s %8s %12s %12s%n", "broad phase", "ships", "ms/tick", "collisions");
+		for (int size : sizes) {
+			for (BroadPhaseType type : BroadPhaseType.values()) {
+				run(type, size);
+			}
+		}
+	}
+
+	/**
+	 * Measure the cost of a tick of a world with the given broad phase and number of ships.
+	 */
+	private static void run(BroadPhaseType type, int nbShips) {
+		World world = createWorld(type, nbShips);
+		final int[] collisions = new int[1];
+		CollisionListener listener = new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				collisions[0]++;
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				collisions[0]++;
+			}
+		};
+		for (int tick = 0; tick < WARM_UP_TICKS; tick++) {
+			world.evolve(TICK, listener);
+		}
+		collisions[0] = 0;
+		long start = System.nanoTime();
+		for (int tick = 0; tick < MEASURED_TICKS; tick++) {
+			world.evolve(TICK, listener);
+		}
+		double perTick = (System.nanoTime() - start) / 1e6 / MEASURED_TICKS;
+		System.out.printf("%-16s %8d %12.3f %12d%n", type, nbShips, perTick, collisions[0]);
+	}
+
+	/**
+	 * Return a new world with the given broad phase, holding the given number of ships placed at random.
+	 */
+	private static World createWorld(BroadPhaseType type, int nbShips) {
+		double side = SPACING * Math.sqrt(nbShips);
+		World world = new World(side, side);
+		world.setBroadPhaseType(type);
+		Random random = new Random(SEED);
+		int added = 0;
+		while (added < nbShips) {
+			double radius = 10.5 + 30 * random.nextDouble();
+			Ship ship = new Ship(radius + (side - 2*radius) * random.nextDouble(),
+					radius + (side - 2*radius) * random.nextDouble(), 100 * random.nextDouble() - 50,
+					100 * random.nextDouble() - 50, radius, 2 * Math.PI * random.nextDouble());
+			if (world.canHaveAsEntity(ship)) {
+				world.addEntity(ship);
+				added++;
+			}
+		}
+		return world;
+	}
+
+	private static final long SEED = 42;
+	private static final double TICK = 1.0 / 30;
+	private static final double SPACING = 200;
+	private static final int WARM_UP_TICKS = 30;
+	private static final int MEASURED_TICKS = 90;
+}
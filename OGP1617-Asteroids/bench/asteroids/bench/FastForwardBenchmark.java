@@ -0,0 +1,90 @@
+package asteroids.bench;
+
+import java.util.Random;
+
+import asteroids.model.BroadPhaseType;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * A benchmark comparing three ways to bring a world a minute further, for worlds of 1 000, 10 000
+ * and 100 000 ships at a constant density: ticks of 1/30 of a second, a single evolve over the
+ * minute, and a fast-forward over the minute.
+ *
+ * Every world is filled with the same ships, starting from the same seed, and advanced for one
+ * tick first, so that the initial prediction of all collisions is left out.
+ *
+ * Usage: FastForwardBenchmark [number of ships ...]
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class FastForwardBenchmark {
+
+	public static void main(String[] args) {
+		int[] sizes = { 1000, 10000, 100000 };
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int k = 0; k < args.length; k++) {
+				sizes[k] = Integer.parseInt(args[k]);
+			}
+		}
+		System.out.printf("%-14s %8s %12s %12s%n", "mode", "ships", "ms", "collisions");
+		for (int size : sizes) {
+			for (String mode : new String[] { "ticks", "evolve", "fast-forward" }) {
+				run(mode, size);
+			}
+		}
+	}
+
+	/**
+	 * Measure the cost of bringing a world with the given number of ships a minute further in the given mode.
+	 */
+	private static void run(String mode, int nbShips) {
+		World world = createWorld(nbShips);
+		world.evolveBatched(TICK, null);
+		int[] collisions = new int[1];
+		long start = System.nanoTime();
+		switch (mode) {
+		case "ticks":
+			for (int tick = 0; tick < DURATION / TICK; tick++) {
+				world.evolveBatched(TICK, batch -> collisions[0] += batch.getNbCollisions());
+			}
+			break;
+		case "evolve":
+			world.evolveBatched(DURATION, batch -> collisions[0] += batch.getNbCollisions());
+			break;
+		default:
+			world.fastForward(DURATION, batch -> collisions[0] += batch.getNbCollisions());
+		}
+		double elapsed = (System.nanoTime() - start) / 1e6;
+		System.out.printf("%-14s %8d %12.1f %12d%n", mode, nbShips, elapsed, collisions[0]);
+	}
+
+	/**
+	 * Return a new world holding the given number of ships placed at random.
+	 */
+	private static World createWorld(int nbShips) {
+		double side = SPACING * Math.sqrt(nbShips);
+		World world = new World(side, side);
+		world.setBroadPhaseType(BroadPhaseType.UNIFORM_GRID);
+		Random random = new Random(SEED);
+		int added = 0;
+		while (added < nbShips) {
+			double radius = 10.5 + 30 * random.nextDouble();
+			Ship ship = new Ship(radius + (side - 2*radius) * random.nextDouble(),
+					radius + (side - 2*radius) * random.nextDouble(), 100 * random.nextDouble() - 50,
+					100 * random.nextDouble() - 50, radius, 2 * Math.PI * random.nextDouble());
+			if (world.canHaveAsEntity(ship)) {
+				world.addEntity(ship);
+				added++;
+			}
+		}
+		return world;
+	}
+
+	private static final long SEED = 42;
+	private static final double TICK = 1.0 / 30;
+	private static final double DURATION = 60;
+	private static final double SPACING = 200;
+}
@@ -0,0 +1,104 @@
+package asteroids.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import asteroids.model.Bullet;
+import asteroids.model.World;
+
+/**
+ * A benchmark measuring the heap a world of many bullets takes, and the garbage collection pauses
+ * while it is filled and while it is advanced in ticks of 1/30 of a second, as the game does.
+ *
+ * The world is filled with bullets on a regular grid, all drifting with the same velocity, so that
+ * they never hit one another, while those along the boundaries bounce off until they are terminated.
+ * The live heap is measured after a full collection; the pauses are those the virtual machine
+ * reports for each collection.
+ *
+ * Usage: HeapBenchmark [number of bullets [number of ticks]]
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class HeapBenchmark {
+
+	public static void main(String[] args) {
+		int nbBullets = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		int nbTicks = (args.length > 1) ? Integer.parseInt(args[1]) : 30;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+				if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+					GarbageCollectionNotificationInfo info =
+							GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+					record(info.getGcInfo().getDuration());
+				}
+			}, null, null);
+		}
+
+		long start = System.nanoTime();
+		World world = createWorld(nbBullets);
+		report("fill", (System.nanoTime() - start) / 1e6);
+		System.gc();
+		long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		System.out.printf("%-8s %12.1f MB live heap%n", "", used / 1048576.0);
+
+		world.evolveBatched(TICK, null);
+		reset();
+		start = System.nanoTime();
+		for (int tick = 0; tick < nbTicks; tick++) {
+			world.evolveBatched(TICK, null);
+		}
+		report("ticks", (System.nanoTime() - start) / 1e6);
+		reset();
+		start = System.nanoTime();
+		world.terminate();
+		System.gc();
+		report("release", (System.nanoTime() - start) / 1e6);
+		used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		System.out.printf("%-8s %12.1f MB live heap%n", "", used / 1048576.0);
+	}
+
+	/**
+	 * Return a new world holding the given number of bullets.
+	 */
+	private static World createWorld(int nbBullets) {
+		int side = (int) Math.ceil(Math.sqrt(nbBullets));
+		World world = new World(SPACING * (side + 1), SPACING * (side + 1));
+		for (int k = 0; k < nbBullets; k++) {
+			world.addEntity(new Bullet(SPACING * (1 + k % side), SPACING * (1 + k / side), 30, 20, 2));
+		}
+		return world;
+	}
+
+	/**
+	 * Record a garbage collection pause of the given number of milliseconds.
+	 */
+	private static synchronized void record(long pause) {
+		nbPauses++;
+		totalPause += pause;
+		maxPause = Math.max(maxPause, pause);
+	}
+
+	private static synchronized void reset() {
+		nbPauses = 0;
+		totalPause = 0;
+		maxPause = 0;
+	}
+
+	private static synchronized void report(String phase, double elapsed) {
+		System.out.printf("%-8s %12.1f ms, %d collections, %d ms paused in total, %d ms at most%n", phase, elapsed,
+				nbPauses, totalPause, maxPause);
+	}
+
+	private static int nbPauses;
+	private static long totalPause;
+	private static long maxPause;
+
+	private static final double TICK = 1.0 / 30;
+	private static final double SPACING = 10;
+}
@@ -0,0 +1,188 @@
+package asteroids.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldFile;
+import asteroids.model.WorldShard;
+import asteroids.part2.CollisionListener;
+
+/**
+ * A benchmark measuring how evolving a world scales when it is split over 1, 2, 4 and 8 shards,
+ * each in a virtual machine of its own, talking to its neighbours over loopback sockets.
+ *
+ * The world is filled with ships at a constant density, starting from a fixed seed, and saved to a
+ * temporary file. For each number of shards, one process is started per shard, running this class
+ * with the arguments of a shard; it loads the saved world, keeps its own strip, connects to the
+ * processes of the neighbouring strips and evolves its strip for ten seconds. The time reported for
+ * a number of shards is that of the slowest shard, leaving out loading and connecting.
+ *
+ * The processes find each other through this benchmark: every shard but the last one listens on a
+ * free loopback port and prints that port, which the benchmark passes on to the next shard.
+ *
+ * Usage: ShardingBenchmark [number of ships [number of shards ...]]
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class ShardingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals(SHARD)) {
+			runShard(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+			return;
+		}
+		int nbShips = (args.length > 0) ? Integer.parseInt(args[0]) : 20000;
+		int[] counts = { 1, 2, 4, 8 };
+		if (args.length > 1) {
+			counts = new int[args.length - 1];
+			for (int k = 1; k < args.length; k++) {
+				counts[k - 1] = Integer.parseInt(args[k]);
+			}
+		}
+		Path path = Files.createTempFile("sharding", ".world");
+		try {
+			WorldFile.save(createWorld(nbShips), path);
+			System.out.printf("%8s %8s %12s %12s %12s%n", "shards", "ships", "ms", "collisions", "divergences");
+			for (int nbShards : counts) {
+				run(path, nbShips, nbShards);
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Measure the cost of evolving the world saved at the given path, with the given number of ships,
+	 * over the given number of shards.
+	 */
+	private static void run(Path path, int nbShips, int nbShards) throws IOException, InterruptedException {
+		List<Process> processes = new ArrayList<>();
+		try {
+			for (int k = 0; k < nbShards; k++) {
+				List<String> command = new ArrayList<>();
+				command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+				if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+					command.add("--add-modules");
+					command.add("jdk.incubator.vector");
+				}
+				command.add("-cp");
+				command.add(System.getProperty("java.class.path"));
+				command.add(ShardingBenchmark.class.getName());
+				command.add(SHARD);
+				command.add(path.toString());
+				command.add(Integer.toString(k));
+				command.add(Integer.toString(nbShards));
+				processes.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+			}
+			List<BufferedReader> outputs = new ArrayList<>();
+			for (Process process : processes) {
+				outputs.add(new BufferedReader(new InputStreamReader(process.getInputStream())));
+			}
+			for (int k = 0; k + 1 < nbShards; k++) {
+				PrintStream input = new PrintStream(processes.get(k + 1).getOutputStream(), true);
+				input.println(outputs.get(k).readLine());
+			}
+			double elapsed = 0.0;
+			long collisions = 0, divergences = 0;
+			for (int k = 0; k < nbShards; k++) {
+				String line = outputs.get(k).readLine();
+				if (line == null) {
+					throw new IOException("shard " + k + " failed");
+				}
+				String[] fields = line.trim().split(" ");
+				elapsed = Math.max(elapsed, Double.parseDouble(fields[0]));
+				collisions += Long.parseLong(fields[1]);
+				divergences += Long.parseLong(fields[2]);
+			}
+			System.out.printf("%8d %8d %12.1f %12d %12d%n", nbShards, nbShips, elapsed, collisions, divergences);
+		} finally {
+			for (Process process : processes) {
+				process.waitFor();
+			}
+		}
+	}
+
+	/**
+	 * Evolve the strip with the given index of the world saved at the given path, split over the given
+	 * number of shards, and print the elapsed time in milliseconds, the number of collisions and the
+	 * number of divergences.
+	 */
+	private static void runShard(Path path, int index, int nbShards) throws IOException {
+		WorldShard shard = new WorldShard(WorldFile.load(path), index, nbShards, STEP);
+		ServerSocketChannel server = null;
+		if (index + 1 < nbShards) {
+			server = ServerSocketChannel.open();
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			System.out.println(((InetSocketAddress) server.getLocalAddress()).getPort());
+			System.out.flush();
+		}
+		SocketChannel left = null, right = null;
+		if (index > 0) {
+			int port = Integer.parseInt(new BufferedReader(new InputStreamReader(System.in)).readLine().trim());
+			left = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		}
+		if (server != null) {
+			right = server.accept();
+			server.close();
+		}
+		shard.connect(left, right);
+		long[] collisions = new long[1];
+		CollisionListener listener = new CollisionListener() {
+			public void boundaryCollision(Object entity, double x, double y) {
+				collisions[0]++;
+			}
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				collisions[0]++;
+			}
+		};
+		shard.evolve(STEP, listener);
+		collisions[0] = 0;
+		long start = System.nanoTime();
+		shard.evolve(DURATION, listener);
+		double elapsed = (System.nanoTime() - start) / 1e6;
+		shard.close();
+		System.out.printf("%.1f %d %d%n", elapsed, collisions[0], shard.getNbDivergences());
+	}
+
+	/**
+	 * Return a new world holding the given number of ships placed at random.
+	 */
+	private static World createWorld(int nbShips) {
+		double side = SPACING * Math.sqrt(nbShips);
+		World world = new World(side, side);
+		Random random = new Random(SEED);
+		int added = 0;
+		while (added < nbShips) {
+			double radius = 10.5 + 30 * random.nextDouble();
+			Ship ship = new Ship(radius + (side - 2*radius) * random.nextDouble(),
+					radius + (side - 2*radius) * random.nextDouble(), 100 * random.nextDouble() - 50,
+					100 * random.nextDouble() - 50, radius, 2 * Math.PI * random.nextDouble());
+			if (world.canHaveAsEntity(ship)) {
+				world.addEntity(ship);
+				added++;
+			}
+		}
+		return world;
+	}
+
+	private static final String SHARD = "--shard";
+	private static final long SEED = 42;
+	private static final double STEP = 1.0 / 30;
+	private static final double DURATION = 10;
+	private static final double SPACING = 200;
+}
@@ -0,0 +1,95 @@
+package asteroids.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.CollisionKernel;
+import asteroids.model.Ship;
+
+/**
+ * A JMH benchmark of computing the time to collision and the collision position of one ship with
+ * between 1 000 and 100 000 others: one pair at a time through Ship.getTimeToCollision and
+ * Ship.getCollisionPosition, and over packed arrays through the scalar and the vector kernel of
+ * CollisionKernel.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class CollisionKernelBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int nbEntities;
+
+	private Ship ship;
+	private Ship[] others;
+	private double[] x, y, vx, vy, radius;
+	private double[] times, positionsX, positionsY;
+	private final double[] destination = new double[2];
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(SEED);
+		this.ship = new Ship(5.0E5, 5.0E5, 20, -10, 30, 0);
+		this.others = new Ship[this.nbEntities];
+		this.x = new double[this.nbEntities];
+		this.y = new double[this.nbEntities];
+		this.vx = new double[this.nbEntities];
+		this.vy = new double[this.nbEntities];
+		this.radius = new double[this.nbEntities];
+		this.times = new double[this.nbEntities];
+		this.positionsX = new double[this.nbEntities];
+		this.positionsY = new double[this.nbEntities];
+		for (int i = 0; i < this.nbEntities; i++) {
+			this.x[i] = 1.0E6 * random.nextDouble();
+			this.y[i] = 1.0E6 * random.nextDouble();
+			this.vx[i] = 100 * random.nextDouble() - 50;
+			this.vy[i] = 100 * random.nextDouble() - 50;
+			this.radius[i] = 10 + 30 * random.nextDouble();
+			this.others[i] = new Ship(this.x[i], this.y[i], this.vx[i], this.vy[i], this.radius[i], 0);
+		}
+	}
+
+	@Benchmark
+	public double[] pairwise() {
+		for (int i = 0; i < this.nbEntities; i++) {
+			this.times[i] = this.ship.getTimeToCollision(this.others[i]);
+			double[] position = this.ship.getCollisionPosition(this.others[i], this.destination);
+			this.positionsX[i] = (position == null) ? Double.NaN : position[0];
+		}
+		return this.times;
+	}
+
+	@Benchmark
+	public double[] kernelScalar() {
+		CollisionKernel.getCollisionsScalar(5.0E5, 5.0E5, 20, -10, 30, this.x, this.y, this.vx, this.vy, this.radius,
+				0, this.nbEntities, this.times, this.positionsX, this.positionsY);
+		return this.times;
+	}
+
+	@Benchmark
+	public double[] kernelVector() {
+		CollisionKernel.getCollisionsVector(5.0E5, 5.0E5, 20, -10, 30, this.x, this.y, this.vx, this.vy, this.radius,
+				0, this.nbEntities, this.times, this.positionsX, this.positionsY);
+		return this.times;
+	}
+
+	private static final long SEED = 42;
+}
@@ -0,0 +1,84 @@
+package asteroids.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.FreeFlight;
+import asteroids.model.Ship;
+
+/**
+ * A JMH benchmark of advancing between 1 000 and 100 000 entities in free flight for a tick: one
+ * ship at a time through Ship.move, and over packed arrays through the scalar and the vector kernel
+ * of FreeFlight.
+ *
+ * The forks add the module jdk.incubator.vector, so that the vector kernel can run.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class FreeFlightBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int nbEntities;
+
+	private Ship[] ships;
+	private double[] x, y, vx, vy;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(SEED);
+		this.ships = new Ship[this.nbEntities];
+		this.x = new double[this.nbEntities];
+		this.y = new double[this.nbEntities];
+		this.vx = new double[this.nbEntities];
+		this.vy = new double[this.nbEntities];
+		for (int i = 0; i < this.nbEntities; i++) {
+			this.x[i] = 1.0E6 * random.nextDouble();
+			this.y[i] = 1.0E6 * random.nextDouble();
+			this.vx[i] = 100 * random.nextDouble() - 50;
+			this.vy[i] = 100 * random.nextDouble() - 50;
+			this.ships[i] = new Ship(this.x[i], this.y[i], this.vx[i], this.vy[i], 20, 0);
+		}
+	}
+
+	@Benchmark
+	public Ship[] shipMove() {
+		for (Ship ship : this.ships) {
+			ship.move(TICK);
+		}
+		return this.ships;
+	}
+
+	@Benchmark
+	public double[] advanceScalar() {
+		FreeFlight.advanceScalar(this.x, this.y, this.vx, this.vy, 0, this.nbEntities, TICK);
+		return this.x;
+	}
+
+	@Benchmark
+	public double[] advanceVector() {
+		FreeFlight.advanceVector(this.x, this.y, this.vx, this.vy, 0, this.nbEntities, TICK);
+		return this.x;
+	}
+
+	private static final long SEED = 42;
+	private static final double TICK = 1.0 / 30;
+}
@@ -0,0 +1,93 @@
+package asteroids.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.Ship;
+
+/**
+ * A JMH benchmark of the kinematics and collision mathematics of a pair of ships that are not
+ * located in a world.
+ *
+ * The ships approach each other head-on, so that the time to collision and the collision position
+ * take their full path instead of returning early.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ShipBenchmark {
+
+	private Ship ship;
+	private Ship other;
+	private final double[] destination = new double[2];
+
+	@Setup
+	public void setUp() {
+		this.ship = new Ship(1000, 1000, 10, 5, 50, 0.5, 1.0E20);
+		this.other = new Ship(1300, 1100, -10, -5, 40, 2.0, 1.0E20);
+	}
+
+	@Benchmark
+	public Ship move() {
+		this.ship.move(1e-3);
+		return this.ship;
+	}
+
+	@Benchmark
+	public double getDistanceBetween() {
+		return this.ship.getDistanceBetween(this.other);
+	}
+
+	@Benchmark
+	public boolean overlap() {
+		return this.ship.overlap(this.other);
+	}
+
+	@Benchmark
+	public double getTimeToCollision() {
+		return this.ship.getTimeToCollision(this.other);
+	}
+
+	@Benchmark
+	public double[] getCollisionPosition() {
+		return this.ship.getCollisionPosition(this.other);
+	}
+
+	@Benchmark
+	public double[] getCollisionPositionIntoDestination() {
+		return this.ship.getCollisionPosition(this.other, this.destination);
+	}
+
+	/**
+	 * Thrust from the same velocity every time, so that the ship does not reach the speed limit
+	 * and the cost of setting the velocity is included.
+	 */
+	@Benchmark
+	public Ship thrust() {
+		this.ship.setVelocity(10, 5);
+		this.ship.thrust(1);
+		return this.ship;
+	}
+
+	@Benchmark
+	public Ship turn() {
+		this.ship.turn(0.1);
+		return this.ship;
+	}
+}
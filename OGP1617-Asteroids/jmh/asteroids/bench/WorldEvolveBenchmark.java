@@ -0,0 +1,78 @@
+package asteroids.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import asteroids.model.BroadPhaseType;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+/**
+ * A JMH benchmark of a tick of 1/30 of a second of a world holding between 10 and 100 000 ships
+ * at a constant density, for each broad phase.
+ *
+ * The world is built again from the same seed before every iteration, so that every iteration
+ * starts from the same state and the numbers of different runs can be compared.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldEvolveBenchmark {
+
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int nbShips;
+
+	@Param({ "UNIFORM_GRID", "SWEEP_AND_PRUNE" })
+	public BroadPhaseType broadPhase;
+
+	private World world;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		double side = SPACING * Math.sqrt(this.nbShips);
+		this.world = new World(side, side);
+		this.world.setBroadPhaseType(this.broadPhase);
+		Random random = new Random(SEED);
+		int added = 0;
+		while (added < this.nbShips) {
+			double radius = 10.5 + 30 * random.nextDouble();
+			Ship ship = new Ship(radius + (side - 2*radius) * random.nextDouble(),
+					radius + (side - 2*radius) * random.nextDouble(), 100 * random.nextDouble() - 50,
+					100 * random.nextDouble() - 50, radius, 2 * Math.PI * random.nextDouble());
+			if (this.world.canHaveAsEntity(ship)) {
+				this.world.addEntity(ship);
+				added++;
+			}
+		}
+		this.world.evolve(TICK, null);
+	}
+
+	@Benchmark
+	public World evolve() {
+		this.world.evolve(TICK, null);
+		return this.world;
+	}
+
+	private static final long SEED = 42;
+	private static final double TICK = 1.0 / 30;
+	private static final double SPACING = 200;
+}
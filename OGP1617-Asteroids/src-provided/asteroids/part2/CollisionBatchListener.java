@@ -0,0 +1,15 @@
+package asteroids.part2;
+
+import asteroids.model.CollisionBatch;
+
+/**
+ * The listener interface for receiving all collision events of an evolve at
+ * once, after the evolve has finished.
+ */
+public interface CollisionBatchListener {
+  /**
+   * Invoked with the collisions of an evolve, in the order in which they took
+   * place. <code>batch</code> is reused by the next evolve of the same world.
+   */
+  public void collisions(CollisionBatch batch);
+}
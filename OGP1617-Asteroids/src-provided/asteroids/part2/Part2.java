@@ -1,5 +1,8 @@
 package asteroids.part2;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import asteroids.part2.facade.IFacade;
 import asteroids.part2.internal.AsteroidsFrame2;
 
@@ -7,11 +10,15 @@ public class Part2 {
 	public static void main(String[] args) {
 		boolean tryFullscreen = false;
 		boolean enableSound = false;
-		for (String arg : args) {
+		Path replayFile = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
 			if (arg.equals("-fullscreen")) {
 				tryFullscreen = true;
 			} else if (arg.equals("-nosound")) {
 				enableSound = false;
+			} else if (arg.equals("-record") && i + 1 < args.length) {
+				replayFile = Paths.get(args[++i]);
 			} else {
 				System.out.println("unknown option: " + arg);
 				return;
@@ -19,6 +26,6 @@ public class Part2 {
 		}
 
 		IFacade facade = new asteroids.facade.Facade();
-		AsteroidsFrame2.run(facade, tryFullscreen, enableSound);
+		AsteroidsFrame2.run(facade, tryFullscreen, enableSound, replayFile);
 	}
 }
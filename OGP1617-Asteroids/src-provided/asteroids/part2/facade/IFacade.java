@@ -1,10 +1,12 @@
 package asteroids.part2.facade;
 
+import java.nio.DoubleBuffer;
 import java.util.*;
 
 import asteroids.model.Bullet;
 import asteroids.model.Ship;
 import asteroids.model.World;
+import asteroids.part2.CollisionBatchListener;
 import asteroids.part2.CollisionListener;
 import asteroids.util.ModelException;
 
@@ -193,9 +195,24 @@ public interface IFacade extends asteroids.part1.facade.IFacade {
 
 	/**
 	 * Check whether <code>bullet</code> is terminated.
+	 * 
+	 * A bullet that is reused by
+	 * {@link #createBullet(World, double, double, double, double, double)}
+	 * is no longer terminated, even for callers that referred to it before
+	 * it was terminated; those callers must use
+	 * {@link #isTerminatedBullet(Bullet, long)} instead.
 	 */
 	public boolean isTerminatedBullet(Bullet bullet) throws ModelException;
 
+	/**
+	 * Check whether the bullet that had the identifier <code>id</code> when
+	 * it was handed out as <code>bullet</code> is terminated, also when that
+	 * bullet has been reused since, see {@link #getEntityId(Object)}.
+	 */
+	default boolean isTerminatedBullet(Bullet bullet, long id) throws ModelException {
+		return isTerminatedBullet(bullet) || getEntityId(bullet) != id;
+	}
+
 	/**
 	 * Return the position of <code>ship</code> as an array containing the
 	 * x-coordinate, followed by the y-coordinate.
@@ -248,6 +265,20 @@ public interface IFacade extends asteroids.part1.facade.IFacade {
 	 */
 	public World createWorld(double width, double height) throws ModelException;
 
+	/**
+	 * Create a new world with the given <code>width</code> and
+	 * <code>height</code>. If <code>toroidal</code> is true, entities leaving
+	 * the world on one side enter it again on the opposite side instead of
+	 * bouncing off its boundaries, and no boundary collisions are reported.
+	 * The default implementation only creates worlds that are not toroidal.
+	 */
+	default World createWorld(double width, double height, boolean toroidal) throws ModelException {
+		if (toroidal) {
+			throw new ModelException("toroidal worlds are not supported");
+		}
+		return createWorld(width, height);
+	}
+
 	/**
 	 * Terminate <code>world</code>.
 	 */
@@ -374,6 +405,39 @@ public interface IFacade extends asteroids.part1.facade.IFacade {
 	 */
 	public double[] getPositionNextCollision(World world) throws ModelException;
 
+	/**
+	 * Return the time that must pass before the first boundary collision will
+	 * take place in the given world. Positive Infinity is returned if no
+	 * entity will hit a boundary. The time is read from an index that is only
+	 * updated when the velocity of an entity changes. The default
+	 * implementation asks every entity for its
+	 * {@link #getTimeCollisionBoundary(Object)}.
+	 */
+	default double getTimeNextBoundaryCollision(World world) throws ModelException {
+		double result = Double.POSITIVE_INFINITY;
+		for (Object entity : getEntities(world)) {
+			result = Math.min(result, getTimeCollisionBoundary(entity));
+		}
+		return result;
+	}
+
+	/**
+	 * Return the position of the first boundary collision that will take place
+	 * in the given world. Null is returned if no entity will hit a boundary.
+	 */
+	default double[] getPositionNextBoundaryCollision(World world) throws ModelException {
+		double time = Double.POSITIVE_INFINITY;
+		Object first = null;
+		for (Object entity : getEntities(world)) {
+			double next = getTimeCollisionBoundary(entity);
+			if (next < time) {
+				time = next;
+				first = entity;
+			}
+		}
+		return (first == null) ? null : getPositionCollisionBoundary(first);
+	}
+
 	/**
 	 * Advance <code>world</code> by <code>dt<code> seconds. 
 	 * 
@@ -385,6 +449,34 @@ public interface IFacade extends asteroids.part1.facade.IFacade {
 	 */
 	public void evolve(World world, double dt, CollisionListener collisionListener) throws ModelException;
 
+	/**
+	 * Advance <code>world</code> by <code>dt<code> seconds, like
+	 * {@link #evolve(World, double, CollisionListener)}, but hand all
+	 * collisions of the step to <code>listener</code> at once, in the order in
+	 * which they took place, after the step has finished.
+	 * <code>listener</code> may be null. The default implementation evolves
+	 * <code>world</code> without a listener, and refuses a non-null listener,
+	 * since only the model can fill in a batch.
+	 */
+	default void evolveBatched(World world, double dt, CollisionBatchListener listener) throws ModelException {
+		if (listener != null) {
+			throw new ModelException("collision batches are not supported");
+		}
+		evolve(world, dt, null);
+	}
+
+	/**
+	 * Fast-forward <code>world</code> by <code>dt</code> seconds, which may
+	 * span minutes, jumping from one collision to the next instead of
+	 * advancing every entity at every collision. The outcome equals that of
+	 * {@link #evolveBatched(World, double, CollisionBatchListener)} up to
+	 * rounding. <code>listener</code> may be null. The default implementation
+	 * evolves <code>world</code> in a single batched step.
+	 */
+	default void fastForward(World world, double dt, CollisionBatchListener listener) throws ModelException {
+		evolveBatched(world, dt, listener);
+	}
+
 	/**
 	 * Return the entity at the given <code>position</code> in the given
 	 * <code>world</code>.
@@ -396,6 +488,323 @@ public interface IFacade extends asteroids.part1.facade.IFacade {
 	 */
 	public Set<? extends Object> getEntities(World world) throws ModelException;
 
+	/**
+	 * Return the number of entities in the given world, without building the
+	 * set of {@link #getEntities(World)}.
+	 */
+	default int getNbEntities(World world) throws ModelException {
+		return getEntities(world).size();
+	}
+
+	/**
+	 * Write the state of every entity in <code>world</code> into
+	 * <code>destination</code>, starting at <code>offset</code>, and return the
+	 * number of entities written. For each entity, in the order of
+	 * {@link #getEntities(World)}, {@link World#STATE_STRIDE}
+	 * values are written: its identifier, its type ({@link World#STATE_SHIP}
+	 * or {@link World#STATE_BULLET}), its position along the X-axis and the
+	 * Y-axis, its velocity along the X-axis and the Y-axis, its radius and its
+	 * orientation. No memory is allocated, except by the default
+	 * implementation, which falls back on the getters of each entity.
+	 */
+	default int exportEntities(World world, double[] destination, int offset) throws ModelException {
+		Set<? extends Object> entities = getEntities(world);
+		if (offset < 0 || destination.length - offset < (long) entities.size() * World.STATE_STRIDE) {
+			throw new ModelException("destination too small for " + entities.size() + " entities");
+		}
+		for (Object entity : entities) {
+			getState(entity, destination, offset);
+			offset += World.STATE_STRIDE;
+		}
+		return entities.size();
+	}
+
+	/**
+	 * Write the state of every entity in <code>world</code> into
+	 * <code>destination</code> from its current position on, in the layout of
+	 * {@link #exportEntities(World, double[], int)}, advance its position past
+	 * the written values, and return the number of entities written.
+	 */
+	default int exportEntities(World world, DoubleBuffer destination) throws ModelException {
+		Set<? extends Object> entities = getEntities(world);
+		if (destination.remaining() < (long) entities.size() * World.STATE_STRIDE) {
+			throw new ModelException("destination too small for " + entities.size() + " entities");
+		}
+		double[] state = new double[World.STATE_STRIDE];
+		for (Object entity : entities) {
+			getState(entity, state, 0);
+			destination.put(state);
+		}
+		return entities.size();
+	}
+
+	/**
+	 * Write the time to collision of <code>entity</code> with every entity in
+	 * <code>world</code> into <code>times</code>, and the x and y component of
+	 * the collision position into <code>positions</code>, two values per
+	 * entity, in the order of {@link #exportEntities(World, double[], int)},
+	 * and return the number of entities written. An entity that
+	 * <code>entity</code> will not collide with gets an infinite time and NaN
+	 * as its position. The values equal those of
+	 * {@link #getTimeCollisionEntity(Object, Object)} and
+	 * {@link #getPositionCollisionEntity(Object, Object)}, but are computed for
+	 * all entities at once. No memory is allocated, except by the default
+	 * implementation, which asks for the collision with each entity in turn.
+	 */
+	default int getCollisionsWithEntities(World world, Object entity, double[] times, double[] positions)
+			throws ModelException {
+		Set<? extends Object> entities = getEntities(world);
+		int n = entities.size();
+		if (times.length < n || positions.length < 2L * n) {
+			throw new ModelException("arrays too small for " + n + " entities");
+		}
+		int k = 0;
+		for (Object other : entities) {
+			times[k] = getTimeCollisionEntity(entity, other);
+			double[] position = getPositionCollisionEntity(entity, other);
+			positions[2*k] = (position == null) ? Double.NaN : position[0];
+			positions[2*k + 1] = (position == null) ? Double.NaN : position[1];
+			k++;
+		}
+		return n;
+	}
+
+	/**
+	 * Write whether <code>entity</code> overlaps every entity in
+	 * <code>world</code> into <code>overlaps</code>, in the order of
+	 * {@link #exportEntities(World, double[], int)}, and return the number of
+	 * entities written. Two entities overlap if the distance between their
+	 * centres is less than the sum of their radii, as for
+	 * {@link #overlap(Ship, Ship)}, periodic images in a toroidal world
+	 * included; an entity does not overlap itself. No memory is allocated,
+	 * except by the default implementation, which falls back on the getters
+	 * of each entity.
+	 */
+	default int getOverlapsWithEntities(World world, Object entity, boolean[] overlaps) throws ModelException {
+		Set<? extends Object> entities = getEntities(world);
+		int n = entities.size();
+		if (overlaps.length < n) {
+			throw new ModelException("array too small for " + n + " entities");
+		}
+		double[] state = new double[World.STATE_STRIDE], otherState = new double[World.STATE_STRIDE];
+		getState(entity, state, 0);
+		int k = 0;
+		for (Object other : entities) {
+			getState(other, otherState, 0);
+			double dx = otherState[2] - state[2], dy = otherState[3] - state[3], sigma = state[6] + otherState[6];
+			overlaps[k++] = (other != entity && dx*dx + dy*dy < sigma*sigma);
+		}
+		return n;
+	}
+
+	/**
+	 * Create a new non-null bullet with the given position, velocity and
+	 * radius, reusing a bullet that was terminated in <code>world</code> if
+	 * possible. The bullet is not added to <code>world</code>. A reused bullet
+	 * gets a new identifier, see {@link #getEntityId(Object)}.
+	 */
+	default Bullet createBullet(World world, double x, double y, double xVelocity, double yVelocity, double radius)
+			throws ModelException {
+		return createBullet(x, y, xVelocity, yVelocity, radius);
+	}
+
+	/**
+	 * Return the identifier of the given entity. An entity keeps its
+	 * identifier as long as it is not terminated; a bullet that is reused by
+	 * {@link #createBullet(World, double, double, double, double, double)}
+	 * gets a new one, so that a caller keeping the identifier along with the
+	 * bullet can tell that the bullet it referred to was terminated.
+	 */
+	public long getEntityId(Object entity) throws ModelException;
+
+	/**
+	 * Save <code>world</code>, with its ships, its bullets and the bullets
+	 * loaded on its ships, to the file at <code>path</code>, in a compact
+	 * binary form. The default implementation does not support saving.
+	 */
+	default void saveWorld(World world, String path) throws ModelException {
+		throw new ModelException("saving worlds is not supported");
+	}
+
+	/**
+	 * Return a new world holding the ships and bullets saved to the file at
+	 * <code>path</code> by {@link #saveWorld(World, String)}. The default
+	 * implementation does not support loading.
+	 */
+	default World loadWorld(String path) throws ModelException {
+		throw new ModelException("loading worlds is not supported");
+	}
+
+	/*
+	 * Allocation-free accessors. The methods above return a new array on every
+	 * call; the methods below let a caller that queries many entities per frame
+	 * read scalars, or pass in an array of at least two elements that is
+	 * filled in and returned. The default implementations fall back on the
+	 * methods above.
+	 */
+
+	/**
+	 * Return the position of <code>ship</code> along the X-axis.
+	 */
+	default double getShipX(Ship ship) throws ModelException {
+		return getShipPosition(ship)[0];
+	}
+
+	/**
+	 * Return the position of <code>ship</code> along the Y-axis.
+	 */
+	default double getShipY(Ship ship) throws ModelException {
+		return getShipPosition(ship)[1];
+	}
+
+	/**
+	 * Return the velocity of <code>ship</code> along the X-axis.
+	 */
+	default double getShipVelocityX(Ship ship) throws ModelException {
+		return getShipVelocity(ship)[0];
+	}
+
+	/**
+	 * Return the velocity of <code>ship</code> along the Y-axis.
+	 */
+	default double getShipVelocityY(Ship ship) throws ModelException {
+		return getShipVelocity(ship)[1];
+	}
+
+	/**
+	 * Store the position of <code>ship</code> in <code>destination</code>,
+	 * x-coordinate first, and return <code>destination</code>.
+	 */
+	default double[] getShipPosition(Ship ship, double[] destination) throws ModelException {
+		return copy(getShipPosition(ship), destination);
+	}
+
+	/**
+	 * Store the velocity of <code>ship</code> in <code>destination</code>,
+	 * velocity along the X-axis first, and return <code>destination</code>.
+	 */
+	default double[] getShipVelocity(Ship ship, double[] destination) throws ModelException {
+		return copy(getShipVelocity(ship), destination);
+	}
+
+	/**
+	 * Return the position of <code>bullet</code> along the X-axis.
+	 */
+	default double getBulletX(Bullet bullet) throws ModelException {
+		return getBulletPosition(bullet)[0];
+	}
+
+	/**
+	 * Return the position of <code>bullet</code> along the Y-axis.
+	 */
+	default double getBulletY(Bullet bullet) throws ModelException {
+		return getBulletPosition(bullet)[1];
+	}
+
+	/**
+	 * Return the velocity of <code>bullet</code> along the X-axis.
+	 */
+	default double getBulletVelocityX(Bullet bullet) throws ModelException {
+		return getBulletVelocity(bullet)[0];
+	}
+
+	/**
+	 * Return the velocity of <code>bullet</code> along the Y-axis.
+	 */
+	default double getBulletVelocityY(Bullet bullet) throws ModelException {
+		return getBulletVelocity(bullet)[1];
+	}
+
+	/**
+	 * Store the position of <code>bullet</code> in <code>destination</code>,
+	 * x-coordinate first, and return <code>destination</code>.
+	 */
+	default double[] getBulletPosition(Bullet bullet, double[] destination) throws ModelException {
+		return copy(getBulletPosition(bullet), destination);
+	}
+
+	/**
+	 * Store the velocity of <code>bullet</code> in <code>destination</code>,
+	 * velocity along the X-axis first, and return <code>destination</code>.
+	 */
+	default double[] getBulletVelocity(Bullet bullet, double[] destination) throws ModelException {
+		return copy(getBulletVelocity(bullet), destination);
+	}
+
+	/**
+	 * Store the first position at which the given entity will collide with a
+	 * boundary in <code>destination</code>, and return
+	 * <code>destination</code>, or <code>null</code> if there is no such
+	 * position.
+	 */
+	default double[] getPositionCollisionBoundary(Object object, double[] destination) throws ModelException {
+		return copy(getPositionCollisionBoundary(object), destination);
+	}
+
+	/**
+	 * Store the first position at which the first entity will collide with the
+	 * second entity in <code>destination</code>, and return
+	 * <code>destination</code>, or <code>null</code> if there is no such
+	 * position.
+	 */
+	default double[] getPositionCollisionEntity(Object entity1, Object entity2, double[] destination)
+			throws ModelException {
+		return copy(getPositionCollisionEntity(entity1, entity2), destination);
+	}
+
+	/**
+	 * Store the position of the first boundary collision or entity collision
+	 * in <code>world</code> in <code>destination</code>, and return
+	 * <code>destination</code>, or <code>null</code> if there is no such
+	 * position.
+	 */
+	default double[] getPositionNextCollision(World world, double[] destination) throws ModelException {
+		return copy(getPositionNextCollision(world), destination);
+	}
+
+	/**
+	 * Write the state of the given ship or bullet into <code>destination</code>
+	 * from <code>offset</code> on, in the layout of
+	 * {@link #exportEntities(World, double[], int)}.
+	 */
+	private void getState(Object entity, double[] destination, int offset) throws ModelException {
+		double[] position, velocity;
+		destination[offset] = getEntityId(entity);
+		if (entity instanceof Ship) {
+			Ship ship = (Ship) entity;
+			position = getShipPosition(ship);
+			velocity = getShipVelocity(ship);
+			destination[offset + 1] = World.STATE_SHIP;
+			destination[offset + 6] = getShipRadius(ship);
+			destination[offset + 7] = getShipOrientation(ship);
+		} else {
+			Bullet bullet = (Bullet) entity;
+			position = getBulletPosition(bullet);
+			velocity = getBulletVelocity(bullet);
+			destination[offset + 1] = World.STATE_BULLET;
+			destination[offset + 6] = getBulletRadius(bullet);
+			destination[offset + 7] = 0;
+		}
+		destination[offset + 2] = position[0];
+		destination[offset + 3] = position[1];
+		destination[offset + 4] = velocity[0];
+		destination[offset + 5] = velocity[1];
+	}
+
+	/**
+	 * Copy the two elements of <code>source</code> into
+	 * <code>destination</code> and return <code>destination</code>, or return
+	 * <code>null</code> if <code>source</code> is <code>null</code>.
+	 */
+	private static double[] copy(double[] source, double[] destination) {
+		if (source == null) {
+			return null;
+		}
+		destination[0] = source[0];
+		destination[1] = source[1];
+		return destination;
+	}
+
 	/**
 	 * This method is deprecated; you should not implement nor use it.
 	 * 
@@ -5,13 +5,14 @@ import java.awt.Dimension;
 import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 import javax.swing.JFrame;
 
-import asteroids.model.Bullet;
-import asteroids.model.Ship;
-import asteroids.model.World;
+import asteroids.part2.GameScenario;
+import asteroids.part2.ReplayRecorder;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 
@@ -23,6 +24,7 @@ public class AsteroidsFrame2<F extends IFacade> extends JFrame {
 	private int width;
 	private int height;
 	private Sound sound;
+	private Path replayFile;
 
 	public AsteroidsFrame2(F facade, int width, int height, boolean undecorated, Sound sound) {
 		super("Asteroids");
@@ -67,57 +69,32 @@ public class AsteroidsFrame2<F extends IFacade> extends JFrame {
 		menu.requestFocusInWindow();
 	}
 
+	/**
+	 * Record every following match to the file at the given path, or stop
+	 * recording if the path is null.
+	 */
+	public void setReplayFile(Path replayFile) {
+		this.replayFile = replayFile;
+	}
+
 	public void startGame() {
 		// Set op a world with 1 ship for the player and a random number
 		// of enemy ships.
-		World world;
-		Ship player;
+		GameScenario scenario;
+		ReplayRecorder recorder = null;
 		try {
-			world = facade.createWorld(width, height);
-			player = facade.createShip(width / 2., height / 2., 1, 6, 40, 0, 3e17);
-			facade.addShipToWorld(world, player);
+			scenario = new GameScenario(facade, width, height, new Random().nextLong());
+			if (replayFile != null)
+				recorder = new ReplayRecorder(replayFile, scenario, null);
 		} catch (ModelException e) {
 			handleError(e);
 			return;
-		}
-
-		for (int i = 1; i < 1000; i++) {
-			try {
-				Bullet bullet = facade.createBullet(width / 2.0, height / 2.0, 0, 0, Math.random() * 10 + 5);
-				facade.loadBulletOnShip(player, bullet);
-			} catch (ModelException e) {
-				handleError(e);
-			}
-		}
-		int nbEnemyShips = (int) (Math.random() * 10 + 1);
-		Set<Ship> enemies = new HashSet<>();
-		for (int j = 0; j < nbEnemyShips; j++) {
-			try {
-				Ship enemyShip = facade.createShip(Math.random() * width, Math.random() * height, 25, 50,
-						10.0 + Math.random() * 40, Math.random() * 2 * Math.PI / 3, 1.0E22);
-				facade.addShipToWorld(world, enemyShip);
-				for (int i = 1; i < 10; i++) {
-					Bullet bullet = facade.createBullet(facade.getShipPosition(enemyShip)[0],
-							facade.getShipPosition(enemyShip)[1], 0, 0, Math.PI);
-					facade.loadBulletOnShip(enemyShip, bullet);
-				}
-				enemies.add(enemyShip);
-			} catch (ModelException exc) {
-				// so be it
-			}
-		}
-		int nbBullets = (int) (Math.random() * 3);
-		for (int j = 0; j < nbBullets; j++) {
-			try {
-				Bullet bullet = facade.createBullet(Math.random() * width, Math.random() * height, 10, 12,
-						Math.random() * 5 + 3);
-				facade.addBulletToWorld(world, bullet);
-			} catch (ModelException exc) {
-				// so be it
-			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
 		}
 		try {
-			WorldView2<F> view = new WorldView2<>(this, world, player, enemies);
+			WorldView2<F> view = new WorldView2<>(this, scenario, recorder);
 			switchContent(view);
 			view.startGame();
 		} catch (ModelException e) {
@@ -152,6 +129,10 @@ public class AsteroidsFrame2<F extends IFacade> extends JFrame {
 	}
 
 	public static void run(IFacade facade, boolean tryFullscreen, boolean enableSound) {
+		run(facade, tryFullscreen, enableSound, null);
+	}
+
+	public static void run(IFacade facade, boolean tryFullscreen, boolean enableSound, Path replayFile) {
 		GraphicsEnvironment env = GraphicsEnvironment.getLocalGraphicsEnvironment();
 		GraphicsDevice screen = env.getDefaultScreenDevice();
 		AsteroidsFrame2<IFacade> asteroids;
@@ -164,6 +145,7 @@ public class AsteroidsFrame2<F extends IFacade> extends JFrame {
 		} else {
 			asteroids = new AsteroidsFrame2<>(facade, 1024, 768, false, sound);
 		}
+		asteroids.setReplayFile(replayFile);
 		asteroids.start();
 	}
 }
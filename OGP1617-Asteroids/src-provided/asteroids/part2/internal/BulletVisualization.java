@@ -4,6 +4,7 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 
 import asteroids.model.Bullet;
+import asteroids.model.WorldSnapshot;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 
@@ -15,16 +16,32 @@ public class BulletVisualization<F extends IFacade> extends Visualization<F, Bul
 
 	@Override
 	public void draw(DrawContext<F> ctx) {
-		Graphics2D g2d = ctx.getGraphics();
 		try {
 			F facade = ctx.getFacade();
-			double radius = facade.getBulletRadius(getObject());
-			double x = ctx.worldToScreenX(facade.getBulletPosition(getObject())[0]);
-			double y = ctx.worldToScreenY(facade.getBulletPosition(getObject())[1]);
-			g2d.setColor(getColor());
-			g2d.drawOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
+			draw(ctx, facade.getBulletX(getObject()), facade.getBulletY(getObject()),
+					facade.getBulletRadius(getObject()));
 		} catch (ModelException e) {
 			ctx.handleError(e);
 		}
 	}
+
+	@Override
+	public void draw(DrawContext<F> ctx, WorldSnapshot snapshot, int index, WorldSnapshot previous) {
+		double x = snapshot.getX(index), y = snapshot.getY(index);
+		int before = getPreviousIndex(snapshot, index, previous);
+		if (before >= 0) {
+			double alpha = ctx.getInterpolation();
+			x = previous.getX(before) + alpha * (x - previous.getX(before));
+			y = previous.getY(before) + alpha * (y - previous.getY(before));
+		}
+		draw(ctx, x, y, snapshot.getRadius(index));
+	}
+
+	private void draw(DrawContext<F> ctx, double x, double y, double radius) {
+		Graphics2D g2d = ctx.getGraphics();
+		x = ctx.worldToScreenX(x);
+		y = ctx.worldToScreenY(y);
+		g2d.setColor(getColor());
+		g2d.drawOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
+	}
 }
@@ -4,7 +4,6 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
-import java.util.Set;
 import java.util.function.Supplier;
 
 import asteroids.model.Bullet;
@@ -17,6 +16,12 @@ public class CollisionVisualization<F extends IFacade> extends Visualization<F,
 
 	private Supplier<Boolean> showCollisions;
 
+	// reused on every frame, so that drawing allocates no arrays once they are large enough
+	private double[] state = new double[0];
+	private double[] times = new double[0];
+	private double[] collisionPositions = new double[0];
+	private boolean[] overlaps = new boolean[0];
+
 	public CollisionVisualization(Ship ship, Supplier<Boolean> showCollisions) {
 		super(null, ship, null);
 		this.showCollisions = showCollisions;
@@ -44,33 +49,34 @@ public class CollisionVisualization<F extends IFacade> extends Visualization<F,
 				min_dt = dt;
 			}
 
-			Object min_ship = null;
-			Set<? extends Object> ships = facade.getEntities(world);
+			// the collisions with all entities at once, in the order of the exported state
+			int n = facade.getNbEntities(world);
+			if (times.length < n) {
+				state = new double[2 * n * World.STATE_STRIDE];
+				times = new double[2 * n];
+				collisionPositions = new double[4 * n];
+				overlaps = new boolean[2 * n];
+			}
+			n = facade.exportEntities(world, state, 0);
+			facade.getCollisionsWithEntities(world, selected, times, collisionPositions);
+			facade.getOverlapsWithEntities(world, selected, overlaps);
+			long selectedId = facade.getEntityId(selected);
 
 			// find next collision, if any
-			for (Object entity : ships) {
-				if (entity == selected)
+			int min_ship = -1;
+			for (int k = 0; k < n; k++) {
+				if ((long) state[k * World.STATE_STRIDE] == selectedId || overlapsShip(k))
 					continue;
-
-				try {
-					if (!(entity instanceof Ship) || !facade.overlap(selected, (Ship) entity)) {
-						dt = facade.getTimeCollisionEntity(selected, entity);
-						if (dt < min_dt) {
-							min_dt = dt;
-							min_ship = entity;
-						}
-					}
-				} catch (ModelException e) {
-					e.printStackTrace();
+				if (times[k] < min_dt) {
+					min_dt = times[k];
+					min_ship = k;
 				}
 			}
 			try {
 				// draw circles
 				dt = min_dt;
-				double[] xy = facade.getShipPosition(selected);
-				double x = xy[0], y = xy[1];
-				double[] vxy = facade.getShipVelocity(selected);
-				double vx = vxy[0], vy = vxy[1];
+				double x = facade.getShipX(selected), y = facade.getShipY(selected);
+				double vx = facade.getShipVelocityX(selected), vy = facade.getShipVelocityY(selected);
 
 				double x1_Collision = x + dt * vx;
 				double y1_Collision = y + dt * vy;
@@ -86,26 +92,22 @@ public class CollisionVisualization<F extends IFacade> extends Visualization<F,
 							(int) Math.round(ctx.worldToScreenX(x1_Collision)),
 							(int) Math.round(ctx.worldToScreenY(y1_Collision)));
 
-					Object first = min_ship;
-					if (first != null) {
-						double[] first_xy = getPosition(facade, first);
-						if (first_xy != null) {
-							double first_x = first_xy[0], first_y = first_xy[1];
-							double[] first_vxy = getVelocity(facade, first);
-							double first_vx = first_vxy[0], first_vy = first_vxy[1];
-
-							double x2_Collision = first_x + dt * first_vx;
-							double y2_Collision = first_y + dt * first_vy;
-
-							int radius2 = (int) getRadius(facade, first);
-							g2d.drawOval((int) Math.round(ctx.worldToScreenX(x2_Collision) - radius2),
-									(int) Math.round(ctx.worldToScreenY(y2_Collision) - radius2), 2 * radius2,
-									2 * radius2);
-							g2d.drawLine((int) Math.round(ctx.worldToScreenX(first_x)),
-									(int) Math.round(ctx.worldToScreenY(first_y)),
-									(int) Math.round(ctx.worldToScreenX(x2_Collision)),
-									(int) Math.round(ctx.worldToScreenY(y2_Collision)));
-						}
+					if (min_ship >= 0) {
+						int first = min_ship * World.STATE_STRIDE;
+						double first_x = state[first + 2], first_y = state[first + 3];
+						double first_vx = state[first + 4], first_vy = state[first + 5];
+
+						double x2_Collision = first_x + dt * first_vx;
+						double y2_Collision = first_y + dt * first_vy;
+
+						int radius2 = (int) state[first + 6];
+						g2d.drawOval((int) Math.round(ctx.worldToScreenX(x2_Collision) - radius2),
+								(int) Math.round(ctx.worldToScreenY(y2_Collision) - radius2), 2 * radius2,
+								2 * radius2);
+						g2d.drawLine((int) Math.round(ctx.worldToScreenX(first_x)),
+								(int) Math.round(ctx.worldToScreenY(first_y)),
+								(int) Math.round(ctx.worldToScreenX(x2_Collision)),
+								(int) Math.round(ctx.worldToScreenY(y2_Collision)));
 					}
 				} finally {
 					g2d.setStroke(oldStroke);
@@ -114,20 +116,13 @@ public class CollisionVisualization<F extends IFacade> extends Visualization<F,
 				e.printStackTrace();
 			}
 			// draw cross
-			for (Object entity : ships) {
-				try {
-					if (!(entity instanceof Ship) || !(facade.overlap(selected, (Ship) entity))) {
-						double[] colPos = facade.getPositionCollisionEntity(selected, entity);
-						if (colPos != null) {
-							int x = (int) Math.round(ctx.worldToScreenX(colPos[0]));
-							int y = (int) Math.round(ctx.worldToScreenY(colPos[1]));
-							g2d.setColor(Color.WHITE);
-							g2d.drawLine(x - 5, y, x + 5, y);
-							g2d.drawLine(x, y - 5, x, y + 5);
-						}
-					}
-				} catch (ModelException e) {
-					e.printStackTrace();
+			g2d.setColor(Color.WHITE);
+			for (int k = 0; k < n; k++) {
+				if (times[k] < Double.POSITIVE_INFINITY && !overlapsShip(k)) {
+					int x = (int) Math.round(ctx.worldToScreenX(collisionPositions[2 * k]));
+					int y = (int) Math.round(ctx.worldToScreenY(collisionPositions[2 * k + 1]));
+					g2d.drawLine(x - 5, y, x + 5, y);
+					g2d.drawLine(x, y - 5, x, y + 5);
 				}
 			}
 		} catch (ModelException e) {
@@ -135,6 +130,11 @@ public class CollisionVisualization<F extends IFacade> extends Visualization<F,
 		}
 	}
 
+	// whether the k-th exported entity is a ship overlapping the selected ship, as facade.overlap decides
+	private boolean overlapsShip(int k) {
+		return state[k * World.STATE_STRIDE + 1] == World.STATE_SHIP && overlaps[k];
+	}
+
 	protected double[] getPosition(F facade, Object object) throws ModelException {
 		if (object instanceof Ship) {
 			return facade.getShipPosition((Ship) object);
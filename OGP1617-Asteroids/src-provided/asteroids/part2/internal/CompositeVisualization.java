@@ -1,5 +1,7 @@
 package asteroids.part2.internal;
 
+import asteroids.model.WorldSnapshot;
+
 public class CompositeVisualization<F, T> extends Visualization<F, T> {
 
 	private final Visualization<F, T>[] vis;
@@ -17,4 +19,11 @@ public class CompositeVisualization<F, T> extends Visualization<F, T> {
 		}
 	}
 
+	@Override
+	public void draw(DrawContext<F> context, WorldSnapshot snapshot, int index, WorldSnapshot previous) {
+		for (Visualization<F, T> v : vis) {
+			v.draw(context, snapshot, index, previous);
+		}
+	}
+
 }
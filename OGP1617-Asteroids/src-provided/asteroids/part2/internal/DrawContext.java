@@ -15,4 +15,12 @@ public interface DrawContext<F> {
 	public double worldToScreenY(double y);
 
 	public void handleError(ModelException e);
+
+	/**
+	 * Return the weight, between 0 and 1, with which positions remembered before
+	 * the last simulation step are interpolated towards the current positions.
+	 */
+	public default double getInterpolation() {
+		return 1;
+	}
 }
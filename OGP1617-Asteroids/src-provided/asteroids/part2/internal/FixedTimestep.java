@@ -0,0 +1,71 @@
+package asteroids.part2.internal;
+
+/**
+ * Accumulates elapsed wall-clock time and hands it out as a whole number of
+ * simulation steps of fixed length. The time left over, as a fraction of a
+ * step, is the weight with which a renderer interpolates between the last two
+ * simulation states.
+ *
+ * At most a fixed number of steps is handed out per call, so that a long pause
+ * (a GC pause, a window being dragged) does not make the simulation spiral into
+ * ever more catch-up work; time beyond that is dropped.
+ */
+public class FixedTimestep {
+
+	private double step;
+	private int maxSteps;
+	private double accumulated;
+
+	public FixedTimestep(double step, int maxSteps) {
+		setStep(step);
+		setMaxSteps(maxSteps);
+	}
+
+	public double getStep() {
+		return step;
+	}
+
+	public void setStep(double step) {
+		if (!(step > 0) || Double.isInfinite(step))
+			throw new IllegalArgumentException("step must be positive: " + step);
+		this.step = step;
+		this.accumulated = Math.min(accumulated, step);
+	}
+
+	public int getMaxSteps() {
+		return maxSteps;
+	}
+
+	public void setMaxSteps(int maxSteps) {
+		if (maxSteps < 1)
+			throw new IllegalArgumentException("at least one step per frame: " + maxSteps);
+		this.maxSteps = maxSteps;
+	}
+
+	/**
+	 * Add the given number of seconds to the accumulated time and return the
+	 * number of steps to simulate now. Time beyond the maximal number of steps
+	 * is dropped.
+	 */
+	public int advance(double elapsed) {
+		if (elapsed > 0)
+			accumulated += elapsed;
+		int steps = (int) Math.min(maxSteps, Math.floor(accumulated / step));
+		accumulated -= steps * step;
+		if (steps == maxSteps && accumulated >= step)
+			accumulated = accumulated % step;
+		return steps;
+	}
+
+	/**
+	 * Return the fraction of a step accumulated since the last step, between 0
+	 * (inclusive) and 1 (exclusive).
+	 */
+	public double getAlpha() {
+		return Math.max(0, Math.min(accumulated / step, 1));
+	}
+
+	public void reset() {
+		accumulated = 0;
+	}
+}
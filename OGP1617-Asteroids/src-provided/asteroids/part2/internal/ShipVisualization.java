@@ -10,6 +10,7 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
 
 import asteroids.model.Ship;
+import asteroids.model.WorldSnapshot;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 
@@ -22,39 +23,56 @@ public class ShipVisualization<F extends IFacade> extends Visualization<F, Ship>
 	@Override
 	public void draw(DrawContext<F> ctx) {
 		try {
-			Graphics2D g2d = ctx.getGraphics();
 			F facade = ctx.getFacade();
-			double radius = facade.getShipRadius(getObject());
-			double angle = -facade.getShipOrientation(getObject());
-			double x = ctx.worldToScreenX(facade.getShipPosition(getObject())[0]);
-			double y = ctx.worldToScreenY(facade.getShipPosition(getObject())[1]);
-			g2d.setColor(getColor());
-			if (getImage() == null) {
-				g2d.drawOval((int) Math.round(x - radius), (int) Math.round(y - radius),
-						(int) Math.round(2 * radius), (int) Math.round(2 * radius));
-			} else {
-				AffineTransform T = AffineTransform.getTranslateInstance(radius, radius);
-				T.rotate(angle);
-				T.translate(-radius, -radius);
-				T.preConcatenate(AffineTransform.getTranslateInstance(x - radius, y - radius));
-				g2d.drawImage(getImage(), T, null);
-			}
-			g2d.setStroke(new BasicStroke(2));
-			g2d.drawLine((int) Math.round(x), (int) Math.round(y), (int) Math.round(x + Math.cos(angle) * radius),
-					(int) Math.round(y + sin(angle) * radius));
-			if (facade.isShipThrusterActive(getObject())) {
-				Path2D.Double flame = new Path2D.Double();
-				double flameAngle = Math.PI / 12;
-				flame.moveTo(radius * Math.cos(Math.PI - flameAngle), radius * Math.sin(Math.PI - flameAngle));
-				flame.lineTo(-radius - radius / 3, 0);
-				flame.lineTo(radius * Math.cos(Math.PI + flameAngle), radius * Math.sin(Math.PI + flameAngle));
-				flame.transform(AffineTransform.getRotateInstance(angle));
-				flame.transform(AffineTransform.getTranslateInstance(x, y));
-				g2d.setColor(Color.orange);
-				g2d.draw(flame);
-			}
+			draw(ctx, facade.getShipX(getObject()), facade.getShipY(getObject()), facade.getShipRadius(getObject()),
+					facade.getShipOrientation(getObject()), facade.isShipThrusterActive(getObject()));
 		} catch (ModelException e) {
 			ctx.handleError(e);
 		}
 	}
+
+	@Override
+	public void draw(DrawContext<F> ctx, WorldSnapshot snapshot, int index, WorldSnapshot previous) {
+		double x = snapshot.getX(index), y = snapshot.getY(index);
+		int before = getPreviousIndex(snapshot, index, previous);
+		if (before >= 0) {
+			double alpha = ctx.getInterpolation();
+			x = previous.getX(before) + alpha * (x - previous.getX(before));
+			y = previous.getY(before) + alpha * (y - previous.getY(before));
+		}
+		draw(ctx, x, y, snapshot.getRadius(index), snapshot.getOrientation(index), snapshot.isThrusterActive(index));
+	}
+
+	private void draw(DrawContext<F> ctx, double x, double y, double radius, double orientation,
+			boolean thrusterActive) {
+		Graphics2D g2d = ctx.getGraphics();
+		double angle = -orientation;
+		x = ctx.worldToScreenX(x);
+		y = ctx.worldToScreenY(y);
+		g2d.setColor(getColor());
+		if (getImage() == null) {
+			g2d.drawOval((int) Math.round(x - radius), (int) Math.round(y - radius),
+					(int) Math.round(2 * radius), (int) Math.round(2 * radius));
+		} else {
+			AffineTransform T = AffineTransform.getTranslateInstance(radius, radius);
+			T.rotate(angle);
+			T.translate(-radius, -radius);
+			T.preConcatenate(AffineTransform.getTranslateInstance(x - radius, y - radius));
+			g2d.drawImage(getImage(), T, null);
+		}
+		g2d.setStroke(new BasicStroke(2));
+		g2d.drawLine((int) Math.round(x), (int) Math.round(y), (int) Math.round(x + Math.cos(angle) * radius),
+				(int) Math.round(y + sin(angle) * radius));
+		if (thrusterActive) {
+			Path2D.Double flame = new Path2D.Double();
+			double flameAngle = Math.PI / 12;
+			flame.moveTo(radius * Math.cos(Math.PI - flameAngle), radius * Math.sin(Math.PI - flameAngle));
+			flame.lineTo(-radius - radius / 3, 0);
+			flame.lineTo(radius * Math.cos(Math.PI + flameAngle), radius * Math.sin(Math.PI + flameAngle));
+			flame.transform(AffineTransform.getRotateInstance(angle));
+			flame.transform(AffineTransform.getTranslateInstance(x, y));
+			g2d.setColor(Color.orange);
+			g2d.draw(flame);
+		}
+	}
 }
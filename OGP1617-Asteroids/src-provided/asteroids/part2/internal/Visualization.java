@@ -3,6 +3,8 @@ package asteroids.part2.internal;
 import java.awt.Color;
 import java.awt.Image;
 
+import asteroids.model.WorldSnapshot;
+
 public abstract class Visualization<F, T> implements Drawable<DrawContext<F>> {
 	private final Color color;
 	private final T object;
@@ -27,4 +29,30 @@ public abstract class Visualization<F, T> implements Drawable<DrawContext<F>> {
 	public Image getImage() {
 		return image;
 	}
+
+	/**
+	 * Draw the object as the entity at the given index in the given snapshot of its world. The
+	 * previous snapshot was taken one simulation step before the given one, or is null; drawing can
+	 * interpolate between the state of the entity in it and its state in the given snapshot. By
+	 * default, the object is drawn as the facade reports it.
+	 */
+	public void draw(DrawContext<F> ctx, WorldSnapshot snapshot, int index, WorldSnapshot previous) {
+		draw(ctx);
+	}
+
+	/**
+	 * Return the index in the previous snapshot of the entity at the given index in the given
+	 * snapshot, or -1 if the previous snapshot is null or does not hold that entity.
+	 */
+	protected static int getPreviousIndex(WorldSnapshot snapshot, int index, WorldSnapshot previous) {
+		if (previous == null) {
+			return -1;
+		}
+		long id = snapshot.getId(index);
+		// entities mostly keep their index from one step to the next
+		if (index < previous.getNbEntities() && previous.getId(index) == id) {
+			return index;
+		}
+		return previous.indexOf(id);
+	}
 }
@@ -10,30 +10,42 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.geom.Rectangle2D;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.function.Supplier;
 
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
 import asteroids.model.Bullet;
+import asteroids.model.CollisionBatch;
 import asteroids.model.Ship;
 import asteroids.model.World;
-import asteroids.part2.CollisionListener;
+import asteroids.model.WorldSnapshot;
+import asteroids.part2.CollisionBatchListener;
+import asteroids.part2.GameScenario;
+import asteroids.part2.ReplayRecorder;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 import asteroids.util.internal.InternalUtils;
 import asteroids.util.internal.ResourceUtils;
 
 @SuppressWarnings("serial")
-public class WorldView2<F extends IFacade> extends JPanel implements KeyListener, ActionListener, CollisionListener {
+public class WorldView2<F extends IFacade> extends JPanel implements KeyListener, ActionListener, CollisionBatchListener {
 
-	private static final int TIMER_DELAY = 1000 / 30;
+	/**
+	 * The default length of a simulation step, and the default maximal number of
+	 * steps simulated per rendered frame to catch up after a pause.
+	 */
+	public static final double SIMULATION_STEP = 1.0 / 30;
+	public static final int MAX_CATCH_UP_STEPS = 5;
+
+	private static final int TIMER_DELAY = 1000 / 120;
 
 	private AsteroidsFrame2<F> game;
 	private F facade;
@@ -44,9 +56,13 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	private boolean fire;
 	private Timer timer;
 	private long timeAfterLastEvolve;
+	private final FixedTimestep clock = new FixedTimestep(SIMULATION_STEP, MAX_CATCH_UP_STEPS);
+	private WorldSnapshot previousSnapshot;
+	private Random random = new Random();
+	private ReplayRecorder recorder;
 	private Image background;
 	private String msg = null;
-	private Map<Object, Visualization<F, ?>> visualizations = new HashMap<>();
+	private Map<Long, Visualization<F, ?>> visualizations = new HashMap<>();
 	private Set<Explosion> explosions = new HashSet<>();
 
 	private boolean showCollisions = false;
@@ -61,14 +77,29 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		background = ResourceUtils.loadImage("asteroids/resources/game-background.jpg")
 				.getScaledInstance(game.getWidth(), game.getHeight(), Image.SCALE_DEFAULT);
 		if (player != null) {
-			visualizations.put(player, createPlayerVisualization(player));
+			visualizations.put(facade.getEntityId(player), createPlayerVisualization(player));
 		}
 		for (Ship enemy : enemies) {
 			if (enemy != null)
-				visualizations.put(enemy, createEnemyVisualization(enemy));
+				visualizations.put(facade.getEntityId(enemy), createEnemyVisualization(enemy));
 		}
+		updateVisualizations();
+		// frames are painted from the snapshot published after each step
+		world.setPublishingSnapshots(true);
 		addKeyListener(this);
 	}
+
+	/**
+	 * Create a view on the match set up by the given scenario. Random decisions
+	 * are drawn from the generator of the scenario, and all inputs, steps and
+	 * collisions are written to the given recorder, if any.
+	 */
+	public WorldView2(AsteroidsFrame2<F> game, GameScenario scenario, ReplayRecorder recorder) throws ModelException {
+		this(game, scenario.getWorld(), scenario.getPlayer(),
+				new HashSet<>(scenario.getShips().subList(1, scenario.getShips().size())));
+		this.random = scenario.getRandom();
+		this.recorder = recorder;
+	}
 	
 	public Ship getPlayer() {
 		return player;
@@ -86,6 +117,15 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		return new ShipVisualization<>(Color.GREEN, enemy, image);
 	}
 
+	/**
+	 * Return the clock dividing elapsed time into simulation steps. Its step and
+	 * its maximal number of catch-up steps can be configured; frames are rendered
+	 * independently of it, interpolating between the last two simulation steps.
+	 */
+	public FixedTimestep getClock() {
+		return clock;
+	}
+
 	public boolean getShowCollisions() {
 		return showCollisions;
 	}
@@ -166,6 +206,11 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 			public void handleError(ModelException e) {
 				WorldView2.this.handleError(e);
 			}
+
+			@Override
+			public double getInterpolation() {
+				return clock.getAlpha();
+			}
 		};
 	}
 
@@ -180,48 +225,45 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	}
 
 	protected void drawObjects(DrawContext<F> ctx) {
-		drawShips(ctx);
-		drawBullets(ctx);
+		WorldSnapshot snapshot = world.getSnapshot();
+		if (snapshot != null) {
+			drawShips(ctx, snapshot);
+			drawBullets(ctx, snapshot);
+		}
 		for (Explosion explosion : explosions) {
 			explosion.draw(ctx);
 		}
 	}
 
-	protected void drawBullets(DrawContext<F> ctx) {
-		Set<? extends Bullet> bullets;
-		try {
-			bullets = facade.getWorldBullets(world);
-		} catch (ModelException e) {
-			handleError(e);
-			return;
-		}
-		for (Bullet bullet : bullets) {
-			getOrCreateVisualization(bullet, this::createBulletVisualization).draw(ctx);
+	protected void drawBullets(DrawContext<F> ctx, WorldSnapshot snapshot) {
+		for (int i = 0; i < snapshot.getNbEntities(); i++) {
+			Visualization<F, ?> visualization = visualizations.get(snapshot.getId(i));
+			if (snapshot.isBullet(i) && visualization != null) {
+				visualization.draw(ctx, snapshot, i, previousSnapshot);
+			}
 		}
 	}
 
 	protected Visualization<F, Bullet> createBulletVisualization(Bullet bullet) {
 		Ship ship = null;
+		Visualization<F, ?> shipVisualization = null;
 		try {
 			ship = facade.getBulletShip(bullet);
+			if (ship != null)
+				shipVisualization = visualizations.get(facade.getEntityId(ship));
 		} catch (ModelException e) {
 			handleError(e);
 		}
-		Color bulletColor = visualizations.get(ship) == null ? Color.RED : visualizations.get(ship).getColor();
+		Color bulletColor = shipVisualization == null ? Color.RED : shipVisualization.getColor();
 		return new BulletVisualization<>(bulletColor, bullet);
 	}
 
-	protected void drawShips(DrawContext<F> ctx) {
-		Set<? extends Ship> ships;
-		try {
-			ships = facade.getWorldShips(world);
-		} catch (ModelException e) {
-			handleError(e);
-			return;
-		}
-
-		for (Ship ship : ships) {
-			getOrCreateVisualization(ship, this::createEnemyVisualization).draw(ctx);
+	protected void drawShips(DrawContext<F> ctx, WorldSnapshot snapshot) {
+		for (int i = 0; i < snapshot.getNbEntities(); i++) {
+			Visualization<F, ?> visualization = visualizations.get(snapshot.getId(i));
+			if (snapshot.isShip(i) && visualization != null) {
+				visualization.draw(ctx, snapshot, i, previousSnapshot);
+			}
 		}
 	}
 
@@ -240,6 +282,7 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		case KeyEvent.VK_ESCAPE:
 			System.out.println("exiting...");
 			timer.stop();
+			closeRecorder();
 			// game.showMenu();
 			System.exit(0);
 			break;
@@ -278,20 +321,49 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 
 	@Override
 	public void actionPerformed(ActionEvent e) {
-		long now = System.currentTimeMillis();
-		long millisSinceLastEvolve = now - timeAfterLastEvolve;
+		long now = System.nanoTime();
+		double secondsSinceLastFrame = (now - timeAfterLastEvolve) / 1e9;
 		timeAfterLastEvolve = now;
 
-		doActions();
-
-		evolveWorld(millisSinceLastEvolve);
+		int steps = clock.advance(secondsSinceLastFrame);
+		for (int i = 0; i < steps && timer.isRunning(); i++) {
+			doActions();
+			previousSnapshot = world.getSnapshot();
+			evolveWorld(clock.getStep());
+			updateVisualizations();
+			checkGameOver();
+		}
 
-		updateExplosions(millisSinceLastEvolve);
+		updateExplosions(secondsSinceLastFrame);
 
-		checkGameOver();
 		repaint();
 	}
 
+	/**
+	 * Give every entity of the world a visualization, keyed by its identifier, and drop the
+	 * visualizations of entities that left it. A bullet that is reused gets a new identifier, and
+	 * so a new visualization.
+	 */
+	private void updateVisualizations() {
+		Map<Long, Visualization<F, ?>> current = new HashMap<>();
+		try {
+			for (Ship ship : facade.getWorldShips(world)) {
+				long id = facade.getEntityId(ship);
+				Visualization<F, ?> visualization = visualizations.get(id);
+				current.put(id, (visualization != null) ? visualization : createEnemyVisualization(ship));
+			}
+			for (Bullet bullet : facade.getWorldBullets(world)) {
+				long id = facade.getEntityId(bullet);
+				Visualization<F, ?> visualization = visualizations.get(id);
+				current.put(id, (visualization != null) ? visualization : createBulletVisualization(bullet));
+			}
+		} catch (ModelException exc) {
+			handleError(exc);
+			return;
+		}
+		visualizations = current;
+	}
+
 	private void doActions() {
 		doTurn();
 		doThrust();
@@ -301,10 +373,10 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	protected void doFire() {
 		try {
 			if (fire && isPlayerActive(player)) {
-				facade.fireBullet(player);
+				fire(player);
 				for (Ship enemy : facade.getWorldShips(world))
-					if ((enemy != player) && (Math.random() > 0.75))
-						facade.fireBullet(enemy);
+					if ((enemy != player) && (random.nextDouble() > 0.75))
+						fire(enemy);
 				game.getSound().play("torpedo");
 			}
 		} catch (ModelException exc) {
@@ -314,6 +386,12 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		}
 	}
 
+	private void fire(Ship ship) throws ModelException {
+		if (recorder != null)
+			recorder.recordFire(ship);
+		GameScenario.fireBullet(facade, world, ship);
+	}
+
 	protected boolean isPlayerActive(Ship ship) {
 		try {
 			Set<? extends Ship> ships = facade.getWorldShips(world);
@@ -328,6 +406,8 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		if (thrusterChange) {
 			try {
 				boolean thrusterOn = !facade.isShipThrusterActive(player);
+				if (recorder != null)
+					recorder.recordThrust(player, thrusterOn);
 				facade.setThrusterActive(player, thrusterOn);
 			} catch (ModelException exc) {
 				handleError(exc);
@@ -341,8 +421,10 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		if (!Double.isNaN(deltaAngle)) {
 			try {
 				if (deltaAngle != 0) {
-					facade.turn(player,
-							InternalUtils.toProperAngleDelta(facade.getShipOrientation(player), deltaAngle));
+					double angle = InternalUtils.toProperAngleDelta(facade.getShipOrientation(player), deltaAngle);
+					if (recorder != null)
+						recorder.recordTurn(player, angle);
+					facade.turn(player, angle);
 				}
 			} catch (ModelException exc) {
 				handleError(exc);
@@ -350,18 +432,20 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		}
 	}
 
-	private void evolveWorld(long millisSinceLastEvolve) {
+	private void evolveWorld(double dt) {
 		try {
-			facade.evolve(world, millisSinceLastEvolve / 1000., this);
+			if (recorder != null)
+				recorder.recordEvolve(dt);
+			facade.evolveBatched(world, dt, this);
 		} catch (ModelException exc) {
 			handleError(exc);
 		}
 	}
 
-	private void updateExplosions(long millisSinceLastEvolve) {
+	private void updateExplosions(double dt) {
 		Iterator<Explosion> iter = explosions.iterator();
 		while (iter.hasNext()) {
-			boolean done = iter.next().evolve(millisSinceLastEvolve / 1000.);
+			boolean done = iter.next().evolve(dt);
 			if (done)
 				iter.remove();
 		}
@@ -383,28 +467,47 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 
 	protected void gameOver(String string) {
 		timer.stop();
+		closeRecorder();
 		msg = string;
 	}
 
+	private void closeRecorder() {
+		if (recorder != null) {
+			try {
+				recorder.close();
+			} catch (IOException exc) {
+				exc.printStackTrace();
+			}
+		}
+	}
+
 	public void startGame() {
 		game.getSound().loop("game-theme");
-		timeAfterLastEvolve = System.currentTimeMillis();
+		timeAfterLastEvolve = System.nanoTime();
+		clock.reset();
 		timer.start();
 	}
 
 	@Override
-	public void boundaryCollision(Object entity, double x, double y) {
-
-	}
-
-	@Override
-	public void objectCollision(Object entity1, Object entity2, double x, double y) {
+	public void collisions(CollisionBatch batch) {
+		if (recorder != null)
+			recorder.recordCollisions(batch);
 		try {
-			if ((entity1 instanceof Bullet && !(entity2 instanceof Bullet))
-					|| (entity2 instanceof Bullet && !(entity1 instanceof Bullet))) {
-				game.getSound().play("explosion");
-				explosions.add(new Explosion(x, facade.getWorldSize(world)[1] - y));
+			double height = facade.getWorldSize(world)[1];
+			boolean exploded = false;
+			for (int i = 0; i < batch.getNbCollisions(); i++) {
+				if (batch.isBoundaryCollision(i))
+					continue;
+				Object entity1 = batch.getFirst(i), entity2 = batch.getSecond(i);
+				if ((entity1 instanceof Bullet && !(entity2 instanceof Bullet))
+						|| (entity2 instanceof Bullet && !(entity1 instanceof Bullet))) {
+					explosions.add(new Explosion(batch.getX(i), height - batch.getY(i)));
+					exploded = true;
+				}
 			}
+			// one sound for all explosions of a step
+			if (exploded)
+				game.getSound().play("explosion");
 		} catch (ModelException exc) {
 			handleError(exc);
 		}
@@ -421,12 +524,4 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	protected F getFacade() {
 		return facade;
 	}
-
-	@SuppressWarnings("unchecked")
-	protected <T> Visualization<F, T> getOrCreateVisualization(T object, Function<T, Visualization<F, T>> creator) {
-		if (!visualizations.containsKey(object)) {
-			visualizations.put(object, creator.apply(object));
-		}
-		return (Visualization<F, T>) visualizations.get(object);
-	}
 }
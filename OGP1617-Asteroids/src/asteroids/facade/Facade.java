@@ -1,95 +1,565 @@
-package asteroids.facade;
-import asteroids.model.Ship;
-import asteroids.part1.facade.IFacade;
-import asteroids.util.ModelException;
-
-public class Facade implements IFacade{
-
-	@Override
-	public Ship createShip() throws ModelException {
-		// TODO Auto-generated method stub
-		Ship ship = new Ship();
-		return ship;
-	}
-
-	@Override
-	public Ship createShip(double x, double y, double xVelocity, double yVelocity, double radius, double orientation) throws ModelException {
-		// TODO Auto-generated method stub
-		try{
-			Ship ship = new Ship(x, y, xVelocity, yVelocity, radius, orientation);			
-			return ship;
-		}catch(IllegalArgumentException ex){
-			throw new ModelException(ex);
-		}
-	}
-
-	@Override
-	public double[] getShipPosition(Ship ship) throws ModelException {
-		return new double[]{ship.getxCoordinate(),ship.getyCoordinate()};
-	}
-
-	@Override
-	public double[] getShipVelocity(Ship ship) throws ModelException {
-		// TODO Auto-generated method stub
-		return new double[]{ship.getxVelocity(),ship.getyVelocity()};
-	}
-
-	@Override
-	public double getShipRadius(Ship ship) throws ModelException {
-		// TODO Auto-generated method stub
-		return ship.getRadius();
-	}
-
-	@Override
-	public double getShipOrientation(Ship ship) throws ModelException {
-		// TODO Auto-generated method stub
-		return ship.getOrientation();
-	}
-
-	@Override
-	public void move(Ship ship, double dt) throws ModelException {
-		// TODO Auto-generated method stub
-		try{
-			ship.move(dt);
-		}catch(IllegalArgumentException ex){
-			throw new ModelException(ex);
-		}
-	}
-
-	@Override
-	public void thrust(Ship ship, double amount) throws ModelException {
-		// TODO Auto-generated method stub
-		ship.thrust(amount);
-	}
-
-	@Override
-	public void turn(Ship ship, double angle) throws ModelException {
-		// TODO Auto-generated method stub
-		ship.turn(angle);
-	}
-
-	@Override
-	public double getDistanceBetween(Ship ship, Ship other) throws ModelException {
-		// TODO Auto-generated method stub
-		return ship.getDistanceBetween(other);
-	}
-
-	@Override
-	public boolean overlap(Ship ship, Ship other) throws ModelException {
-		// TODO Auto-generated method stub
-		return ship.overlap(other);
-	}
-
-	@Override
-	public double getTimeToCollision(Ship ship, Ship other) throws ModelException {
-		// TODO Auto-generated method stub
-		return ship.getTimeToCollision(other);
-	}
-
-	@Override
-	public double[] getCollisionPosition(Ship ship, Ship other) throws ModelException {
-		// TODO Auto-generated method stub
-		return ship.getCollisionPosition(other);
-	}
-
-}
\ No newline at end of file
+package asteroids.facade;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Set;
+
+import asteroids.model.Bullet;
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldFile;
+import asteroids.part2.CollisionBatchListener;
+import asteroids.part2.CollisionListener;
+import asteroids.part2.facade.IFacade;
+import asteroids.util.ModelException;
+
+public class Facade implements IFacade{
+
+	@Override
+	public Ship createShip() throws ModelException {
+		// TODO Auto-generated method stub
+		Ship ship = new Ship();
+		return ship;
+	}
+
+	@Override
+	public Ship createShip(double x, double y, double xVelocity, double yVelocity, double radius, double orientation) throws ModelException {
+		// TODO Auto-generated method stub
+		try{
+			Ship ship = new Ship(x, y, xVelocity, yVelocity, radius, orientation);
+			return ship;
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public Ship createShip(double x, double y, double xVelocity, double yVelocity, double radius, double orientation, double mass) throws ModelException {
+		if (! Ship.isValidOrientation(orientation)) {
+			throw new ModelException("invalid orientation");
+		}
+		try{
+			return new Ship(x, y, xVelocity, yVelocity, radius, orientation, mass);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void terminateShip(Ship ship) throws ModelException {
+		ship.terminate();
+	}
+
+	@Override
+	public boolean isTerminatedShip(Ship ship) throws ModelException {
+		return ship.isTerminated();
+	}
+
+	@Override
+	public double[] getShipPosition(Ship ship) throws ModelException {
+		return new double[]{ship.getxCoordinate(),ship.getyCoordinate()};
+	}
+
+	@Override
+	public double[] getShipVelocity(Ship ship) throws ModelException {
+		// TODO Auto-generated method stub
+		return new double[]{ship.getxVelocity(),ship.getyVelocity()};
+	}
+
+	@Override
+	public double getShipX(Ship ship) throws ModelException {
+		return ship.getxCoordinate();
+	}
+
+	@Override
+	public double getShipY(Ship ship) throws ModelException {
+		return ship.getyCoordinate();
+	}
+
+	@Override
+	public double getShipVelocityX(Ship ship) throws ModelException {
+		return ship.getxVelocity();
+	}
+
+	@Override
+	public double getShipVelocityY(Ship ship) throws ModelException {
+		return ship.getyVelocity();
+	}
+
+	@Override
+	public double[] getShipPosition(Ship ship, double[] destination) throws ModelException {
+		destination[0] = ship.getxCoordinate();
+		destination[1] = ship.getyCoordinate();
+		return destination;
+	}
+
+	@Override
+	public double[] getShipVelocity(Ship ship, double[] destination) throws ModelException {
+		destination[0] = ship.getxVelocity();
+		destination[1] = ship.getyVelocity();
+		return destination;
+	}
+
+	@Override
+	public double getShipRadius(Ship ship) throws ModelException {
+		// TODO Auto-generated method stub
+		return ship.getRadius();
+	}
+
+	@Override
+	public double getShipOrientation(Ship ship) throws ModelException {
+		// TODO Auto-generated method stub
+		return ship.getOrientation();
+	}
+
+	@Override
+	public double getShipMass(Ship ship) throws ModelException {
+		return ship.getTotalMass();
+	}
+
+	@Override
+	public World getShipWorld(Ship ship) throws ModelException {
+		return ship.getWorld();
+	}
+
+	@Override
+	public boolean isShipThrusterActive(Ship ship) throws ModelException {
+		return ship.isThrusterActive();
+	}
+
+	@Override
+	public void setThrusterActive(Ship ship, boolean active) throws ModelException {
+		ship.setThrusterActive(active);
+	}
+
+	@Override
+	public double getShipAcceleration(Ship ship) throws ModelException {
+		return ship.getAcceleration();
+	}
+
+	@Override
+	public void move(Ship ship, double dt) throws ModelException {
+		// TODO Auto-generated method stub
+		try{
+			ship.move(dt);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void thrust(Ship ship, double amount) throws ModelException {
+		// TODO Auto-generated method stub
+		ship.thrust(amount);
+	}
+
+	@Override
+	public void turn(Ship ship, double angle) throws ModelException {
+		// TODO Auto-generated method stub
+		ship.turn(angle);
+	}
+
+	@Override
+	public double getDistanceBetween(Ship ship, Ship other) throws ModelException {
+		// TODO Auto-generated method stub
+		return ship.getDistanceBetween(other);
+	}
+
+	@Override
+	public boolean overlap(Ship ship, Ship other) throws ModelException {
+		// TODO Auto-generated method stub
+		return ship.overlap(other);
+	}
+
+	@Override
+	public double getTimeToCollision(Ship ship, Ship other) throws ModelException {
+		// TODO Auto-generated method stub
+		return ship.getTimeToCollision(other);
+	}
+
+	@Override
+	public double[] getCollisionPosition(Ship ship, Ship other) throws ModelException {
+		// TODO Auto-generated method stub
+		return ship.getCollisionPosition(other);
+	}
+
+	@Override
+	public Bullet createBullet(double x, double y, double xVelocity, double yVelocity, double radius) throws ModelException {
+		try{
+			return new Bullet(x, y, xVelocity, yVelocity, radius);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public Bullet createBullet(World world, double x, double y, double xVelocity, double yVelocity, double radius) throws ModelException {
+		if (world == null) {
+			return createBullet(x, y, xVelocity, yVelocity, radius);
+		}
+		try{
+			return world.createBullet(x, y, xVelocity, yVelocity, radius);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void terminateBullet(Bullet bullet) throws ModelException {
+		bullet.terminate();
+	}
+
+	@Override
+	public boolean isTerminatedBullet(Bullet bullet) throws ModelException {
+		return bullet.isTerminated();
+	}
+
+	@Override
+	public double[] getBulletPosition(Bullet bullet) throws ModelException {
+		return new double[]{bullet.getxCoordinate(),bullet.getyCoordinate()};
+	}
+
+	@Override
+	public double[] getBulletVelocity(Bullet bullet) throws ModelException {
+		return new double[]{bullet.getxVelocity(),bullet.getyVelocity()};
+	}
+
+	@Override
+	public double getBulletX(Bullet bullet) throws ModelException {
+		return bullet.getxCoordinate();
+	}
+
+	@Override
+	public double getBulletY(Bullet bullet) throws ModelException {
+		return bullet.getyCoordinate();
+	}
+
+	@Override
+	public double getBulletVelocityX(Bullet bullet) throws ModelException {
+		return bullet.getxVelocity();
+	}
+
+	@Override
+	public double getBulletVelocityY(Bullet bullet) throws ModelException {
+		return bullet.getyVelocity();
+	}
+
+	@Override
+	public double[] getBulletPosition(Bullet bullet, double[] destination) throws ModelException {
+		destination[0] = bullet.getxCoordinate();
+		destination[1] = bullet.getyCoordinate();
+		return destination;
+	}
+
+	@Override
+	public double[] getBulletVelocity(Bullet bullet, double[] destination) throws ModelException {
+		destination[0] = bullet.getxVelocity();
+		destination[1] = bullet.getyVelocity();
+		return destination;
+	}
+
+	@Override
+	public double getBulletRadius(Bullet bullet) throws ModelException {
+		return bullet.getRadius();
+	}
+
+	@Override
+	public double getBulletMass(Bullet bullet) throws ModelException {
+		return bullet.getMass();
+	}
+
+	@Override
+	public World getBulletWorld(Bullet bullet) throws ModelException {
+		return bullet.getWorld();
+	}
+
+	@Override
+	public Ship getBulletShip(Bullet bullet) throws ModelException {
+		return bullet.getShip();
+	}
+
+	@Override
+	public Ship getBulletSource(Bullet bullet) throws ModelException {
+		return bullet.getSource();
+	}
+
+	@Override
+	public World createWorld(double width, double height) throws ModelException {
+		return new World(width, height);
+	}
+
+	@Override
+	public World createWorld(double width, double height, boolean toroidal) throws ModelException {
+		return new World(width, height, toroidal);
+	}
+
+	@Override
+	public void terminateWorld(World world) throws ModelException {
+		world.terminate();
+	}
+
+	@Override
+	public boolean isTerminatedWorld(World world) throws ModelException {
+		return world.isTerminated();
+	}
+
+	@Override
+	public double[] getWorldSize(World world) throws ModelException {
+		return new double[]{world.getWidth(),world.getHeight()};
+	}
+
+	@Override
+	public Set<? extends Ship> getWorldShips(World world) throws ModelException {
+		return world.getShips();
+	}
+
+	@Override
+	public Set<? extends Bullet> getWorldBullets(World world) throws ModelException {
+		return world.getBullets();
+	}
+
+	@Override
+	public void addShipToWorld(World world, Ship ship) throws ModelException {
+		try{
+			world.addEntity(ship);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void removeShipFromWorld(World world, Ship ship) throws ModelException {
+		try{
+			world.removeEntity(ship);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void addBulletToWorld(World world, Bullet bullet) throws ModelException {
+		try{
+			world.addEntity(bullet);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void removeBulletFromWorld(World world, Bullet bullet) throws ModelException {
+		try{
+			world.removeEntity(bullet);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public Set<? extends Bullet> getBulletsOnShip(Ship ship) throws ModelException {
+		return ship.getBullets();
+	}
+
+	@Override
+	public int getNbBulletsOnShip(Ship ship) throws ModelException {
+		return ship.getNbBullets();
+	}
+
+	@Override
+	public void loadBulletOnShip(Ship ship, Bullet bullet) throws ModelException {
+		try{
+			ship.loadBullet(bullet);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void loadBulletsOnShip(Ship ship, Collection<Bullet> bullets) throws ModelException {
+		try{
+			ship.loadBullets(bullets);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void removeBulletFromShip(Ship ship, Bullet bullet) throws ModelException {
+		try{
+			ship.removeBullet(bullet);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void fireBullet(Ship ship) throws ModelException {
+		ship.fireBullet();
+	}
+
+	@Override
+	public double getTimeCollisionBoundary(Object object) throws ModelException {
+		return toEntity(object).getTimeToBoundary();
+	}
+
+	@Override
+	public double[] getPositionCollisionBoundary(Object object) throws ModelException {
+		return toEntity(object).getBoundaryCollisionPosition();
+	}
+
+	@Override
+	public double[] getPositionCollisionBoundary(Object object, double[] destination) throws ModelException {
+		return toEntity(object).getBoundaryCollisionPosition(destination);
+	}
+
+	@Override
+	public double getTimeCollisionEntity(Object entity1, Object entity2) throws ModelException {
+		return toEntity(entity1).getTimeToCollision(toEntity(entity2));
+	}
+
+	@Override
+	public double[] getPositionCollisionEntity(Object entity1, Object entity2) throws ModelException {
+		return toEntity(entity1).getCollisionPosition(toEntity(entity2));
+	}
+
+	@Override
+	public double[] getPositionCollisionEntity(Object entity1, Object entity2, double[] destination) throws ModelException {
+		return toEntity(entity1).getCollisionPosition(toEntity(entity2), destination);
+	}
+
+	@Override
+	public int getCollisionsWithEntities(World world, Object entity, double[] times, double[] positions)
+			throws ModelException {
+		try{
+			return world.getCollisionsWith(toEntity(entity), times, positions);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public int getOverlapsWithEntities(World world, Object entity, boolean[] overlaps) throws ModelException {
+		try{
+			return world.getOverlapsWith(toEntity(entity), overlaps);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public double getTimeNextCollision(World world) throws ModelException {
+		return world.getTimeNextCollision();
+	}
+
+	@Override
+	public double[] getPositionNextCollision(World world) throws ModelException {
+		return world.getPositionNextCollision();
+	}
+
+	@Override
+	public double[] getPositionNextCollision(World world, double[] destination) throws ModelException {
+		return world.getPositionNextCollision(destination);
+	}
+
+	@Override
+	public double getTimeNextBoundaryCollision(World world) throws ModelException {
+		return world.getTimeNextBoundaryCollision();
+	}
+
+	@Override
+	public double[] getPositionNextBoundaryCollision(World world) throws ModelException {
+		return world.getPositionNextBoundaryCollision();
+	}
+
+	@Override
+	public void evolve(World world, double dt, CollisionListener collisionListener) throws ModelException {
+		try{
+			world.evolve(dt, collisionListener);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void evolveBatched(World world, double dt, CollisionBatchListener listener) throws ModelException {
+		try{
+			world.evolveBatched(dt, listener);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public void fastForward(World world, double dt, CollisionBatchListener listener) throws ModelException {
+		try{
+			world.fastForward(dt, listener);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public Object getEntityAt(World world, double x, double y) throws ModelException {
+		return world.getEntityAt(x, y);
+	}
+
+	@Override
+	public Set<? extends Object> getEntities(World world) throws ModelException {
+		return world.getEntities();
+	}
+
+	@Override
+	public int getNbEntities(World world) throws ModelException {
+		return world.getNbEntities();
+	}
+
+	@Override
+	public int exportEntities(World world, double[] destination, int offset) throws ModelException {
+		try{
+			return world.exportState(destination, offset);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public int exportEntities(World world, DoubleBuffer destination) throws ModelException {
+		try{
+			return world.exportState(destination);
+		}catch(IllegalArgumentException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public long getEntityId(Object entity) throws ModelException {
+		return toEntity(entity).getId();
+	}
+
+	@Override
+	public void saveWorld(World world, String path) throws ModelException {
+		try{
+			WorldFile.save(world, Paths.get(path));
+		}catch(IllegalArgumentException | IOException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	@Override
+	public World loadWorld(String path) throws ModelException {
+		try{
+			return WorldFile.load(Paths.get(path));
+		}catch(IllegalArgumentException | IOException ex){
+			throw new ModelException(ex);
+		}
+	}
+
+	private static Entity toEntity(Object object) throws ModelException {
+		if (! (object instanceof Entity)) {
+			throw new ModelException("not an entity: " + object);
+		}
+		return (Entity) object;
+	}
+
+}
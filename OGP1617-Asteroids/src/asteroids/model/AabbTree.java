@@ -0,0 +1,601 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of dynamic bounding volume hierarchies over the entities of a world, answering point
+ * and rectangle queries in time logarithmic in the number of entities.
+ *
+ * Each entity is a leaf of a balanced binary tree, holding a fat box: the bounding box of the
+ * entity, enlarged by a fraction of its radius and stretched in the direction it moves. Each
+ * inner node holds the union of the boxes of its children. As long as an entity stays within its
+ * fat box, the tree is left untouched; once it leaves that box, only its leaf is taken out and
+ * inserted again, and the tree is rebalanced by rotations along the way up.
+ *
+ * The tree is brought up to date with the entities the first time it is queried after its world
+ * advanced or changed, so that any number of queries between two ticks cost no updates at all.
+ *
+ * In a toroidal world, a query also collects the entities overlapping the periodic images of its
+ * rectangle, each entity once.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class AabbTree {
+
+	/**
+	 * Initialize this new tree for the given world, holding all entities of that world.
+	 */
+	AabbTree(World world) {
+		this.world = world;
+		EntityStore store = world.getStore();
+		for (int i = 0, n = store.getNbEntities(); i < n; i++) {
+			add(store.getEntityAt(i));
+		}
+	}
+
+	/**
+	 * Variable registering the world whose entities this tree holds.
+	 */
+	private final World world;
+
+	/**
+	 * Register that the given entity was added to the world of this tree or placed elsewhere.
+	 *
+	 * @effect The entity is inserted into this tree, or moved within it, before the next query.
+	 */
+	void add(Entity entity) {
+		if (this.nbPending == this.pending.length) {
+			this.pending = Arrays.copyOf(this.pending, Math.max(16, 2 * this.pending.length));
+		}
+		this.pending[this.nbPending++] = entity;
+		this.needsSync = true;
+	}
+
+	/**
+	 * Register that an entity left the world of this tree.
+	 *
+	 * @effect The leaf of the entity is removed from this tree before the next query.
+	 */
+	void remove() {
+		this.needsSync = true;
+	}
+
+	/**
+	 * Collect every entity whose disc overlaps the given rectangle, or any of its periodic images if
+	 * the world of this tree is toroidal, at the current world time.
+	 *
+	 * @return The number of entities collected, which can be read with getCandidate.
+	 */
+	int query(double minX, double minY, double maxX, double maxY) {
+		sync();
+		this.nbCandidates = 0;
+		if (this.root == NULL) {
+			return 0;
+		}
+		advanceStamp();
+		World world = this.world;
+		if (! world.isToroidal()) {
+			collect(minX, minY, maxX, maxY);
+			return this.nbCandidates;
+		}
+		double width = world.getWidth(), height = world.getHeight();
+		int box = 4 * this.root;
+		double left = this.bounds[box], bottom = this.bounds[box + 1];
+		double right = this.bounds[box + 2], top = this.bounds[box + 3];
+		int fromX = 0, toX = 0, fromY = 0, toY = 0;
+		if (maxX - minX < width) {
+			fromX = (int) Math.ceil((left - maxX) / width);
+			toX = (int) Math.floor((right - minX) / width);
+		} else {
+			minX = left;
+			maxX = right;
+		}
+		if (maxY - minY < height) {
+			fromY = (int) Math.ceil((bottom - maxY) / height);
+			toY = (int) Math.floor((top - minY) / height);
+		} else {
+			minY = bottom;
+			maxY = top;
+		}
+		for (int kx = fromX; kx <= toX; kx++) {
+			for (int ky = fromY; ky <= toY; ky++) {
+				collect(minX + kx * width, minY + ky * height, maxX + kx * width, maxY + ky * height);
+			}
+		}
+		return this.nbCandidates;
+	}
+
+	/**
+	 * Collect every entity whose disc overlaps the given rectangle and that was not collected yet
+	 * by the current query.
+	 */
+	private void collect(double minX, double minY, double maxX, double maxY) {
+		EntityStore store = this.world.getStore();
+		double[] bounds = this.bounds;
+		int[] stack = this.stack;
+		int top = 0;
+		stack[top++] = this.root;
+		while (top > 0) {
+			int node = stack[--top];
+			int box = 4 * node;
+			if (bounds[box + 2] < minX || bounds[box] > maxX || bounds[box + 3] < minY || bounds[box + 1] > maxY) {
+				continue;
+			}
+			if (isLeaf(node)) {
+				int slot = this.entity[node].getSlot();
+				double x = store.x[slot], y = store.y[slot], r = store.radius[slot];
+				if (x + r >= minX && x - r <= maxX && y + r >= minY && y - r <= maxY && this.stamps[slot] != this.stamp) {
+					this.stamps[slot] = this.stamp;
+					this.candidates[this.nbCandidates++] = slot;
+				}
+			}
+			else {
+				if (top + 2 > stack.length) {
+					stack = this.stack = Arrays.copyOf(stack, 2 * stack.length);
+				}
+				stack[top++] = this.child1[node];
+				stack[top++] = this.child2[node];
+			}
+		}
+	}
+
+	/**
+	 * Return the slot of the entity at the given index in the result of the last query.
+	 */
+	int getCandidate(int index) {
+		return this.candidates[index];
+	}
+
+	/**
+	 * Return the height of this tree, or -1 if it holds no entities.
+	 */
+	int getHeight() {
+		sync();
+		return (this.root == NULL) ? -1 : this.height[this.root];
+	}
+
+	/**
+	 * Bring this tree up to date with the entities of its world: remove the leaves of entities that
+	 * left the world, move the leaves of entities that left their fat box, and insert the entities
+	 * added since the last update.
+	 */
+	private void sync() {
+		if (! this.needsSync && this.world.getTime() == this.syncedAt) {
+			return;
+		}
+		EntityStore store = this.world.getStore();
+		int n = store.getNbEntities();
+		if (this.stamps.length < n) {
+			this.stamps = new int[Math.max(n, 2 * this.stamps.length)];
+			this.candidates = new int[this.stamps.length];
+			this.stamp = 0;
+		}
+		advanceStamp();
+		for (int node = 0, capacity = this.capacity; node < capacity; node++) {
+			Entity entity = this.entity[node];
+			if (entity == null) {
+				continue;
+			}
+			if (entity.getWorld() != this.world || this.stamps[entity.getSlot()] == this.stamp) {
+				removeLeaf(node);
+				free(node);
+				continue;
+			}
+			int slot = entity.getSlot();
+			this.stamps[slot] = this.stamp;
+			double x = store.x[slot], y = store.y[slot], r = store.radius[slot];
+			int box = 4 * node;
+			if (x - r < this.bounds[box] || x + r > this.bounds[box + 2] || y - r < this.bounds[box + 1] || y + r > this.bounds[box + 3]) {
+				removeLeaf(node);
+				fatten(node, store, slot);
+				insertLeaf(node);
+			}
+		}
+		int[] leaves = new int[this.nbPending];
+		int nbLeaves = 0;
+		for (int k = 0; k < this.nbPending; k++) {
+			Entity entity = this.pending[k];
+			if (entity.getWorld() == this.world && this.stamps[entity.getSlot()] != this.stamp) {
+				this.stamps[entity.getSlot()] = this.stamp;
+				int leaf = allocate();
+				this.entity[leaf] = entity;
+				fatten(leaf, store, entity.getSlot());
+				leaves[nbLeaves++] = leaf;
+			}
+		}
+		if (this.root == NULL && nbLeaves > 1) {
+			this.root = build(leaves, 0, nbLeaves);
+			this.parent[this.root] = NULL;
+		}
+		else {
+			for (int k = 0; k < nbLeaves; k++) {
+				insertLeaf(leaves[k]);
+			}
+		}
+		Arrays.fill(this.pending, 0, this.nbPending, null);
+		this.nbPending = 0;
+		this.needsSync = false;
+		this.syncedAt = this.world.getTime();
+	}
+
+	/**
+	 * Move on to a stamp that no slot carries yet.
+	 */
+	private void advanceStamp() {
+		if (++this.stamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.stamps, 0);
+			this.stamp = 1;
+		}
+	}
+
+	/**
+	 * Set the box of the given leaf to the fat box of the entity in the given slot.
+	 */
+	private void fatten(int leaf, EntityStore store, int slot) {
+		double r = store.radius[slot], margin = FAT_MARGIN * r;
+		double dx = store.vx[slot] * LOOKAHEAD, dy = store.vy[slot] * LOOKAHEAD;
+		int box = 4 * leaf;
+		this.bounds[box] = store.x[slot] - r - margin + Math.min(0.0, dx);
+		this.bounds[box + 1] = store.y[slot] - r - margin + Math.min(0.0, dy);
+		this.bounds[box + 2] = store.x[slot] + r + margin + Math.max(0.0, dx);
+		this.bounds[box + 3] = store.y[slot] + r + margin + Math.max(0.0, dy);
+	}
+
+	/**
+	 * Build a tree over the given range of leaves from the top down, splitting each range at the
+	 * median of the centres of its leaves along the longest side of their box, and return its root.
+	 * This gives a far better tree than inserting the leaves one by one, when many are added at once.
+	 */
+	private int build(int[] leaves, int from, int to) {
+		if (to - from == 1) {
+			return leaves[from];
+		}
+		double[] bounds = this.bounds;
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int k = from; k < to; k++) {
+			int box = 4 * leaves[k];
+			double x = bounds[box] + bounds[box + 2], y = bounds[box + 1] + bounds[box + 3];
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		int axis = (maxX - minX >= maxY - minY) ? 0 : 1;
+		int middle = (from + to) >>> 1;
+		select(leaves, from, to - 1, middle, axis);
+		int node = allocate();
+		int child1 = build(leaves, from, middle), child2 = build(leaves, middle, to);
+		this.child1[node] = child1;
+		this.child2[node] = child2;
+		this.parent[child1] = node;
+		this.parent[child2] = node;
+		this.height[node] = 1 + Math.max(this.height[child1], this.height[child2]);
+		setUnion(node, child1, child2);
+		return node;
+	}
+
+	/**
+	 * Reorder the given range of leaves, bounds included, so that the leaf at the given index has
+	 * the centre it would have if the range were sorted along the given axis, with no smaller centre
+	 * after it and no larger centre before it.
+	 */
+	private void select(int[] leaves, int low, int high, int index, int axis) {
+		double[] bounds = this.bounds;
+		while (low < high) {
+			int box = 4 * leaves[(low + high) >>> 1] + axis;
+			double pivot = bounds[box] + bounds[box + 2];
+			int i = low, j = high;
+			while (i <= j) {
+				while (bounds[4 * leaves[i] + axis] + bounds[4 * leaves[i] + axis + 2] < pivot) {
+					i++;
+				}
+				while (bounds[4 * leaves[j] + axis] + bounds[4 * leaves[j] + axis + 2] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int leaf = leaves[i];
+					leaves[i++] = leaves[j];
+					leaves[j--] = leaf;
+				}
+			}
+			if (index <= j) {
+				high = j;
+			} else if (index >= i) {
+				low = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Insert the given leaf next to the node whose box grows least by it, and rebalance the tree
+	 * on the way back to the root.
+	 */
+	private void insertLeaf(int leaf) {
+		if (this.root == NULL) {
+			this.root = leaf;
+			this.parent[leaf] = NULL;
+			return;
+		}
+		int index = this.root;
+		while (! isLeaf(index)) {
+			int child1 = this.child1[index], child2 = this.child2[index];
+			double perimeter = perimeter(index);
+			double combined = unionPerimeter(index, leaf);
+			double cost = 2.0 * combined;
+			double inheritance = 2.0 * (combined - perimeter);
+			double cost1 = descentCost(child1, leaf) + inheritance;
+			double cost2 = descentCost(child2, leaf) + inheritance;
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = (cost1 < cost2) ? child1 : child2;
+		}
+		int sibling = index;
+		int oldParent = this.parent[sibling];
+		int newParent = allocate();
+		this.parent[newParent] = oldParent;
+		setUnion(newParent, leaf, sibling);
+		this.height[newParent] = this.height[sibling] + 1;
+		if (oldParent != NULL) {
+			if (this.child1[oldParent] == sibling) {
+				this.child1[oldParent] = newParent;
+			} else {
+				this.child2[oldParent] = newParent;
+			}
+		}
+		else {
+			this.root = newParent;
+		}
+		this.child1[newParent] = sibling;
+		this.child2[newParent] = leaf;
+		this.parent[sibling] = newParent;
+		this.parent[leaf] = newParent;
+		refit(this.parent[leaf]);
+	}
+
+	/**
+	 * Return the cost of descending into the given node to insert the given leaf below it.
+	 */
+	private double descentCost(int node, int leaf) {
+		double combined = unionPerimeter(node, leaf);
+		return isLeaf(node) ? combined : combined - perimeter(node);
+	}
+
+	/**
+	 * Remove the given leaf from the tree, putting its sibling in the place of their parent.
+	 */
+	private void removeLeaf(int leaf) {
+		if (leaf == this.root) {
+			this.root = NULL;
+			return;
+		}
+		int parent = this.parent[leaf];
+		int grandParent = this.parent[parent];
+		int sibling = (this.child1[parent] == leaf) ? this.child2[parent] : this.child1[parent];
+		if (grandParent != NULL) {
+			if (this.child1[grandParent] == parent) {
+				this.child1[grandParent] = sibling;
+			} else {
+				this.child2[grandParent] = sibling;
+			}
+			this.parent[sibling] = grandParent;
+			free(parent);
+			refit(grandParent);
+		}
+		else {
+			this.root = sibling;
+			this.parent[sibling] = NULL;
+			free(parent);
+		}
+	}
+
+	/**
+	 * Rebalance the given node and all its ancestors, and update their boxes and heights.
+	 */
+	private void refit(int index) {
+		while (index != NULL) {
+			index = balance(index);
+			int child1 = this.child1[index], child2 = this.child2[index];
+			this.height[index] = 1 + Math.max(this.height[child1], this.height[child2]);
+			setUnion(index, child1, child2);
+			index = this.parent[index];
+		}
+	}
+
+	/**
+	 * Rotate the higher child of the given node up if the heights of its children differ by more
+	 * than one, and return the node now in its place.
+	 */
+	private int balance(int a) {
+		if (isLeaf(a) || this.height[a] < 2) {
+			return a;
+		}
+		int b = this.child1[a], c = this.child2[a];
+		int balance = this.height[c] - this.height[b];
+		if (balance > 1) {
+			int f = this.child1[c], g = this.child2[c];
+			this.child1[c] = a;
+			replaceChild(a, c);
+			if (this.height[f] > this.height[g]) {
+				this.child2[c] = f;
+				this.child2[a] = g;
+				this.parent[g] = a;
+				lift(a, b, g, c, f);
+			}
+			else {
+				this.child2[c] = g;
+				this.child2[a] = f;
+				this.parent[f] = a;
+				lift(a, b, f, c, g);
+			}
+			return c;
+		}
+		if (balance < -1) {
+			int d = this.child1[b], e = this.child2[b];
+			this.child1[b] = a;
+			replaceChild(a, b);
+			if (this.height[d] > this.height[e]) {
+				this.child2[b] = d;
+				this.child1[a] = e;
+				this.parent[e] = a;
+				lift(a, c, e, b, d);
+			}
+			else {
+				this.child2[b] = e;
+				this.child1[a] = d;
+				this.parent[d] = a;
+				lift(a, c, d, b, e);
+			}
+			return b;
+		}
+		return a;
+	}
+
+	/**
+	 * Put the given node in the place of the given old node below its parent, and make the old
+	 * node a child of the given node.
+	 */
+	private void replaceChild(int old, int node) {
+		int parent = this.parent[old];
+		this.parent[node] = parent;
+		this.parent[old] = node;
+		if (parent == NULL) {
+			this.root = node;
+		} else if (this.child1[parent] == old) {
+			this.child1[parent] = node;
+		} else {
+			this.child2[parent] = node;
+		}
+	}
+
+	/**
+	 * Update the boxes and heights after a rotation that made the given lowered node the parent of
+	 * the given two nodes, and the given lifted node the parent of the lowered node and the given node.
+	 */
+	private void lift(int lowered, int first, int second, int lifted, int other) {
+		setUnion(lowered, first, second);
+		this.height[lowered] = 1 + Math.max(this.height[first], this.height[second]);
+		setUnion(lifted, lowered, other);
+		this.height[lifted] = 1 + Math.max(this.height[lowered], this.height[other]);
+	}
+
+	private boolean isLeaf(int node) {
+		return (this.child1[node] == NULL);
+	}
+
+	private double perimeter(int node) {
+		int box = 4 * node;
+		return 2.0 * ((this.bounds[box + 2] - this.bounds[box]) + (this.bounds[box + 3] - this.bounds[box + 1]));
+	}
+
+	private double unionPerimeter(int node, int other) {
+		double[] bounds = this.bounds;
+		int a = 4 * node, b = 4 * other;
+		double width = Math.max(bounds[a + 2], bounds[b + 2]) - Math.min(bounds[a], bounds[b]);
+		double height = Math.max(bounds[a + 3], bounds[b + 3]) - Math.min(bounds[a + 1], bounds[b + 1]);
+		return 2.0 * (width + height);
+	}
+
+	private void setUnion(int node, int first, int second) {
+		double[] bounds = this.bounds;
+		int box = 4 * node, a = 4 * first, b = 4 * second;
+		bounds[box] = Math.min(bounds[a], bounds[b]);
+		bounds[box + 1] = Math.min(bounds[a + 1], bounds[b + 1]);
+		bounds[box + 2] = Math.max(bounds[a + 2], bounds[b + 2]);
+		bounds[box + 3] = Math.max(bounds[a + 3], bounds[b + 3]);
+	}
+
+	/**
+	 * Return a free node, growing the arrays of this tree if none is left.
+	 */
+	private int allocate() {
+		if (this.freeList == NULL) {
+			int capacity = Math.max(16, 2 * this.capacity);
+			this.bounds = Arrays.copyOf(this.bounds, 4 * capacity);
+			this.parent = Arrays.copyOf(this.parent, capacity);
+			this.child1 = Arrays.copyOf(this.child1, capacity);
+			this.child2 = Arrays.copyOf(this.child2, capacity);
+			this.height = Arrays.copyOf(this.height, capacity);
+			this.entity = Arrays.copyOf(this.entity, capacity);
+			for (int node = capacity - 1; node >= this.capacity; node--) {
+				this.parent[node] = this.freeList;
+				this.height[node] = -1;
+				this.freeList = node;
+			}
+			this.capacity = capacity;
+		}
+		int node = this.freeList;
+		this.freeList = this.parent[node];
+		this.parent[node] = NULL;
+		this.child1[node] = NULL;
+		this.child2[node] = NULL;
+		this.height[node] = 0;
+		this.entity[node] = null;
+		return node;
+	}
+
+	/**
+	 * Return the given node to the free nodes of this tree.
+	 */
+	private void free(int node) {
+		this.entity[node] = null;
+		this.height[node] = -1;
+		this.parent[node] = this.freeList;
+		this.freeList = node;
+	}
+
+	/**
+	 * Constant marking the absence of a node.
+	 */
+	private static final int NULL = -1;
+
+	/**
+	 * Constant registering the fraction of its radius by which the fat box of an entity is enlarged
+	 * on every side.
+	 */
+	private static final double FAT_MARGIN = 0.25;
+
+	/**
+	 * Constant registering the time, in seconds, over which the fat box of an entity is stretched
+	 * along its velocity.
+	 */
+	private static final double LOOKAHEAD = 0.25;
+
+	/**
+	 * Variables registering the nodes of this tree: their boxes, parent, children and height,
+	 * and for leaves their entity. The box of node k is kept in bounds[4*k] up to bounds[4*k+3]
+	 * as minimal x, minimal y, maximal x and maximal y, so that testing a node touches one cache line.
+	 * The parent of a free node is the next free node.
+	 */
+	private double[] bounds = new double[0];
+	private int[] parent = new int[0];
+	private int[] child1 = new int[0];
+	private int[] child2 = new int[0];
+	private int[] height = new int[0];
+	private Entity[] entity = new Entity[0];
+	private int capacity;
+	private int freeList = NULL;
+	private int root = NULL;
+
+	/**
+	 * Variables registering the state of the last update: the entities added or placed elsewhere
+	 * since then, whether the world changed otherwise, and the world time of the update.
+	 */
+	private Entity[] pending = new Entity[0];
+	private int nbPending;
+	private boolean needsSync = true;
+	private double syncedAt;
+
+	/**
+	 * Variables registering the result of the last query.
+	 */
+	private int[] candidates = new int[0];
+	private int nbCandidates;
+	private int[] stamps = new int[0];
+	private int stamp;
+	private int[] stack = new int[64];
+}
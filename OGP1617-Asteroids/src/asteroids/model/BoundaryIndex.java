@@ -0,0 +1,267 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of indices over the next collisions of the entities of a world with its boundaries,
+ * keeping the earliest of them at hand.
+ *
+ * The index holds, for each entity of the world, the world time at which it next hits a boundary
+ * and the point where it touches that boundary, as predicted the last time its motion changed.
+ * Since an entity moving along its velocity keeps heading for the same point at the same time,
+ * that prediction stays valid until the velocity of the entity changes, which happens when it is
+ * given a new velocity, its thruster accelerates it or it collides.
+ *
+ * The entries are kept in a binary heap ordered by their times, and by the sequence numbers of
+ * their predictions for equal times, so that the earliest boundary collision can be read in
+ * constant time, and an entry can be changed or removed in time logarithmic in the number of
+ * entities. Each slot of the store of the world knows the node of the heap that holds its entry.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class BoundaryIndex {
+
+	/**
+	 * Return the number of entries in this index.
+	 */
+	int getNbEntries() {
+		return this.size;
+	}
+
+	/**
+	 * Return the entity with the earliest boundary collision in this index, or null if this index
+	 * is empty.
+	 */
+	Entity getEarliestEntity() {
+		return (this.size == 0) ? null : this.entities[0];
+	}
+
+	/**
+	 * Return the world time of the earliest boundary collision in this index.
+	 *
+	 * @return Positive infinity if this index is empty or no entity in it will hit a boundary.
+	 */
+	double getEarliestTime() {
+		return (this.size == 0) ? Double.POSITIVE_INFINITY : this.times[0];
+	}
+
+	/**
+	 * Return the sequence number of the prediction of the earliest boundary collision in this index.
+	 */
+	long getEarliestSequence() {
+		return this.sequences[0];
+	}
+
+	/**
+	 * Check whether this index holds an entry for the entity in the given slot.
+	 */
+	boolean contains(int slot) {
+		return slot < this.nodeOfSlot.length && this.nodeOfSlot[slot] >= 0;
+	}
+
+	/**
+	 * Return the world time at which the entity in the given slot hits a boundary, which must be in this index.
+	 */
+	double getTime(int slot) {
+		return this.times[this.nodeOfSlot[slot]];
+	}
+
+	/**
+	 * Return the x coordinate of the point where the entity in the given slot touches a boundary,
+	 * which must be in this index.
+	 */
+	double getX(int slot) {
+		return this.xs[this.nodeOfSlot[slot]];
+	}
+
+	/**
+	 * Return the y coordinate of the point where the entity in the given slot touches a boundary,
+	 * which must be in this index.
+	 */
+	double getY(int slot) {
+		return this.ys[this.nodeOfSlot[slot]];
+	}
+
+	/**
+	 * Register that the given entity hits a boundary at the given world time, in the given point,
+	 * as predicted with the given sequence number.
+	 *
+	 * @param  time
+	 * 		   The world time of the collision, or positive infinity if the entity will never hit a boundary.
+	 * @effect The entry of the entity is added to this index, or replaces the one it had.
+	 */
+	void update(Entity entity, double time, double x, double y, long sequence) {
+		int slot = entity.getSlot();
+		if (slot >= this.nodeOfSlot.length) {
+			int length = this.nodeOfSlot.length;
+			this.nodeOfSlot = Arrays.copyOf(this.nodeOfSlot, Math.max(slot + 1, Math.max(16, 2 * length)));
+			Arrays.fill(this.nodeOfSlot, length, this.nodeOfSlot.length, -1);
+		}
+		int node = this.nodeOfSlot[slot];
+		if (node < 0) {
+			if (this.size == this.entities.length) {
+				int capacity = Math.max(16, 2 * this.size);
+				this.entities = Arrays.copyOf(this.entities, capacity);
+				this.times = Arrays.copyOf(this.times, capacity);
+				this.xs = Arrays.copyOf(this.xs, capacity);
+				this.ys = Arrays.copyOf(this.ys, capacity);
+				this.sequences = Arrays.copyOf(this.sequences, capacity);
+			}
+			node = this.size++;
+		}
+		set(node, entity, time, x, y, sequence);
+		if (! siftUp(node)) {
+			siftDown(node);
+		}
+	}
+
+	/**
+	 * Register that the entity in the given slot will not hit a boundary until its entry is updated again.
+	 *
+	 * @effect If the entity has an entry in this index, the time of that entry becomes positive infinity.
+	 */
+	void clear(int slot) {
+		if (contains(slot)) {
+			int node = this.nodeOfSlot[slot];
+			this.times[node] = Double.POSITIVE_INFINITY;
+			siftDown(node);
+		}
+	}
+
+	/**
+	 * Remove the entry of the entity in the given slot, which is about to be removed from the store
+	 * of the world of this index, so that the entity in the given last slot of that store moves into
+	 * the given slot.
+	 *
+	 * @post   The entry of the entity in the last slot, if any, becomes the entry of the given slot.
+	 * 		   | if (slot != last) then new.contains(slot) == contains(last)
+	 * @post   | ! new.contains(last)
+	 */
+	void remove(int slot, int last) {
+		if (slot >= this.nodeOfSlot.length) {
+			return;
+		}
+		int node = this.nodeOfSlot[slot];
+		if (node >= 0) {
+			int lastNode = --this.size;
+			if (node != lastNode) {
+				set(node, this.entities[lastNode], this.times[lastNode], this.xs[lastNode], this.ys[lastNode],
+						this.sequences[lastNode]);
+			}
+			this.entities[lastNode] = null;
+			if (node != lastNode && ! siftUp(node)) {
+				siftDown(node);
+			}
+		}
+		this.nodeOfSlot[slot] = -1;
+		if (slot != last && last < this.nodeOfSlot.length) {
+			this.nodeOfSlot[slot] = this.nodeOfSlot[last];
+			this.nodeOfSlot[last] = -1;
+		}
+	}
+
+	/**
+	 * Remove all entries of this index and give up the room it kept for them.
+	 *
+	 * @post   | new.getNbEntries() == 0
+	 */
+	void release() {
+		this.entities = new Entity[0];
+		this.times = this.xs = this.ys = new double[0];
+		this.sequences = new long[0];
+		this.nodeOfSlot = new int[0];
+		this.size = 0;
+	}
+
+	/**
+	 * Store the given entry in the given node of the heap.
+	 */
+	private void set(int node, Entity entity, double time, double x, double y, long sequence) {
+		this.entities[node] = entity;
+		this.times[node] = time;
+		this.xs[node] = x;
+		this.ys[node] = y;
+		this.sequences[node] = sequence;
+		this.nodeOfSlot[entity.getSlot()] = node;
+	}
+
+	/**
+	 * Check whether the entry in the first given node comes before the entry in the second one.
+	 */
+	private boolean precedes(int first, int second) {
+		return this.times[first] < this.times[second]
+				|| (this.times[first] == this.times[second] && this.sequences[first] < this.sequences[second]);
+	}
+
+	/**
+	 * Swap the entries in the given nodes of the heap.
+	 */
+	private void swap(int first, int second) {
+		Entity entity = this.entities[first];
+		double time = this.times[first], x = this.xs[first], y = this.ys[first];
+		long sequence = this.sequences[first];
+		set(first, this.entities[second], this.times[second], this.xs[second], this.ys[second], this.sequences[second]);
+		set(second, entity, time, x, y, sequence);
+	}
+
+	/**
+	 * Move the entry in the given node up the heap as far as it precedes its parents.
+	 *
+	 * @return True if and only if the entry moved.
+	 */
+	private boolean siftUp(int node) {
+		int start = node;
+		while (node > 0) {
+			int parent = (node - 1) >>> 1;
+			if (! precedes(node, parent)) {
+				break;
+			}
+			swap(node, parent);
+			node = parent;
+		}
+		return node != start;
+	}
+
+	/**
+	 * Move the entry in the given node down the heap as far as one of its children precedes it.
+	 */
+	private void siftDown(int node) {
+		while (true) {
+			int child = 2 * node + 1;
+			if (child >= this.size) {
+				return;
+			}
+			if (child + 1 < this.size && precedes(child + 1, child)) {
+				child++;
+			}
+			if (! precedes(child, node)) {
+				return;
+			}
+			swap(node, child);
+			node = child;
+		}
+	}
+
+	/**
+	 * Variables registering the entries of this index, per node of the heap: the entity, the world
+	 * time at which it hits a boundary, the point where it touches that boundary, and the sequence
+	 * number of the prediction.
+	 */
+	private Entity[] entities = new Entity[0];
+	private double[] times = new double[0];
+	private double[] xs = new double[0];
+	private double[] ys = new double[0];
+	private long[] sequences = new long[0];
+
+	/**
+	 * Variable registering the number of entries in this index.
+	 */
+	private int size = 0;
+
+	/**
+	 * Variable registering, per slot of the store of the world, the node of the heap holding the
+	 * entry of the entity in that slot, or -1 if it has none.
+	 */
+	private int[] nodeOfSlot = new int[0];
+}
@@ -0,0 +1,71 @@
+package asteroids.model;
+
+/**
+ * An interface of broad phases finding the entities of a world that may be near a position
+ * or a path, so that only those entities have to be tested exactly for overlap or collision.
+ *
+ * A query collects the slots of its candidates, which can be read with getCandidate until the
+ * next query. Every entity satisfying the query is among the candidates; other entities may be too.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+interface BroadPhase {
+
+	/**
+	 * Register that the given entity was added to the world of this broad phase or placed elsewhere.
+	 */
+	void add(Entity entity);
+
+	/**
+	 * Register that an entity left the world of this broad phase.
+	 */
+	void remove();
+
+	/**
+	 * Register that an entity of the world of this broad phase now moves with the given velocity.
+	 */
+	void noteVelocity(double vx, double vy);
+
+	/**
+	 * Bring this broad phase up to date with the positions of the entities, at the start of
+	 * advancing its world.
+	 */
+	void update();
+
+	/**
+	 * Return the largest speed of the entities this broad phase accounts for.
+	 */
+	double getMaxSpeed();
+
+	/**
+	 * Return the largest radius of the entities this broad phase accounts for.
+	 */
+	double getMaxRadius();
+
+	/**
+	 * Return the duration over which collision predictions made with the help of this broad phase
+	 * remain cheap.
+	 */
+	double getHorizon();
+
+	/**
+	 * Collect every entity that may overlap the given rectangle at the current world time.
+	 *
+	 * @return The number of candidates collected.
+	 */
+	int queryBox(double minX, double minY, double maxX, double maxY);
+
+	/**
+	 * Collect every entity that may come within the given reach of a point that starts at the given
+	 * position and moves with the given velocity for the given duration.
+	 *
+	 * @return The number of candidates collected.
+	 */
+	int querySwept(double x, double y, double vx, double vy, double duration, double reach);
+
+	/**
+	 * Return the slot of the candidate at the given index in the result of the last query.
+	 */
+	int getCandidate(int index);
+}
@@ -0,0 +1,36 @@
+package asteroids.model;
+
+/**
+ * An enumeration of the broad phases a world can use to find the entities near a position or a path.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public enum BroadPhaseType {
+
+	/**
+	 * A uniform grid hashing the entities into square cells, rebuilt as the entities drift.
+	 */
+	UNIFORM_GRID {
+		@Override
+		BroadPhase create(World world) {
+			return new UniformGrid(world);
+		}
+	},
+
+	/**
+	 * A list of entities sorted on the left end of their x-interval, repaired by insertion sort
+	 * each time the world advances.
+	 */
+	SWEEP_AND_PRUNE {
+		@Override
+		BroadPhase create(World world) {
+			return new SweepAndPrune(world);
+		}
+	};
+
+	/**
+	 * Return a new broad phase of this type for the given world.
+	 */
+	abstract BroadPhase create(World world);
+}
@@ -1,5 +1,208 @@
-package asteroids.model;
-
-public class Bullet {
-
-}
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of bullets involving a x and y component of their position, a x and y component of their velocity
+ * and a radius. A bullet is either located in a world, loaded on a ship or neither.
+ *
+ * @invar  Each bullet can have its radius as radius.
+ *       | isValidRadius(getRadius())
+ * @invar  A bullet is never located in a world and loaded on a ship at the same time.
+ *       | getWorld() == null || getShip() == null
+ * @invar  A bullet never bounced off a boundary more than the maximal number of bounces.
+ *       | getNbBounces() <= MAXIMAL_BOUNCES
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class Bullet extends Entity {
+
+	/**
+	 * Initialize this new bullet with given position, velocity and radius.
+	 *
+	 * @param  xCoordinate,
+	 *         The xCoordinate for this new bullet.
+	 * @param  yCoordinate,
+	 *         The yCoordinate for this new bullet.
+	 * @param  xVelocity
+	 *         The xVelocity for this new bullet.
+	 * @param  yVelocity
+	 *         The yVelocity for this new bullet.
+	 * @param  radius
+	 *         The radius for this new bullet.
+	 * @post   The mass of this new bullet is its volume times the density of all bullets.
+	 *       | new.getMass() == getVolume(radius) * DENSITY
+	 * @effect This new bullet is initialized as an entity with the given position, velocity and radius.
+	 *       | super(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, ...)
+	 * @throws IllegalArgumentException
+	 *         This new bullet cannot have the given radius as its radius.
+	 *       | ! isValidRadius(radius)
+	 */
+	public Bullet(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius) throws IllegalArgumentException {
+		super(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, getVolume(radius) * DENSITY, 0.0, EntityStore.BULLET);
+	}
+
+	/**
+	 * Initialize this new bullet as the bullet in the given slot of the given store, whose state
+	 * was filled in directly.
+	 *
+	 * @effect | super(store, slot)
+	 */
+	@Raw
+	Bullet(EntityStore store, int slot) {
+		super(store, slot);
+	}
+
+	/**
+	 * Check whether this bullet can have the given radius as its radius.
+	 *
+	 * @param  radius
+	 *         The radius to check.
+	 * @return
+	 *       | result == (radius >= 1 && radius < Double.POSITIVE_INFINITY)
+	 */
+	@Raw @Override
+	public boolean isValidRadius(double radius) {
+		return (radius >= 1 && radius < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Constant registering the density of all bullets, in kilograms per cubic kilometer.
+	 */
+	public static final double DENSITY = 7.8E12;
+
+	/**
+	 * Return the ship on which this bullet is loaded.
+	 */
+	@Basic @Raw
+	public Ship getShip() {
+		return this.ship;
+	}
+
+	/**
+	 * Set the ship on which this bullet is loaded to the given ship.
+	 *
+	 * @post   | new.getShip() == ship
+	 * @note   This method must only be invoked by the ship itself, which keeps both sides
+	 * 		   of the association consistent.
+	 */
+	@Raw
+	void setShip(Ship ship) {
+		this.ship = ship;
+	}
+
+	/**
+	 * Variable registering the ship on which this bullet is loaded.
+	 */
+	private Ship ship;
+
+	/**
+	 * Return the ship that fired this bullet.
+	 */
+	@Basic @Raw
+	public Ship getSource() {
+		return this.source;
+	}
+
+	/**
+	 * Set the ship that fired this bullet to the given ship.
+	 *
+	 * @post   | new.getSource() == source
+	 * @post   | new.getNbBounces() == 0
+	 */
+	@Raw
+	void setSource(Ship source) {
+		this.source = source;
+		this.nbBounces = 0;
+	}
+
+	/**
+	 * Set the ship that fired this bullet and the number of times it bounced since, as they were
+	 * when this bullet was saved.
+	 *
+	 * @pre    | nbBounces >= 0 && nbBounces <= MAXIMAL_BOUNCES
+	 * @post   | new.getSource() == source && new.getNbBounces() == nbBounces
+	 */
+	@Raw
+	void restoreSource(Ship source, int nbBounces) {
+		assert nbBounces >= 0 && nbBounces <= MAXIMAL_BOUNCES;
+		this.source = source;
+		this.nbBounces = nbBounces;
+	}
+
+	/**
+	 * Variable registering the ship that fired this bullet.
+	 */
+	private Ship source;
+
+	/**
+	 * Return the number of times this bullet bounced off a boundary since it was fired.
+	 */
+	@Basic @Raw
+	public int getNbBounces() {
+		return this.nbBounces;
+	}
+
+	/**
+	 * Register a bounce of this bullet off a boundary.
+	 *
+	 * @return True if and only if this bullet may still bounce, in which case the number of
+	 * 		   bounces is incremented.
+	 * 		   | result == (getNbBounces() < MAXIMAL_BOUNCES)
+	 * 		   | if (result) new.getNbBounces() == getNbBounces() + 1
+	 */
+	boolean bounce() {
+		if (this.nbBounces >= MAXIMAL_BOUNCES) {
+			return false;
+		}
+		this.nbBounces++;
+		return true;
+	}
+
+	/**
+	 * Constant registering the number of times a bullet may bounce off a boundary.
+	 * The next boundary collision destroys the bullet.
+	 */
+	public static final int MAXIMAL_BOUNCES = 2;
+
+	/**
+	 * Variable registering the number of times this bullet bounced off a boundary.
+	 */
+	private int nbBounces = 0;
+
+	/**
+	 * Terminate this bullet.
+	 *
+	 * @effect If this bullet is loaded on a ship, it is removed from that ship.
+	 * 		   | if (getShip() != null)
+	 * 		   |	getShip().removeBullet(this)
+	 * @effect | super.terminate()
+	 */
+	@Override
+	public void terminate() {
+		if (getShip() != null) {
+			getShip().removeBullet(this);
+		}
+		World world = getWorld();
+		super.terminate();
+		if (world != null) {
+			world.recycle(this);
+		}
+	}
+
+	/**
+	 * Bring this terminated bullet back to life as a new bullet with given position, velocity and radius.
+	 *
+	 * @pre    | isTerminated() && getWorld() == null && getShip() == null
+	 * @post   | new.getSource() == null && new.getNbBounces() == 0
+	 * @effect | revive(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, getVolume(radius) * DENSITY, 0.0, ...)
+	 */
+	@Raw
+	void revive(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius) {
+		this.source = null;
+		this.nbBounces = 0;
+		revive(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, getVolume(radius) * DENSITY, 0.0,
+				EntityStore.BULLET);
+	}
+}
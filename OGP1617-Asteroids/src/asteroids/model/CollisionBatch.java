@@ -0,0 +1,168 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of buffers of the collisions that took place during an evolve of a world, kept in flat
+ * arrays, one array per field, in the order in which the collisions took place.
+ *
+ * A world fills its batch while it evolves and hands it to its listener once the evolve has finished,
+ * so that a slow listener does not hold up the resolution of the collisions, and a listener can treat
+ * all collisions of an evolve at once. The world reuses the batch for its next evolve: a listener that
+ * needs the collisions later copies them.
+ *
+ * The entities of a collision are the entities as they were when the collision took place. Entities
+ * terminated by a later collision of the same evolve are terminated by the time the batch is handed
+ * out, and a terminated bullet may be reused by the world afterwards; the identifiers in the batch
+ * tell such a bullet from the bullet that collided.
+ *
+ * @invar  The number of collisions in each batch is not negative.
+ *       | getNbCollisions() >= 0
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class CollisionBatch {
+
+	/**
+	 * Initialize this new batch as an empty batch.
+	 *
+	 * @post   | new.getNbCollisions() == 0
+	 */
+	CollisionBatch() {
+	}
+
+	/**
+	 * Return the number of collisions in this batch.
+	 */
+	@Basic
+	public int getNbCollisions() {
+		return this.size;
+	}
+
+	/**
+	 * Check whether the collision at the given index is a collision with a boundary.
+	 */
+	public boolean isBoundaryCollision(int index) {
+		return this.second[index] == null;
+	}
+
+	/**
+	 * Return the entity of the collision at the given index, or its first entity for a collision
+	 * between entities.
+	 */
+	public Entity getFirst(int index) {
+		return this.first[index];
+	}
+
+	/**
+	 * Return the second entity of the collision at the given index, or null for a collision with a boundary.
+	 */
+	public Entity getSecond(int index) {
+		return this.second[index];
+	}
+
+	/**
+	 * Return the identifier getFirst(index) had when the collision at the given index took place.
+	 */
+	public long getFirstId(int index) {
+		return this.firstId[index];
+	}
+
+	/**
+	 * Return the identifier getSecond(index) had when the collision at the given index took place,
+	 * or -1 for a collision with a boundary.
+	 */
+	public long getSecondId(int index) {
+		return this.secondId[index];
+	}
+
+	/**
+	 * Return the x component of the position at which the collision at the given index took place.
+	 */
+	public double getX(int index) {
+		return this.x[index];
+	}
+
+	/**
+	 * Return the y component of the position at which the collision at the given index took place.
+	 */
+	public double getY(int index) {
+		return this.y[index];
+	}
+
+	/**
+	 * Return the time of the world at which the collision at the given index took place.
+	 */
+	public double getTime(int index) {
+		return this.time[index];
+	}
+
+	/**
+	 * Remove all collisions from this batch.
+	 *
+	 * @post   | new.getNbCollisions() == 0
+	 */
+	void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Add a collision of the given entity with a boundary at the given position and time to this batch.
+	 *
+	 * @post   | new.getNbCollisions() == getNbCollisions() + 1
+	 * @post   | new.isBoundaryCollision(getNbCollisions()) && new.getFirst(getNbCollisions()) == entity
+	 */
+	void addBoundaryCollision(Entity entity, double x, double y, double time) {
+		add(entity, null, x, y, time);
+	}
+
+	/**
+	 * Add a collision between the given entities at the given position and time to this batch.
+	 *
+	 * @post   | new.getNbCollisions() == getNbCollisions() + 1
+	 * @post   | new.getFirst(getNbCollisions()) == first && new.getSecond(getNbCollisions()) == second
+	 */
+	void addObjectCollision(Entity first, Entity second, double x, double y, double time) {
+		add(first, second, x, y, time);
+	}
+
+	private void add(Entity first, Entity second, double x, double y, double time) {
+		if (this.size == this.first.length) {
+			int capacity = Math.max(16, 2 * this.size);
+			this.first = Arrays.copyOf(this.first, capacity);
+			this.second = Arrays.copyOf(this.second, capacity);
+			this.firstId = Arrays.copyOf(this.firstId, capacity);
+			this.secondId = Arrays.copyOf(this.secondId, capacity);
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.time = Arrays.copyOf(this.time, capacity);
+		}
+		int k = this.size++;
+		this.first[k] = first;
+		this.second[k] = second;
+		this.firstId[k] = first.getId();
+		this.secondId[k] = (second == null) ? -1 : second.getId();
+		this.x[k] = x;
+		this.y[k] = y;
+		this.time[k] = time;
+	}
+
+	/**
+	 * Variable registering the number of collisions in this batch.
+	 */
+	private int size;
+
+	/**
+	 * Variables registering the collisions in this batch, indexed in the order in which they took place.
+	 */
+	private Entity[] first = new Entity[0];
+	private Entity[] second = new Entity[0];
+	private long[] firstId = new long[0];
+	private long[] secondId = new long[0];
+	private double[] x = new double[0];
+	private double[] y = new double[0];
+	private double[] time = new double[0];
+}
@@ -0,0 +1,148 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of predicted collisions between two entities, or between an entity and
+ * the boundaries of its world.
+ *
+ * An event can also mark the prediction horizon of an entity: the world time up to which
+ * the collisions of that entity with other entities have been predicted.
+ *
+ * An event remembers the versions of the entities involved at the moment it was predicted.
+ * Once the motion of one of them changes, the event no longer applies.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class CollisionEvent implements Comparable<CollisionEvent> {
+
+	/**
+	 * Initialize this new event with the given time, entities, versions and sequence number.
+	 *
+	 * @param  time
+	 * 		   The world time at which the collision takes place.
+	 * @param  first
+	 * 		   The first entity involved.
+	 * @param  firstVersion
+	 * 		   The version of the first entity the prediction was made for.
+	 * @param  second
+	 * 		   The second entity involved, or null for a collision with a boundary.
+	 * @param  secondVersion
+	 * 		   The version of the second entity the prediction was made for.
+	 * @param  sequence
+	 * 		   The number used to order events taking place at the same time.
+	 */
+	CollisionEvent(double time, Entity first, int firstVersion, Entity second, int secondVersion, long sequence) {
+		this(time, first, firstVersion, second, secondVersion, sequence, false);
+	}
+
+	/**
+	 * Initialize this new event as the prediction horizon of the given entity.
+	 *
+	 * @param  time
+	 * 		   The world time up to which the collisions of the entity have been predicted.
+	 * @param  entity
+	 * 		   The entity whose collisions have been predicted.
+	 * @param  version
+	 * 		   The version of the entity the prediction was made for.
+	 * @param  sequence
+	 * 		   The number used to order events taking place at the same time.
+	 */
+	CollisionEvent(double time, Entity entity, int version, long sequence) {
+		this(time, entity, version, null, 0, sequence, true);
+	}
+
+	private CollisionEvent(double time, Entity first, int firstVersion, Entity second, int secondVersion,
+			long sequence, boolean isHorizon) {
+		this.isHorizon = isHorizon;
+		this.time = time;
+		this.first = first;
+		this.firstVersion = firstVersion;
+		this.second = second;
+		this.secondVersion = secondVersion;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Return the world time at which this collision takes place.
+	 */
+	@Basic @Immutable
+	double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Return the first entity involved in this collision.
+	 */
+	@Basic @Immutable
+	Entity getFirst() {
+		return this.first;
+	}
+
+	/**
+	 * Return the second entity involved in this collision, or null for a collision with a boundary
+	 * and for a prediction horizon.
+	 */
+	@Basic @Immutable
+	Entity getSecond() {
+		return this.second;
+	}
+
+	/**
+	 * Check whether this is a collision with a boundary.
+	 *
+	 * @return | result == (getSecond() == null)
+	 */
+	boolean isBoundaryCollision() {
+		return (this.second == null && ! this.isHorizon);
+	}
+
+	/**
+	 * Check whether this event marks a prediction horizon rather than a collision.
+	 */
+	@Basic @Immutable
+	boolean isHorizon() {
+		return this.isHorizon;
+	}
+
+	/**
+	 * Return the number used to order this event among events taking place at the same time.
+	 */
+	@Basic @Immutable
+	long getSequence() {
+		return this.sequence;
+	}
+
+	/**
+	 * Check whether this event still applies to the entities of the given world.
+	 *
+	 * @return True if and only if every entity involved is located in the given world and
+	 * 		   still has the version this event was predicted for.
+	 */
+	boolean isValidIn(World world) {
+		if (this.first.getWorld() != world || this.first.getStore().getVersion(this.first.getSlot()) != this.firstVersion) {
+			return false;
+		}
+		return (this.second == null || (this.second.getWorld() == world
+				&& this.second.getStore().getVersion(this.second.getSlot()) == this.secondVersion));
+	}
+
+	/**
+	 * Compare this event with the given event: the earliest event comes first, and events taking place
+	 * at the same time are ordered by their sequence number.
+	 */
+	@Override
+	public int compareTo(CollisionEvent other) {
+		int result = Double.compare(this.time, other.time);
+		return (result != 0) ? result : Long.compare(this.sequence, other.sequence);
+	}
+
+	private final double time;
+	private final Entity first;
+	private final int firstVersion;
+	private final Entity second;
+	private final int secondVersion;
+	private final long sequence;
+	private final boolean isHorizon;
+}
@@ -0,0 +1,95 @@
+package asteroids.model;
+
+/**
+ * A class of kernels computing the time to collision and the collision position of one entity
+ * with many candidates at once, the candidates being held in packed arrays as the entity stores of
+ * worlds hold them.
+ *
+ * The kernels follow Entity.getTimeToCollision and Entity.getCollisionPosition to the letter: a
+ * candidate the entity is not approaching (dvdr >= 0), or passes without touching (d <= 0), gets
+ * an infinite time and no position, and every other candidate gets the time and position those
+ * methods return, bit for bit, overlapping candidates included. The kernel runs on the Vector API
+ * whenever FreeFlight does; both kernels compute the same results.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public final class CollisionKernel {
+
+	private CollisionKernel() {
+	}
+
+	/**
+	 * Compute the time to collision and the collision position of the entity with the given position,
+	 * velocity and radius with each candidate in the given range of indices.
+	 *
+	 * @post   | for each i in from..to-1:
+	 *       |   new times[i] == entity.getTimeToCollision(candidate i)
+	 * @post   | for each i in from..to-1:
+	 *       |   if (new times[i] == Double.POSITIVE_INFINITY)
+	 *       |     then Double.isNaN(new positionsX[i]) && Double.isNaN(new positionsY[i])
+	 *       |   else new positionsX[i] == entity.getCollisionPosition(candidate i)[0] &&
+	 *       |        new positionsY[i] == entity.getCollisionPosition(candidate i)[1]
+	 * @effect | if (FreeFlight.isVectorized()) then getCollisionsVector(...) else getCollisionsScalar(...)
+	 */
+	public static void getCollisions(double x, double y, double vx, double vy, double radius, double[] xs,
+			double[] ys, double[] vxs, double[] vys, double[] radii, int from, int to, double[] times,
+			double[] positionsX, double[] positionsY) {
+		if (FreeFlight.isVectorized()) {
+			VectorCollisionKernel.getCollisions(x, y, vx, vy, radius, xs, ys, vxs, vys, radii, from, to, times,
+					positionsX, positionsY);
+		} else {
+			getCollisionsScalar(x, y, vx, vy, radius, xs, ys, vxs, vys, radii, from, to, times, positionsX,
+					positionsY);
+		}
+	}
+
+	/**
+	 * Compute the collisions of getCollisions one candidate at a time.
+	 *
+	 * @post   The arrays hold what getCollisions stores in them.
+	 */
+	public static void getCollisionsScalar(double x, double y, double vx, double vy, double radius, double[] xs,
+			double[] ys, double[] vxs, double[] vys, double[] radii, int from, int to, double[] times,
+			double[] positionsX, double[] positionsY) {
+		for (int i = from; i < to; i++) {
+			double dvx = vx - vxs[i], dvy = vy - vys[i];
+			double dx = x - xs[i], dy = y - ys[i];
+			double dvdr = dvx*dx + dvy*dy;
+			double dvdv = dvx*dvx + dvy*dvy;
+			double drdr = dx*dx + dy*dy;
+			double sigma = radius + radii[i];
+			double d = dvdr*dvdr - dvdv * (drdr - sigma*sigma);
+			if (dvdr >= 0 || d <= 0) {
+				times[i] = Double.POSITIVE_INFINITY;
+				positionsX[i] = Double.NaN;
+				positionsY[i] = Double.NaN;
+				continue;
+			}
+			double t = - (dvdr + Math.sqrt(d)) / dvdv;
+			times[i] = t;
+			double firstX = x + vx*t, firstY = y + vy*t;
+			double secondX = xs[i] + vxs[i]*t, secondY = ys[i] + vys[i]*t;
+			positionsX[i] = firstX + (secondX - firstX) * radius / sigma;
+			positionsY[i] = firstY + (secondY - firstY) * radius / sigma;
+		}
+	}
+
+	/**
+	 * Compute the collisions of getCollisions a vector of candidates at a time.
+	 *
+	 * @post   The arrays hold what getCollisions stores in them.
+	 * @throws UnsupportedOperationException
+	 *         The Vector API cannot be used on this machine.
+	 *       | ! FreeFlight.isVectorAvailable()
+	 */
+	public static void getCollisionsVector(double x, double y, double vx, double vy, double radius, double[] xs,
+			double[] ys, double[] vxs, double[] vys, double[] radii, int from, int to, double[] times,
+			double[] positionsX, double[] positionsY) throws UnsupportedOperationException {
+		if (! FreeFlight.isVectorAvailable()) {
+			throw new UnsupportedOperationException("jdk.incubator.vector is not available");
+		}
+		VectorCollisionKernel.getCollisions(x, y, vx, vy, radius, xs, ys, vxs, vys, radii, from, to, times,
+				positionsX, positionsY);
+	}
+}
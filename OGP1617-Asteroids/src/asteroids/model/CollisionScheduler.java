@@ -0,0 +1,471 @@
+package asteroids.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A class of schedulers keeping the predicted collisions of the entities of a world in a
+ * priority queue, ordered by the world time at which they take place.
+ *
+ * Whenever the motion of an entity changes other than by moving along its velocity, the entity
+ * is invalidated: its version is incremented, which voids every event predicted for it, and its
+ * collisions are predicted again the next time the scheduler is consulted. Resolving a collision
+ * therefore only costs new predictions for the entities involved, instead of a search over all
+ * pairs of entities.
+ *
+ * Collisions between entities are only predicted up to a horizon set by the broad phase of the
+ * world, such as the time the fastest entity needs to cross a cell of a uniform grid, so that each
+ * prediction only has to test the entities near the path of the entity. Reaching the horizon of an entity is itself an
+ * event, upon which the collisions of that entity are predicted again. Collisions with the
+ * boundaries are always predicted, however far away.
+ *
+ * The collisions with the boundaries are not queued with the other events, but kept in a boundary
+ * index, holding one entry per entity. Such a collision is only predicted again once the velocity
+ * of the entity changed, and not whenever the entity merely reaches its horizon, and the earliest
+ * of them is compared with the head of the queue each time the scheduler is consulted.
+ *
+ * A toroidal world has no boundaries to collide with. Its entities collide with the periodic images
+ * of one another that they may reach within the horizon of their prediction.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class CollisionScheduler {
+
+	/**
+	 * Initialize this new scheduler for the given world.
+	 */
+	CollisionScheduler(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Variable registering the world whose collisions this scheduler predicts.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the predicted events, earliest first.
+	 * The queue may still hold events that no longer apply.
+	 */
+	private PriorityQueue<CollisionEvent> events = new PriorityQueue<CollisionEvent>();
+
+	/**
+	 * Variable registering the predicted collisions with the boundaries, one per entity.
+	 */
+	private final BoundaryIndex boundaries = new BoundaryIndex();
+
+	/**
+	 * Variable registering the event last returned for the earliest entry of the boundary index.
+	 */
+	private CollisionEvent boundaryEvent;
+
+	/**
+	 * Variable registering the entities whose collisions must be predicted again.
+	 */
+	private final List<Entity> dirty = new ArrayList<Entity>();
+
+	/**
+	 * Variable registering the sequence number of the next event.
+	 */
+	private long sequence = 0;
+
+	/**
+	 * Variable registering the size of the queue after the last time it was cleaned.
+	 */
+	private int cleanedSize = 0;
+
+	/**
+	 * Invalidate all predictions for the given entity of the world of this scheduler.
+	 *
+	 * @effect The version of the entity is incremented, voiding all events predicted for it.
+	 * @post   The collisions of the entity, including its collision with a boundary, will be
+	 * 		   predicted again before the next event is returned.
+	 */
+	void invalidate(Entity entity) {
+		entity.getStore().setFlag(entity.getSlot(), EntityStore.BOUNDARY_DIRTY, true);
+		renew(entity);
+	}
+
+	/**
+	 * Invalidate the predictions for the given entity of the world of this scheduler of its
+	 * collisions with other entities, because it reached its horizon.
+	 *
+	 * @effect The version of the entity is incremented, voiding all events predicted for it.
+	 * @post   The collisions of the entity with other entities will be predicted again before the
+	 * 		   next event is returned.
+	 */
+	void renew(Entity entity) {
+		EntityStore store = entity.getStore();
+		int slot = entity.getSlot();
+		store.incrementVersion(slot);
+		if (! store.hasFlag(slot, EntityStore.DIRTY)) {
+			store.setFlag(slot, EntityStore.DIRTY, true);
+			this.dirty.add(entity);
+		}
+	}
+
+	/**
+	 * Forget the given entity, which is about to leave the world of this scheduler.
+	 *
+	 * @effect The version of the entity is incremented, voiding all events predicted for it.
+	 * @effect The entry of the entity is removed from the boundary index.
+	 */
+	void forget(Entity entity) {
+		EntityStore store = entity.getStore();
+		int slot = entity.getSlot();
+		store.incrementVersion(slot);
+		store.setFlag(slot, EntityStore.DIRTY, false);
+		store.setFlag(slot, EntityStore.BOUNDARY_DIRTY, false);
+		this.boundaries.remove(slot, store.getNbEntities() - 1);
+	}
+
+	/**
+	 * Drop all predictions of this scheduler, whose world no longer holds any entities.
+	 *
+	 * @post   No events remain in this scheduler, and no entities wait for new predictions.
+	 * @effect The boundary index of this scheduler is emptied.
+	 * 		   | boundaries.release()
+	 */
+	void clear() {
+		this.events = new PriorityQueue<CollisionEvent>();
+		this.dirty.clear();
+		this.boundaries.release();
+		this.boundaryEvent = null;
+		this.cleanedSize = 0;
+	}
+
+	/**
+	 * Return the time after which the given entity of the world of this scheduler collides with a boundary.
+	 * The prediction in the boundary index is used, unless the entity waits for a new one.
+	 */
+	double getTimeToBoundary(Entity entity) {
+		EntityStore store = this.world.getStore();
+		int slot = entity.getSlot();
+		if (store.hasFlag(slot, EntityStore.BOUNDARY_DIRTY) || ! this.boundaries.contains(slot)) {
+			return getTimeToBoundary(slot);
+		}
+		return Math.max(0.0, this.boundaries.getTime(slot) - this.world.getTime());
+	}
+
+	/**
+	 * Return the time after which the entity in the given slot collides with a boundary, computed
+	 * from its current position and velocity. Entities of a toroidal world never do.
+	 */
+	private double getTimeToBoundary(int slot) {
+		World world = this.world;
+		if (world.isToroidal()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		EntityStore store = world.getStore();
+		store.sync(slot);
+		return World.getTimeToBoundary(store.x[slot], store.y[slot], store.vx[slot], store.vy[slot],
+				store.radius[slot], world.getWidth(), world.getHeight());
+	}
+
+	/**
+	 * Store the point where the given entity of the world of this scheduler touches a boundary in the
+	 * given array, and return that array, or return null if it will never hit a boundary.
+	 * The prediction in the boundary index is used, unless the entity waits for a new one.
+	 */
+	double[] getBoundaryCollisionPosition(Entity entity, double[] destination) {
+		EntityStore store = this.world.getStore();
+		int slot = entity.getSlot();
+		if (store.hasFlag(slot, EntityStore.BOUNDARY_DIRTY) || ! this.boundaries.contains(slot)) {
+			double duration = getTimeToBoundary(entity);
+			if (duration == Double.POSITIVE_INFINITY) {
+				return null;
+			}
+			return World.getBoundaryContactPoint(store.x[slot] + store.vx[slot]*duration,
+					store.y[slot] + store.vy[slot]*duration, store.radius[slot], this.world.getWidth(),
+					this.world.getHeight(), destination);
+		}
+		if (this.boundaries.getTime(slot) == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+		destination[0] = this.boundaries.getX(slot);
+		destination[1] = this.boundaries.getY(slot);
+		return destination;
+	}
+
+	/**
+	 * Return the earliest collision of an entity of the world of this scheduler with a boundary,
+	 * without removing it.
+	 *
+	 * @return Null if no entity will hit a boundary.
+	 */
+	CollisionEvent peekBoundaryCollision() {
+		refresh();
+		return getBoundaryEvent();
+	}
+
+	/**
+	 * Store the point where the entity of the earliest boundary collision touches the boundary in
+	 * the given array, and return that array, or return null if no entity will hit a boundary.
+	 */
+	double[] getPositionNextBoundaryCollision(double[] destination) {
+		CollisionEvent event = peekBoundaryCollision();
+		if (event == null) {
+			return null;
+		}
+		destination[0] = this.boundaries.getX(event.getFirst().getSlot());
+		destination[1] = this.boundaries.getY(event.getFirst().getSlot());
+		return destination;
+	}
+
+	/**
+	 * Return an event for the earliest entry of the boundary index, or null if no entity will hit a boundary.
+	 */
+	private CollisionEvent getBoundaryEvent() {
+		BoundaryIndex boundaries = this.boundaries;
+		if (boundaries.getEarliestTime() == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+		Entity entity = boundaries.getEarliestEntity();
+		CollisionEvent event = this.boundaryEvent;
+		if (event == null || event.getFirst() != entity || event.getSequence() != boundaries.getEarliestSequence()) {
+			event = new CollisionEvent(boundaries.getEarliestTime(), entity,
+					entity.getStore().getVersion(entity.getSlot()), null, 0, boundaries.getEarliestSequence());
+			this.boundaryEvent = event;
+		}
+		return event;
+	}
+
+	/**
+	 * Return the earliest event that still applies, without removing it.
+	 *
+	 * @return Null if no collision will take place.
+	 */
+	CollisionEvent peek() {
+		refresh();
+		CollisionEvent event = this.events.peek();
+		while (event != null && ! event.isValidIn(this.world)) {
+			this.events.poll();
+			event = this.events.peek();
+		}
+		CollisionEvent boundaryEvent = getBoundaryEvent();
+		if (boundaryEvent != null && (event == null || boundaryEvent.compareTo(event) < 0)) {
+			return boundaryEvent;
+		}
+		return event;
+	}
+
+	/**
+	 * Return and remove the earliest event that still applies.
+	 *
+	 * @return Null if no collision will take place.
+	 */
+	CollisionEvent poll() {
+		CollisionEvent event = peek();
+		if (event != null && event.isBoundaryCollision()) {
+			this.boundaries.clear(event.getFirst().getSlot());
+		}
+		else if (event != null) {
+			this.events.poll();
+		}
+		return event;
+	}
+
+	/**
+	 * Return the earliest collision that still applies, without advancing the world.
+	 * Prediction horizons met on the way are pushed further ahead, doubling the distance
+	 * to the current world time each time, until a collision is found.
+	 *
+	 * @return Null if no collision will take place.
+	 */
+	CollisionEvent peekCollision() {
+		CollisionEvent event = peek();
+		while (event != null && event.isHorizon()) {
+			double now = this.world.getTime();
+			double limit = now + getLookahead();
+			if (event.getTime() >= limit) {
+				return null;
+			}
+			this.events.poll();
+			Entity entity = event.getFirst();
+			double until = now + Math.max(this.world.getBroadPhase().getHorizon(), 2 * (event.getTime() - now));
+			until = Math.min(until, limit);
+			entity.getStore().incrementVersion(entity.getSlot());
+			predictPairs(entity.getSlot(), until);
+			event = peek();
+		}
+		return event;
+	}
+
+	/**
+	 * Return how far ahead of the current world time peekCollision looks for a collision.
+	 *
+	 * @return Positive infinity, unless the world is toroidal: entities circling a toroidal world may
+	 * 		   never meet, so its collisions are only looked for as long as the fastest entity needs to
+	 * 		   cross the largest dimension of the world.
+	 */
+	private double getLookahead() {
+		World world = this.world;
+		if (! world.isToroidal()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(world.getWidth(), world.getHeight()) / world.getBroadPhase().getMaxSpeed();
+	}
+
+	/**
+	 * Predict the collisions of all invalidated entities, in the order in which they were invalidated.
+	 * If the world evolves in parallel and many entities were invalidated, their collisions are
+	 * predicted on its strips at once, unless the world is toroidal, since its strips do not wrap around.
+	 */
+	private void refresh() {
+		if (this.dirty.isEmpty()) {
+			return;
+		}
+		EntityStore store = this.world.getStore();
+		ParallelEvolution parallel = this.world.getParallelEvolution();
+		if (parallel != null && ! this.world.isToroidal() && this.dirty.size() >= ParallelEvolution.PREDICTION_THRESHOLD) {
+			Entity[] entities = new Entity[this.dirty.size()];
+			int count = 0;
+			for (int k = 0; k < this.dirty.size(); k++) {
+				Entity entity = this.dirty.get(k);
+				if (entity.getWorld() == this.world && store.hasFlag(entity.getSlot(), EntityStore.DIRTY)) {
+					store.setFlag(entity.getSlot(), EntityStore.DIRTY, false);
+					entities[count++] = entity;
+				}
+			}
+			// the strips read the positions of all entities
+			store.syncAll();
+			parallel.predict(entities, count, this);
+		}
+		else {
+			for (int k = 0; k < this.dirty.size(); k++) {
+				Entity entity = this.dirty.get(k);
+				if (entity.getWorld() == this.world && store.hasFlag(entity.getSlot(), EntityStore.DIRTY)) {
+					store.setFlag(entity.getSlot(), EntityStore.DIRTY, false);
+					predict(entity.getSlot());
+				}
+			}
+		}
+		this.dirty.clear();
+		if (this.events.size() > 2 * this.cleanedSize + 64) {
+			clean();
+		}
+	}
+
+	/**
+	 * Predict the collisions of the entity in the given slot with every other entity that is not
+	 * waiting to be predicted itself up to the default horizon, and its collision with the boundaries
+	 * if its velocity changed since that collision was predicted.
+	 */
+	private void predict(int i) {
+		EntityStore store = this.world.getStore();
+		if (store.hasFlag(i, EntityStore.BOUNDARY_DIRTY)) {
+			scheduleBoundary(store.getEntityAt(i), getTimeToBoundary(i));
+		}
+		predictPairs(i, this.world.getTime() + this.world.getBroadPhase().getHorizon());
+	}
+
+	/**
+	 * Predict the collisions of the entity in the given slot with every other entity that is not
+	 * waiting to be predicted itself up to the given world time.
+	 * Only the entities the broad phase of the world finds near the path of the entity are tested,
+	 * in the order of their slots, so that the events do not depend on the broad phase.
+	 */
+	private void predictPairs(int i, double until) {
+		World world = this.world;
+		EntityStore store = world.getStore();
+		BroadPhase broadPhase = world.getBroadPhase();
+		double now = world.getTime();
+		Entity entity = store.getEntityAt(i);
+		store.sync(i);
+		double maxSpeed = broadPhase.getMaxSpeed();
+		if (maxSpeed == 0) {
+			return;
+		}
+		double duration = until - now;
+		boolean toroidal = world.isToroidal();
+		double reach = store.radius[i] + broadPhase.getMaxRadius() + maxSpeed * duration;
+		int count = broadPhase.querySwept(store.x[i], store.y[i], store.vx[i], store.vy[i], duration, reach);
+		if (this.candidates.length < count) {
+			this.candidates = new int[Math.max(count, 2 * this.candidates.length)];
+		}
+		for (int k = 0; k < count; k++) {
+			this.candidates[k] = broadPhase.getCandidate(k);
+		}
+		Arrays.sort(this.candidates, 0, count);
+		for (int k = 0; k < count; k++) {
+			int j = this.candidates[k];
+			if (j == i || store.hasFlag(j, EntityStore.DIRTY)) {
+				continue;
+			}
+			store.sync(j);
+			double t = toroidal ? World.getTimeToCollision(store, i, j, world.getWidth(), world.getHeight(), duration)
+					: World.getTimeToCollision(store, i, j);
+			if (now + t <= until) {
+				schedule(now + t, entity, store.getEntityAt(j));
+			}
+		}
+		if (until < Double.POSITIVE_INFINITY) {
+			scheduleHorizon(until, entity);
+		}
+	}
+
+	/**
+	 * Variable registering the slots of the candidates of the last prediction, in ascending order.
+	 */
+	private int[] candidates = new int[0];
+
+	/**
+	 * Add a collision of the given entities at the given world time to the queue, for the current
+	 * versions of the entities.
+	 */
+	void schedule(double time, Entity first, Entity second) {
+		this.events.add(new CollisionEvent(time, first, first.getStore().getVersion(first.getSlot()), second,
+				second.getStore().getVersion(second.getSlot()), this.sequence++));
+	}
+
+	/**
+	 * Register in the boundary index that the given entity, whose position is up to date, hits a
+	 * boundary after the given time, or never if that time is positive infinity.
+	 *
+	 * @post   The entity no longer waits for its collision with a boundary to be predicted again.
+	 */
+	void scheduleBoundary(Entity entity, double duration) {
+		World world = this.world;
+		EntityStore store = world.getStore();
+		int slot = entity.getSlot();
+		store.setFlag(slot, EntityStore.BOUNDARY_DIRTY, false);
+		double[] point = this.contactPoint;
+		if (duration < Double.POSITIVE_INFINITY) {
+			World.getBoundaryContactPoint(store.x[slot] + store.vx[slot]*duration, store.y[slot] + store.vy[slot]*duration,
+					store.radius[slot], world.getWidth(), world.getHeight(), point);
+		} else {
+			point[0] = point[1] = Double.NaN;
+		}
+		this.boundaries.update(entity, world.getTime() + duration, point[0], point[1], this.sequence++);
+	}
+
+	/**
+	 * Variable registering the array reused for the contact points of the boundary index.
+	 */
+	private final double[] contactPoint = new double[2];
+
+	/**
+	 * Add the prediction horizon of the given entity at the given world time to the queue,
+	 * for the current version of the entity.
+	 */
+	void scheduleHorizon(double time, Entity entity) {
+		this.events.add(new CollisionEvent(time, entity, entity.getStore().getVersion(entity.getSlot()), this.sequence++));
+	}
+
+	/**
+	 * Remove all events that no longer apply from the queue.
+	 */
+	private void clean() {
+		PriorityQueue<CollisionEvent> events = new PriorityQueue<CollisionEvent>(Math.max(1, this.events.size()));
+		for (CollisionEvent event : this.events) {
+			if (event.isValidIn(this.world)) {
+				events.add(event);
+			}
+		}
+		this.events = events;
+		this.cleanedSize = events.size();
+	}
+}
@@ -0,0 +1,741 @@
+package asteroids.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of circular entities involving a x and y component of their position, a x and y component
+ * of their velocity, a radius and a mass.
+ *
+ * An entity does not hold its own state: it is a handle into a slot of an entity store.
+ * While the entity is located in a world, that store is the store of the world, so that
+ * the world can advance all of its entities in one pass over packed arrays.
+ * Otherwise the entity has a store of its own.
+ *
+ * @invar  The position of each entity must be a valid position for any entity.
+ *       | isValidPosition(getxCoordinate(), getyCoordinate())
+ * @invar  Each entity can have its radius as radius.
+ *       | isValidRadius(getRadius())
+ * @invar  The velocity of each entity must be a valid velocity for any entity.
+ *       | isValidVelocity(getxVelocity(), getyVelocity())
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public abstract class Entity {
+
+	/**
+	 * Initialize this new entity with given position, velocity, radius, mass and orientation.
+	 *
+	 * @param  xCoordinate,
+	 *         The xCoordinate for this new entity.
+	 * @param  yCoordinate,
+	 *         The yCoordinate for this new entity.
+	 * @param  xVelocity
+	 *         The xVelocity for this new entity.
+	 * @param  yVelocity
+	 *         The yVelocity for this new entity.
+	 * @param  radius
+	 *         The radius for this new entity.
+	 * @param  mass
+	 *         The mass for this new entity.
+	 * @param  orientation
+	 *         The orientation for this new entity.
+	 * @param  type
+	 *         The store flag marking the kind of this new entity.
+	 * @post   The radius of this new entity is equal to the given radius.
+	 *       | new.getRadius() == radius
+	 * @effect The position of this new entity is set to the given position.
+	 *       | this.setPosition(xCoordinate, yCoordinate)
+	 * @effect The velocity of this new entity is set to the given velocity.
+	 *       | this.setVelocity(xVelocity, yVelocity)
+	 * @throws IllegalArgumentException
+	 *         This new entity cannot have the given radius as its radius.
+	 *       | ! isValidRadius(radius)
+	 */
+	protected Entity(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius,
+			double mass, double orientation, int type) throws IllegalArgumentException {
+		if (! isValidRadius(radius)){
+			throw new IllegalArgumentException();
+		}
+		new EntityStore(1).add(this, 0, 0, 0, 0, radius, mass, orientation, type);
+		setPosition(xCoordinate, yCoordinate);
+		setVelocity(xVelocity, yVelocity);
+	}
+
+	/**
+	 * Initialize this new entity as the entity in the given slot of the given store, whose state
+	 * was filled in directly.
+	 *
+	 * @effect | store.bind(slot, this)
+	 */
+	@Raw
+	Entity(EntityStore store, int slot) {
+		store.bind(slot, this);
+	}
+
+	/**
+	 * Return the store holding the state of this entity.
+	 */
+	@Basic @Raw
+	EntityStore getStore() {
+		return this.store;
+	}
+
+	/**
+	 * Return the slot of this entity in its store.
+	 */
+	@Basic @Raw
+	int getSlot() {
+		return this.slot;
+	}
+
+	/**
+	 * Register the given store and slot as the place where the state of this entity is kept.
+	 *
+	 * @post   | new.getStore() == store && new.getSlot() == slot
+	 */
+	@Raw
+	void setStore(EntityStore store, int slot) {
+		this.store = store;
+		this.slot = slot;
+	}
+
+	/**
+	 * Move the state of this entity to the given store.
+	 *
+	 * @effect | store.adopt(getStore(), getSlot())
+	 * @effect If this entity had a store of its own, that store is handed to the given store for reuse.
+	 * 		   | if (getStore().getCapacity() == 1) then store.releaseSingleStore(getStore())
+	 */
+	@Raw
+	void moveTo(EntityStore store) {
+		if (store != this.store) {
+			EntityStore old = this.store;
+			store.adopt(old, this.slot);
+			if (old.getCapacity() == 1) {
+				store.releaseSingleStore(old);
+			}
+		}
+	}
+
+	/**
+	 * Move the state of this entity to a store of its own.
+	 * A store given up by an entity that moved into the store of this entity is reused, if there is
+	 * one, so that an entity going in and out of a world, as a bullet does when it is fired and loaded
+	 * again, does not leave a store behind every time, while the entities located in a world do not
+	 * hold on to a store of their own each.
+	 *
+	 * @effect | moveTo(getStore().takeSingleStore())
+	 */
+	@Raw
+	void detach() {
+		moveTo(this.store.takeSingleStore());
+	}
+
+	/**
+	 * Variable registering the store holding the state of this entity.
+	 */
+	private EntityStore store;
+
+	/**
+	 * Variable registering the slot of this entity in its store.
+	 */
+	private int slot;
+
+	/**
+	 * Return the identifier of this entity.
+	 * Identifiers are handed out in the order in which entities are created and are never reused,
+	 * so that consumers of exported state can recognize an entity from one export to the next.
+	 */
+	@Basic @Immutable @Raw
+	public long getId() {
+		return this.id;
+	}
+
+	/**
+	 * Check whether the entity this handle referred to when it had the given identifier is terminated.
+	 * A bullet recycled by a world gets a new identifier, so a handle kept together with its identifier
+	 * still recognizes the bullet it referred to as terminated once the bullet object is reused.
+	 *
+	 * @return | result == (isTerminated() || getId() != id)
+	 */
+	public boolean isTerminated(long id) {
+		return isTerminated() || getId() != id;
+	}
+
+	/**
+	 * Variable registering the identifier of this entity.
+	 */
+	private long id = ID_COUNTER.incrementAndGet();
+
+	/**
+	 * Variable registering the identifier handed out to the last entity created.
+	 */
+	private static final AtomicLong ID_COUNTER = new AtomicLong();
+
+	/**
+	 * Return the x component of the position of this entity.
+	 * 	  The x component of the position expresses where the center of the entity is located on an unbounded x axis
+	 * 	  and is expressed in kilometers.
+	 */
+	@Basic @Raw
+	public double getxCoordinate() {
+		return this.store.getX(this.slot);
+	}
+
+	/**
+	 * Return the y component of the position of this entity.
+	 *	  The y component of the position expresses where the center of the entity is located on an unbounded y axis
+	 * 	  and is expressed in kilometers.
+	 */
+	@Basic @Raw
+	public double getyCoordinate() {
+		return this.store.getY(this.slot);
+	}
+
+	/**
+	 * Check whether the given position is a valid position for
+	 * any entity.
+	 *
+	 * @param  xCoordinate,
+	 *         The xCoordinate to check.
+	 * @param  yCoordinate,
+	 *         The yCoordinate to check.
+	 * @return
+	 *       | result == (! java.lang.Double.isNaN(xCoordinate) && !java.lang.Double.isNaN(yCoordinate));
+	*/
+	public static boolean isValidPosition(double xCoordinate, double yCoordinate) {
+		return (! java.lang.Double.isNaN(xCoordinate) && !java.lang.Double.isNaN(yCoordinate));
+	}
+
+	/**
+	 * Set the position of this entity to the given position.
+	 *
+	 * @param  xCoordinates,
+	 *         The new x coordinate for this entity.
+	 * @param  yCoordinate
+	 * 		   The new y coordinate for this entity.
+	 * @post   If the position is a valid position for any entity.
+	 * 		   Then the position of this new entity is equal to
+	 *         the given position.
+	 *       | new.getxCoordinate() == xCoordinate
+	 *       | new.getyCoordinate() == yCoordinate
+	 * @throws IllegalArgumentException()
+	 *         The given position is not a valid position for any
+	 *         entity.
+	 *       | ! isValidPosition(xCoordinate, yCoordinate)
+	 */
+	@Raw
+	public void setPosition(double xCoordinate, double yCoordinate)	throws IllegalArgumentException {
+		if (! isValidPosition(xCoordinate, yCoordinate)){
+			throw new IllegalArgumentException();
+		}
+		else{
+			this.store.setPosition(this.slot, xCoordinate, yCoordinate);
+			if (this.world != null) {
+				this.world.relocate(this);
+			}
+		}
+	}
+
+	/**
+	 * Move the entity to its new position after the given duration.
+	 *
+	 * @param duration
+	 * 		  The amount of time the entity moves.
+	 * @post  If the given duration is a valid duration,
+	 * 		  the x and y component of the position of the entity will
+	 * 		  be set to the new coordinates that the entity will have after
+	 * 		  the given duration under influence of their respective velocities.
+	 * 		  Else the position will remain unchanged.
+	 * 		  | if (!IsValidDuration(duration) || (Math.sqrt(getxVelocity()*getxVelocity() + getyVelocity()*getyVelocity())) == 0){
+	 *		  |		setPosition(getxCoordinate(), getyCoordinate())
+	 *		  |	else{
+	 *		  |		setPosition(getxCoordinate() + getxVelocity()*duration, getyCoordinate() + getyVelocity()*duration)
+	 *
+	 * @throws IllegalArgumentException
+	 *         The new position is not a valid position for any
+	 *         entity.
+	 *        | ! isValidPosition(new.getxCoordinate(), new.getyCoordinate())
+	 */
+	public void move(double duration) throws IllegalArgumentException {
+		if (!IsValidDuration(duration) || (Math.sqrt(getxVelocity()*getxVelocity() + getyVelocity()*getyVelocity())) == 0){
+			setPosition(getxCoordinate(), getyCoordinate());
+		}
+		else{
+			setPosition(getxCoordinate() + getxVelocity()*duration, getyCoordinate() + getyVelocity()*duration);
+		}
+	}
+
+	/**
+	 *  Check whether the given duration is a valid duration for
+	 *  any entity.
+	 * @param duration
+	 * 		  The duration to check.
+	 * @return True if and only if the duration is positive
+	 * 		   | result == (duration > 0)
+	 */
+	public static boolean IsValidDuration(double duration) {
+		return (duration > 0);
+	}
+
+	/**
+	 * Return the x component of the velocity of this entity.
+	 * 		The x component of the velocity expresses the entities velocity projected on the x axis
+	 * 		and is expressed in kilometers/second.
+	 */
+	@Basic @Raw
+	public double getxVelocity() {
+		return this.store.getVx(this.slot);
+	}
+
+	/**
+	 * Return the y value of the velocity of this entity.
+	 * 		The y component of the velocity expresses the entities velocity projected on the y axis
+	 * 		and is expressed in kilometers/second.
+	 */
+	@Basic @Raw
+	public double getyVelocity() {
+		return this.store.getVy(this.slot);
+	}
+
+	/**
+	 * Return the speed limit of all entities, the speed of light in kilometers/second.
+	 */
+	@Immutable
+	public static double getSpeedLimit() {
+		return SPEED_LIMIT;
+	}
+
+	/**
+	 * Constant registering the speed limit of all entities.
+	 */
+	private static final double SPEED_LIMIT = 300000;
+
+	/**
+	 * Check whether the given Velocity is a valid Velocity for
+	 * any entity.
+	 *
+	 * @param  xVelocity
+	 *         The xVelocity to check.
+	 * @param  yVelocity
+	 *         The yVelocity to check.
+	 * @return
+	 *       | result ==  (Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity) <= getSpeedLimit())
+	*/
+	public static boolean isValidVelocity(double xVelocity, double yVelocity) {
+		return (Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity) <= SPEED_LIMIT);
+	}
+
+	/**
+	 * Set the Velocity of this entity to the given Velocity.
+	 *
+	 * @param  xVelocity
+	 *         The new x component of the velocity for this entity
+	 * @param  yVelocity
+	 * 		   The new y component of the velocity for this entity
+	 * @post   If the given Velocity is a valid Velocity for any entity,
+	 *         the Velocity of this new entity is equal to the given
+	 *         Velocity.
+	 *         Otherwise the velocity will have the same direction
+	 *         but the size will be set to the speed limit.
+	 *       | if (isValidVelocity(xVelocity, yVelocity))
+	 *       |   then new.getxVelocity() == xVelocity
+	 *       		  new.getyVelocity() == yVelocity
+	 *       | else
+	 *       |		new.getxVelocity = xVelocity/(Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity))*getSpeedLimit()
+	 *		 |		new.getyVelocity = yVelocity/(Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity))*getSpeedLimit()
+	 */
+	@Raw
+	public void setVelocity(double xVelocity, double yVelocity) {
+		if (isValidVelocity(xVelocity, yVelocity)){
+			this.store.setVelocity(this.slot, xVelocity, yVelocity);
+		}
+		else{
+			double speed = Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity);
+			this.store.setVelocity(this.slot, xVelocity/speed*SPEED_LIMIT, yVelocity/speed*SPEED_LIMIT);
+		}
+		if (this.world != null) {
+			this.world.invalidate(this);
+		}
+	}
+
+	/**
+	 * Return the radius of this entity.
+	 * 		The radius expresses the radius of the circular entity and is expressed in kilometers.
+	 */
+	@Basic @Raw @Immutable
+	public double getRadius() {
+		return this.store.getRadius(this.slot);
+	}
+
+	/**
+	 * Check whether this entity can have the given radius as its radius.
+	 *
+	 * @param  radius
+	 *         The radius to check.
+	 */
+	@Raw
+	public abstract boolean isValidRadius(double radius);
+
+	/**
+	 * Return the mass of this entity, expressed in kilograms.
+	 */
+	@Basic @Raw
+	public double getMass() {
+		return this.store.getMass(this.slot);
+	}
+
+	/**
+	 * Return the volume of a circular entity with the given radius, expressed in cubic kilometers.
+	 *
+	 * @return | result == 4.0 / 3.0 * Math.PI * radius * radius * radius
+	 */
+	public static double getVolume(double radius) {
+		return 4.0 / 3.0 * Math.PI * radius * radius * radius;
+	}
+
+	/**
+	 * Return the distance between two entities measured as the distance between their edges.
+	 *
+	 * @param other
+	 * 		  The other entity to which the distance shall be measured.
+	 * @return The distance between the two entities, or between this entity and the nearest
+	 * 		   periodic image of the other one if both are located in the same toroidal world.
+	 * 		   | result == Math.sqrt((getxCoordinate() - getImagexCoordinate(other))*(getxCoordinate() - getImagexCoordinate(other))
+	 * 		   | + (getyCoordinate() - getImageyCoordinate(other))*(getyCoordinate() - getImageyCoordinate(other))) -
+	 * 		   | (getRadius() + other.getRadius())
+	 */
+	public double getDistanceBetween(Entity other) {
+		if (this == other) {
+			return 0.0;
+		}
+		else{
+			double otherx = getImagexCoordinate(other), othery = getImageyCoordinate(other);
+			return Math.sqrt((getxCoordinate() - otherx)*(getxCoordinate() - otherx) + (getyCoordinate() - othery)*(getyCoordinate() - othery)) - (getRadius() + other.getRadius());
+		}
+	}
+
+	/**
+	 * Return the world of this entity if it is toroidal and the given entity is located in it as well.
+	 *
+	 * @return | if (getWorld() != null && getWorld().isToroidal() && other.getWorld() == getWorld())
+	 * 		   |	result == getWorld()
+	 * 		   | else result == null
+	 */
+	private World getToroidalWorldWith(Entity other) {
+		World world = getWorld();
+		return (world != null && world.isToroidal() && other.getWorld() == world) ? world : null;
+	}
+
+	/**
+	 * Return the x coordinate of the periodic image of the given entity nearest to this entity.
+	 *
+	 * @return | if (getToroidalWorldWith(other) == null)
+	 * 		   |	result == other.getxCoordinate()
+	 * 		   | else result == getxCoordinate() + World.wrapDifference(other.getxCoordinate() - getxCoordinate(), getWorld().getWidth())
+	 */
+	private double getImagexCoordinate(Entity other) {
+		World world = getToroidalWorldWith(other);
+		if (world == null) {
+			return other.getxCoordinate();
+		}
+		return getxCoordinate() + World.wrapDifference(other.getxCoordinate() - getxCoordinate(), world.getWidth());
+	}
+
+	/**
+	 * Return the y coordinate of the periodic image of the given entity nearest to this entity.
+	 *
+	 * @return | if (getToroidalWorldWith(other) == null)
+	 * 		   |	result == other.getyCoordinate()
+	 * 		   | else result == getyCoordinate() + World.wrapDifference(other.getyCoordinate() - getyCoordinate(), getWorld().getHeight())
+	 */
+	private double getImageyCoordinate(Entity other) {
+		World world = getToroidalWorldWith(other);
+		if (world == null) {
+			return other.getyCoordinate();
+		}
+		return getyCoordinate() + World.wrapDifference(other.getyCoordinate() - getyCoordinate(), world.getHeight());
+	}
+
+	/**
+	 * Check whether two entities overlap.
+	 *
+	 * @param other
+	 * 		  The other entity to check.
+	 * @return True if and only if the distance between two entities is negative.
+	 * 		   | result == (getDistanceBetween(other) < 0)
+	 */
+	public boolean overlap(Entity other) {
+		return (getDistanceBetween(other) < 0);
+	}
+
+	/**
+	 * Check whether two entities overlap significantly, that is whether the distance between
+	 * their centres is less than 99% of the sum of their radii.
+	 *
+	 * @param other
+	 * 		  The other entity to check.
+	 * @return | result == (this != other &&
+	 * 		   |	getDistanceBetween(other) + getRadius() + other.getRadius() < 0.99 * (getRadius() + other.getRadius()))
+	 */
+	public boolean overlapSignificantly(Entity other) {
+		if (this == other) {
+			return false;
+		}
+		double dx = getxCoordinate() - getImagexCoordinate(other);
+		double dy = getyCoordinate() - getImageyCoordinate(other);
+		double sigma = 0.99 * (getRadius() + other.getRadius());
+		return dx*dx + dy*dy < sigma*sigma;
+	}
+
+	/**
+	 * Return the amount of time before the two entities will collide.
+	 * @param other
+	 * 		  The other entity
+	 * @return The amount of time before two entities overlap,
+	 * 		   if and only if the calculated amount of time is finite.
+	 * 		   | if (dvdr >= 0 && d <=0)
+	 * 		   |	- (dvdr + Math.sqrt(d)) / (dvdv)
+	 * @return If both entities are located in the same toroidal world, the smallest amount of time before
+	 * 		   this entity overlaps any periodic image of the other one, looking ahead as long as their
+	 * 		   relative motion needs to cover the largest dimension of that world.
+	 * 		   | if (getToroidalWorldWith(other) != null)
+	 * 		   |	result == World.getTimeToCollision(other.getxCoordinate() - getxCoordinate(), ...,
+	 * 		   |		getWorld().getWidth(), getWorld().getHeight(), Math.max(getWorld().getWidth(), getWorld().getHeight()) / relativeSpeed)
+	 */
+	public double getTimeToCollision(Entity other) {
+		World world = getToroidalWorldWith(other);
+		if (world != null) {
+			double dvx = other.getxVelocity() - getxVelocity(), dvy = other.getyVelocity() - getyVelocity();
+			double speed = Math.sqrt(dvx*dvx + dvy*dvy);
+			double duration = (speed == 0) ? 0.0 : Math.max(world.getWidth(), world.getHeight()) / speed;
+			return World.getTimeToCollision(other.getxCoordinate() - getxCoordinate(), other.getyCoordinate() - getyCoordinate(),
+					dvx, dvy, getRadius() + other.getRadius(), world.getWidth(), world.getHeight(), duration);
+		}
+
+		double dvdr = (getxVelocity() - other.getxVelocity()) * (getxCoordinate() - other.getxCoordinate()) + (getyVelocity()-other.getyVelocity()) * (getyCoordinate() - other.getyCoordinate());
+		double dvdv = (getxVelocity()-other.getxVelocity())*(getxVelocity()-other.getxVelocity()) + (getyVelocity()-other.getyVelocity()) * (getyVelocity() - other.getyVelocity());
+		double drdr = (getxCoordinate()-other.getxCoordinate())*(getxCoordinate()-other.getxCoordinate()) + (getyCoordinate()-other.getyCoordinate()) * (getyCoordinate() - other.getyCoordinate());
+		double sigmaSquare = (getRadius()+other.getRadius())*(getRadius()+other.getRadius());
+		double d = dvdr*dvdr - dvdv * (drdr - sigmaSquare);
+
+		if (dvdr >= 0){
+			return Double.POSITIVE_INFINITY;
+		}
+		if (d <= 0){
+			return Double.POSITIVE_INFINITY;
+		}
+		else{
+			return - (dvdr + Math.sqrt(d)) / (dvdv);
+		}
+	}
+
+	/**
+	 * Return the x and y component of the position where to two entities will collide.
+	 * @param other
+	 * 		  The other entity
+	 * @return If and only if the time to collision is finite,
+	 * 		   the coordinates where the collision will occur after
+	 * 		   the finite amount of time.
+	 * 		   | if (getTimeToCollision(other) == Double.POSITIVE_INFINITY)
+	 *		   |	return null
+	 *		   | double FirstxCoordinate = getxCoordinate() + getxVelocity()*duration
+	 *		   | double FirstyCoordinate = getyCoordinate() + getyVelocity()*duration
+	 *		   | double SecondxCoordinate = other.getxCoordinate() + other.getxVelocity()*duration
+	 *		   | double SecondyCoordinate = other.getyCoordinate() + other.getyVelocity()*duration
+	 *	       |
+	 * 		   | double CollisionxCoordinate = FirstxCoordinate + (SecondxCoordinate - FirstxCoordinate) * getRadius() / (getRadius() + other.getRadius())
+	 *	       | double CollisionyCoordinate = FirstyCoordinate + (SecondyCoordinate - FirstyCoordinate) * getRadius() / (getRadius() + other.getRadius())
+	 *		   | double[] CollisionCoordinates =  {CollisionxCoordinate, CollisionyCoordinate}
+ 	 *		   | return CollisionCoordinates
+	 */
+	public double[] getCollisionPosition(Entity other) {
+		return getCollisionPosition(other, new double[2]);
+	}
+
+	/**
+	 * Store the x and y component of the position where this entity and the given entity will
+	 * collide in the given array, without allocating a new one.
+	 *
+	 * @param  other
+	 * 		   The other entity.
+	 * @param  destination
+	 * 		   The array of at least two elements to store the position in.
+	 * @return Null if the entities will never collide, otherwise the given array, holding
+	 * 		   the position returned by getCollisionPosition(other).
+	 * 		   | if (getTimeToCollision(other) == Double.POSITIVE_INFINITY)
+	 * 		   |	result == null
+	 * 		   | else Arrays.equals(result, getCollisionPosition(other)) && result == destination
+	 */
+	public double[] getCollisionPosition(Entity other, double[] destination) {
+		double duration = getTimeToCollision(other);
+		if (duration == Double.POSITIVE_INFINITY) {
+			return null;
+		}
+
+		double FirstxCoordinate = getxCoordinate() + getxVelocity()*duration;
+		double FirstyCoordinate = getyCoordinate() + getyVelocity()*duration;
+		double SecondxCoordinate = other.getxCoordinate() + other.getxVelocity()*duration;
+		double SecondyCoordinate = other.getyCoordinate() + other.getyVelocity()*duration;
+		World world = getToroidalWorldWith(other);
+		if (world != null) {
+			SecondxCoordinate = FirstxCoordinate + World.wrapDifference(SecondxCoordinate - FirstxCoordinate, world.getWidth());
+			SecondyCoordinate = FirstyCoordinate + World.wrapDifference(SecondyCoordinate - FirstyCoordinate, world.getHeight());
+		}
+
+		destination[0] = FirstxCoordinate + (SecondxCoordinate - FirstxCoordinate) * getRadius() / (getRadius() + other.getRadius());
+		destination[1] = FirstyCoordinate + (SecondyCoordinate - FirstyCoordinate) * getRadius() / (getRadius() + other.getRadius());
+		if (world != null) {
+			destination[0] = World.wrapCoordinate(destination[0], world.getWidth());
+			destination[1] = World.wrapCoordinate(destination[1], world.getHeight());
+		}
+		return destination;
+	}
+
+	/**
+	 * Return the amount of time before this entity collides with a boundary of its world.
+	 *
+	 * @return Positive infinity if this entity is not located in a world, or in a toroidal one.
+	 * 		   | if (getWorld() == null || getWorld().isToroidal())
+	 * 		   |	result == Double.POSITIVE_INFINITY
+	 * @return Otherwise the smallest non-negative time after which the edge of this entity
+	 * 		   touches a vertical or horizontal boundary of its world.
+	 * 		   | else result == Math.min(timeToVerticalBoundary, timeToHorizontalBoundary)
+	 */
+	public double getTimeToBoundary() {
+		if (getWorld() == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return getWorld().getTimeToBoundary(this);
+	}
+
+	/**
+	 * Return the x and y component of the position where this entity will collide with a boundary of its world.
+	 *
+	 * @return Null if this entity will never collide with a boundary.
+	 * 		   | if (getTimeToBoundary() == Double.POSITIVE_INFINITY)
+	 * 		   |	result == null
+	 * @return Otherwise the point on the edge of this entity that touches the boundary.
+	 */
+	public double[] getBoundaryCollisionPosition() {
+		return getBoundaryCollisionPosition(new double[2]);
+	}
+
+	/**
+	 * Store the x and y component of the position where this entity will collide with a boundary
+	 * of its world in the given array, without allocating a new one.
+	 *
+	 * @param  destination
+	 * 		   The array of at least two elements to store the position in.
+	 * @return Null if this entity will never collide with a boundary, otherwise the given array,
+	 * 		   holding the position returned by getBoundaryCollisionPosition().
+	 * 		   | if (getTimeToBoundary() == Double.POSITIVE_INFINITY)
+	 * 		   |	result == null
+	 * 		   | else Arrays.equals(result, getBoundaryCollisionPosition()) && result == destination
+	 */
+	public double[] getBoundaryCollisionPosition(double[] destination) {
+		if (getWorld() == null) {
+			return null;
+		}
+		return getWorld().getBoundaryCollisionPosition(this, destination);
+	}
+
+	/**
+	 * Return the world in which this entity is located.
+	 */
+	@Basic @Raw
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Set the world of this entity to the given world.
+	 *
+	 * @param  world
+	 * 		   The new world for this entity.
+	 * @post   | new.getWorld() == world
+	 * @note   This method must only be invoked by the world itself, which keeps both sides
+	 * 		   of the association consistent.
+	 */
+	@Raw
+	void setWorld(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Variable registering the world in which this entity is located.
+	 */
+	private World world;
+
+	/**
+	 * Check whether this entity lies fully within the bounds of the given world.
+	 *
+	 * @return | if (world.isToroidal())
+	 * 		   |	result == World.isWithinPeriod(getxCoordinate(), getyCoordinate(), getRadius(), world.getWidth(), world.getHeight())
+	 * 		   | else result == World.isWithinBounds(getxCoordinate(), getyCoordinate(), getRadius(), world.getWidth(), world.getHeight())
+	 */
+	public boolean liesWithin(World world) {
+		if (world.isToroidal()) {
+			return World.isWithinPeriod(getxCoordinate(), getyCoordinate(), getRadius(), world.getWidth(), world.getHeight());
+		}
+		return World.isWithinBounds(getxCoordinate(), getyCoordinate(), getRadius(), world.getWidth(), world.getHeight());
+	}
+
+	/**
+	 * Check whether this entity is terminated.
+	 */
+	@Basic @Raw
+	public boolean isTerminated() {
+		return this.isTerminated;
+	}
+
+	/**
+	 * Terminate this entity.
+	 *
+	 * @post   | new.isTerminated()
+	 * @effect If this entity is located in a world, it is removed from that world.
+	 * 		   | if (getWorld() != null)
+	 * 		   |	getWorld().removeEntity(this)
+	 */
+	public void terminate() {
+		if (getWorld() != null) {
+			getWorld().removeEntity(this);
+		}
+		this.isTerminated = true;
+	}
+
+	/**
+	 * Variable registering whether this entity is terminated.
+	 */
+	private boolean isTerminated = false;
+
+	/**
+	 * Bring this terminated entity back to life as a new entity with given position, velocity, radius,
+	 * mass, orientation and type, reusing its store.
+	 *
+	 * The version of its motion moves on, so that no collision predicted for this entity before it was
+	 * terminated applies to the revived entity.
+	 *
+	 * @pre    | isTerminated() && getWorld() == null
+	 * @post   | ! new.isTerminated() && new.getId() != getId()
+	 * @post   | new.getRadius() == radius && new.getMass() == mass
+	 * @effect | setPosition(xCoordinate, yCoordinate)
+	 * @effect | setVelocity(xVelocity, yVelocity)
+	 */
+	@Raw
+	void revive(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius,
+			double mass, double orientation, int type) {
+		assert isTerminated() && getWorld() == null;
+		EntityStore store = this.store;
+		int version = store.getVersion(this.slot);
+		store.remove(this.slot);
+		store.add(this, 0, 0, 0, 0, radius, mass, orientation, type, version + 1);
+		this.id = ID_COUNTER.incrementAndGet();
+		this.isTerminated = false;
+		setPosition(xCoordinate, yCoordinate);
+		setVelocity(xVelocity, yVelocity);
+	}
+}
@@ -0,0 +1,552 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of stores keeping the state of entities in packed primitive arrays,
+ * one array per field (x, y, vx, vy, radius, mass, orientation, flags and version).
+ * Loops over all entities of a store walk contiguous memory instead of
+ * following a reference per entity.
+ *
+ * Each entity in a store occupies one slot. Slots are dense: removing an
+ * entity moves the entity in the last slot into the slot it leaves, so that
+ * a removal costs the same however many entities the store holds.
+ *
+ * The arrays stay on the heap rather than in native memory segments. A segment can feed the kernels
+ * of FreeFlight and CollisionKernel through asByteBuffer, but byte buffer loads and stores run at
+ * about half the speed of array ones there, and segment accesses through MemoryAccess elsewhere are
+ * slower still, while the collector never traces the contents of primitive arrays anyway. Every
+ * entity outside a world also has a store of its own, which would each need a scope. The store of a
+ * world gives up the room of its arrays when that world is terminated, through release.
+ *
+ * While motion is lazy, the position of an entity is only brought up to the time of the store
+ * when it is read or changed through the accessors of the store, or by sync: until then, the
+ * arrays x and y hold its position at the time stamp of its slot. Code reading those arrays
+ * directly syncs the slots it reads first.
+ *
+ * @invar  The number of entities in this store lies between zero and the capacity
+ *         of this store.
+ *       | 0 <= getNbEntities() && getNbEntities() <= getCapacity()
+ * @invar  Each entity in this store knows its own slot.
+ *       | for each slot in 0..getNbEntities()-1:
+ *       |   getEntityAt(slot).getSlot() == slot
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class EntityStore {
+
+	/**
+	 * Flag marking the entity in a slot as a ship.
+	 */
+	static final int SHIP = 1;
+
+	/**
+	 * Flag marking the entity in a slot as a bullet.
+	 */
+	static final int BULLET = 2;
+
+	/**
+	 * Flag marking the entity in a slot as having an active thruster.
+	 */
+	static final int THRUSTER_ACTIVE = 4;
+
+	/**
+	 * Flag marking the entity in a slot as waiting for its collisions to be predicted again.
+	 */
+	static final int DIRTY = 8;
+
+	/**
+	 * Flag marking the entity in a slot as waiting for its collision with a boundary to be predicted again.
+	 */
+	static final int BOUNDARY_DIRTY = 16;
+
+	/**
+	 * Flag marking the entity in a slot as a ghost, mirroring an entity owned by another shard of the world.
+	 */
+	static final int GHOST = 32;
+
+	/**
+	 * Initialize this new store with the given initial capacity.
+	 *
+	 * @param  capacity
+	 *         The number of slots this store can hold before it has to grow.
+	 * @post   The new store holds no entities.
+	 *       | new.getNbEntities() == 0
+	 */
+	EntityStore(int capacity) {
+		capacity = Math.max(1, capacity);
+		this.entities = new Entity[capacity];
+		this.x = new double[capacity];
+		this.y = new double[capacity];
+		this.vx = new double[capacity];
+		this.vy = new double[capacity];
+		this.radius = new double[capacity];
+		this.mass = new double[capacity];
+		this.orientation = new double[capacity];
+		this.flags = new int[capacity];
+		this.version = new int[capacity];
+	}
+
+	/**
+	 * Return the number of entities in this store.
+	 */
+	int getNbEntities() {
+		return this.size;
+	}
+
+	/**
+	 * Return the number of slots this store can hold before it has to grow.
+	 */
+	int getCapacity() {
+		return this.entities.length;
+	}
+
+	/**
+	 * Return the entity in the given slot.
+	 */
+	Entity getEntityAt(int slot) {
+		return this.entities[slot];
+	}
+
+	/**
+	 * Add the given entity with the given state to the end of this store.
+	 *
+	 * @return The slot the given entity now occupies.
+	 *       | result == old.getNbEntities()
+	 * @post   The given entity is the last entity in this store.
+	 *       | new.getEntityAt(result) == entity
+	 */
+	int add(Entity entity, double x, double y, double vx, double vy, double radius, double mass,
+			double orientation, int flags) {
+		return add(entity, x, y, vx, vy, radius, mass, orientation, flags, 0);
+	}
+
+	/**
+	 * Add the given entity with the given state and version to the end of this store.
+	 *
+	 * @return | result == old.getNbEntities()
+	 */
+	int add(Entity entity, double x, double y, double vx, double vy, double radius, double mass,
+			double orientation, int flags, int version) {
+		if (this.size == this.entities.length) {
+			grow(this.size + 1);
+		}
+		int slot = this.size++;
+		this.entities[slot] = entity;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		if (this.stamps != null) {
+			this.stamps[slot] = this.lazyTime;
+		}
+		this.vx[slot] = vx;
+		this.vy[slot] = vy;
+		this.radius[slot] = radius;
+		this.mass[slot] = mass;
+		this.orientation[slot] = orientation;
+		this.flags[slot] = flags;
+		this.version[slot] = version;
+		entity.setStore(this, slot);
+		return slot;
+	}
+
+	/**
+	 * Append the given number of empty slots to the end of this store, for state that is filled in
+	 * directly in the arrays of this store. Each new slot must be bound to its entity before the
+	 * store is used otherwise.
+	 *
+	 * @return The first of the new slots.
+	 *       | result == old.getNbEntities()
+	 * @post   | new.getNbEntities() == old.getNbEntities() + count
+	 */
+	int reserve(int count) {
+		if (this.entities.length - this.size < count) {
+			grow(this.size + count);
+		}
+		int first = this.size;
+		this.size += count;
+		return first;
+	}
+
+	/**
+	 * Register the given entity as the entity in the given slot, whose state was filled in directly.
+	 *
+	 * @post   | new.getEntityAt(slot) == entity && (new entity).getSlot() == slot
+	 */
+	void bind(int slot, Entity entity) {
+		this.entities[slot] = entity;
+		entity.setStore(this, slot);
+	}
+
+	/**
+	 * Move the entity in the given slot of the given store to the end of this store.
+	 *
+	 * @effect The state of the entity is added to this store.
+	 *       | add(other.getEntityAt(slot), other.getX(slot), ...)
+	 * @effect The entity is removed from the other store.
+	 *       | other.remove(slot)
+	 */
+	int adopt(EntityStore other, int slot) {
+		Entity entity = other.getEntityAt(slot);
+		other.sync(slot);
+		double x = other.x[slot], y = other.y[slot], vx = other.vx[slot], vy = other.vy[slot];
+		double radius = other.radius[slot], mass = other.mass[slot], orientation = other.orientation[slot];
+		int flags = other.flags[slot], version = other.version[slot];
+		other.remove(slot);
+		return add(entity, x, y, vx, vy, radius, mass, orientation, flags, version);
+	}
+
+	/**
+	 * Remove the entity in the given slot from this store.
+	 *
+	 * @post   The entity in the last slot, if it is not the removed one, moves into the given slot.
+	 *       | if (slot != old.getNbEntities()-1) then
+	 *       |   new.getEntityAt(slot) == old.getEntityAt(old.getNbEntities()-1)
+	 */
+	void remove(int slot) {
+		int last = --this.size;
+		if (slot != last) {
+			Entity moved = this.entities[last];
+			this.entities[slot] = moved;
+			this.x[slot] = this.x[last];
+			this.y[slot] = this.y[last];
+			this.vx[slot] = this.vx[last];
+			this.vy[slot] = this.vy[last];
+			this.radius[slot] = this.radius[last];
+			this.mass[slot] = this.mass[last];
+			this.orientation[slot] = this.orientation[last];
+			this.flags[slot] = this.flags[last];
+			this.version[slot] = this.version[last];
+			if (this.stamps != null) {
+				this.stamps[slot] = this.stamps[last];
+			}
+			moved.setStore(this, slot);
+		}
+		this.entities[last] = null;
+	}
+
+	/**
+	 * Return an empty store with room for one entity, for an entity leaving this store.
+	 * A store released to this store is reused if there is one.
+	 *
+	 * @post   | result.getNbEntities() == 0 && result.getCapacity() == 1
+	 */
+	EntityStore takeSingleStore() {
+		if (this.nbSingleStores == 0) {
+			return new EntityStore(1);
+		}
+		EntityStore store = this.singleStores[--this.nbSingleStores];
+		this.singleStores[this.nbSingleStores] = null;
+		return store;
+	}
+
+	/**
+	 * Keep the given empty store with room for one entity, given up by an entity that moved into
+	 * this store, for reuse by an entity leaving this store, unless this store keeps
+	 * MAXIMAL_SINGLE_STORES of them already.
+	 */
+	void releaseSingleStore(EntityStore store) {
+		if (this.nbSingleStores < MAXIMAL_SINGLE_STORES) {
+			if (this.nbSingleStores == this.singleStores.length) {
+				this.singleStores = Arrays.copyOf(this.singleStores, Math.max(4, 2 * this.nbSingleStores));
+			}
+			this.singleStores[this.nbSingleStores++] = store;
+		}
+	}
+
+	/**
+	 * Release the storage of this store, which holds no entities anymore, so that it no longer keeps
+	 * room for the entities it once held.
+	 *
+	 * @pre    | getNbEntities() == 0
+	 * @post   | new.getCapacity() == 0
+	 */
+	void release() {
+		assert this.size == 0;
+		this.entities = new Entity[0];
+		this.x = this.y = this.vx = this.vy = new double[0];
+		this.radius = this.mass = this.orientation = new double[0];
+		this.flags = this.version = new int[0];
+		this.stamps = null;
+		this.singleStores = NO_STORES;
+		this.nbSingleStores = 0;
+	}
+
+	/**
+	 * Constant registering the largest number of empty stores with room for one entity a store keeps for reuse.
+	 */
+	static final int MAXIMAL_SINGLE_STORES = 64;
+
+	/**
+	 * Variables registering the empty stores with room for one entity this store keeps for reuse,
+	 * and their number.
+	 */
+	private EntityStore[] singleStores = NO_STORES;
+	private int nbSingleStores = 0;
+
+	/**
+	 * Constant registering an empty array of stores, shared by all stores that keep none for reuse,
+	 * so that the many stores with room for one entity do not each hold an array of their own.
+	 */
+	private static final EntityStore[] NO_STORES = new EntityStore[0];
+
+	/**
+	 * Double the capacity of this store, or raise it to the given capacity if that is more.
+	 */
+	private void grow(int minimalCapacity) {
+		int capacity = Math.max(this.entities.length * 2, minimalCapacity);
+		this.entities = Arrays.copyOf(this.entities, capacity);
+		this.x = Arrays.copyOf(this.x, capacity);
+		this.y = Arrays.copyOf(this.y, capacity);
+		this.vx = Arrays.copyOf(this.vx, capacity);
+		this.vy = Arrays.copyOf(this.vy, capacity);
+		this.radius = Arrays.copyOf(this.radius, capacity);
+		this.mass = Arrays.copyOf(this.mass, capacity);
+		this.orientation = Arrays.copyOf(this.orientation, capacity);
+		this.flags = Arrays.copyOf(this.flags, capacity);
+		this.version = Arrays.copyOf(this.version, capacity);
+		if (this.stamps != null) {
+			this.stamps = Arrays.copyOf(this.stamps, capacity);
+		}
+	}
+
+	/**
+	 * Make the positions in this store wrap around with the given width and height, as they do in a
+	 * toroidal world. A period of zero leaves the corresponding coordinate as it is.
+	 *
+	 * @post   Every position this store moves an entity to or is given for an entity is wrapped into
+	 * 		   [0, width) x [0, height).
+	 */
+	void setPeriod(double width, double height) {
+		this.periodX = width;
+		this.periodY = height;
+	}
+
+	/**
+	 * Check whether the positions in this store wrap around.
+	 */
+	boolean isPeriodic() {
+		return this.periodX > 0 || this.periodY > 0;
+	}
+
+	/**
+	 * Wrap the positions of the entities in the given range of slots into the periods of this store.
+	 */
+	private void wrapRange(int from, int to) {
+		double periodX = this.periodX, periodY = this.periodY;
+		for (int i = from; i < to; i++) {
+			this.x[i] = World.wrapCoordinate(this.x[i], periodX);
+			this.y[i] = World.wrapCoordinate(this.y[i], periodY);
+		}
+	}
+
+	/**
+	 * Advance every entity in this store along its velocity for the given duration.
+	 *
+	 * @post   Every entity is moved over its velocity times the duration.
+	 *       | for each i in 0..getNbEntities()-1:
+	 *       |   new.getX(i) == getX(i) + getVx(i)*duration &&
+	 *       |   new.getY(i) == getY(i) + getVy(i)*duration
+	 */
+	void moveAll(double duration) {
+		moveRange(0, this.size, duration);
+	}
+
+	/**
+	 * Advance the entities in the given range of slots along their velocity for the given duration.
+	 * Disjoint ranges can be advanced by different threads at the same time.
+	 *
+	 * @effect | FreeFlight.advance(x, y, vx, vy, from, to, duration)
+	 */
+	void moveRange(int from, int to, double duration) {
+		FreeFlight.advance(this.x, this.y, this.vx, this.vy, from, to, duration);
+		if (isPeriodic()) {
+			wrapRange(from, to);
+		}
+	}
+
+	/**
+	 * Make the motion of the entities in this store lazy, at the given time: the entities no longer
+	 * move when the time of this store advances, until their position is needed.
+	 *
+	 * @post   | new.isLazy() && new.getLazyTime() == time
+	 */
+	void beginLazyMotion(double time) {
+		this.stamps = new double[this.entities.length];
+		Arrays.fill(this.stamps, 0, this.size, time);
+		this.lazyTime = time;
+	}
+
+	/**
+	 * Bring every entity in this store up to its time and make its motion eager again.
+	 *
+	 * @effect | syncAll()
+	 * @post   | ! new.isLazy()
+	 */
+	void endLazyMotion() {
+		syncAll();
+		this.stamps = null;
+	}
+
+	/**
+	 * Check whether the motion of the entities in this store is lazy.
+	 */
+	boolean isLazy() {
+		return this.stamps != null;
+	}
+
+	/**
+	 * Return the time to which the entities in this store are brought when their position is needed.
+	 */
+	double getLazyTime() {
+		return this.lazyTime;
+	}
+
+	/**
+	 * Advance the time of this store with lazy motion to the given time, without moving any entity.
+	 *
+	 * @post   | new.getLazyTime() == time
+	 */
+	void setLazyTime(double time) {
+		this.lazyTime = time;
+	}
+
+	/**
+	 * Move the entity in the given slot along its velocity up to the time of this store, if its
+	 * motion is lazy and it lags behind.
+	 */
+	void sync(int slot) {
+		double[] stamps = this.stamps;
+		if (stamps != null && stamps[slot] != this.lazyTime) {
+			double duration = this.lazyTime - stamps[slot];
+			this.x[slot] += this.vx[slot] * duration;
+			this.y[slot] += this.vy[slot] * duration;
+			stamps[slot] = this.lazyTime;
+			if (isPeriodic()) {
+				wrapRange(slot, slot + 1);
+			}
+		}
+	}
+
+	/**
+	 * Move every entity in this store along its velocity up to the time of this store, if motion is lazy.
+	 *
+	 * @effect | for each i in 0..getNbEntities()-1: sync(i)
+	 */
+	void syncAll() {
+		if (this.stamps != null) {
+			for (int i = 0; i < this.size; i++) {
+				sync(i);
+			}
+		}
+	}
+
+	double getX(int slot) {
+		sync(slot);
+		return this.x[slot];
+	}
+
+	double getY(int slot) {
+		sync(slot);
+		return this.y[slot];
+	}
+
+	void setPosition(int slot, double x, double y) {
+		this.x[slot] = World.wrapCoordinate(x, this.periodX);
+		this.y[slot] = World.wrapCoordinate(y, this.periodY);
+		if (this.stamps != null) {
+			this.stamps[slot] = this.lazyTime;
+		}
+	}
+
+	double getVx(int slot) {
+		return this.vx[slot];
+	}
+
+	double getVy(int slot) {
+		return this.vy[slot];
+	}
+
+	void setVelocity(int slot, double vx, double vy) {
+		sync(slot);
+		this.vx[slot] = vx;
+		this.vy[slot] = vy;
+	}
+
+	double getRadius(int slot) {
+		return this.radius[slot];
+	}
+
+	double getMass(int slot) {
+		return this.mass[slot];
+	}
+
+	double getOrientation(int slot) {
+		return this.orientation[slot];
+	}
+
+	void setOrientation(int slot, double orientation) {
+		this.orientation[slot] = orientation;
+	}
+
+	boolean hasFlag(int slot, int flag) {
+		return (this.flags[slot] & flag) != 0;
+	}
+
+	void setFlag(int slot, int flag, boolean value) {
+		if (value) {
+			this.flags[slot] |= flag;
+		} else {
+			this.flags[slot] &= ~flag;
+		}
+	}
+
+	/**
+	 * Return the version of the motion of the entity in the given slot.
+	 * The version changes whenever the motion of that entity changes other than by moving
+	 * along its velocity, so that predictions made for an older version can be recognized.
+	 */
+	int getVersion(int slot) {
+		return this.version[slot];
+	}
+
+	void incrementVersion(int slot) {
+		this.version[slot]++;
+	}
+
+	/**
+	 * Variable registering the number of entities in this store.
+	 */
+	private int size;
+
+	/**
+	 * Variables registering the entities and their state, indexed by slot.
+	 */
+	private Entity[] entities;
+	double[] x;
+	double[] y;
+	double[] vx;
+	double[] vy;
+	double[] radius;
+	double[] mass;
+	double[] orientation;
+	int[] flags;
+	int[] version;
+
+	/**
+	 * Variable registering, while motion is lazy, the time at which x and y hold the position of the
+	 * entity in each slot, or null if motion is eager.
+	 */
+	private double[] stamps;
+
+	/**
+	 * Variable registering the time to which entities are brought while motion is lazy.
+	 */
+	private double lazyTime;
+
+	/**
+	 * Variables registering the width and the height around which positions wrap, or zero if they do not.
+	 */
+	private double periodX;
+	private double periodY;
+}
@@ -0,0 +1,97 @@
+package asteroids.model;
+
+/**
+ * A class of kernels advancing packed positions along packed velocities, as the entity stores of
+ * worlds hold them.
+ *
+ * The kernel runs on the vector units of the machine through the incubating Vector API when the
+ * module jdk.incubator.vector is present (java --add-modules jdk.incubator.vector), the machine has
+ * vectors of at least two doubles, and the system property asteroids.vector is not set to false.
+ * Otherwise it falls back to a plain loop. Both kernels compute every coordinate as x + vx*duration,
+ * rounding the product and the sum separately, so that they produce the very same positions and
+ * the kernel in use has no influence on the evolution of a world.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public final class FreeFlight {
+
+	private FreeFlight() {
+	}
+
+	/**
+	 * Constant reflecting whether the Vector API can be used on this machine.
+	 */
+	private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& VectorFreeFlight.isSupported();
+
+	/**
+	 * Constant reflecting whether advance runs on the Vector API.
+	 */
+	private static final boolean VECTORIZED = VECTOR_AVAILABLE
+			&& ! "false".equalsIgnoreCase(System.getProperty("asteroids.vector"));
+
+	/**
+	 * Check whether the Vector API can be used on this machine.
+	 */
+	public static boolean isVectorAvailable() {
+		return VECTOR_AVAILABLE;
+	}
+
+	/**
+	 * Check whether advance runs on the Vector API.
+	 */
+	public static boolean isVectorized() {
+		return VECTORIZED;
+	}
+
+	/**
+	 * Advance the positions in the given range of indices along their velocities for the given duration.
+	 *
+	 * @post   | for each i in from..to-1:
+	 *       |   new x[i] == x[i] + vx[i]*duration && new y[i] == y[i] + vy[i]*duration
+	 * @effect | if (isVectorized()) then advanceVector(x, y, vx, vy, from, to, duration)
+	 *       | else advanceScalar(x, y, vx, vy, from, to, duration)
+	 */
+	public static void advance(double[] x, double[] y, double[] vx, double[] vy, int from, int to,
+			double duration) {
+		if (VECTORIZED) {
+			VectorFreeFlight.advance(x, y, vx, vy, from, to, duration);
+		} else {
+			advanceScalar(x, y, vx, vy, from, to, duration);
+		}
+	}
+
+	/**
+	 * Advance the positions in the given range of indices along their velocities for the given
+	 * duration, one index at a time.
+	 *
+	 * @post   | for each i in from..to-1:
+	 *       |   new x[i] == x[i] + vx[i]*duration && new y[i] == y[i] + vy[i]*duration
+	 */
+	public static void advanceScalar(double[] x, double[] y, double[] vx, double[] vy, int from, int to,
+			double duration) {
+		for (int i = from; i < to; i++) {
+			x[i] += vx[i] * duration;
+			y[i] += vy[i] * duration;
+		}
+	}
+
+	/**
+	 * Advance the positions in the given range of indices along their velocities for the given
+	 * duration, a vector of indices at a time.
+	 *
+	 * @post   | for each i in from..to-1:
+	 *       |   new x[i] == x[i] + vx[i]*duration && new y[i] == y[i] + vy[i]*duration
+	 * @throws UnsupportedOperationException
+	 *         The Vector API cannot be used on this machine.
+	 *       | ! isVectorAvailable()
+	 */
+	public static void advanceVector(double[] x, double[] y, double[] vx, double[] vy, int from, int to,
+			double duration) throws UnsupportedOperationException {
+		if (! VECTOR_AVAILABLE) {
+			throw new UnsupportedOperationException("jdk.incubator.vector is not available");
+		}
+		VectorFreeFlight.advance(x, y, vx, vy, from, to, duration);
+	}
+}
@@ -0,0 +1,452 @@
+package asteroids.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * A class of helpers advancing the entities of a world and predicting their collisions on the
+ * threads of a fork-join pool.
+ *
+ * Free motion is split over ranges of slots, each moved by another thread. Collisions are predicted
+ * over vertical strips of the world: every entity belongs to the strip containing its centre, and
+ * each strip predicts the collisions of its own entities, looking into a ghost margin on either
+ * side wide enough to reach every entity they may hit before their horizon. The strips only read
+ * the state of the entities; the events they find are merged into the queue of the scheduler by
+ * the calling thread.
+ *
+ * If the merge is deterministic, the events are merged in the order in which the entities were
+ * invalidated, and the events of each entity in the order of the slots of the other entities, just
+ * like the scheduler does on its own. The world then evolves exactly as it does on a single thread,
+ * bit for bit. Otherwise the events of each strip are merged as soon as the strip is done, so that
+ * collisions taking place at the very same time may be resolved in another order.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class ParallelEvolution {
+
+	/**
+	 * Initialize this new helper for the given world, running on the given pool.
+	 */
+	ParallelEvolution(World world, ForkJoinPool pool) {
+		this.world = world;
+		this.pool = pool;
+	}
+
+	/**
+	 * Variable registering the world whose entities this helper advances.
+	 */
+	private final World world;
+
+	/**
+	 * Variable registering the pool running the tasks of this helper.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constant registering the smallest number of entities that is moved in parallel.
+	 */
+	static final int MOTION_THRESHOLD = 1 << 14;
+
+	/**
+	 * Constant registering the smallest number of invalidated entities whose collisions are
+	 * predicted in parallel.
+	 */
+	static final int PREDICTION_THRESHOLD = 256;
+
+	/**
+	 * Constant registering the smallest number of entities in a strip.
+	 */
+	private static final int MINIMAL_STRIP_SIZE = 256;
+
+	/**
+	 * Advance every entity of the world of this helper along its velocity for the given duration.
+	 *
+	 * @effect | getWorld().getStore().moveAll(duration)
+	 */
+	void move(double duration) {
+		EntityStore store = this.world.getStore();
+		int n = store.getNbEntities();
+		if (n < MOTION_THRESHOLD) {
+			store.moveAll(duration);
+			return;
+		}
+		int chunk = Math.max(MOTION_THRESHOLD / 4, n / (4 * this.pool.getParallelism()));
+		this.pool.invoke(new Split(0, (n + chunk - 1) / chunk,
+				index -> store.moveRange(index * chunk, Math.min(n, (index + 1) * chunk), duration)));
+	}
+
+	/**
+	 * Predict the collisions of the given entities with the boundaries, and with every entity of the
+	 * world that is not waiting to be predicted itself, up to the default horizon, and add them to
+	 * the queue of the given scheduler.
+	 *
+	 * @param  entities
+	 * 		   The entities to predict, in the order in which they were invalidated. An entity is
+	 * 		   regarded as waiting to be predicted by the entities before it.
+	 * @param  count
+	 * 		   The number of entities to predict.
+	 */
+	void predict(Entity[] entities, int count, CollisionScheduler scheduler) {
+		World world = this.world;
+		EntityStore store = world.getStore();
+		BroadPhase broadPhase = world.getBroadPhase();
+		int n = store.getNbEntities();
+		this.now = world.getTime();
+		this.until = this.now + broadPhase.getHorizon();
+		this.hasPairs = (broadPhase.getMaxSpeed() != 0);
+		this.count = count;
+		this.entities = entities;
+		if (this.rank.length < n) {
+			this.rank = new int[Math.max(n, 2 * this.rank.length)];
+			this.slots = new int[this.rank.length];
+			this.keys = new double[this.rank.length];
+		}
+		Arrays.fill(this.rank, 0, n, -1);
+		for (int r = 0; r < count; r++) {
+			this.rank[entities[r].getSlot()] = r;
+		}
+		if (this.boundaryTimes.length < count) {
+			this.boundaryTimes = new double[Math.max(count, 2 * this.boundaryTimes.length)];
+			this.stripOf = new int[this.boundaryTimes.length];
+			this.pairsFrom = new int[this.boundaryTimes.length];
+			this.pairsTo = new int[this.boundaryTimes.length];
+		}
+		partition(store, n);
+		this.completed = new AtomicInteger();
+		if (this.order.length < this.nbStrips) {
+			this.order = new int[this.nbStrips];
+		}
+		this.pool.invoke(new Split(0, this.nbStrips, this::sortStrip));
+		this.pool.invoke(new Split(0, this.nbStrips, strip -> {
+			predictStrip(strip);
+			this.order[this.completed.getAndIncrement()] = strip;
+		}));
+		if (this.world.isDeterministic()) {
+			for (int r = 0; r < count; r++) {
+				merge(r, scheduler);
+			}
+		}
+		else {
+			for (int k = 0; k < this.nbStrips; k++) {
+				int strip = this.order[k];
+				for (int m = this.stripStart[strip]; m < this.stripStart[strip + 1]; m++) {
+					int r = this.rank[this.slots[m]];
+					if (r >= 0) {
+						merge(r, scheduler);
+					}
+				}
+			}
+		}
+		Arrays.fill(this.entities, 0, count, null);
+		this.entities = null;
+	}
+
+	/**
+	 * Add the events predicted for the entity with the given rank to the queue of the given scheduler,
+	 * and its collision with a boundary to the boundary index of that scheduler if it waits for one.
+	 */
+	private void merge(int r, CollisionScheduler scheduler) {
+		Entity entity = this.entities[r];
+		if (this.world.getStore().hasFlag(entity.getSlot(), EntityStore.BOUNDARY_DIRTY)) {
+			scheduler.scheduleBoundary(entity, this.boundaryTimes[r]);
+		}
+		if (! this.hasPairs) {
+			return;
+		}
+		int strip = this.stripOf[r];
+		int[] others = this.pairSlots[strip];
+		double[] times = this.pairTimes[strip];
+		EntityStore store = this.world.getStore();
+		for (int k = this.pairsFrom[r]; k < this.pairsTo[r]; k++) {
+			scheduler.schedule(times[k], entity, store.getEntityAt(others[k]));
+		}
+		if (this.until < Double.POSITIVE_INFINITY) {
+			scheduler.scheduleHorizon(this.until, entity);
+		}
+	}
+
+	/**
+	 * Divide the entities of the world over strips of equal width, each holding the slots of the
+	 * entities whose centre lies within it, and compute the width of the ghost margins.
+	 */
+	private void partition(EntityStore store, int n) {
+		double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+		double maxRadius = 0.0, maxSpeedSquare = 0.0;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, store.x[i]);
+			maxX = Math.max(maxX, store.x[i]);
+			maxRadius = Math.max(maxRadius, store.radius[i]);
+			maxSpeedSquare = Math.max(maxSpeedSquare, store.vx[i]*store.vx[i] + store.vy[i]*store.vy[i]);
+		}
+		// Two entities colliding before the horizon are never further apart along an axis than their
+		// radii plus the distance both cover until then; the margin is widened against rounding.
+		double margin = 2.0 * maxRadius + 2.0 * Math.sqrt(maxSpeedSquare) * (this.until - this.now);
+		this.margin = 1.001 * margin + 1E-9;
+		int nbStrips = Math.max(1, Math.min(4 * this.pool.getParallelism(), n / MINIMAL_STRIP_SIZE));
+		double width = (maxX - minX) / nbStrips;
+		if (! (width > 0) || Double.isInfinite(width) || Double.isNaN(this.margin)) {
+			nbStrips = 1;
+			width = Double.POSITIVE_INFINITY;
+		}
+		this.nbStrips = nbStrips;
+		this.minX = minX;
+		this.width = width;
+		if (this.stripStart.length < nbStrips + 1) {
+			this.stripStart = new int[nbStrips + 1];
+			this.pairSlots = Arrays.copyOf(this.pairSlots, nbStrips);
+			this.pairTimes = Arrays.copyOf(this.pairTimes, nbStrips);
+			this.scratchSlots = Arrays.copyOf(this.scratchSlots, nbStrips);
+			this.scratchTimes = Arrays.copyOf(this.scratchTimes, nbStrips);
+			for (int strip = 0; strip < nbStrips; strip++) {
+				if (this.pairSlots[strip] == null) {
+					this.pairSlots[strip] = new int[16];
+					this.pairTimes[strip] = new double[16];
+					this.scratchSlots[strip] = new int[16];
+					this.scratchTimes[strip] = new double[16];
+				}
+			}
+		}
+		int[] start = this.stripStart;
+		Arrays.fill(start, 0, nbStrips + 1, 0);
+		for (int i = 0; i < n; i++) {
+			start[strip(store.x[i]) + 1]++;
+		}
+		for (int strip = 0; strip < nbStrips; strip++) {
+			start[strip + 1] += start[strip];
+		}
+		int[] fill = Arrays.copyOf(start, nbStrips);
+		for (int i = 0; i < n; i++) {
+			int m = fill[strip(store.x[i])]++;
+			this.slots[m] = i;
+			this.keys[m] = store.x[i];
+		}
+	}
+
+	/**
+	 * Return the strip containing the given x coordinate.
+	 */
+	private int strip(double x) {
+		if (this.nbStrips == 1) {
+			return 0;
+		}
+		return (int) Math.max(0, Math.min(this.nbStrips - 1, Math.floor((x - this.minX) / this.width)));
+	}
+
+	/**
+	 * Sort the slots of the given strip on the x coordinate of their entities.
+	 */
+	private void sortStrip(int strip) {
+		sort(this.keys, this.slots, this.stripStart[strip], this.stripStart[strip + 1] - 1);
+	}
+
+	/**
+	 * Predict the collisions of the entities to predict in the given strip, looking into the
+	 * neighbouring strips as far as the ghost margin reaches.
+	 */
+	private void predictStrip(int strip) {
+		World world = this.world;
+		EntityStore store = world.getStore();
+		double now = this.now, until = this.until, margin = this.margin;
+		double[] keys = this.keys;
+		int[] slots = this.slots, rank = this.rank;
+		int nbPairs = 0;
+		for (int m = this.stripStart[strip]; m < this.stripStart[strip + 1]; m++) {
+			int i = slots[m];
+			int r = rank[i];
+			if (r < 0) {
+				continue;
+			}
+			this.boundaryTimes[r] = World.getTimeToBoundary(store.x[i], store.y[i], store.vx[i], store.vy[i],
+					store.radius[i], world.getWidth(), world.getHeight());
+			this.stripOf[r] = strip;
+			this.pairsFrom[r] = nbPairs;
+			if (this.hasPairs) {
+				double x = store.x[i], y = store.y[i];
+				int nbFound = 0;
+				for (int other = strip(x - margin), last = strip(x + margin); other <= last; other++) {
+					int end = this.stripStart[other + 1];
+					for (int k = lowerBound(keys, this.stripStart[other], end, x - margin); k < end && keys[k] <= x + margin; k++) {
+						int j = slots[k];
+						if (j == i || rank[j] > r || Math.abs(store.y[j] - y) > margin) {
+							continue;
+						}
+						double t = World.getTimeToCollision(store, i, j);
+						if (now + t <= until) {
+							if (nbFound == this.scratchSlots[strip].length) {
+								this.scratchSlots[strip] = Arrays.copyOf(this.scratchSlots[strip], 2 * nbFound);
+								this.scratchTimes[strip] = Arrays.copyOf(this.scratchTimes[strip], 2 * nbFound);
+							}
+							this.scratchSlots[strip][nbFound] = j;
+							this.scratchTimes[strip][nbFound++] = now + t;
+						}
+					}
+				}
+				sort(this.scratchSlots[strip], this.scratchTimes[strip], nbFound);
+				if (nbPairs + nbFound > this.pairSlots[strip].length) {
+					int length = Math.max(nbPairs + nbFound, 2 * this.pairSlots[strip].length);
+					this.pairSlots[strip] = Arrays.copyOf(this.pairSlots[strip], length);
+					this.pairTimes[strip] = Arrays.copyOf(this.pairTimes[strip], length);
+				}
+				System.arraycopy(this.scratchSlots[strip], 0, this.pairSlots[strip], nbPairs, nbFound);
+				System.arraycopy(this.scratchTimes[strip], 0, this.pairTimes[strip], nbPairs, nbFound);
+				nbPairs += nbFound;
+			}
+			this.pairsTo[r] = nbPairs;
+		}
+	}
+
+	/**
+	 * Return the first index in the given range of the given sorted keys whose key is at least the given value.
+	 */
+	private static int lowerBound(double[] keys, int low, int high, double value) {
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (keys[middle] < value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Sort the given range of keys, from low up to and including high, ascending, and reorder the
+	 * given slots along with them.
+	 */
+	private static void sort(double[] keys, int[] slots, int low, int high) {
+		while (high - low > 16) {
+			double pivot = keys[(low + high) >>> 1];
+			int i = low, j = high;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(keys, slots, i++, j--);
+				}
+			}
+			if (j - low < high - i) {
+				sort(keys, slots, low, j);
+				low = i;
+			} else {
+				sort(keys, slots, i, high);
+				high = j;
+			}
+		}
+		for (int k = low + 1; k <= high; k++) {
+			for (int m = k; m > low && keys[m - 1] > keys[m]; m--) {
+				swap(keys, slots, m - 1, m);
+			}
+		}
+	}
+
+	private static void swap(double[] keys, int[] slots, int i, int j) {
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		int slot = slots[i];
+		slots[i] = slots[j];
+		slots[j] = slot;
+	}
+
+	/**
+	 * Sort the first given number of slots ascending, and reorder the given times along with them.
+	 */
+	private static void sort(int[] slots, double[] times, int count) {
+		for (int k = 1; k < count; k++) {
+			int slot = slots[k];
+			double time = times[k];
+			int m = k - 1;
+			while (m >= 0 && slots[m] > slot) {
+				slots[m + 1] = slots[m];
+				times[m + 1] = times[m];
+				m--;
+			}
+			slots[m + 1] = slot;
+			times[m + 1] = time;
+		}
+	}
+
+	/**
+	 * A class of fork-join actions running an operation for each index in a range, splitting the
+	 * range in halves until a single index is left.
+	 */
+	private static class Split extends RecursiveAction {
+
+		Split(int from, int to, IntConsumer operation) {
+			this.from = from;
+			this.to = to;
+			this.operation = operation;
+		}
+
+		private final int from;
+		private final int to;
+		private final IntConsumer operation;
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from == 1) {
+				this.operation.accept(this.from);
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Split(this.from, middle, this.operation), new Split(middle, this.to, this.operation));
+		}
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Variables registering the prediction in progress: its world time and horizon, whether
+	 * collisions between entities are predicted at all, and the entities to predict.
+	 */
+	private double now;
+	private double until;
+	private boolean hasPairs;
+	private int count;
+	private Entity[] entities;
+
+	/**
+	 * Variable registering, per slot, the position of the entity in the entities to predict, or -1.
+	 */
+	private int[] rank = new int[0];
+
+	/**
+	 * Variables registering the strips: the slots of strip s are slots[stripStart[s]] up to
+	 * slots[stripStart[s+1]-1], sorted on the x coordinates in keys.
+	 */
+	private int nbStrips;
+	private double minX;
+	private double width;
+	private double margin;
+	private int[] stripStart = new int[0];
+	private int[] slots = new int[0];
+	private double[] keys = new double[0];
+
+	/**
+	 * Variables registering the events found, per rank: the time to the boundary collision, and the
+	 * range of the pair collisions in the buffers of the strip of the entity.
+	 */
+	private double[] boundaryTimes = new double[0];
+	private int[] stripOf = new int[0];
+	private int[] pairsFrom = new int[0];
+	private int[] pairsTo = new int[0];
+	private int[][] pairSlots = new int[0][];
+	private double[][] pairTimes = new double[0][];
+	private int[][] scratchSlots = new int[0][];
+	private double[][] scratchTimes = new double[0][];
+
+	/**
+	 * Variables registering the order in which the strips completed.
+	 */
+	private int[] order = new int[0];
+	private AtomicInteger completed;
+}
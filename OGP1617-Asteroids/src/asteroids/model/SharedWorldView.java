@@ -0,0 +1,412 @@
+package asteroids.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of views of the state of all entities of a world, kept in a memory-mapped file, so that
+ * other processes on the same machine can follow the world while it evolves.
+ *
+ * A world publishing a shared view writes a frame into the file at the end of each evolve. Other
+ * processes open the same file with open(Path) and read the frame in place, without copying it and
+ * without ever writing to the file. The frame is guarded by a sequence lock: the world makes the
+ * sequence number odd before it writes a frame and even again after, so that a reader that finds the
+ * same even sequence number before and after reading knows it read one consistent frame:
+ *
+ *   long sequence;
+ *   do {
+ *       sequence = view.beginRead();
+ *       ... read view.getNbEntities(), view.getX(i), ...
+ *   } while (! view.endRead(sequence));
+ *
+ * The file starts with a header of HEADER_SIZE bytes, followed by one column per field, each with
+ * room for the capacity of the view:
+ *
+ *   offset  0  int     MAGIC
+ *   offset  4  int     VERSION
+ *   offset  8  long    the sequence number, odd while a frame is written
+ *   offset 16  int     the capacity: the number of entities each column has room for
+ *   offset 20  int     the number of entities in the frame
+ *   offset 24  double  the time of the world
+ *   offset 32  double  the width of the world
+ *   offset 40  double  the height of the world
+ *   offset 48  int     1 once the world stopped publishing, 0 before
+ *
+ * The columns hold the identifiers as longs, then the x and y coordinates, the x and y velocities,
+ * the radii and the orientations as doubles and finally the flags of the entities as ints. All values
+ * are in the native byte order of the machine. When a frame holds more entities than the capacity,
+ * the world doubles the capacity and the file grows; a reader maps the larger file as soon as it
+ * finds a larger capacity in the header.
+ *
+ * @invar  The number of entities of each view is not negative and does not exceed its capacity.
+ *       | 0 <= getNbEntities() && getNbEntities() <= getCapacity()
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class SharedWorldView implements AutoCloseable {
+
+	public static final int MAGIC = 0x41535756;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 64;
+
+	/**
+	 * Initialize this new view on the file open through the given channel, as a view written by a world
+	 * if writable is true, or as a view read by a spectator otherwise.
+	 */
+	private SharedWorldView(Path path, FileChannel channel, boolean writable) {
+		this.path = path;
+		this.channel = channel;
+		this.isWritable = writable;
+	}
+
+	/**
+	 * Return a new view written by a world into the file at the given path, replacing what that file held.
+	 *
+	 * @post   | result.getNbEntities() == 0 && ! result.isClosed()
+	 * @throws IOException
+	 * 		   The file cannot be created or mapped.
+	 */
+	static SharedWorldView create(Path path) throws IOException {
+		SharedWorldView view = new SharedWorldView(path, FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), true);
+		try {
+			view.map(INITIAL_CAPACITY);
+		} catch (IOException exc) {
+			view.channel.close();
+			throw exc;
+		}
+		view.buffer.putInt(0, MAGIC);
+		view.buffer.putInt(4, VERSION);
+		view.buffer.putInt(CAPACITY_OFFSET, INITIAL_CAPACITY);
+		SEQUENCE.setRelease(view.buffer, SEQUENCE_OFFSET, 0L);
+		return view;
+	}
+
+	/**
+	 * Return a new view reading the frames a world publishes into the file at the given path.
+	 *
+	 * @throws IOException
+	 * 		   The file cannot be opened or mapped, or it does not hold a shared world view.
+	 */
+	public static SharedWorldView open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		SharedWorldView view = new SharedWorldView(path, channel, false);
+		try {
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("not a shared world view: " + path);
+			}
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+			channel.read(header, 0);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("not a shared world view: " + path);
+			}
+			view.map(header.getInt(CAPACITY_OFFSET));
+		} catch (IOException exc) {
+			channel.close();
+			throw exc;
+		}
+		return view;
+	}
+
+	/**
+	 * Return the path of the file of this view.
+	 */
+	@Basic @Immutable
+	public Path getPath() {
+		return this.path;
+	}
+
+	private final Path path;
+	private final FileChannel channel;
+	private final boolean isWritable;
+
+	/**
+	 * Return the number of entities each column of this view has room for, as mapped by this view.
+	 */
+	@Basic
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Map the file of this view, with room for the given number of entities. A written view makes the
+	 * file grow as far as needed.
+	 */
+	private void map(int capacity) throws IOException {
+		MappedByteBuffer buffer = this.channel.map(this.isWritable ? FileChannel.MapMode.READ_WRITE
+				: FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + (long) capacity * ROW_SIZE);
+		buffer.order(ByteOrder.nativeOrder());
+		this.buffer = buffer;
+		this.capacity = capacity;
+		this.ids = column(0, capacity).asLongBuffer();
+		this.x = column(1, capacity).asDoubleBuffer();
+		this.y = column(2, capacity).asDoubleBuffer();
+		this.vx = column(3, capacity).asDoubleBuffer();
+		this.vy = column(4, capacity).asDoubleBuffer();
+		this.radius = column(5, capacity).asDoubleBuffer();
+		this.orientation = column(6, capacity).asDoubleBuffer();
+		this.flags = this.buffer.slice(HEADER_SIZE + 7 * 8 * capacity, 4 * capacity).order(ByteOrder.nativeOrder())
+				.asIntBuffer();
+	}
+
+	/**
+	 * Return the part of the mapped file holding the column of eight-byte values with the given index,
+	 * for the given capacity.
+	 */
+	private ByteBuffer column(int index, int capacity) {
+		return this.buffer.slice(HEADER_SIZE + index * 8 * capacity, 8 * capacity).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Write a frame holding the state of the entities in the given store into this view.
+	 *
+	 * @pre    This view is written by a world and is not closed.
+	 * @post   | new.getNbEntities() == store.getNbEntities()
+	 * @post   | for each i in 0..store.getNbEntities()-1:
+	 * 		   |	new.getX(i) == store.getX(i) && ...
+	 * @throws UncheckedIOException
+	 * 		   The file must grow to hold the frame, and cannot be mapped again.
+	 */
+	void publish(EntityStore store, double time, double width, double height) {
+		store.syncAll();
+		int n = store.getNbEntities();
+		long sequence = this.sequence + 1;
+		SEQUENCE.setOpaque(this.buffer, SEQUENCE_OFFSET, sequence);
+		VarHandle.storeStoreFence();
+		if (n > this.capacity) {
+			try {
+				map(Math.max(n, 2 * this.capacity));
+			} catch (IOException exc) {
+				SEQUENCE.setRelease(this.buffer, SEQUENCE_OFFSET, this.sequence);
+				throw new UncheckedIOException(exc);
+			}
+			this.buffer.putInt(CAPACITY_OFFSET, this.capacity);
+		}
+		MappedByteBuffer buffer = this.buffer;
+		buffer.putInt(SIZE_OFFSET, n);
+		buffer.putDouble(TIME_OFFSET, time);
+		buffer.putDouble(WIDTH_OFFSET, width);
+		buffer.putDouble(HEIGHT_OFFSET, height);
+		LongBuffer ids = this.ids;
+		for (int i = 0; i < n; i++) {
+			ids.put(i, store.getEntityAt(i).getId());
+		}
+		this.x.put(0, store.x, 0, n);
+		this.y.put(0, store.y, 0, n);
+		this.vx.put(0, store.vx, 0, n);
+		this.vy.put(0, store.vy, 0, n);
+		this.radius.put(0, store.radius, 0, n);
+		this.orientation.put(0, store.orientation, 0, n);
+		this.flags.put(0, store.flags, 0, n);
+		this.sequence = sequence + 1;
+		SEQUENCE.setRelease(buffer, SEQUENCE_OFFSET, this.sequence);
+	}
+
+	/**
+	 * Variable registering the last sequence number this view wrote, if it is written.
+	 */
+	private long sequence;
+
+	/**
+	 * Return the sequence number of the frame currently in this view, once it has been written
+	 * completely, and fix the number of entities and the layout read until the next call.
+	 * Frames written later have a higher sequence number.
+	 *
+	 * @throws UncheckedIOException
+	 * 		   The file of this view has grown and cannot be mapped again.
+	 */
+	public long beginRead() {
+		while (true) {
+			long sequence = (long) SEQUENCE.getAcquire(this.buffer, SEQUENCE_OFFSET);
+			if ((sequence & 1) == 0) {
+				int capacity = this.buffer.getInt(CAPACITY_OFFSET);
+				if (capacity == this.capacity) {
+					this.size = Math.max(0, Math.min(this.buffer.getInt(SIZE_OFFSET), capacity));
+					return sequence;
+				}
+				try {
+					map(capacity);
+				} catch (IOException exc) {
+					throw new UncheckedIOException(exc);
+				}
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	/**
+	 * Check whether the frame with the given sequence number, obtained from beginRead(), was still in this
+	 * view while it was read, so that all that was read since belongs to that frame.
+	 */
+	public boolean endRead(long sequence) {
+		VarHandle.loadLoadFence();
+		return (long) SEQUENCE.getOpaque(this.buffer, SEQUENCE_OFFSET) == sequence;
+	}
+
+	/**
+	 * Return the number of frames written into this view so far.
+	 */
+	public long getNbFrames() {
+		return (long) SEQUENCE.getAcquire(this.buffer, SEQUENCE_OFFSET) / 2;
+	}
+
+	/**
+	 * Check whether the world writing this view stopped publishing into it.
+	 */
+	public boolean isClosed() {
+		return this.buffer.getInt(CLOSED_OFFSET) != 0;
+	}
+
+	/**
+	 * Return the number of entities in the frame being read.
+	 */
+	public int getNbEntities() {
+		return this.isWritable ? this.buffer.getInt(SIZE_OFFSET) : this.size;
+	}
+
+	private int size;
+
+	/**
+	 * Return the time of the world in the frame being read.
+	 */
+	public double getTime() {
+		return this.buffer.getDouble(TIME_OFFSET);
+	}
+
+	/**
+	 * Return the width of the world in the frame being read.
+	 */
+	public double getWidth() {
+		return this.buffer.getDouble(WIDTH_OFFSET);
+	}
+
+	/**
+	 * Return the height of the world in the frame being read.
+	 */
+	public double getHeight() {
+		return this.buffer.getDouble(HEIGHT_OFFSET);
+	}
+
+	/**
+	 * Return the identifier of the entity at the given index in the frame being read.
+	 */
+	public long getId(int index) {
+		return this.ids.get(index);
+	}
+
+	/**
+	 * Check whether the entity at the given index in the frame being read is a ship.
+	 */
+	public boolean isShip(int index) {
+		return (this.flags.get(index) & EntityStore.SHIP) != 0;
+	}
+
+	/**
+	 * Check whether the entity at the given index in the frame being read is a bullet.
+	 */
+	public boolean isBullet(int index) {
+		return (this.flags.get(index) & EntityStore.BULLET) != 0;
+	}
+
+	/**
+	 * Check whether the entity at the given index in the frame being read is a ship with an active thruster.
+	 */
+	public boolean isThrusterActive(int index) {
+		return (this.flags.get(index) & EntityStore.THRUSTER_ACTIVE) != 0;
+	}
+
+	public double getX(int index) {
+		return this.x.get(index);
+	}
+
+	public double getY(int index) {
+		return this.y.get(index);
+	}
+
+	public double getVx(int index) {
+		return this.vx.get(index);
+	}
+
+	public double getVy(int index) {
+		return this.vy.get(index);
+	}
+
+	public double getRadius(int index) {
+		return this.radius.get(index);
+	}
+
+	public double getOrientation(int index) {
+		return this.orientation.get(index);
+	}
+
+	/**
+	 * Close this view. A world writing this view marks it closed, so that its readers know that
+	 * no frames will follow.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (! this.channel.isOpen()) {
+			return;
+		}
+		if (this.isWritable) {
+			this.buffer.putInt(CLOSED_OFFSET, 1);
+			this.buffer.force();
+		}
+		this.channel.close();
+	}
+
+	/**
+	 * Variables registering the mapped file, the number of entities its columns have room for, and
+	 * views of those columns.
+	 */
+	private MappedByteBuffer buffer;
+	private int capacity;
+	private LongBuffer ids;
+	private DoubleBuffer x;
+	private DoubleBuffer y;
+	private DoubleBuffer vx;
+	private DoubleBuffer vy;
+	private DoubleBuffer radius;
+	private DoubleBuffer orientation;
+	private IntBuffer flags;
+
+	private static final int SEQUENCE_OFFSET = 8;
+	private static final int CAPACITY_OFFSET = 16;
+	private static final int SIZE_OFFSET = 20;
+	private static final int TIME_OFFSET = 24;
+	private static final int WIDTH_OFFSET = 32;
+	private static final int HEIGHT_OFFSET = 40;
+	private static final int CLOSED_OFFSET = 48;
+
+	/**
+	 * Constant registering the number of bytes each entity takes in the columns of a view.
+	 */
+	private static final int ROW_SIZE = 7 * 8 + 4;
+
+	/**
+	 * Constant registering the capacity of a new view.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * Constant registering a handle on the sequence number in the mapped file, with the memory ordering
+	 * the sequence lock needs.
+	 */
+	private static final VarHandle SEQUENCE = MethodHandles.byteBufferViewVarHandle(long[].class,
+			ByteOrder.nativeOrder());
+}
@@ -1,513 +1,458 @@
-package asteroids.model;
-
-import be.kuleuven.cs.som.annotate.*;
-
-/**
- * A class of ships involving a x and y component of their position, a x and y component of their velocity, 
- * a radius and a orientation. 
- * 
- * @invar  The position of each Ship must be a valid position for any
- *         Ship.
- *       | isValidPosition(getxCoordinate(), getyCoordinate())
- * @invar  Each Ship can have its radius as radius.
- *       | isValidRadius(getRadius())
- * @invar  The Velocity of each Ship must be a valid Velocity for any
- *         Ship.
- *       | isValidVelocity(getVelocity())
- * @invar  The orientation of each Ship must be a valid orientation for any
- *         Ship.
- *       | isValidOrientation(getOrientation())
- *       
- * @version 1.0
- * @author Jasper Callaerts and Arno Goedhuys
- */
-
-public class Ship {
-		
-	/**
-	 * Initialize this new Ship with given Position, Velocity, radius and orientation.
-	 *
-	 * @param  xCoordinate,
-	 *         The xCoordinate for this new Ship.
-	 * @param  yCoordinate,
-	 *         The yCoordinate for this new Ship.
-	 * @param  xVelocity
-	 *         The xVelocity for this new Ship.
-	 * @param  yVelocity
-	 *         The yVelocity for this new Ship.
-	 * @param  radius
-	 *         The radius for this new Ship.   
-	 * @param  orientation
-	 * 		   The orientation for this new Ship.    
-	 * @pre    The given orientation must be a valid orientation for any Ship.
-	 *       | isValidOrientation(orientation)
-	 * @post   The orientation of this new Ship is equal to the given
-	 *         orientation.
-	 *       | new.getOrientation() == orientation 
-	 * @effect The velocity of this ship is set to the given velocity.
-	 * 	     | this.setVelocity(xVelocity, yVelocity)
-	 * @post   The radius of this new Ship is equal to the given
-	 *         radius.
-	 *       | new.getRadius() == radius
-	 * @effect The position of this new Ship is set to
-	 *         the given position.
-	 *       | this.setPosition(xCoordinate, yCoordinate)
-	 * @throws IllegalArgumentException
-	 *         This new Ship cannot have the given radius as its radius.
-	 *       | ! isValidRadius(this.getRadius())
-	 */
-	public Ship(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius, double orientation) throws IllegalArgumentException {
-		setPosition(xCoordinate, yCoordinate);
-		setVelocity(xVelocity, yVelocity);
-		setOrientation(orientation);
-		
-		if (! isValidRadius(radius)){
-			throw new IllegalArgumentException();
-		}
-		else{
-			this.radius = radius;
-		}
-	}
-	/**
-	 * Initializes a new ship with default position, velocity, radius and orientation.
-	 *  
-	 * @throws IllegalArgumentException
-	 * 		   The given ship cannot have this argument as its argument.
-	 */
-	
-	public Ship() throws IllegalArgumentException{
-		 this(0.0,0.0,0.0,0.0,15.0,0.0);
-		 //testestest delete me TODO
-	}
-	
-	
-	/**
-	 * Return the x component of the position of this Ship.
-	 * 	  The x component of the position expresses where the center of the ship is located on an unbounded x axis
-	 * 	  and is expressed in kilometers.
-	 */
-	@Basic @Raw
-	public double getxCoordinate() {
-		return this.xCoordinate;
-	}
-	
-	/**
-	 * Return the y component of the position of this Ship.
-	 *	  The y component of the position expresses where the center of the ship is located on an unbounded y axis
-	 * 	  and is expressed in kilometers.
-	 */
-	@Basic @Raw
-	public double getyCoordinate() {
-		return this.yCoordinate;
-	}
-	
-
-	/**
-	 * Check whether the given position is a valid position for
-	 * any Ship.
-	 *  
-	 * @param  xCoordinate,
-	 *         The xCoordinate to check.
-	 * @param  yCoordinate,
-	 *         The yCoordinate to check.
-	 * @return 
-	 *       | result == (! java.lang.Double.isNaN(xCoordinate) && !java.lang.Double.isNaN(yCoordinate));
-	*/
-	public static boolean isValidPosition(double xCoordinate, double yCoordinate) {
-		return (! java.lang.Double.isNaN(xCoordinate) && !java.lang.Double.isNaN(yCoordinate));
-	}
-
-	/**
-	 * Set the position of this Ship to the given position.
-	 * 
-	 * @param  xCoordinates,
-	 *         The new x coordinate for this Ship.
-	 * @param  yCoordinate
-	 * 		   The new y coordinate for this ship
-	 * @post   If the position is a valid position for any ship.
-	 * 		   Then the position of this new Ship is equal to
-	 *         the given position.
-	 *       | new.getxCoordinate() == xCoordinate
-	 *       | new.getyCoordinate() == yCoordinate
-	 * @throws IllegalArgumentException()
-	 *         The given position is not a valid position for any
-	 *         Ship.
-	 *       | ! isValidPosition(getxCoordinate(), getyCoordinate())
-	 */
-	@Raw
-	public void setPosition(double xCoordinate, double yCoordinate)	throws IllegalArgumentException {
-		if (! isValidPosition(xCoordinate, yCoordinate)){
-			throw new IllegalArgumentException();
-		}
-		else{
-			this.xCoordinate = xCoordinate;
-			this.yCoordinate = yCoordinate;	
-		}
-	}
-	
-	/**
-	 * Variable registering the xCoordinate of this Ship.
-	 */
-	private double xCoordinate;
-	
-	/**
-	 * Variable registering the yCoordinate of this Ship.
-	 */	
-	private double yCoordinate;
-
-	/**
-	 * Move the ship to its new position after the given duration.
-	 * 
-	 * @param duration
-	 * 		  The amount of time the ship moves.
-	 * @post  If the given duration is a valid duration,
-	 * 		  the x and y component of the position of the ship will 
-	 * 		  be set to the new coordinates that the ship will have after 	
-	 * 		  the given duration under influence of their respective velocities.
-	 * 		  Else the position will remain unchanged.
-	 * 		  | if (!IsValidDuration(duration) || (Math.sqrt(getxVelocity()*getxVelocity() + getyVelocity()*getyVelocity())) == 0){
-	 *		  |		setPosition(getxCoordinate(), getyCoordinate())
-	 *		  |	else{
-	 *		  |		setPosition(getxCoordinate() + getxVelocity()*duration, getyCoordinate() + getyVelocity()*duration)
-	 * 			 
-	 * @throws IllegalArgumentException
-	 *         The new position is not a valid position for any
-	 *         Ship.
-	 *        | ! isValidPosition(new.getxCoordinate(), new.getyCoordinate())
-	 */
-	
-	public void move(double duration) throws IllegalArgumentException {
-		if (!IsValidDuration(duration) || (Math.sqrt(getxVelocity()*getxVelocity() + getyVelocity()*getyVelocity())) == 0){
-			setPosition(getxCoordinate(), getyCoordinate());
-		}
-		else{
-			setPosition(getxCoordinate() + getxVelocity()*duration, getyCoordinate() + getyVelocity()*duration);
-		}
-	}
-	
-
-	/**
-	 *  Check whether the given duration is a valid duration for
-	 *  any Ship.
-	 * @param duration
-	 * 		  The duration to check.
-	 * @return True if and only if the duration is positive
-	 * 		   | result == (duration > 0)
-	 */
-	
-	public static boolean IsValidDuration(double duration) {
-		return (duration > 0);
-	}
-	
-
-	/**
-	 * Return the distance between two ships measured as the distance between their edges.
-	 * 
-	 * @param other
-	 * 		  The other ship to which the distance shall be measured.
-	 * @return The distance between the two ships
-	 * 		   | result == Math.sqrt((getxCoordinate() - other.getxCoordinate())*(getxCoordinate() - other.getxCoordinate()) 	
-	 * 		   | + (getyCoordinate() - other.getyCoordinate())*(getyCoordinate() - other.getyCoordinate())) - 	
-	 * 		   | (getRadius() + other.getRadius()) 
-	 */
-	
-	public double getDistanceBetween(Ship other) {
-		if (this == other) {
-			return 0.0;
-		}
-		else{
-			return Math.sqrt((getxCoordinate() - other.getxCoordinate())*(getxCoordinate() - other.getxCoordinate()) + (getyCoordinate() - other.getyCoordinate())*(getyCoordinate() - other.getyCoordinate())) - (getRadius() + other.getRadius());
-		}
-	}
-	
-	/**
-	 * Check whether two ships overlap.
-	 * 
-	 * @param other
-	 * 		  The other ship to check.
-	 * @return True if and only if the distance between two ships is negative.
-	 * 		   | result == (getDistanceBetween(other) < 0)
-	 * 		
-	 */
-	
-	public boolean overlap(Ship other) {
-		return (getDistanceBetween(other) < 0);
-	}
-	
-	/**
-	 * Return the amount of time before the two ships will collide.
-	 * @param other
-	 * 		  The other ship
-	 * @return The amount of time before two ships overlap, 	
-	 * 		   if and only if the calculated amount of time is finite.
-	 * 		   | if (dvdr >= 0 && d <=0)
-	 * 		   |	- (dvdr + Math.sqrt(d)) / (dvdv)
-	 */
-	
-	public double getTimeToCollision(Ship other) {
-		
-		double dvdr = (getxVelocity() - other.getxVelocity()) * (getxCoordinate() - other.getxCoordinate()) + (getyVelocity()-other.getyVelocity()) * (getyCoordinate() - other.getyCoordinate());
-		double dvdv = (getxVelocity()-other.getxVelocity())*(getxVelocity()-other.getxVelocity()) + (getyVelocity()-other.getyVelocity()) * (getyVelocity() - other.getyVelocity());
-		double drdr = (getxCoordinate()-other.getxCoordinate())*(getxCoordinate()-other.getxCoordinate()) + (getyCoordinate()-other.getyCoordinate()) * (getyCoordinate() - other.getyCoordinate());
-		double sigmaSquare = (getRadius()+other.getRadius())*(getRadius()+other.getRadius());
-		double d = dvdr*dvdr - dvdv * (drdr - sigmaSquare);
-		
-		if (dvdr >= 0){
-			return Double.POSITIVE_INFINITY;
-		}
-		if (d <= 0){
-			return Double.POSITIVE_INFINITY;
-		}
-		else{
-			return - (dvdr + Math.sqrt(d)) / (dvdv);
-		}
-	}
-	
-	/**
-	 * Return the x and y component of the position where to two ships will collide.
-	 * @param other
-	 * 		  The other ship 
-	 * @return If and only if the time to collision is finite,	
-	 * 		   the coordinates where the collision will occur after	
-	 * 		   the finite amount of time.
-	 * 		   | if (getTimeToCollision(other) == Double.POSITIVE_INFINITY)
-	 *		   |	return null
-	 *		   | double FirstxCoordinate = getxCoordinate() + getxVelocity()*duration
-	 *		   | double FirstyCoordinate = getyCoordinate() + getyVelocity()*duration
-	 *		   | double SecondxCoordinate = other.getxCoordinate() + other.getxVelocity()*duration
-	 *		   | double SecondyCoordinate = other.getyCoordinate() + other.getyVelocity()*duration
-	 *	       |
-	 * 		   | double CollisionxCoordinate = FirstxCoordinate + (SecondxCoordinate - FirstxCoordinate) * getRadius() / (getRadius() + other.getRadius())
-	 *	       | double CollisionyCoordinate = FirstyCoordinate + (SecondyCoordinate - FirstyCoordinate) * getRadius() / (getRadius() + other.getRadius())
-	 *		   | double[] CollisionCoordinates =  {CollisionxCoordinate, CollisionyCoordinate}
- 	 *		   | return CollisionCoordinates
-	 */
-	
-	public double[] getCollisionPosition(Ship other) {
-		
-		if (getTimeToCollision(other) == Double.POSITIVE_INFINITY){
-			return null;
-		}
-		
-		double duration = getTimeToCollision(other);
-		
-		double FirstxCoordinate = getxCoordinate() + getxVelocity()*duration;
-		double FirstyCoordinate = getyCoordinate() + getyVelocity()*duration;
-		double SecondxCoordinate = other.getxCoordinate() + other.getxVelocity()*duration;
-		double SecondyCoordinate = other.getyCoordinate() + other.getyVelocity()*duration;
-		
-		double CollisionxCoordinate = FirstxCoordinate + (SecondxCoordinate - FirstxCoordinate) * getRadius() / (getRadius() + other.getRadius());
-		double CollisionyCoordinate = FirstyCoordinate + (SecondyCoordinate - FirstyCoordinate) * getRadius() / (getRadius() + other.getRadius());
-		double[] CollisionCoordinates =  {CollisionxCoordinate, CollisionyCoordinate};
-		
-		return CollisionCoordinates;
-	}
-	
-	/**
-	 * Return the x component of the velocity of this Ship.
-	 * 		The x component of the velocity expresses the ships velocity projected on the x axis	
-	 * 		and is expressed in kilometers/second.
-	 */
-	@Basic @Raw
-	public double getxVelocity() {
-		return this.xVelocity;
-	}
-	/**
-	 * Return the y value of the velocity of this Ship.
-	 * 		The y component of the velocity expresses the ships velocity projected on the y axis	
-	 * 		and is expressed in kilometers/second.
-	 */
-	@Basic @Raw
-	public double getyVelocity() {
-		return this.yVelocity;
-	}
-	
-	/**
-	 * Check whether the given Velocity is a valid Velocity for
-	 * any Ship.
-	 *  
-	 * @param  xVelocity
-	 *         The xVelocity to check.
-	 * @param  yVelocity
-	 *         The yVelocity to check.
-	 * @return 
-	 *       | result ==  (Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity) <= 300000)
-	*/
-	public static boolean isValidVelocity(double xVelocity, double yVelocity) {
-		return (Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity) <= 300000);
-	}
-	
-	/**
-	 * Set the Velocity of this Ship to the given Velocity.
-	 * 
-	 * @param  xVelocity
-	 *         The new x component of the velocity for this ship
-	 * @param  yVelocity
-	 * 		   The new y component of the velocity for this ship
-	 * @post   If the given Velocity is a valid Velocity for any Ship,
-	 *         the Velocity of this new Ship is equal to the given
-	 *         Velocity.
-	 *         Otherwise the velocity will have the same direction 	
-	 *         but the size will be set to 300000.
-	 *       | if (isValidVelocity(xVelocity))
-	 *       |   then new.getxVelocity() == xVelocity
-	 *       		  new.getyVelocity() == yVelocity
-	 *       | else
-	 *       |		new.getxVelocity = xVelocity/(Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity))*300000
-	 *		 |		new.getyVelocity = yVelocity/(Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity))*300000
-	 */
-	@Raw
-	public void setVelocity(double xVelocity, double yVelocity) {
-		if (isValidVelocity(xVelocity, yVelocity)){
-			this.xVelocity = xVelocity;
-			this.yVelocity = yVelocity;
-		}
-		else{
-			this.xVelocity = xVelocity/(Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity))*300000;
-			this.yVelocity = yVelocity/(Math.sqrt(xVelocity*xVelocity+yVelocity*yVelocity))*300000;
-		}
-	}
-	
-	/**
-	 * Variable registering the x component of the Velocity of this Ship.
-	 */
-	private double xVelocity;
-	
-	/**
-	* Variable registering the x component of the Velocity of this Ship.
-	*/
-	private double yVelocity;
-
-	/**
-	 * Increase the velocity by a given amount.
-	 * 
-	 * @param Amount
-	 * 		  The amount that the velocity has to be increased by.
-	 * @post  If the amount is a valid amount for any ship,	
-	 * 		  the ships components of its velocity will increase proportionally	
-	 * 		  with the given amount according to its orientation. 	
-	 * 		  Otherwise the velocity will remain unchanged.	
-	 * 		  | if (!isValidAmount(Amount)) 
-	 *		  |	else
-	 *		  |		setVelocity(getxVelocity() + Amount*Math.cos(getOrientation()), getyVelocity() + Amount*Math.sin(getOrientation()))
-	 */
-	
-	public void thrust(double Amount) {
-		if (!isValidAmount(Amount)) {
-		}
-		else{
-			setVelocity(getxVelocity() + Amount*Math.cos(getOrientation()), getyVelocity() + Amount*Math.sin(getOrientation()));
-		}
-	}
-
-	/**
-	 * Check whether the given amount is a valid amount for any ship. 
-	 * @param Amount
-	 * 		  The amount to check.
-	 * @return True if and only if the amount is not negative.
-	 * 		   | result == (Amount >= 0)
-	 */
-	
-	public static boolean isValidAmount(double Amount) {
-		return (Amount >= 0);
-	}
-	
-	/**
-	 * Return the radius of this Ship.
-	 * 		The radius expresses the radius of the circular ships and is expressed in kilometers.
-	 */
-	@Basic @Raw @Immutable
-	public double getRadius() {
-		return this.radius;
-	}
-	
-	/**
-	 * Check whether this Ship can have the given radius as its radius.
-	 *  
-	 * @param  radius
-	 *         The radius to check.
-	 * @return 
-	 *       | result == (radius > 10)
-	*/
-	@Raw
-	public boolean isValidRadius(double radius) {
-		return (radius > 10);
-	}
-	
-	/**
-	 * Variable registering the radius of this Ship.
-	 */
-	private final double radius;
-	
-	/**
-	 * Return the orientation of this Ship.
-	 * 		The orientation expresses a certain direction the ship is facing and is expressed as an angle in radians.
-	 */
-	@Basic @Raw
-	public double getOrientation() {
-		return this.orientation;
-	}
-
-	/**
-	 * Check whether the given orientation is a valid orientation for
-	 * any Ship.
-	 *  
-	 * @param  orientation
-	 *         The orientation to check.
-	 * @return 
-	 *       | result == (Math.abs(orientation) >= 0 && Math.abs(orientation) <= 2*Math.PI)
-	*/
-	public static boolean isValidOrientation(double orientation) {
-		return (Math.abs(orientation) >= 0 && Math.abs(orientation) <= 2*Math.PI);
-	}
-	
-	/**
-	 * Set the orientation of this Ship to the given orientation.
-	 * 
-	 * @param  orientation
-	 *         The new orientation for this Ship.
-	 * @pre    The given orientation must be a valid orientation for any
-	 *         Ship.
-	 *       | isValidOrientation(orientation)
-	 * @post   The orientation of this Ship is equal to the given
-	 *         orientation.
-	 *       | new.getOrientation() == orientation
-	 */
-	@Raw
-	public void setOrientation(double orientation) {
-		assert isValidOrientation(orientation);
-		this.orientation = orientation;
-	}
-	
-	/**
-	 * Variable registering the orientation of this Ship.
-	 */
-	private double orientation;
-	
-	/**
-	 * Turn the ship by changing its orientation over a given angle. 
-	 * @param Angle
-	 * 		  The angle by which the ships orientation has to change.
-	 * @pre   The given angle must be a valid angle for any ship.
-	 * 		  | isValidOrientation(angle)
-	 * @post  The orientation of the ship equals the sum of its original 	
-	 * 		  orientation and the given angle.
-	 * 		  If this sum exceeds two Pi the orientation equals modulus of two Pi.
-	 * 		  
-	 */
-	
-	public void turn(double Angle) {
-		assert isValidOrientation(Angle);
-		if (Math.abs(getOrientation() + Angle) >= 2*Math.PI){
-			if (getOrientation() + Angle > 0){
-				setOrientation(getOrientation() + Angle - 2*Math.PI);
-			}
-			else{
-				setOrientation(getOrientation() + Angle + 2*Math.PI);
-			}
-		}
-		else{
-			setOrientation(getOrientation() + Angle);
-		}
-	}
-}
+package asteroids.model;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of ships involving a x and y component of their position, a x and y component of their velocity,
+ * a radius, a mass, a orientation, a thruster and a set of loaded bullets.
+ *
+ * @invar  The position of each Ship must be a valid position for any
+ *         Ship.
+ *       | isValidPosition(getxCoordinate(), getyCoordinate())
+ * @invar  Each Ship can have its radius as radius.
+ *       | isValidRadius(getRadius())
+ * @invar  The Velocity of each Ship must be a valid Velocity for any
+ *         Ship.
+ *       | isValidVelocity(getVelocity())
+ * @invar  The orientation of each Ship must be a valid orientation for any
+ *         Ship.
+ *       | isValidOrientation(getOrientation())
+ * @invar  The mass of each Ship must be a valid mass for a Ship with its radius.
+ *       | isValidMass(getMass(), getRadius())
+ * @invar  Each Ship can have each of its bullets as a loaded bullet.
+ *       | for each bullet in getBullets():
+ *       |   canHaveAsBullet(bullet) && bullet.getShip() == this
+ *
+ * @version 2.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+
+public class Ship extends Entity {
+
+	/**
+	 * Initialize this new Ship with given Position, Velocity, radius, orientation and mass.
+	 *
+	 * @param  xCoordinate,
+	 *         The xCoordinate for this new Ship.
+	 * @param  yCoordinate,
+	 *         The yCoordinate for this new Ship.
+	 * @param  xVelocity
+	 *         The xVelocity for this new Ship.
+	 * @param  yVelocity
+	 *         The yVelocity for this new Ship.
+	 * @param  radius
+	 *         The radius for this new Ship.
+	 * @param  orientation
+	 * 		   The orientation for this new Ship.
+	 * @param  mass
+	 * 		   The mass for this new Ship.
+	 * @pre    The given orientation must be a valid orientation for any Ship.
+	 *       | isValidOrientation(orientation)
+	 * @post   The orientation of this new Ship is equal to the given
+	 *         orientation.
+	 *       | new.getOrientation() == orientation
+	 * @post   If the given mass is a valid mass for a Ship with the given radius,
+	 *         the mass of this new Ship is equal to the given mass.
+	 *         Otherwise its mass is the smallest valid mass for that radius.
+	 *       | if (isValidMass(mass, radius))
+	 *       |   then new.getMass() == mass
+	 *       |   else new.getMass() == getMinimalMass(radius)
+	 * @post   The thruster of this new Ship is inactive and no bullets are loaded on it.
+	 *       | ! new.isThrusterActive() && new.getNbBullets() == 0
+	 * @effect This new Ship is initialized as an entity with the given position, velocity and radius.
+	 *       | super(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, ...)
+	 * @throws IllegalArgumentException
+	 *         This new Ship cannot have the given radius as its radius.
+	 *       | ! isValidRadius(radius)
+	 */
+	public Ship(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius, double orientation, double mass) throws IllegalArgumentException {
+		super(xCoordinate, yCoordinate, xVelocity, yVelocity, radius,
+				isValidMass(mass, radius) ? mass : getMinimalMass(radius), 0.0, EntityStore.SHIP);
+		setOrientation(orientation);
+	}
+
+	/**
+	 * Initialize this new Ship with given Position, Velocity, radius and orientation,
+	 * and the smallest valid mass for its radius.
+	 *
+	 * @effect | this(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, orientation, getMinimalMass(radius))
+	 */
+	public Ship(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity, double radius, double orientation) throws IllegalArgumentException {
+		this(xCoordinate, yCoordinate, xVelocity, yVelocity, radius, orientation, 0.0);
+	}
+
+	/**
+	 * Initialize this new Ship as the ship in the given slot of the given store, whose state
+	 * was filled in directly.
+	 *
+	 * @effect | super(store, slot)
+	 */
+	@Raw
+	Ship(EntityStore store, int slot) {
+		super(store, slot);
+	}
+
+	/**
+	 * Initializes a new ship with default position, velocity, radius and orientation.
+	 *
+	 * @throws IllegalArgumentException
+	 * 		   The given ship cannot have this argument as its argument.
+	 */
+
+	public Ship() throws IllegalArgumentException{
+		 this(0.0,0.0,0.0,0.0,15.0,0.0);
+	}
+
+	/**
+	 * Increase the velocity by a given amount.
+	 *
+	 * @param Amount
+	 * 		  The amount that the velocity has to be increased by.
+	 * @post  If the amount is a valid amount for any ship,
+	 * 		  the ships components of its velocity will increase proportionally
+	 * 		  with the given amount according to its orientation.
+	 * 		  Otherwise the velocity will remain unchanged.
+	 * 		  | if (!isValidAmount(Amount))
+	 *		  |	else
+	 *		  |		setVelocity(getxVelocity() + Amount*Math.cos(getOrientation()), getyVelocity() + Amount*Math.sin(getOrientation()))
+	 */
+
+	public void thrust(double Amount) {
+		if (!isValidAmount(Amount)) {
+		}
+		else{
+			setVelocity(getxVelocity() + Amount*Math.cos(getOrientation()), getyVelocity() + Amount*Math.sin(getOrientation()));
+		}
+	}
+
+	/**
+	 * Check whether the given amount is a valid amount for any ship.
+	 * @param Amount
+	 * 		  The amount to check.
+	 * @return True if and only if the amount is not negative.
+	 * 		   | result == (Amount >= 0)
+	 */
+
+	public static boolean isValidAmount(double Amount) {
+		return (Amount >= 0);
+	}
+
+	/**
+	 * Check whether this Ship can have the given radius as its radius.
+	 *
+	 * @param  radius
+	 *         The radius to check.
+	 * @return
+	 *       | result == (radius > 10)
+	*/
+	@Raw @Override
+	public boolean isValidRadius(double radius) {
+		return (radius > 10);
+	}
+
+	/**
+	 * Return the total mass of this Ship, including the mass of the bullets loaded on it.
+	 *
+	 * @return | result == getMass() + sum({bullet in getBullets() : bullet.getMass()})
+	 */
+	public double getTotalMass() {
+		return getMass() + this.loadedMass;
+	}
+
+	/**
+	 * Check whether the given mass is a valid mass for a Ship with the given radius.
+	 *
+	 * @param  mass
+	 *         The mass to check.
+	 * @param  radius
+	 *         The radius of the Ship.
+	 * @return | result == (mass >= getMinimalMass(radius) && mass < Double.POSITIVE_INFINITY)
+	 */
+	public static boolean isValidMass(double mass, double radius) {
+		return (mass >= getMinimalMass(radius) && mass < Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Return the smallest mass a Ship with the given radius can have.
+	 *
+	 * @return | result == getVolume(radius) * MINIMAL_DENSITY
+	 */
+	public static double getMinimalMass(double radius) {
+		return getVolume(radius) * MINIMAL_DENSITY;
+	}
+
+	/**
+	 * Constant registering the minimal density of all ships, in kilograms per cubic kilometer.
+	 */
+	public static final double MINIMAL_DENSITY = 1.42E12;
+
+	/**
+	 * Variable registering the total mass of the bullets loaded on this Ship.
+	 */
+	private double loadedMass = 0.0;
+
+	/**
+	 * Return the orientation of this Ship.
+	 * 		The orientation expresses a certain direction the ship is facing and is expressed as an angle in radians.
+	 */
+	@Basic @Raw
+	public double getOrientation() {
+		return getStore().getOrientation(getSlot());
+	}
+
+	/**
+	 * Check whether the given orientation is a valid orientation for
+	 * any Ship.
+	 *
+	 * @param  orientation
+	 *         The orientation to check.
+	 * @return
+	 *       | result == (Math.abs(orientation) >= 0 && Math.abs(orientation) <= 2*Math.PI)
+	*/
+	public static boolean isValidOrientation(double orientation) {
+		return (Math.abs(orientation) >= 0 && Math.abs(orientation) <= 2*Math.PI);
+	}
+
+	/**
+	 * Set the orientation of this Ship to the given orientation.
+	 *
+	 * @param  orientation
+	 *         The new orientation for this Ship.
+	 * @pre    The given orientation must be a valid orientation for any
+	 *         Ship.
+	 *       | isValidOrientation(orientation)
+	 * @post   The orientation of this Ship is equal to the given
+	 *         orientation.
+	 *       | new.getOrientation() == orientation
+	 */
+	@Raw
+	public void setOrientation(double orientation) {
+		assert isValidOrientation(orientation);
+		getStore().setOrientation(getSlot(), orientation);
+	}
+
+	/**
+	 * Turn the ship by changing its orientation over a given angle.
+	 * @param Angle
+	 * 		  The angle by which the ships orientation has to change.
+	 * @pre   The given angle must be a valid angle for any ship.
+	 * 		  | isValidOrientation(angle)
+	 * @post  The orientation of the ship equals the sum of its original
+	 * 		  orientation and the given angle.
+	 * 		  If this sum exceeds two Pi the orientation equals modulus of two Pi.
+	 *
+	 */
+
+	public void turn(double Angle) {
+		assert isValidOrientation(Angle);
+		if (Math.abs(getOrientation() + Angle) >= 2*Math.PI){
+			if (getOrientation() + Angle > 0){
+				setOrientation(getOrientation() + Angle - 2*Math.PI);
+			}
+			else{
+				setOrientation(getOrientation() + Angle + 2*Math.PI);
+			}
+		}
+		else{
+			setOrientation(getOrientation() + Angle);
+		}
+	}
+
+	/**
+	 * Check whether the thruster of this Ship is active.
+	 */
+	@Basic @Raw
+	public boolean isThrusterActive() {
+		return getStore().hasFlag(getSlot(), EntityStore.THRUSTER_ACTIVE);
+	}
+
+	/**
+	 * Enable or disable the thruster of this Ship.
+	 *
+	 * @param  active
+	 * 		   Whether the thruster must be active.
+	 * @post   | new.isThrusterActive() == active
+	 */
+	public void setThrusterActive(boolean active) {
+		getStore().setFlag(getSlot(), EntityStore.THRUSTER_ACTIVE, active);
+	}
+
+	/**
+	 * Return the acceleration of this Ship while its thruster is active, expressed in kilometers/second^2.
+	 *
+	 * @return | if (isThrusterActive())
+	 * 		   |	result == THRUSTER_FORCE / getTotalMass()
+	 * 		   | else result == 0
+	 */
+	public double getAcceleration() {
+		if (! isThrusterActive()) {
+			return 0.0;
+		}
+		return THRUSTER_FORCE / getTotalMass();
+	}
+
+	/**
+	 * Constant registering the force exerted by an active thruster, in Newton.
+	 */
+	public static final double THRUSTER_FORCE = 1.1E21;
+
+	/**
+	 * Return the set of bullets loaded on this Ship.
+	 */
+	@Basic
+	public Set<Bullet> getBullets() {
+		return new LinkedHashSet<Bullet>(this.bullets);
+	}
+
+	/**
+	 * Return the number of bullets loaded on this Ship.
+	 */
+	@Basic
+	public int getNbBullets() {
+		return this.bullets.size();
+	}
+
+	/**
+	 * Check whether the given bullet is loaded on this Ship.
+	 */
+	@Basic
+	public boolean hasAsBullet(Bullet bullet) {
+		return this.bullets.contains(bullet);
+	}
+
+	/**
+	 * Check whether this Ship can have the given bullet as a loaded bullet.
+	 *
+	 * @return | result == (bullet != null && ! bullet.isTerminated() && ! isTerminated()
+	 * 		   |	&& bullet.getRadius() < getRadius())
+	 */
+	public boolean canHaveAsBullet(Bullet bullet) {
+		return (bullet != null && ! bullet.isTerminated() && ! isTerminated() && bullet.getRadius() < getRadius());
+	}
+
+	/**
+	 * Load the given bullet on this Ship.
+	 *
+	 * @param  bullet
+	 * 		   The bullet to load.
+	 * @post   | new.hasAsBullet(bullet) && (new bullet).getShip() == this
+	 * @effect The bullet is placed at the centre of this Ship.
+	 * 		   | bullet.setPosition(getxCoordinate(), getyCoordinate())
+	 * @throws IllegalArgumentException
+	 * 		   This Ship cannot have the bullet as a loaded bullet, or the bullet is
+	 * 		   located in a world or loaded on another ship.
+	 * 		   | ! canHaveAsBullet(bullet) || bullet.getWorld() != null
+	 * 		   |	|| (bullet.getShip() != null && bullet.getShip() != this)
+	 */
+	public void loadBullet(Bullet bullet) throws IllegalArgumentException {
+		if (! canHaveAsBullet(bullet) || bullet.getWorld() != null
+				|| (bullet.getShip() != null && bullet.getShip() != this)) {
+			throw new IllegalArgumentException();
+		}
+		if (this.bullets.add(bullet)) {
+			bullet.setPosition(getxCoordinate(), getyCoordinate());
+			bullet.setShip(this);
+			this.loadedMass += bullet.getMass();
+		}
+	}
+
+	/**
+	 * Load each of the given bullets on this Ship.
+	 *
+	 * @effect | for each bullet in bullets:
+	 * 		   |	loadBullet(bullet)
+	 */
+	public void loadBullets(Collection<Bullet> bullets) throws IllegalArgumentException {
+		for (Bullet bullet : bullets) {
+			loadBullet(bullet);
+		}
+	}
+
+	/**
+	 * Remove the given bullet from this Ship.
+	 *
+	 * @post   | ! new.hasAsBullet(bullet) && (new bullet).getShip() == null
+	 * @throws IllegalArgumentException
+	 * 		   | ! hasAsBullet(bullet)
+	 */
+	public void removeBullet(Bullet bullet) throws IllegalArgumentException {
+		if (! hasAsBullet(bullet)) {
+			throw new IllegalArgumentException();
+		}
+		this.bullets.remove(bullet);
+		bullet.setShip(null);
+		this.loadedMass -= bullet.getMass();
+	}
+
+	/**
+	 * Variable registering the bullets loaded on this Ship.
+	 */
+	private final Set<Bullet> bullets = new LinkedHashSet<Bullet>();
+
+	/**
+	 * Fire one of the bullets loaded on this Ship.
+	 *
+	 * @effect If this Ship is located in a world and has bullets loaded, one of them is removed
+	 * 		   from this Ship, placed next to it in the direction of its orientation with a speed
+	 * 		   of BULLET_SPEED in that direction, and this Ship becomes its source.
+	 * @effect In a toroidal world, the position of the bullet wraps around the edges of the world.
+	 * @effect If the fired bullet does not lie within the world, it is terminated.
+	 * 		   If it overlaps another entity of the world, both are terminated.
+	 * 		   Otherwise the bullet is added to the world.
+	 */
+	public void fireBullet() {
+		World world = getWorld();
+		if (world == null || this.bullets.isEmpty()) {
+			return;
+		}
+		Bullet bullet = this.bullets.iterator().next();
+		removeBullet(bullet);
+		double cos = Math.cos(getOrientation());
+		double sin = Math.sin(getOrientation());
+		double distance = getRadius() + bullet.getRadius();
+		double x = getxCoordinate() + distance*cos, y = getyCoordinate() + distance*sin;
+		if (world.isToroidal()) {
+			x = World.wrapCoordinate(x, world.getWidth());
+			y = World.wrapCoordinate(y, world.getHeight());
+		}
+		bullet.setPosition(x, y);
+		bullet.setVelocity(BULLET_SPEED*cos, BULLET_SPEED*sin);
+		bullet.setSource(this);
+		if (! bullet.liesWithin(world)) {
+			bullet.terminate();
+			return;
+		}
+		Entity other = world.getOverlappingEntity(bullet);
+		if (other != null) {
+			other.terminate();
+			bullet.terminate();
+			return;
+		}
+		world.addEntity(bullet);
+	}
+
+	/**
+	 * Constant registering the initial speed of fired bullets, in kilometers/second.
+	 */
+	public static final double BULLET_SPEED = 250;
+
+	/**
+	 * Terminate this Ship.
+	 *
+	 * @effect All bullets loaded on this Ship are terminated.
+	 * 		   | for each bullet in getBullets():
+	 * 		   |	bullet.terminate()
+	 * @effect | super.terminate()
+	 */
+	@Override
+	public void terminate() {
+		for (Bullet bullet : getBullets()) {
+			bullet.terminate();
+		}
+		super.terminate();
+	}
+}
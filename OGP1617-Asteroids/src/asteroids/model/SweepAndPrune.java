@@ -0,0 +1,409 @@
+package asteroids.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A class of sweep-and-prune broad phases keeping the entities of a world sorted on the left
+ * end of their x-interval, so that a query only visits the entities whose x-interval overlaps
+ * the x-range of the query before testing their exact position.
+ *
+ * Between two ticks of a game the entities barely move, so the order of the previous tick is
+ * nearly sorted. The order is repaired by an insertion sort each time the world advances,
+ * which costs little more than one pass over the entities as long as few of them swap places.
+ * Within a tick, every query is widened by the distance the fastest entity may have covered
+ * since the order was repaired.
+ *
+ * Entities added or placed elsewhere since the order was repaired are kept in a short list that
+ * every query scans, and entities that left the world are skipped, until the next repair merges them.
+ *
+ * In a toroidal world, the order is scanned once for every periodic image of the x-range of a query
+ * that reaches into it, and each entity is tested against the query at its nearest periodic image.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class SweepAndPrune implements BroadPhase {
+
+	/**
+	 * Initialize this new broad phase for the given world.
+	 */
+	SweepAndPrune(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Variable registering the world whose entities this broad phase holds.
+	 */
+	private final World world;
+
+	/**
+	 * Register that the given entity was added to the world of this broad phase or placed elsewhere.
+	 *
+	 * @effect The entity is returned by every query until the order is repaired, wherever
+	 * 		   its key in the order places it.
+	 */
+	@Override
+	public void add(Entity entity) {
+		if (this.nbPending == this.pending.length) {
+			this.pending = Arrays.copyOf(this.pending, Math.max(16, 2 * this.pending.length));
+		}
+		this.pending[this.nbPending++] = entity;
+		if (this.nbPending > Math.max(32, 4 * (int) Math.sqrt(this.nbOrdered))) {
+			this.needsRepair = true;
+		}
+	}
+
+	/**
+	 * Register that an entity left the world of this broad phase.
+	 *
+	 * @effect The entity is skipped by every query until the order is repaired.
+	 */
+	@Override
+	public void remove() {
+		if (++this.nbRemoved > Math.max(32, this.nbOrdered / 4)) {
+			this.needsRepair = true;
+		}
+	}
+
+	/**
+	 * Register that an entity of the world of this broad phase now moves with the given velocity.
+	 *
+	 * @effect If the given speed exceeds the largest speed this broad phase accounts for, the order
+	 * 		   is repaired before the next query.
+	 */
+	@Override
+	public void noteVelocity(double vx, double vy) {
+		if (vx*vx + vy*vy > this.maxSpeed*this.maxSpeed) {
+			this.needsRepair = true;
+		}
+	}
+
+	/**
+	 * Repair the order of the entities, if they moved since it was last repaired.
+	 */
+	@Override
+	public void update() {
+		if (this.needsRepair || this.world.getTime() != this.repairedAt) {
+			repair();
+		}
+	}
+
+	/**
+	 * Return the largest speed of the entities when the order was last repaired.
+	 */
+	@Override
+	public double getMaxSpeed() {
+		ensureRepaired();
+		return this.maxSpeed;
+	}
+
+	/**
+	 * Return the largest radius of the entities when the order was last repaired.
+	 */
+	@Override
+	public double getMaxRadius() {
+		ensureRepaired();
+		return this.maxRadius;
+	}
+
+	/**
+	 * Return the time the fastest entity needs to cross the typical spacing between entities.
+	 */
+	@Override
+	public double getHorizon() {
+		ensureRepaired();
+		return this.spacing / this.maxSpeed;
+	}
+
+	/**
+	 * Return the slot of the candidate at the given index in the result of the last query.
+	 */
+	@Override
+	public int getCandidate(int index) {
+		return this.candidates[index];
+	}
+
+	/**
+	 * Collect every entity that may overlap the given rectangle at the current world time.
+	 *
+	 * @return The number of candidates collected. Every entity overlapping the rectangle is among them.
+	 */
+	@Override
+	public int queryBox(double minX, double minY, double maxX, double maxY) {
+		ensureRepaired();
+		return collect(minX, minY, maxX, maxY);
+	}
+
+	/**
+	 * Collect every entity that may come within the given reach of a point that starts at the given
+	 * position and moves with the given velocity for the given duration.
+	 *
+	 * @return The number of candidates collected.
+	 */
+	@Override
+	public int querySwept(double x, double y, double vx, double vy, double duration, double reach) {
+		ensureRepaired();
+		double dx = vx * duration, dy = vy * duration;
+		if (Double.isNaN(dx)) {
+			dx = 0.0;
+		}
+		if (Double.isNaN(dy)) {
+			dy = 0.0;
+		}
+		return collect(Math.min(x, x + dx) - reach, Math.min(y, y + dy) - reach,
+				Math.max(x, x + dx) + reach, Math.max(y, y + dy) + reach);
+	}
+
+	/**
+	 * Collect the slots of all entities of the world whose current disc overlaps the given rectangle.
+	 * Only the entities whose left end lay within reach of the x-range of the rectangle when the
+	 * order was repaired are tested.
+	 */
+	private int collect(double minX, double minY, double maxX, double maxY) {
+		nextStamp();
+		this.nbCandidates = 0;
+		double drift = getDrift();
+		double[] keys = this.keys;
+		double low = minX - 2.0 * this.maxRadius - drift, high = maxX + drift;
+		double width = this.world.getWidth();
+		int fromImage = 0, toImage = 0;
+		if (this.world.isToroidal() && this.nbOrdered > 0) {
+			if (high - low < width) {
+				fromImage = (int) Math.ceil((keys[0] - high) / width);
+				toImage = (int) Math.floor((keys[this.nbOrdered - 1] - low) / width);
+			} else {
+				low = Double.NEGATIVE_INFINITY;
+				high = Double.POSITIVE_INFINITY;
+			}
+		}
+		for (int image = fromImage; image <= toImage; image++) {
+			int k = lowerBound(low + image * width);
+			for (double last = high + image * width; k < this.nbOrdered && keys[k] <= last; k++) {
+				collect(this.order[k], minX, minY, maxX, maxY);
+			}
+		}
+		for (int k = 0; k < this.nbPending; k++) {
+			collect(this.pending[k], minX, minY, maxX, maxY);
+		}
+		return this.nbCandidates;
+	}
+
+	/**
+	 * Collect the slot of the given entity if it is located in the world of this broad phase, was
+	 * not collected before and its current disc overlaps the given rectangle.
+	 */
+	private void collect(Entity entity, double minX, double minY, double maxX, double maxY) {
+		if (entity.getWorld() != this.world) {
+			return;
+		}
+		EntityStore store = this.world.getStore();
+		int slot = entity.getSlot();
+		store.sync(slot);
+		double x = store.x[slot], y = store.y[slot], r = store.radius[slot];
+		if (this.world.isToroidal()) {
+			x = World.getNearestImage(x, minX, maxX, this.world.getWidth());
+			y = World.getNearestImage(y, minY, maxY, this.world.getHeight());
+		}
+		if (x + r < minX || x - r > maxX || y + r < minY || y - r > maxY || this.stamps[slot] == this.stamp) {
+			return;
+		}
+		this.stamps[slot] = this.stamp;
+		this.candidates[this.nbCandidates++] = slot;
+	}
+
+	/**
+	 * Return the index of the first entity in the order whose key is at least the given value.
+	 */
+	private int lowerBound(double value) {
+		int low = 0, high = this.nbOrdered;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (this.keys[middle] < value) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Return the distance any entity may have moved since the order was repaired.
+	 */
+	private double getDrift() {
+		double elapsed = this.world.getTime() - this.repairedAt;
+		return (elapsed > 0) ? elapsed * this.maxSpeed : 0.0;
+	}
+
+	/**
+	 * Repair the order if it is out of date.
+	 */
+	private void ensureRepaired() {
+		if (this.needsRepair || getDrift() > 0.5 * this.spacing) {
+			repair();
+		}
+	}
+
+	/**
+	 * Bring the order up to date with the current positions of the entities: drop the entities
+	 * that left the world, append the entities added since the last repair, and sort all of them
+	 * on the left end of their x-interval again.
+	 */
+	private void repair() {
+		EntityStore store = this.world.getStore();
+		store.syncAll();
+		int n = store.getNbEntities();
+		if (this.order.length < n) {
+			this.order = Arrays.copyOf(this.order, Math.max(n, 2 * this.order.length));
+			this.keys = Arrays.copyOf(this.keys, this.order.length);
+		}
+		nextStamp();
+		int size = 0;
+		for (int k = 0; k < this.nbOrdered; k++) {
+			size = retain(this.order[k], size);
+		}
+		int nbAppended = 0;
+		for (int k = 0; k < this.nbPending; k++) {
+			int before = size;
+			size = retain(this.pending[k], size);
+			nbAppended += size - before;
+		}
+		Arrays.fill(this.order, size, Math.max(size, this.nbOrdered), null);
+		Arrays.fill(this.pending, 0, this.nbPending, null);
+		this.nbPending = 0;
+		this.nbRemoved = 0;
+		this.nbOrdered = size;
+
+		Entity[] order = this.order;
+		double[] keys = this.keys;
+		double sum = 0.0, sumSquares = 0.0, maxRadius = 0.0, maxSpeedSquare = 0.0;
+		double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k < size; k++) {
+			int i = order[k].getSlot();
+			double r = store.radius[i];
+			keys[k] = store.x[i] - r;
+			minY = Math.min(minY, store.y[i] - r);
+			maxY = Math.max(maxY, store.y[i] + r);
+			sum += r;
+			sumSquares += r*r;
+			maxRadius = Math.max(maxRadius, r);
+			maxSpeedSquare = Math.max(maxSpeedSquare, store.vx[i]*store.vx[i] + store.vy[i]*store.vy[i]);
+		}
+		if (nbAppended > 16) {
+			sortAll(store);
+		} else {
+			insertionSort();
+		}
+		this.maxRadius = maxRadius;
+		this.maxSpeed = Math.sqrt(maxSpeedSquare);
+		this.repairedAt = this.world.getTime();
+		this.needsRepair = false;
+		if (size == 0) {
+			this.spacing = 1.0;
+			return;
+		}
+		double mean = sum / size;
+		double deviation = Math.sqrt(Math.max(0.0, sumSquares / size - mean*mean));
+		double spacing = 2.0 * Math.min(maxRadius, mean + 2.0 * deviation);
+		double area = (keys[size - 1] + 2.0 * maxRadius - keys[0]) * (maxY - minY);
+		if (area / (spacing * spacing) > 2.0 * size) {
+			spacing = Math.sqrt(area / (2.0 * size));
+		}
+		this.spacing = spacing;
+	}
+
+	/**
+	 * Append the given entity to the order at the given size, unless it left the world or was
+	 * appended before, and return the new size of the order.
+	 */
+	private int retain(Entity entity, int size) {
+		if (entity.getWorld() != this.world || this.stamps[entity.getSlot()] == this.stamp) {
+			return size;
+		}
+		this.stamps[entity.getSlot()] = this.stamp;
+		this.order[size] = entity;
+		return size + 1;
+	}
+
+	/**
+	 * Sort the order on its keys by insertion, which is fast for an order that is nearly sorted.
+	 */
+	private void insertionSort() {
+		Entity[] order = this.order;
+		double[] keys = this.keys;
+		for (int k = 1, size = this.nbOrdered; k < size; k++) {
+			double key = keys[k];
+			if (keys[k - 1] <= key) {
+				continue;
+			}
+			Entity entity = order[k];
+			int m = k - 1;
+			while (m >= 0 && keys[m] > key) {
+				keys[m + 1] = keys[m];
+				order[m + 1] = order[m];
+				m--;
+			}
+			keys[m + 1] = key;
+			order[m + 1] = entity;
+		}
+	}
+
+	/**
+	 * Sort the order on its keys from scratch, for an order into which many entities were appended.
+	 */
+	private void sortAll(EntityStore store) {
+		Arrays.sort(this.order, 0, this.nbOrdered,
+				Comparator.comparingDouble((Entity entity) -> store.x[entity.getSlot()] - store.radius[entity.getSlot()]));
+		for (int k = 0; k < this.nbOrdered; k++) {
+			int i = this.order[k].getSlot();
+			this.keys[k] = store.x[i] - store.radius[i];
+		}
+	}
+
+	/**
+	 * Start a new query or repair, so that every slot is visited at most once.
+	 */
+	private void nextStamp() {
+		int n = this.world.getStore().getNbEntities();
+		if (this.stamps.length < n) {
+			this.stamps = new int[Math.max(n, 2 * this.stamps.length)];
+			this.candidates = new int[this.stamps.length];
+			this.stamp = 0;
+		}
+		if (++this.stamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.stamps, 0);
+			this.stamp = 1;
+		}
+	}
+
+	private boolean needsRepair = true;
+	private double repairedAt;
+	private double maxSpeed;
+	private double maxRadius;
+	private double spacing = 1.0;
+
+	/**
+	 * Variables registering the entities sorted on the left end of their x-interval, and those
+	 * left ends at the time the order was repaired.
+	 */
+	private Entity[] order = new Entity[0];
+	private double[] keys = new double[0];
+	private int nbOrdered;
+
+	/**
+	 * Variables registering the entities added since the order was repaired, and the number of
+	 * entities that left the world since then.
+	 */
+	private Entity[] pending = new Entity[0];
+	private int nbPending;
+	private int nbRemoved;
+
+	/**
+	 * Variables registering the result of the last query.
+	 */
+	private int[] candidates = new int[0];
+	private int nbCandidates;
+	private int[] stamps = new int[0];
+	private int stamp;
+}
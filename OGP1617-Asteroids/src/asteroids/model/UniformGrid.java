@@ -0,0 +1,507 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+/**
+ * A class of uniform grids hashing the entities of a world into square cells, so that
+ * overlap and collision queries only test the entities in the cells near the query instead
+ * of every entity of the world.
+ *
+ * The size of the cells follows the distribution of the radii of the entities: a cell is
+ * about as wide as a large entity, so that most entities cover one to four cells. Entities
+ * that are much larger than a cell are kept apart and returned by every query.
+ *
+ * A grid is built from the positions of the entities at some world time. Since entities keep
+ * moving afterwards, every query is widened by the distance the fastest entity may have covered
+ * since then, and the grid is built again once that distance exceeds half a cell. Entities added
+ * or placed elsewhere since the grid was built are kept in a short list that every query scans,
+ * and entities that left the world are skipped, until there are enough of either to build the
+ * grid again.
+ *
+ * In a toroidal world, a query also collects the cells overlapping the periodic images of its
+ * rectangle that reach into the grid, so that cells wrap around the edges of the world.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+class UniformGrid implements BroadPhase {
+
+	/**
+	 * Initialize this new grid for the given world.
+	 */
+	UniformGrid(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Variable registering the world whose entities this grid holds.
+	 */
+	private final World world;
+
+	/**
+	 * Mark this grid as out of date, so that it is built again before the next query.
+	 */
+	void invalidate() {
+		this.isStale = true;
+	}
+
+	/**
+	 * Register that the given entity was added to the world of this grid or placed elsewhere.
+	 *
+	 * @effect The entity is returned by every query until the grid is built again.
+	 */
+	@Override
+	public void add(Entity entity) {
+		if (this.isStale) {
+			return;
+		}
+		if (this.nbPending == this.pending.length) {
+			this.pending = Arrays.copyOf(this.pending, Math.max(16, 2 * this.pending.length));
+		}
+		this.pending[this.nbPending++] = entity;
+		if (this.nbPending > Math.max(32, 4 * (int) Math.sqrt(this.world.getStore().getNbEntities()))) {
+			this.isStale = true;
+		}
+	}
+
+	/**
+	 * Register that an entity left the world of this grid.
+	 *
+	 * @effect The entity is skipped by every query until the grid is built again.
+	 */
+	@Override
+	public void remove() {
+		if (++this.nbRemoved > Math.max(32, this.world.getStore().getNbEntities() / 4)) {
+			this.isStale = true;
+		}
+	}
+
+	/**
+	 * The grid is built again lazily, once a query finds it out of date.
+	 */
+	@Override
+	public void update() {
+	}
+
+	/**
+	 * Register that an entity of the world of this grid now moves with the given velocity.
+	 *
+	 * @effect If the given speed exceeds the largest speed this grid accounts for, the grid
+	 * 		   is marked as out of date.
+	 */
+	@Override
+	public void noteVelocity(double vx, double vy) {
+		if (vx*vx + vy*vy > this.maxSpeed*this.maxSpeed) {
+			this.isStale = true;
+		}
+	}
+
+	/**
+	 * Return the largest speed of the entities when this grid was built.
+	 */
+	@Override
+	public double getMaxSpeed() {
+		ensureBuilt();
+		return this.maxSpeed;
+	}
+
+	/**
+	 * Return the largest radius of the entities when this grid was built.
+	 */
+	@Override
+	public double getMaxRadius() {
+		ensureBuilt();
+		return this.maxRadius;
+	}
+
+	/**
+	 * Return the duration over which collision predictions made with the help of this grid remain
+	 * cheap: the time the fastest entity needs to cross one cell.
+	 *
+	 * @return | result == getCellSize() / getMaxSpeed()
+	 */
+	@Override
+	public double getHorizon() {
+		ensureBuilt();
+		return this.cellSize / this.maxSpeed;
+	}
+
+	/**
+	 * Return the width of the cells of this grid.
+	 */
+	double getCellSize() {
+		ensureBuilt();
+		return this.cellSize;
+	}
+
+	/**
+	 * Return the number of candidates found by the last query.
+	 */
+	int getNbCandidates() {
+		return this.nbCandidates;
+	}
+
+	/**
+	 * Return the slot of the candidate at the given index in the result of the last query.
+	 */
+	@Override
+	public int getCandidate(int index) {
+		return this.candidates[index];
+	}
+
+	/**
+	 * Collect every entity that may overlap the given rectangle at the current world time.
+	 *
+	 * @return The number of candidates collected, which can be read with getCandidate.
+	 * 		   Every entity overlapping the rectangle is among them.
+	 */
+	@Override
+	public int queryBox(double minX, double minY, double maxX, double maxY) {
+		ensureBuilt();
+		nextStamp();
+		this.nbCandidates = 0;
+		double margin = getDrift();
+		collectImages(minX - margin, minY - margin, maxX + margin, maxY + margin);
+		collectLarge();
+		collectPending();
+		return this.nbCandidates;
+	}
+
+	/**
+	 * Collect every entity that may come within the given reach of a point that starts at the given
+	 * position and moves with the given velocity for the given duration.
+	 * The cells are traversed along the path of the point, so that a long diagonal path does not
+	 * visit every cell of its bounding box.
+	 *
+	 * @return The number of candidates collected, which can be read with getCandidate.
+	 */
+	@Override
+	public int querySwept(double x, double y, double vx, double vy, double duration, double reach) {
+		ensureBuilt();
+		nextStamp();
+		this.nbCandidates = 0;
+		reach += getDrift();
+		double dx = vx * duration, dy = vy * duration;
+		if (Double.isNaN(dx)) {
+			dx = 0.0;
+		}
+		if (Double.isNaN(dy)) {
+			dy = 0.0;
+		}
+		double length = Math.sqrt(dx*dx + dy*dy);
+		double minX = Math.min(x, x + dx), maxX = Math.max(x, x + dx);
+		double minY = Math.min(y, y + dy), maxY = Math.max(y, y + dy);
+		int steps = (int) Math.min(Math.ceil(length / this.cellSize), this.columns + this.rows);
+		double boxCells = ((maxX - minX) / this.cellSize + 1) * ((maxY - minY) / this.cellSize + 1);
+		if (steps <= 1 || boxCells <= 4.0 * steps || Double.isInfinite(length)) {
+			collectImages(minX - reach, minY - reach, maxX + reach, maxY + reach);
+		}
+		else {
+			double half = 0.5 * length / steps;
+			for (int k = 0; k < steps; k++) {
+				double px = x + dx * (k + 0.5) / steps, py = y + dy * (k + 0.5) / steps;
+				collectImages(px - half - reach, py - half - reach, px + half + reach, py + half + reach);
+			}
+		}
+		collectLarge();
+		collectPending();
+		return this.nbCandidates;
+	}
+
+	/**
+	 * Return the distance any entity may have moved since this grid was built.
+	 */
+	private double getDrift() {
+		double elapsed = this.world.getTime() - this.builtAt;
+		return (elapsed > 0) ? elapsed * this.maxSpeed : 0.0;
+	}
+
+	/**
+	 * Build this grid again if it is out of date.
+	 */
+	private void ensureBuilt() {
+		if (this.isStale || getDrift() > 0.5 * this.cellSize) {
+			build();
+		}
+	}
+
+	/**
+	 * Hash all entities of the world of this grid into cells, in slot order.
+	 */
+	private void build() {
+		EntityStore store = this.world.getStore();
+		store.syncAll();
+		int n = store.getNbEntities();
+		this.builtAt = this.world.getTime();
+		this.isStale = false;
+		Arrays.fill(this.pending, 0, this.nbPending, null);
+		this.nbPending = 0;
+		this.nbRemoved = 0;
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		double sum = 0.0, sumSquares = 0.0, maxRadius = 0.0, maxSpeedSquare = 0.0;
+		for (int i = 0; i < n; i++) {
+			double r = store.radius[i];
+			minX = Math.min(minX, store.x[i] - r);
+			minY = Math.min(minY, store.y[i] - r);
+			maxX = Math.max(maxX, store.x[i] + r);
+			maxY = Math.max(maxY, store.y[i] + r);
+			sum += r;
+			sumSquares += r*r;
+			maxRadius = Math.max(maxRadius, r);
+			maxSpeedSquare = Math.max(maxSpeedSquare, store.vx[i]*store.vx[i] + store.vy[i]*store.vy[i]);
+		}
+		this.maxRadius = maxRadius;
+		this.maxSpeed = Math.sqrt(maxSpeedSquare);
+		if (n == 0) {
+			this.originX = this.originY = 0.0;
+			this.cellSize = 1.0;
+			this.columns = this.rows = 1;
+			this.cellStart = new int[2];
+			this.nbLarge = 0;
+			return;
+		}
+
+		double mean = sum / n;
+		double deviation = Math.sqrt(Math.max(0.0, sumSquares / n - mean*mean));
+		double cellSize = 2.0 * Math.min(maxRadius, mean + 2.0 * deviation);
+		double area = (maxX - minX) * (maxY - minY);
+		if (area / (cellSize * cellSize) > 2.0 * n) {
+			cellSize = Math.sqrt(area / (2.0 * n));
+		}
+		cellSize = Math.max(cellSize, Math.max(maxX - minX, maxY - minY) / MAX_CELLS_PER_AXIS);
+		this.cellSize = cellSize;
+		this.originX = minX;
+		this.originY = minY;
+		this.columns = (int) Math.max(1, Math.ceil((maxX - minX) / cellSize));
+		this.rows = (int) Math.max(1, Math.ceil((maxY - minY) / cellSize));
+		int nbCells = this.columns * this.rows;
+
+		if (this.cellStart == null || this.cellStart.length < nbCells + 1) {
+			this.cellStart = new int[nbCells + 1];
+		}
+		else {
+			Arrays.fill(this.cellStart, 0, nbCells + 1, 0);
+		}
+		if (this.large.length < n) {
+			this.large = new Entity[n];
+		}
+		this.nbLarge = 0;
+
+		// First pass: count the entries per cell.
+		int[] cellStart = this.cellStart;
+		int entries = 0;
+		for (int i = 0; i < n; i++) {
+			double r = store.radius[i];
+			if (r > 2.0 * cellSize) {
+				this.large[this.nbLarge++] = store.getEntityAt(i);
+				continue;
+			}
+			int c0 = column(store.x[i] - r), c1 = column(store.x[i] + r);
+			int r0 = row(store.y[i] - r), r1 = row(store.y[i] + r);
+			for (int row = r0; row <= r1; row++) {
+				for (int column = c0; column <= c1; column++) {
+					cellStart[row * this.columns + column + 1]++;
+					entries++;
+				}
+			}
+		}
+		for (int c = 0; c < nbCells; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		if (this.cellEntries.length < entries) {
+			this.cellEntries = new Entity[entries];
+		}
+		else if (entries < this.nbEntries) {
+			Arrays.fill(this.cellEntries, entries, this.nbEntries, null);
+		}
+		this.nbEntries = entries;
+		if (this.fill.length < nbCells) {
+			this.fill = new int[nbCells];
+		}
+		System.arraycopy(cellStart, 0, this.fill, 0, nbCells);
+
+		// Second pass: place the slots in their cells.
+		for (int i = 0; i < n; i++) {
+			double r = store.radius[i];
+			if (r > 2.0 * cellSize) {
+				continue;
+			}
+			int c0 = column(store.x[i] - r), c1 = column(store.x[i] + r);
+			int r0 = row(store.y[i] - r), r1 = row(store.y[i] + r);
+			for (int row = r0; row <= r1; row++) {
+				for (int column = c0; column <= c1; column++) {
+					this.cellEntries[this.fill[row * this.columns + column]++] = store.getEntityAt(i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the column of the cell containing the given x coordinate, clamped to this grid.
+	 */
+	private int column(double x) {
+		double column = Math.floor((x - this.originX) / this.cellSize);
+		return (int) Math.max(0, Math.min(this.columns - 1, column));
+	}
+
+	/**
+	 * Return the row of the cell containing the given y coordinate, clamped to this grid.
+	 */
+	private int row(double y) {
+		double row = Math.floor((y - this.originY) / this.cellSize);
+		return (int) Math.max(0, Math.min(this.rows - 1, row));
+	}
+
+	/**
+	 * Start a new query, so that every slot is collected at most once.
+	 */
+	private void nextStamp() {
+		int n = this.world.getStore().getNbEntities();
+		if (this.stamps.length < n) {
+			this.stamps = new int[Math.max(n, 2 * this.stamps.length)];
+			this.candidates = new int[this.stamps.length];
+			this.stamp = 0;
+		}
+		if (++this.stamp == Integer.MAX_VALUE) {
+			Arrays.fill(this.stamps, 0);
+			this.stamp = 1;
+		}
+	}
+
+	/**
+	 * Collect the slots in all cells overlapping the given rectangle or, if the world of this grid is
+	 * toroidal, any of its periodic images. A rectangle spanning a full period along an axis is
+	 * widened to the whole grid along that axis instead.
+	 */
+	private void collectImages(double minX, double minY, double maxX, double maxY) {
+		World world = this.world;
+		if (! world.isToroidal()) {
+			collect(minX, minY, maxX, maxY);
+			return;
+		}
+		double width = world.getWidth(), height = world.getHeight();
+		double left = this.originX, right = left + this.columns * this.cellSize;
+		double bottom = this.originY, top = bottom + this.rows * this.cellSize;
+		int fromX = 0, toX = 0, fromY = 0, toY = 0;
+		if (maxX - minX < width) {
+			fromX = (int) Math.ceil((left - maxX) / width);
+			toX = (int) Math.floor((right - minX) / width);
+		} else {
+			minX = left;
+			maxX = right;
+		}
+		if (maxY - minY < height) {
+			fromY = (int) Math.ceil((bottom - maxY) / height);
+			toY = (int) Math.floor((top - minY) / height);
+		} else {
+			minY = bottom;
+			maxY = top;
+		}
+		for (int kx = fromX; kx <= toX; kx++) {
+			for (int ky = fromY; ky <= toY; ky++) {
+				collect(minX + kx * width, minY + ky * height, maxX + kx * width, maxY + ky * height);
+			}
+		}
+	}
+
+	/**
+	 * Collect the slots in all cells overlapping the given rectangle.
+	 */
+	private void collect(double minX, double minY, double maxX, double maxY) {
+		if (this.columns * this.rows == 0 || maxX < this.originX || maxY < this.originY
+				|| minX > this.originX + this.columns * this.cellSize || minY > this.originY + this.rows * this.cellSize) {
+			return;
+		}
+		int c0 = column(minX), c1 = column(maxX), r0 = row(minY), r1 = row(maxY);
+		int[] cellStart = this.cellStart;
+		Entity[] entries = this.cellEntries;
+		for (int row = r0; row <= r1; row++) {
+			for (int column = c0; column <= c1; column++) {
+				int cell = row * this.columns + column;
+				for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+					collect(entries[k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collect the slot of the given entity, unless it left the world of this grid or was collected before.
+	 */
+	private void collect(Entity entity) {
+		if (entity.getWorld() != this.world) {
+			return;
+		}
+		int slot = entity.getSlot();
+		if (this.stamps[slot] != this.stamp) {
+			this.stamps[slot] = this.stamp;
+			this.candidates[this.nbCandidates++] = slot;
+		}
+	}
+
+	/**
+	 * Collect the slots of all entities that are too large for the cells of this grid.
+	 */
+	private void collectLarge() {
+		for (int k = 0; k < this.nbLarge; k++) {
+			collect(this.large[k]);
+		}
+	}
+
+	/**
+	 * Collect the slots of all entities added or placed elsewhere since this grid was built.
+	 */
+	private void collectPending() {
+		for (int k = 0; k < this.nbPending; k++) {
+			collect(this.pending[k]);
+		}
+	}
+
+	/**
+	 * Constant registering the largest number of cells along each axis of a grid.
+	 */
+	private static final int MAX_CELLS_PER_AXIS = 1 << 14;
+
+	private boolean isStale = true;
+	private double builtAt;
+	private double maxSpeed;
+	private double maxRadius;
+	private double cellSize = 1.0;
+	private double originX;
+	private double originY;
+	private int columns;
+	private int rows;
+
+	/**
+	 * Variables registering the contents of the cells: the entities in cell c are
+	 * cellEntries[cellStart[c]] up to cellEntries[cellStart[c+1]-1].
+	 */
+	private int[] cellStart;
+	private Entity[] cellEntries = new Entity[0];
+	private int nbEntries;
+	private int[] fill = new int[0];
+
+	/**
+	 * Variables registering the entities too large for the cells.
+	 */
+	private Entity[] large = new Entity[0];
+	private int nbLarge;
+
+	/**
+	 * Variables registering the entities added or placed elsewhere since this grid was built,
+	 * and the number of entities that left the world since then.
+	 */
+	private Entity[] pending = new Entity[0];
+	private int nbPending;
+	private int nbRemoved;
+
+	/**
+	 * Variables registering the result of the last query.
+	 */
+	private int[] candidates = new int[0];
+	private int nbCandidates;
+	private int[] stamps = new int[0];
+	private int stamp;
+}
@@ -0,0 +1,57 @@
+package asteroids.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A class holding the kernel of CollisionKernel on the Vector API, only loaded once FreeFlight has
+ * found the module jdk.incubator.vector.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+final class VectorCollisionKernel {
+
+	private VectorCollisionKernel() {
+	}
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Compute the collisions of CollisionKernel.getCollisions a vector of candidates at a time.
+	 */
+	static void getCollisions(double x, double y, double vx, double vy, double radius, double[] xs, double[] ys,
+			double[] vxs, double[] vys, double[] radii, int from, int to, double[] times, double[] positionsX,
+			double[] positionsY) {
+		DoubleVector entityX = DoubleVector.broadcast(SPECIES, x), entityY = DoubleVector.broadcast(SPECIES, y);
+		DoubleVector entityVx = DoubleVector.broadcast(SPECIES, vx), entityVy = DoubleVector.broadcast(SPECIES, vy);
+		int i = from;
+		// every lane rounds as the scalar kernel does: no fused multiply-add, and the same order of operations
+		for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+			DoubleVector otherX = DoubleVector.fromArray(SPECIES, xs, i);
+			DoubleVector otherY = DoubleVector.fromArray(SPECIES, ys, i);
+			DoubleVector otherVx = DoubleVector.fromArray(SPECIES, vxs, i);
+			DoubleVector otherVy = DoubleVector.fromArray(SPECIES, vys, i);
+			DoubleVector sigma = DoubleVector.fromArray(SPECIES, radii, i).add(radius);
+			DoubleVector dvx = entityVx.sub(otherVx), dvy = entityVy.sub(otherVy);
+			DoubleVector dx = entityX.sub(otherX), dy = entityY.sub(otherY);
+			DoubleVector dvdr = dvx.mul(dx).add(dvy.mul(dy));
+			DoubleVector dvdv = dvx.mul(dvx).add(dvy.mul(dvy));
+			DoubleVector drdr = dx.mul(dx).add(dy.mul(dy));
+			DoubleVector d = dvdr.mul(dvdr).sub(dvdv.mul(drdr.sub(sigma.mul(sigma))));
+			VectorMask<Double> none = dvdr.compare(VectorOperators.GE, 0).or(d.compare(VectorOperators.LE, 0));
+			DoubleVector t = dvdr.add(d.sqrt()).neg().div(dvdv);
+			t.blend(Double.POSITIVE_INFINITY, none).intoArray(times, i);
+			DoubleVector firstX = entityX.add(entityVx.mul(t)), firstY = entityY.add(entityVy.mul(t));
+			DoubleVector secondX = otherX.add(otherVx.mul(t)), secondY = otherY.add(otherVy.mul(t));
+			secondX.sub(firstX).mul(radius).div(sigma).add(firstX).blend(Double.NaN, none).intoArray(positionsX, i);
+			secondY.sub(firstY).mul(radius).div(sigma).add(firstY).blend(Double.NaN, none).intoArray(positionsY, i);
+		}
+		if (i < to) {
+			CollisionKernel.getCollisionsScalar(x, y, vx, vy, radius, xs, ys, vxs, vys, radii, i, to, times,
+					positionsX, positionsY);
+		}
+	}
+}
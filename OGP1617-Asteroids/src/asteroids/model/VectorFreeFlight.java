@@ -0,0 +1,47 @@
+package asteroids.model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A class holding the kernel of FreeFlight on the Vector API. The class is only loaded once
+ * FreeFlight has found the module jdk.incubator.vector, so that the game also runs without it.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+final class VectorFreeFlight {
+
+	private VectorFreeFlight() {
+	}
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * Check whether the vectors of this machine hold more than one double.
+	 */
+	static boolean isSupported() {
+		return SPECIES.length() > 1;
+	}
+
+	/**
+	 * Advance the positions in the given range of indices along their velocities for the given duration.
+	 *
+	 * @post   | for each i in from..to-1:
+	 *       |   new x[i] == x[i] + vx[i]*duration && new y[i] == y[i] + vy[i]*duration
+	 */
+	static void advance(double[] x, double[] y, double[] vx, double[] vy, int from, int to, double duration) {
+		int i = from;
+		// no fused multiply-add: the positions must round as those of the scalar kernel do
+		for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, vx, i).mul(duration).add(DoubleVector.fromArray(SPECIES, x, i))
+					.intoArray(x, i);
+			DoubleVector.fromArray(SPECIES, vy, i).mul(duration).add(DoubleVector.fromArray(SPECIES, y, i))
+					.intoArray(y, i);
+		}
+		for (; i < to; i++) {
+			x[i] += vx[i] * duration;
+			y[i] += vy[i] * duration;
+		}
+	}
+}
@@ -1,5 +1,1555 @@
-package asteroids.model;
-
-public class World {
-
-}
+package asteroids.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import asteroids.part2.CollisionBatchListener;
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of rectangular worlds involving a width, a height and a set of entities.
+ *
+ * The state of all entities located in a world is kept in the entity store of that world,
+ * in packed primitive arrays. Advancing the world and scanning for collisions therefore
+ * walks contiguous memory; ships and bullets are handles into that store.
+ *
+ * @invar  The width and the height of each world are valid dimensions.
+ *       | isValidDimension(getWidth()) && isValidDimension(getHeight())
+ * @invar  Each entity of a world lies within that world and has that world as its world.
+ *       | for each entity in getEntities():
+ *       |   entity.liesWithin(this) && entity.getWorld() == this
+ *
+ * A world is either bounded or toroidal. Entities bounce off the boundaries of a bounded world.
+ * A toroidal world wraps around instead: an entity leaving it on one side enters it again on the
+ * opposite side, so that there are no boundary collisions at all. Distances and collisions in a
+ * toroidal world are measured between the nearest periodic images of the entities involved.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class World {
+
+	/**
+	 * Initialize this new world with given width and height.
+	 *
+	 * @param  width
+	 * 		   The width for this new world.
+	 * @param  height
+	 * 		   The height for this new world.
+	 * @post   If the given width is a valid dimension, the width of this new world is equal to it.
+	 * 		   Otherwise the width of this new world is the upper bound on dimensions.
+	 * 		   | if (isValidDimension(width)) then new.getWidth() == width
+	 * 		   |	else new.getWidth() == UPPER_BOUND
+	 * @post   If the given height is a valid dimension, the height of this new world is equal to it.
+	 * 		   Otherwise the height of this new world is the upper bound on dimensions.
+	 * 		   | if (isValidDimension(height)) then new.getHeight() == height
+	 * 		   |	else new.getHeight() == UPPER_BOUND
+	 * @post   | new.getEntities().isEmpty()
+	 * @post   | ! new.isToroidal()
+	 */
+	public World(double width, double height) {
+		this(width, height, false);
+	}
+
+	/**
+	 * Initialize this new world with given width and height, wrapping around its edges if it is toroidal.
+	 *
+	 * @param  width
+	 * 		   The width for this new world.
+	 * @param  height
+	 * 		   The height for this new world.
+	 * @param  toroidal
+	 * 		   True if entities leaving this new world on one side must enter it again on the opposite
+	 * 		   side instead of bouncing off its boundaries.
+	 * @effect | this(width, height) except for toroidality
+	 * @post   | new.isToroidal() == toroidal
+	 */
+	public World(double width, double height, boolean toroidal) {
+		this.width = isValidDimension(width) ? width : UPPER_BOUND;
+		this.height = isValidDimension(height) ? height : UPPER_BOUND;
+		this.isToroidal = toroidal;
+		if (toroidal) {
+			this.store.setPeriod(this.width, this.height);
+		}
+	}
+
+	/**
+	 * Return the width of this world, expressed in kilometers.
+	 */
+	@Basic @Immutable
+	public double getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Return the height of this world, expressed in kilometers.
+	 */
+	@Basic @Immutable
+	public double getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Check whether the given dimension is a valid width or height for any world.
+	 *
+	 * @return | result == (dimension >= 0 && dimension <= UPPER_BOUND)
+	 */
+	public static boolean isValidDimension(double dimension) {
+		return (dimension >= 0 && dimension <= UPPER_BOUND);
+	}
+
+	/**
+	 * Constant registering the largest width and height of any world.
+	 */
+	public static final double UPPER_BOUND = Double.MAX_VALUE;
+
+	/**
+	 * Variable registering the width of this world.
+	 */
+	private final double width;
+
+	/**
+	 * Variable registering the height of this world.
+	 */
+	private final double height;
+
+	/**
+	 * Check whether this world wraps around its edges.
+	 */
+	@Basic @Immutable
+	public boolean isToroidal() {
+		return this.isToroidal;
+	}
+
+	/**
+	 * Variable registering whether this world wraps around its edges.
+	 */
+	private final boolean isToroidal;
+
+	/**
+	 * Check whether this world is terminated.
+	 */
+	@Basic
+	public boolean isTerminated() {
+		return this.isTerminated;
+	}
+
+	/**
+	 * Terminate this world.
+	 *
+	 * @effect Every entity of this world is removed from it.
+	 * 		   | for each entity in getEntities():
+	 * 		   |	removeEntity(entity)
+	 * @effect All collisions predicted for this world are dropped.
+	 * 		   | scheduler.clear()
+	 * @post   The broad phase and the picking tree of this world no longer refer to any entities.
+	 * @effect The storage of the store of this world is released, so that a terminated world does
+	 * 		   not keep room for the entities it once held.
+	 * 		   | getStore().release()
+	 * @effect This world stops publishing a shared view.
+	 * 		   | setSharedView(null)
+	 * @post   | new.isTerminated()
+	 */
+	public void terminate() {
+		while (this.store.getNbEntities() > 0) {
+			removeEntity(this.store.getEntityAt(this.store.getNbEntities() - 1));
+		}
+		this.scheduler.clear();
+		this.broadPhase = this.broadPhaseType.create(this);
+		this.pickingTree = null;
+		this.store.release();
+		if (this.sharedView != null) {
+			try {
+				setSharedView(null);
+			} catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+		}
+		Arrays.fill(this.recycledBullets, 0, this.nbRecycledBullets, null);
+		this.nbRecycledBullets = 0;
+		this.isTerminated = true;
+	}
+
+	/**
+	 * Variable registering whether this world is terminated.
+	 */
+	private boolean isTerminated = false;
+
+	/**
+	 * Return the store holding the state of all entities of this world.
+	 */
+	@Basic
+	EntityStore getStore() {
+		return this.store;
+	}
+
+	/**
+	 * Variable registering the state of all entities located in this world.
+	 */
+	private final EntityStore store = new EntityStore(16);
+
+	/**
+	 * Return the number of entities located in this world.
+	 */
+	public int getNbEntities() {
+		return this.store.getNbEntities();
+	}
+
+	/**
+	 * Return the set of all entities located in this world, in the order of their slots in the store
+	 * of this world. Removing an entity moves the entity in the last slot into its slot.
+	 */
+	public Set<Entity> getEntities() {
+		Set<Entity> result = new LinkedHashSet<Entity>();
+		for (int i = 0, n = this.store.getNbEntities(); i < n; i++) {
+			result.add(this.store.getEntityAt(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Return the set of all ships located in this world.
+	 */
+	public Set<Ship> getShips() {
+		Set<Ship> result = new LinkedHashSet<Ship>();
+		for (int i = 0, n = this.store.getNbEntities(); i < n; i++) {
+			if (this.store.hasFlag(i, EntityStore.SHIP)) {
+				result.add((Ship) this.store.getEntityAt(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the set of all bullets located in this world.
+	 */
+	public Set<Bullet> getBullets() {
+		Set<Bullet> result = new LinkedHashSet<Bullet>();
+		for (int i = 0, n = this.store.getNbEntities(); i < n; i++) {
+			if (this.store.hasFlag(i, EntityStore.BULLET)) {
+				result.add((Bullet) this.store.getEntityAt(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The number of values written per entity by exportState.
+	 */
+	public static final int STATE_STRIDE = 8;
+
+	/**
+	 * The type written by exportState for a ship.
+	 */
+	public static final double STATE_SHIP = EntityStore.SHIP;
+
+	/**
+	 * The type written by exportState for a bullet.
+	 */
+	public static final double STATE_BULLET = EntityStore.BULLET;
+
+	/**
+	 * Write the state of all entities located in this world into the given array, starting at the given offset.
+	 *
+	 * For each entity, in the order of getEntities(), STATE_STRIDE values are written: its identifier,
+	 * its type (STATE_SHIP or STATE_BULLET), the x and y component of its position, the x and y component
+	 * of its velocity, its radius and its orientation. As long as no entity leaves this world, the
+	 * entities keep their order from one export to the next; readers matching entities across exports
+	 * match them by identifier.
+	 *
+	 * @param  destination
+	 * 		   The array to write the state in.
+	 * @param  offset
+	 * 		   The index at which the state of the first entity is written.
+	 * @return The number of entities whose state was written.
+	 * 		   | result == getNbEntities()
+	 * @post   | for each k in 0..getNbEntities()-1:
+	 * 		   |	destination[offset + k*STATE_STRIDE] == getEntities()[k].getId() && ...
+	 * @throws IllegalArgumentException
+	 * 		   The state of all entities does not fit in the given array from the given offset on.
+	 * 		   | offset < 0 || destination.length - offset < getNbEntities() * STATE_STRIDE
+	 */
+	public int exportState(double[] destination, int offset) throws IllegalArgumentException {
+		EntityStore store = this.store;
+		store.syncAll();
+		int n = store.getNbEntities();
+		if (offset < 0 || destination.length - offset < (long) n * STATE_STRIDE) {
+			throw new IllegalArgumentException("destination too small for " + n + " entities");
+		}
+		for (int i = 0, k = offset; i < n; i++, k += STATE_STRIDE) {
+			destination[k] = store.getEntityAt(i).getId();
+			destination[k + 1] = store.flags[i] & (EntityStore.SHIP | EntityStore.BULLET);
+			destination[k + 2] = store.x[i];
+			destination[k + 3] = store.y[i];
+			destination[k + 4] = store.vx[i];
+			destination[k + 5] = store.vy[i];
+			destination[k + 6] = store.radius[i];
+			destination[k + 7] = store.orientation[i];
+		}
+		return n;
+	}
+
+	/**
+	 * Write the time to collision and the collision position of the given entity with every entity
+	 * located in this world into the given arrays, in the order of exportState, computed for all
+	 * entities at once by CollisionKernel. In a toroidal world, the periodic images of the entities
+	 * are tried one entity at a time instead.
+	 *
+	 * @param  entity
+	 * 		   The entity whose collisions are computed. It need not be located in this world.
+	 * @param  times
+	 * 		   The array to write the times to collision in.
+	 * @param  positions
+	 * 		   The array to write the x and y component of the collision positions in, two values per
+	 * 		   entity, or NaN for an entity the given entity will not collide with.
+	 * @return The number of entities whose collision was written.
+	 * 		   | result == getNbEntities()
+	 * @post   | for each k in 0..getNbEntities()-1:
+	 * 		   |	times[k] == entity.getTimeToCollision(getEntities()[k]) && ...
+	 * @throws IllegalArgumentException
+	 * 		   The given entity is not effective, or the collisions do not fit in the given arrays.
+	 * 		   | entity == null || times.length < getNbEntities() || positions.length < 2 * getNbEntities()
+	 */
+	public int getCollisionsWith(Entity entity, double[] times, double[] positions) throws IllegalArgumentException {
+		EntityStore store = this.store;
+		int n = store.getNbEntities();
+		if (entity == null || times.length < n || positions.length < 2L * n) {
+			throw new IllegalArgumentException();
+		}
+		if (this.isToroidal) {
+			for (int k = 0; k < n; k++) {
+				Entity other = store.getEntityAt(k);
+				times[k] = entity.getTimeToCollision(other);
+				if (entity.getCollisionPosition(other, this.contactPoint) == null) {
+					positions[2*k] = positions[2*k + 1] = Double.NaN;
+				} else {
+					positions[2*k] = this.contactPoint[0];
+					positions[2*k + 1] = this.contactPoint[1];
+				}
+			}
+			return n;
+		}
+		store.syncAll();
+		if (this.positionsX.length < n) {
+			this.positionsX = new double[store.getCapacity()];
+			this.positionsY = new double[store.getCapacity()];
+		}
+		CollisionKernel.getCollisions(entity.getxCoordinate(), entity.getyCoordinate(), entity.getxVelocity(),
+				entity.getyVelocity(), entity.getRadius(), store.x, store.y, store.vx, store.vy, store.radius, 0, n,
+				times, this.positionsX, this.positionsY);
+		for (int k = 0; k < n; k++) {
+			positions[2*k] = this.positionsX[k];
+			positions[2*k + 1] = this.positionsY[k];
+		}
+		return n;
+	}
+
+	/**
+	 * Variables registering the arrays reused for the collision positions computed by getCollisionsWith.
+	 */
+	private double[] positionsX = new double[0];
+	private double[] positionsY = new double[0];
+
+	/**
+	 * Write whether the given entity overlaps each entity located in this world into the given array,
+	 * in the order of exportState. In a toroidal world, the periodic images of the entities count.
+	 *
+	 * @param  entity
+	 * 		   The entity whose overlaps are checked. It need not be located in this world.
+	 * @param  overlaps
+	 * 		   The array to write the overlaps in.
+	 * @return The number of entities whose overlap was written.
+	 * 		   | result == getNbEntities()
+	 * @post   | for each k in 0..getNbEntities()-1:
+	 * 		   |	overlaps[k] == entity.overlap(getEntities()[k])
+	 * @throws IllegalArgumentException
+	 * 		   The given entity is not effective, or the overlaps do not fit in the given array.
+	 * 		   | entity == null || overlaps.length < getNbEntities()
+	 */
+	public int getOverlapsWith(Entity entity, boolean[] overlaps) throws IllegalArgumentException {
+		EntityStore store = this.store;
+		int n = store.getNbEntities();
+		if (entity == null || overlaps.length < n) {
+			throw new IllegalArgumentException();
+		}
+		for (int k = 0; k < n; k++) {
+			overlaps[k] = entity.overlap(store.getEntityAt(k));
+		}
+		return n;
+	}
+
+	/**
+	 * Write the state of all entities located in this world into the given buffer, from its current
+	 * position on, and advance that position past the written values.
+	 *
+	 * @param  destination
+	 * 		   The buffer to write the state in.
+	 * @return The number of entities whose state was written.
+	 * 		   | result == getNbEntities()
+	 * @post   The buffer holds the values exportState(double[], int) would write into an array.
+	 * @throws IllegalArgumentException
+	 * 		   The state of all entities does not fit in the remaining part of the given buffer.
+	 * 		   | destination.remaining() < getNbEntities() * STATE_STRIDE
+	 */
+	public int exportState(DoubleBuffer destination) throws IllegalArgumentException {
+		EntityStore store = this.store;
+		store.syncAll();
+		int n = store.getNbEntities();
+		if (destination.remaining() < (long) n * STATE_STRIDE) {
+			throw new IllegalArgumentException("destination too small for " + n + " entities");
+		}
+		int k = destination.position();
+		for (int i = 0; i < n; i++, k += STATE_STRIDE) {
+			destination.put(k, store.getEntityAt(i).getId());
+			destination.put(k + 1, store.flags[i] & (EntityStore.SHIP | EntityStore.BULLET));
+			destination.put(k + 2, store.x[i]);
+			destination.put(k + 3, store.y[i]);
+			destination.put(k + 4, store.vx[i]);
+			destination.put(k + 5, store.vy[i]);
+			destination.put(k + 6, store.radius[i]);
+			destination.put(k + 7, store.orientation[i]);
+		}
+		destination.position(k);
+		return n;
+	}
+
+	/**
+	 * Check whether the given entity is located in this world.
+	 *
+	 * @return | result == (entity != null && entity.getWorld() == this)
+	 */
+	public boolean hasAsEntity(Entity entity) {
+		return (entity != null && entity.getWorld() == this);
+	}
+
+	/**
+	 * Check whether this world can have the given entity as one of its entities.
+	 *
+	 * @return | result == (! isTerminated() && entity != null && ! entity.isTerminated()
+	 * 		   |	&& entity.liesWithin(this) && getOverlappingEntity(entity) == null)
+	 */
+	public boolean canHaveAsEntity(Entity entity) {
+		return (! isTerminated() && entity != null && ! entity.isTerminated() && entity.liesWithin(this)
+				&& getOverlappingEntity(entity) == null);
+	}
+
+	/**
+	 * Add the given entity to this world.
+	 *
+	 * @param  entity
+	 * 		   The entity to add.
+	 * @post   | new.hasAsEntity(entity)
+	 * @effect The state of the entity is moved into the store of this world.
+	 * @throws IllegalArgumentException
+	 * 		   This world cannot have the given entity as one of its entities, the entity
+	 * 		   is already located in a world, or it is a bullet loaded on a ship.
+	 * 		   | ! canHaveAsEntity(entity) || entity.getWorld() != null
+	 * 		   |	|| (entity instanceof Bullet && ((Bullet) entity).getShip() != null)
+	 */
+	public void addEntity(Entity entity) throws IllegalArgumentException {
+		if (entity == null || entity.getWorld() != null
+				|| (entity instanceof Bullet && ((Bullet) entity).getShip() != null) || ! canHaveAsEntity(entity)) {
+			throw new IllegalArgumentException();
+		}
+		entity.moveTo(this.store);
+		entity.setWorld(this);
+		this.broadPhase.add(entity);
+		if (this.pickingTree != null) {
+			this.pickingTree.add(entity);
+		}
+		invalidate(entity);
+	}
+
+	/**
+	 * Register the entities in the slots of the store of this world from the given slot on, whose
+	 * state was filled in directly, as entities of this world. Unlike addEntity, this does not check
+	 * whether this world can have them.
+	 *
+	 * @post   | for each slot in from..getNbEntities()-1:
+	 * 		   |	new.hasAsEntity(getStore().getEntityAt(slot))
+	 */
+	void adoptSlots(int from) {
+		EntityStore store = this.store;
+		for (int slot = from, n = store.getNbEntities(); slot < n; slot++) {
+			Entity entity = store.getEntityAt(slot);
+			entity.setWorld(this);
+			this.broadPhase.add(entity);
+			if (this.pickingTree != null) {
+				this.pickingTree.add(entity);
+			}
+			invalidate(entity);
+		}
+	}
+
+	/**
+	 * Remove the given entity from this world.
+	 *
+	 * @param  entity
+	 * 		   The entity to remove.
+	 * @post   | ! new.hasAsEntity(entity) && (new entity).getWorld() == null
+	 * @throws IllegalArgumentException
+	 * 		   | ! hasAsEntity(entity)
+	 */
+	public void removeEntity(Entity entity) throws IllegalArgumentException {
+		if (! hasAsEntity(entity)) {
+			throw new IllegalArgumentException();
+		}
+		this.scheduler.forget(entity);
+		entity.detach();
+		entity.setWorld(null);
+		this.broadPhase.remove();
+		if (this.pickingTree != null) {
+			this.pickingTree.remove();
+		}
+	}
+
+	/**
+	 * Return a bullet with given position, velocity and radius that is not located in a world
+	 * nor loaded on a ship.
+	 *
+	 * A bullet terminated while located in this world is reused if there is one, so that
+	 * sustained fire does not create a new bullet for every shot. The reused bullet gets a new
+	 * identifier: a handle to the bullet it used to be still finds that bullet terminated through
+	 * isTerminated(long).
+	 *
+	 * @param  xCoordinate
+	 * 		   The x component of the position for the bullet.
+	 * @param  yCoordinate
+	 * 		   The y component of the position for the bullet.
+	 * @param  xVelocity
+	 * 		   The x component of the velocity for the bullet.
+	 * @param  yVelocity
+	 * 		   The y component of the velocity for the bullet.
+	 * @param  radius
+	 * 		   The radius for the bullet.
+	 * @return A bullet that is not terminated, with the state a new bullet with the given position,
+	 * 		   velocity and radius would have.
+	 * 		   | ! result.isTerminated() && result.getWorld() == null && result.getShip() == null
+	 * 		   |	&& result.getRadius() == radius && result.getSource() == null
+	 * @throws IllegalArgumentException
+	 * 		   No bullet can have the given position or radius.
+	 * 		   | ! Entity.isValidPosition(xCoordinate, yCoordinate) || ! result.isValidRadius(radius)
+	 */
+	public Bullet createBullet(double xCoordinate, double yCoordinate, double xVelocity, double yVelocity,
+			double radius) throws IllegalArgumentException {
+		if (this.nbRecycledBullets == 0) {
+			return new Bullet(xCoordinate, yCoordinate, xVelocity, yVelocity, radius);
+		}
+		Bullet bullet = this.recycledBullets[this.nbRecycledBullets - 1];
+		if (! bullet.isValidRadius(radius) || ! Entity.isValidPosition(xCoordinate, yCoordinate)) {
+			throw new IllegalArgumentException();
+		}
+		this.recycledBullets[--this.nbRecycledBullets] = null;
+		bullet.revive(xCoordinate, yCoordinate, xVelocity, yVelocity, radius);
+		return bullet;
+	}
+
+	/**
+	 * Return the number of terminated bullets this world holds for reuse.
+	 */
+	int getNbRecycledBullets() {
+		return this.nbRecycledBullets;
+	}
+
+	/**
+	 * Keep the given bullet, which was terminated while located in this world, for reuse by createBullet.
+	 * Bullets beyond MAXIMAL_RECYCLED_BULLETS, and all bullets once this world is terminated, are left
+	 * to the garbage collector.
+	 *
+	 * @pre    | bullet.isTerminated() && bullet.getWorld() == null && bullet.getShip() == null
+	 */
+	void recycle(Bullet bullet) {
+		if (isTerminated() || this.nbRecycledBullets == MAXIMAL_RECYCLED_BULLETS) {
+			return;
+		}
+		if (this.nbRecycledBullets == this.recycledBullets.length) {
+			this.recycledBullets = Arrays.copyOf(this.recycledBullets, Math.max(16, 2 * this.recycledBullets.length));
+		}
+		this.recycledBullets[this.nbRecycledBullets++] = bullet;
+	}
+
+	/**
+	 * Constant registering the largest number of terminated bullets a world holds for reuse.
+	 */
+	static final int MAXIMAL_RECYCLED_BULLETS = 4096;
+
+	/**
+	 * Variables registering the terminated bullets this world holds for reuse, as a stack.
+	 */
+	private Bullet[] recycledBullets = new Bullet[0];
+	private int nbRecycledBullets;
+
+	/**
+	 * Return an entity of this world that significantly overlaps the given entity.
+	 *
+	 * @return Null if no entity of this world significantly overlaps the given entity.
+	 * 		   | if (for each other in getEntities(): ! entity.overlapSignificantly(other))
+	 * 		   |	result == null
+	 * @return Otherwise an entity of this world significantly overlapping the given entity.
+	 * 		   | else entity.overlapSignificantly(result)
+	 */
+	public Entity getOverlappingEntity(Entity entity) {
+		double x = entity.getxCoordinate(), y = entity.getyCoordinate(), r = entity.getRadius();
+		EntityStore store = this.store;
+		BroadPhase broadPhase = this.broadPhase;
+		int count = broadPhase.queryBox(x - r, y - r, x + r, y + r);
+		for (int k = 0; k < count; k++) {
+			int i = broadPhase.getCandidate(k);
+			Entity other = store.getEntityAt(i);
+			if (other == entity) {
+				continue;
+			}
+			store.sync(i);
+			double dx = store.x[i] - x, dy = store.y[i] - y;
+			if (this.isToroidal) {
+				dx = wrapDifference(dx, this.width);
+				dy = wrapDifference(dy, this.height);
+			}
+			double sigma = 0.99 * (store.radius[i] + r);
+			if (dx*dx + dy*dy < sigma*sigma) {
+				return other;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Return the entity of this world at the given position. In a toroidal world, the periodic images
+	 * of the entities count.
+	 *
+	 * @return The entity of this world containing the given position whose centre is closest to it,
+	 * 		   or null if no entity contains the given position.
+	 */
+	public Entity getEntityAt(double x, double y) {
+		EntityStore store = this.store;
+		store.syncAll();
+		AabbTree tree = getPickingTree();
+		int count = tree.query(x, y, x, y);
+		int result = -1;
+		double best = Double.POSITIVE_INFINITY;
+		for (int k = 0; k < count; k++) {
+			int i = tree.getCandidate(k);
+			double dx = store.x[i] - x, dy = store.y[i] - y;
+			if (this.isToroidal) {
+				dx = wrapDifference(dx, this.width);
+				dy = wrapDifference(dy, this.height);
+			}
+			double distance = dx*dx + dy*dy;
+			if (distance <= store.radius[i]*store.radius[i] && (distance < best || (distance == best && i < result))) {
+				best = distance;
+				result = i;
+			}
+		}
+		return (result < 0) ? null : store.getEntityAt(result);
+	}
+
+	/**
+	 * Return the set of all entities of this world overlapping the given rectangle, in the order
+	 * of getEntities(). In a toroidal world, the periodic images of the entities count.
+	 *
+	 * @return | result == { entity in getEntities() | the disc of entity intersects the rectangle
+	 * 		   |	with corners (minX, minY) and (maxX, maxY) }
+	 */
+	public Set<Entity> getEntitiesWithin(double minX, double minY, double maxX, double maxY) {
+		EntityStore store = this.store;
+		store.syncAll();
+		AabbTree tree = getPickingTree();
+		int count = tree.query(minX, minY, maxX, maxY);
+		int[] slots = new int[count];
+		int nbSlots = 0;
+		for (int k = 0; k < count; k++) {
+			int i = tree.getCandidate(k);
+			double x = store.x[i], y = store.y[i];
+			if (this.isToroidal) {
+				x = getNearestImage(x, minX, maxX, this.width);
+				y = getNearestImage(y, minY, maxY, this.height);
+			}
+			double dx = x - Math.max(minX, Math.min(maxX, x));
+			double dy = y - Math.max(minY, Math.min(maxY, y));
+			if (dx*dx + dy*dy <= store.radius[i]*store.radius[i]) {
+				slots[nbSlots++] = i;
+			}
+		}
+		Arrays.sort(slots, 0, nbSlots);
+		Set<Entity> result = new LinkedHashSet<Entity>();
+		for (int k = 0; k < nbSlots; k++) {
+			result.add(store.getEntityAt(slots[k]));
+		}
+		return result;
+	}
+
+	/**
+	 * Return the tree answering the point and rectangle queries of this world, creating it on first use.
+	 */
+	private AabbTree getPickingTree() {
+		if (this.pickingTree == null) {
+			this.pickingTree = new AabbTree(this);
+		}
+		return this.pickingTree;
+	}
+
+	/**
+	 * Variable registering the tree answering the point and rectangle queries of this world,
+	 * or null as long as no such query was made.
+	 */
+	private AabbTree pickingTree = null;
+
+	/**
+	 * Check whether a circle with the given centre and radius lies fully within a world with the given size.
+	 * Since positions are subject to rounding, a circle lies within the world as long as 99% of its
+	 * radius does.
+	 *
+	 * @return | result == (x - 0.99*radius >= 0 && x + 0.99*radius <= width
+	 * 		   |	&& y - 0.99*radius >= 0 && y + 0.99*radius <= height)
+	 */
+	static boolean isWithinBounds(double x, double y, double radius, double width, double height) {
+		double margin = 0.99 * radius;
+		return (x - margin >= 0 && x + margin <= width && y - margin >= 0 && y + margin <= height);
+	}
+
+	/**
+	 * Check whether a circle with the given centre and radius lies within a toroidal world with the given size.
+	 * The circle may stick out over an edge, since it reappears on the opposite side, but it must be
+	 * small enough never to touch its own images, nor another circle through two of its images at once.
+	 *
+	 * @return | result == (x >= 0 && x <= width && y >= 0 && y <= height
+	 * 		   |	&& 4 * radius <= Math.min(width, height))
+	 */
+	static boolean isWithinPeriod(double x, double y, double radius, double width, double height) {
+		return (x >= 0 && x <= width && y >= 0 && y <= height && 4 * radius <= Math.min(width, height));
+	}
+
+	/**
+	 * Return the time after which a circle with the given centre, velocity and radius touches a
+	 * boundary of a world with the given size.
+	 *
+	 * @return The smallest non-negative time after which the edge of the circle touches a boundary,
+	 * 		   or positive infinity if the circle does not move towards any boundary.
+	 */
+	static double getTimeToBoundary(double x, double y, double vx, double vy, double radius, double width, double height) {
+		double tx = Double.POSITIVE_INFINITY, ty = Double.POSITIVE_INFINITY;
+		if (vx > 0) {
+			tx = (width - radius - x) / vx;
+		} else if (vx < 0) {
+			tx = (radius - x) / vx;
+		}
+		if (vy > 0) {
+			ty = (height - radius - y) / vy;
+		} else if (vy < 0) {
+			ty = (radius - y) / vy;
+		}
+		return Math.max(0.0, Math.min(tx, ty));
+	}
+
+	/**
+	 * Return the point where a circle with the given centre and radius, touching a boundary of a
+	 * world with the given size, touches that boundary.
+	 */
+	static double[] getBoundaryContactPoint(double x, double y, double radius, double width, double height) {
+		return getBoundaryContactPoint(x, y, radius, width, height, new double[2]);
+	}
+
+	/**
+	 * Store the point where a circle with the given centre and radius, touching a boundary of a
+	 * world with the given size, touches that boundary in the given array, and return that array.
+	 */
+	static double[] getBoundaryContactPoint(double x, double y, double radius, double width, double height,
+			double[] destination) {
+		double left = x - radius, right = width - x - radius, bottom = y - radius, top = height - y - radius;
+		double nearest = Math.min(Math.min(left, right), Math.min(bottom, top));
+		if (nearest == left) {
+			destination[0] = 0.0;
+			destination[1] = y;
+		} else if (nearest == right) {
+			destination[0] = width;
+			destination[1] = y;
+		} else if (nearest == bottom) {
+			destination[0] = x;
+			destination[1] = 0.0;
+		} else {
+			destination[0] = x;
+			destination[1] = height;
+		}
+		return destination;
+	}
+
+	/**
+	 * Return the time after which the entities in the given slots of the given store collide.
+	 * This is the formula of {@link Entity#getTimeToCollision(Entity)}, evaluated directly on the
+	 * packed arrays of the store.
+	 */
+	static double getTimeToCollision(EntityStore store, int i, int j) {
+		return getTimeToCollision(store.x[j] - store.x[i], store.y[j] - store.y[i], store.vx[j] - store.vx[i],
+				store.vy[j] - store.vy[i], store.radius[i] + store.radius[j]);
+	}
+
+	/**
+	 * Return the time after which the entities in the given slots of the given store collide in a world
+	 * wrapping around with the given width and height, looking the given duration ahead.
+	 *
+	 * @effect | getTimeToCollision(store.x[j] - store.x[i], ..., store.radius[i] + store.radius[j], width, height, duration)
+	 */
+	static double getTimeToCollision(EntityStore store, int i, int j, double width, double height, double duration) {
+		return getTimeToCollision(store.x[j] - store.x[i], store.y[j] - store.y[i], store.vx[j] - store.vx[i],
+				store.vy[j] - store.vy[i], store.radius[i] + store.radius[j], width, height, duration);
+	}
+
+	/**
+	 * Return the time after which two circles collide in a world wrapping around with the given width
+	 * and height, looking the given duration ahead.
+	 *
+	 * Every periodic image of the second circle that the first one may reach within the given duration
+	 * is tried, starting from the nearest one; a finite duration thus only costs a few images. A
+	 * period of zero does not wrap, and an infinite duration only tries the nearest image.
+	 *
+	 * @param  dx
+	 * 		   The x component of the position of the second circle minus that of the first one.
+	 * @param  dvx
+	 * 		   The x component of the velocity of the second circle minus that of the first one.
+	 * @param  sigma
+	 * 		   The sum of the radii of the circles.
+	 * @return The smallest time to collision of the first circle with any of those images, or positive
+	 * 		   infinity if it collides with none of them.
+	 */
+	static double getTimeToCollision(double dx, double dy, double dvx, double dvy, double sigma, double width,
+			double height, double duration) {
+		dx = wrapDifference(dx, width);
+		dy = wrapDifference(dy, height);
+		double reachX = (dvx == 0 || Double.isInfinite(duration)) ? 0.0 : dvx * duration;
+		double reachY = (dvy == 0 || Double.isInfinite(duration)) ? 0.0 : dvy * duration;
+		double lowX = dx + Math.min(0.0, reachX) - sigma, highX = dx + Math.max(0.0, reachX) + sigma;
+		double lowY = dy + Math.min(0.0, reachY) - sigma, highY = dy + Math.max(0.0, reachY) + sigma;
+		int fromX = (width > 0) ? (int) Math.ceil(- highX / width) : 0, toX = (width > 0) ? (int) Math.floor(- lowX / width) : 0;
+		int fromY = (height > 0) ? (int) Math.ceil(- highY / height) : 0, toY = (height > 0) ? (int) Math.floor(- lowY / height) : 0;
+		double result = Double.POSITIVE_INFINITY;
+		for (int kx = fromX; kx <= toX; kx++) {
+			for (int ky = fromY; ky <= toY; ky++) {
+				result = Math.min(result, getTimeToCollision(dx + kx * width, dy + ky * height, dvx, dvy, sigma));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the difference between two coordinates along an axis wrapping around with the given
+	 * period, measured between their nearest periodic images.
+	 *
+	 * @return The difference itself if the period is not positive or the difference is at most half
+	 * 		   the period, otherwise the difference plus the multiple of the period that brings it into
+	 * 		   [-period/2, period/2].
+	 */
+	static double wrapDifference(double difference, double period) {
+		if (period > 0 && Math.abs(difference) > 0.5 * period) {
+			difference -= period * Math.rint(difference / period);
+		}
+		return difference;
+	}
+
+	/**
+	 * Return the periodic image of the given coordinate, along an axis wrapping around with the given
+	 * period, that lies nearest to the given range, or a coordinate within the range if the range spans
+	 * a full period.
+	 */
+	static double getNearestImage(double coordinate, double min, double max, double period) {
+		if (max - min >= period) {
+			return Math.max(min, Math.min(max, coordinate));
+		}
+		double centre = 0.5 * (min + max);
+		return centre + wrapDifference(coordinate - centre, period);
+	}
+
+	/**
+	 * Return the given coordinate wrapped into [0, period) along an axis wrapping around with the given period.
+	 *
+	 * @return The coordinate itself if the period is not positive or the coordinate already lies in
+	 * 		   [0, period), otherwise the coordinate minus the multiple of the period that brings it there.
+	 */
+	static double wrapCoordinate(double coordinate, double period) {
+		if (period > 0 && (coordinate < 0 || coordinate >= period)) {
+			coordinate -= period * Math.floor(coordinate / period);
+			if (coordinate >= period) {
+				coordinate = 0.0;
+			}
+		}
+		return coordinate;
+	}
+
+	/**
+	 * Return the time after which two circles with the given difference in position and velocity,
+	 * second minus first, and the given sum of radii collide. This is the formula of
+	 * {@link Entity#getTimeToCollision(Entity)}.
+	 */
+	static double getTimeToCollision(double dx, double dy, double dvx, double dvy, double sigma) {
+		double dvdr = dvx*dx + dvy*dy;
+		if (dvdr >= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		double dvdv = dvx*dvx + dvy*dvy;
+		double drdr = dx*dx + dy*dy;
+		double d = dvdr*dvdr - dvdv * (drdr - sigma*sigma);
+		if (d <= 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(0.0, - (dvdr + Math.sqrt(d)) / dvdv);
+	}
+
+	/**
+	 * Return the time of this world, that is the number of seconds this world has evolved.
+	 */
+	@Basic
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Set the time of this world to the given time, as it was when this world was saved.
+	 *
+	 * @post   | new.getTime() == time
+	 */
+	void setTime(double time) {
+		this.time = time;
+	}
+
+	/**
+	 * Variable registering the time of this world.
+	 */
+	private double time = 0.0;
+
+	/**
+	 * Invalidate all collisions predicted for the given entity of this world, because its motion
+	 * changed other than by moving along its velocity.
+	 *
+	 * @param  entity
+	 * 		   The entity whose motion changed.
+	 */
+	void invalidate(Entity entity) {
+		this.broadPhase.noteVelocity(entity.getxVelocity(), entity.getyVelocity());
+		this.scheduler.invalidate(entity);
+	}
+
+	/**
+	 * Invalidate all collisions predicted for the given entity of this world, because it was
+	 * placed at another position.
+	 *
+	 * @effect The broad phase and the picking tree of this world register the new position of the entity.
+	 * @effect | invalidate(entity)
+	 */
+	void relocate(Entity entity) {
+		this.broadPhase.add(entity);
+		if (this.pickingTree != null) {
+			this.pickingTree.add(entity);
+		}
+		invalidate(entity);
+	}
+
+	/**
+	 * Variable registering the scheduler predicting the collisions of the entities of this world.
+	 */
+	private final CollisionScheduler scheduler = new CollisionScheduler(this);
+
+	/**
+	 * Return the broad phase used to find the entities of this world near a position or a path.
+	 */
+	@Basic
+	BroadPhase getBroadPhase() {
+		return this.broadPhase;
+	}
+
+	/**
+	 * Return the type of the broad phase of this world.
+	 */
+	@Basic
+	public BroadPhaseType getBroadPhaseType() {
+		return this.broadPhaseType;
+	}
+
+	/**
+	 * Set the type of the broad phase of this world to the given type.
+	 *
+	 * @param  type
+	 * 		   The new type for the broad phase of this world.
+	 * @post   | new.getBroadPhaseType() == type
+	 * @effect The entities already in this world are registered with the new broad phase.
+	 * @throws IllegalArgumentException
+	 * 		   | type == null
+	 */
+	public void setBroadPhaseType(BroadPhaseType type) throws IllegalArgumentException {
+		if (type == null) {
+			throw new IllegalArgumentException();
+		}
+		if (type != this.broadPhaseType) {
+			this.broadPhaseType = type;
+			this.broadPhase = type.create(this);
+			for (int slot = 0, n = this.store.getNbEntities(); slot < n; slot++) {
+				this.broadPhase.add(this.store.getEntityAt(slot));
+			}
+		}
+	}
+
+	/**
+	 * Variables registering the broad phase used to find the entities near a position or a path,
+	 * and its type.
+	 */
+	private BroadPhaseType broadPhaseType = BroadPhaseType.UNIFORM_GRID;
+	private BroadPhase broadPhase = BroadPhaseType.UNIFORM_GRID.create(this);
+
+	/**
+	 * Check whether this world evolves in parallel.
+	 */
+	@Basic
+	public boolean isParallel() {
+		return (this.parallelEvolution != null);
+	}
+
+	/**
+	 * Set whether this world evolves in parallel, on the common fork-join pool.
+	 *
+	 * @param  parallel
+	 * 		   True if free motion and collision prediction of this world must be spread over
+	 * 		   the threads of the common fork-join pool.
+	 * @post   | new.isParallel() == parallel
+	 */
+	public void setParallel(boolean parallel) {
+		if (parallel != isParallel()) {
+			this.parallelEvolution = parallel ? new ParallelEvolution(this, ForkJoinPool.commonPool()) : null;
+		}
+	}
+
+	/**
+	 * Return the helper spreading the evolution of this world over threads, or null if this world
+	 * does not evolve in parallel.
+	 */
+	ParallelEvolution getParallelEvolution() {
+		return this.parallelEvolution;
+	}
+
+	/**
+	 * Variable registering the helper spreading the evolution of this world over threads, or null.
+	 */
+	private ParallelEvolution parallelEvolution = null;
+
+	/**
+	 * Check whether this world evolves deterministically when it evolves in parallel, that is
+	 * exactly as it would on a single thread.
+	 */
+	@Basic
+	public boolean isDeterministic() {
+		return this.isDeterministic;
+	}
+
+	/**
+	 * Set whether this world evolves deterministically when it evolves in parallel.
+	 *
+	 * @param  deterministic
+	 * 		   True if the collisions predicted in parallel must be merged in a fixed order, so that
+	 * 		   the world evolves bit for bit as it does on a single thread.
+	 * @post   | new.isDeterministic() == deterministic
+	 */
+	public void setDeterministic(boolean deterministic) {
+		this.isDeterministic = deterministic;
+	}
+
+	/**
+	 * Variable registering whether this world evolves deterministically when it evolves in parallel.
+	 */
+	private boolean isDeterministic = true;
+
+	/**
+	 * Check whether this world publishes a snapshot of its entities at the end of each evolve.
+	 */
+	@Basic
+	public boolean isPublishingSnapshots() {
+		return this.isPublishingSnapshots;
+	}
+
+	/**
+	 * Set whether this world publishes a snapshot of its entities at the end of each evolve.
+	 *
+	 * @param  publishing
+	 * 		   True if snapshots must be published.
+	 * @post   | new.isPublishingSnapshots() == publishing
+	 * @post   If snapshots are published from now on, a snapshot of the current state is published
+	 * 		   right away. Otherwise no snapshot is available any longer.
+	 * 		   | if (publishing) then new.getSnapshot() != null
+	 * 		   |	else new.getSnapshot() == null
+	 */
+	public void setPublishingSnapshots(boolean publishing) {
+		if (publishing == isPublishingSnapshots()) {
+			return;
+		}
+		this.isPublishingSnapshots = publishing;
+		if (publishing) {
+			publishSnapshot();
+		} else {
+			this.snapshot = null;
+		}
+	}
+
+	/**
+	 * Return the last snapshot this world published, or null if it does not publish snapshots.
+	 *
+	 * The returned snapshot is immutable, and may be read by any thread for as long as it likes,
+	 * also while this world evolves on another thread.
+	 *
+	 * @return | if (! isPublishingSnapshots()) then result == null
+	 */
+	public WorldSnapshot getSnapshot() {
+		return this.snapshot;
+	}
+
+	/**
+	 * Return the path of the file into which this world publishes a shared view of its entities at
+	 * the end of each evolve, or null if it publishes no shared view.
+	 */
+	@Basic
+	public Path getSharedViewPath() {
+		return (this.sharedView == null) ? null : this.sharedView.getPath();
+	}
+
+	/**
+	 * Publish a shared view of the entities of this world into the file at the given path at the end
+	 * of each evolve, so that other processes can follow this world through SharedWorldView.open(Path).
+	 *
+	 * @param  path
+	 * 		   The path of the file to publish into, replacing what it held, or null if this world must
+	 * 		   stop publishing a shared view.
+	 * @post   | new.getSharedViewPath() == path
+	 * @post   If a shared view is published from now on, a frame of the current state is published
+	 * 		   right away.
+	 * @effect If this world published a shared view before, that view is closed, so that its readers
+	 * 		   know that no frames will follow.
+	 * @throws IOException
+	 * 		   The file at the given path cannot be created or mapped. This world then publishes no
+	 * 		   shared view.
+	 */
+	public void setSharedView(Path path) throws IOException {
+		SharedWorldView previous = this.sharedView;
+		this.sharedView = null;
+		if (previous != null) {
+			previous.close();
+		}
+		if (path != null) {
+			this.sharedView = SharedWorldView.create(path);
+			this.sharedView.publish(this.store, this.time, this.width, this.height);
+		}
+	}
+
+	/**
+	 * Variable registering the shared view this world publishes into, or null if it publishes none.
+	 */
+	private SharedWorldView sharedView;
+
+	/**
+	 * Take a new snapshot of the entities of this world and publish it. Snapshots published before
+	 * are left to the readers still holding them.
+	 */
+	private void publishSnapshot() {
+		this.snapshot = new WorldSnapshot(this.store, ++this.snapshotSequence, this.time, this.width, this.height);
+	}
+
+	/**
+	 * Variables registering whether this world publishes snapshots, the snapshot published last,
+	 * and the number of snapshots published so far.
+	 */
+	private boolean isPublishingSnapshots;
+	private volatile WorldSnapshot snapshot;
+	private long snapshotSequence;
+
+	/**
+	 * Return the time that must pass before the first collision in this world takes place.
+	 *
+	 * @return The smallest time to a boundary collision or entity collision of any of the entities
+	 * 		   of this world, or positive infinity if no collision will occur.
+	 * @note   Since entities in a toroidal world may keep circling without ever meeting, a toroidal
+	 * 		   world only looks ahead as long as its fastest entity needs to cross its largest dimension.
+	 */
+	public double getTimeNextCollision() {
+		CollisionEvent event = this.scheduler.peekCollision();
+		if (event == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(0.0, event.getTime() - this.time);
+	}
+
+	/**
+	 * Return the position of the first collision in this world.
+	 *
+	 * @return Null if no collision will occur, otherwise the point where the colliding entities touch
+	 * 		   each other or the boundary.
+	 */
+	public double[] getPositionNextCollision() {
+		return getPositionNextCollision(new double[2]);
+	}
+
+	/**
+	 * Store the position of the first collision in this world in the given array, without allocating a new one.
+	 *
+	 * @param  destination
+	 * 		   The array of at least two elements to store the position in.
+	 * @return Null if no collision will occur, otherwise the given array, holding the position
+	 * 		   returned by getPositionNextCollision().
+	 */
+	public double[] getPositionNextCollision(double[] destination) {
+		CollisionEvent event = this.scheduler.peekCollision();
+		if (event == null) {
+			return null;
+		}
+		Entity first = event.getFirst(), second = event.getSecond();
+		if (event.isBoundaryCollision()) {
+			return first.getBoundaryCollisionPosition(destination);
+		}
+		if (this.isToroidal) {
+			// the images may have met through another image than the one Entity looks ahead for
+			double duration = event.getTime() - this.time;
+			double x = first.getxCoordinate() + first.getxVelocity() * duration;
+			double y = first.getyCoordinate() + first.getyVelocity() * duration;
+			double dx = wrapDifference(second.getxCoordinate() + second.getxVelocity() * duration - x, this.width);
+			double dy = wrapDifference(second.getyCoordinate() + second.getyVelocity() * duration - y, this.height);
+			double ratio = first.getRadius() / (first.getRadius() + second.getRadius());
+			destination[0] = wrapCoordinate(x + dx * ratio, this.width);
+			destination[1] = wrapCoordinate(y + dy * ratio, this.height);
+			return destination;
+		}
+		return first.getCollisionPosition(second, destination);
+	}
+
+	/**
+	 * Return the time that must pass before the first collision of an entity of this world with a boundary takes place.
+	 *
+	 * @return The smallest time to a boundary collision of any of the entities of this world,
+	 * 		   or positive infinity if no entity will hit a boundary.
+	 * 		   | for each entity in getEntities():
+	 * 		   |	result <= entity.getTimeToBoundary()
+	 */
+	public double getTimeNextBoundaryCollision() {
+		CollisionEvent event = this.scheduler.peekBoundaryCollision();
+		if (event == null) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.max(0.0, event.getTime() - this.time);
+	}
+
+	/**
+	 * Return the entity of this world that will be the first to collide with a boundary.
+	 *
+	 * @return Null if no entity will hit a boundary, otherwise an entity of this world whose time to a
+	 * 		   boundary collision is the smallest.
+	 * 		   | if (getTimeNextBoundaryCollision() == Double.POSITIVE_INFINITY)
+	 * 		   |	result == null
+	 * 		   | else hasAsEntity(result)
+	 */
+	public Entity getEntityNextBoundaryCollision() {
+		CollisionEvent event = this.scheduler.peekBoundaryCollision();
+		return (event == null) ? null : event.getFirst();
+	}
+
+	/**
+	 * Return the position of the first collision of an entity of this world with a boundary.
+	 *
+	 * @return Null if no entity will hit a boundary, otherwise the point where the entity returned by
+	 * 		   getEntityNextBoundaryCollision() touches the boundary.
+	 */
+	public double[] getPositionNextBoundaryCollision() {
+		return getPositionNextBoundaryCollision(new double[2]);
+	}
+
+	/**
+	 * Store the position of the first collision of an entity of this world with a boundary in the
+	 * given array, without allocating a new one.
+	 *
+	 * @param  destination
+	 * 		   The array of at least two elements to store the position in.
+	 * @return Null if no entity will hit a boundary, otherwise the given array, holding the position
+	 * 		   returned by getPositionNextBoundaryCollision().
+	 */
+	public double[] getPositionNextBoundaryCollision(double[] destination) {
+		return this.scheduler.getPositionNextBoundaryCollision(destination);
+	}
+
+	/**
+	 * Return the time after which the given entity of this world collides with a boundary, as
+	 * kept in the boundary index of this world.
+	 */
+	double getTimeToBoundary(Entity entity) {
+		return this.scheduler.getTimeToBoundary(entity);
+	}
+
+	/**
+	 * Store the point where the given entity of this world collides with a boundary, as kept in the
+	 * boundary index of this world, in the given array and return that array, or return null if
+	 * the entity will never hit a boundary.
+	 */
+	double[] getBoundaryCollisionPosition(Entity entity, double[] destination) {
+		return this.scheduler.getBoundaryCollisionPosition(entity, destination);
+	}
+
+	/**
+	 * Advance this world by the given duration.
+	 *
+	 * @param  duration
+	 * 		   The duration to advance this world by, in seconds.
+	 * @param  collisionListener
+	 * 		   The listener to notify of every collision, or null.
+	 * @effect Every entity is moved along its velocity until the first collision, that collision
+	 * 		   is resolved and the listener is notified of it. This is repeated until the given
+	 * 		   duration has passed.
+	 * @effect The velocity of every ship with an active thruster is increased by its acceleration
+	 * 		   times the given duration.
+	 * 		   | for each ship in getShips():
+	 * 		   |	ship.thrust(ship.getAcceleration() * duration)
+	 * @post   | new.getTime() == getTime() + duration
+	 * @throws IllegalArgumentException
+	 * 		   | ! (duration >= 0) || isTerminated()
+	 */
+	public void evolve(double duration, CollisionListener collisionListener) throws IllegalArgumentException {
+		evolve(duration, collisionListener, null, false);
+	}
+
+	/**
+	 * Evolve this world for the given duration, and hand all collisions that took place to the given
+	 * listener at once, when the evolve has finished.
+	 *
+	 * @param  duration
+	 * 		   The duration to evolve this world for.
+	 * @param  listener
+	 * 		   The listener to hand the collisions to, or null.
+	 * @effect | evolve(duration, null)
+	 * @effect If the given listener is not null, it is given the batch of this world, holding the
+	 * 		   collisions that took place during this evolve, in the order in which they took place.
+	 * 		   | if (listener != null) then listener.collisions(getCollisionBatch())
+	 */
+	public void evolveBatched(double duration, CollisionBatchListener listener) throws IllegalArgumentException {
+		CollisionBatch batch = this.collisionBatch;
+		batch.clear();
+		evolve(duration, null, batch, false);
+		if (listener != null) {
+			listener.collisions(batch);
+		}
+	}
+
+	/**
+	 * Fast-forward this world over the given duration, which may span minutes, jumping straight from
+	 * one predicted event to the next, and hand all collisions that took place to the given listener
+	 * at once, when the fast-forward has finished.
+	 *
+	 * Entities move in straight lines between events, so an event only has to move the entities it
+	 * involves, and those whose positions its predictions read, up to its time; the other entities
+	 * catch up when they are needed, or all at once at the end. The cost of a fast-forward is thus
+	 * proportional to the number of events over the duration (collisions, and the regular horizon
+	 * events of the broad phase), whereas an evolve moves every entity at every event. The outcome
+	 * is that of evolveBatched(duration, listener), up to rounding: an entity is moved over the time
+	 * between the events it takes part in, rather than over the time between any two events.
+	 *
+	 * @param  duration
+	 * 		   The duration to fast-forward this world over.
+	 * @param  listener
+	 * 		   The listener to hand the collisions to, or null.
+	 * @effect | evolveBatched(duration, listener), up to rounding
+	 * @throws IllegalArgumentException
+	 * 		   | ! (duration >= 0) || isTerminated()
+	 */
+	public void fastForward(double duration, CollisionBatchListener listener) throws IllegalArgumentException {
+		CollisionBatch batch = this.collisionBatch;
+		batch.clear();
+		evolve(duration, null, batch, true);
+		if (listener != null) {
+			listener.collisions(batch);
+		}
+	}
+
+	/**
+	 * Return the batch holding the collisions of the last evolve of this world through evolveBatched.
+	 */
+	@Basic
+	public CollisionBatch getCollisionBatch() {
+		return this.collisionBatch;
+	}
+
+	/**
+	 * Variable registering the batch this world fills with its collisions.
+	 */
+	private final CollisionBatch collisionBatch = new CollisionBatch();
+
+	/**
+	 * Evolve this world for the given duration, notifying the given listener of every collision as it
+	 * takes place and adding it to the given batch, each if not null. If motion is lazy, the entities
+	 * are only moved when they are needed until the duration has passed.
+	 */
+	private void evolve(double duration, CollisionListener collisionListener, CollisionBatch batch, boolean lazy)
+			throws IllegalArgumentException {
+		if (! (duration >= 0) || isTerminated()) {
+			throw new IllegalArgumentException();
+		}
+		double end = this.time + duration;
+		if (lazy) {
+			this.store.beginLazyMotion(this.time);
+		}
+		try {
+			this.broadPhase.update();
+			CollisionEvent event = this.scheduler.peek();
+			while (event != null && event.getTime() <= end) {
+				this.scheduler.poll();
+				advance(event.getTime());
+				if (event.isHorizon()) {
+					this.scheduler.renew(event.getFirst());
+				} else if (event.isBoundaryCollision()) {
+					resolveBoundaryCollision(event.getFirst(), collisionListener, batch);
+				} else {
+					resolveCollision(event.getFirst(), event.getSecond(), collisionListener, batch);
+				}
+				event = this.scheduler.peek();
+			}
+			advance(end);
+		} finally {
+			if (lazy) {
+				this.store.endLazyMotion();
+			}
+		}
+		applyThrusters(duration);
+		if (this.isPublishingSnapshots) {
+			publishSnapshot();
+		}
+		if (this.sharedView != null) {
+			this.sharedView.publish(this.store, this.time, this.width, this.height);
+		}
+	}
+
+	/**
+	 * Move every entity of this world along its velocity until the given world time, or only let the
+	 * time of the store of this world catch up if motion is lazy.
+	 *
+	 * @post   | new.getTime() == Math.max(getTime(), time)
+	 */
+	private void advance(double time) {
+		if (time > this.time) {
+			if (this.store.isLazy()) {
+				this.store.setLazyTime(time);
+			} else if (this.parallelEvolution != null) {
+				this.parallelEvolution.move(time - this.time);
+			} else {
+				this.store.moveAll(time - this.time);
+			}
+			this.time = time;
+		}
+	}
+
+	/**
+	 * Increase the velocity of every ship with an active thruster by its acceleration times the given duration.
+	 */
+	private void applyThrusters(double duration) {
+		EntityStore store = this.store;
+		for (int i = 0, n = store.getNbEntities(); i < n; i++) {
+			if (store.hasFlag(i, EntityStore.THRUSTER_ACTIVE)) {
+				Ship ship = (Ship) store.getEntityAt(i);
+				ship.thrust(ship.getAcceleration() * duration);
+			}
+		}
+	}
+
+	/**
+	 * Variable registering the array reused for the contact points reported to collision listeners.
+	 */
+	private final double[] contactPoint = new double[2];
+
+	/**
+	 * Resolve the collision of the given entity with a boundary of this world.
+	 *
+	 * @effect The listener, if any, is notified of the collision, and the collision is added to the batch, if any.
+	 * @effect A bullet that already bounced the maximal number of times is terminated.
+	 * @effect Otherwise the velocity component perpendicular to the boundary that is hit is inverted.
+	 */
+	private void resolveBoundaryCollision(Entity entity, CollisionListener collisionListener, CollisionBatch batch) {
+		if (collisionListener != null || batch != null) {
+			double[] position = getBoundaryContactPoint(entity.getxCoordinate(), entity.getyCoordinate(),
+					entity.getRadius(), this.width, this.height, this.contactPoint);
+			if (collisionListener != null) {
+				collisionListener.boundaryCollision(entity, position[0], position[1]);
+			}
+			if (batch != null) {
+				batch.addBoundaryCollision(entity, position[0], position[1], this.time);
+			}
+		}
+		if (entity instanceof Bullet && ! ((Bullet) entity).bounce()) {
+			entity.terminate();
+			return;
+		}
+		double x = entity.getxCoordinate(), y = entity.getyCoordinate(), r = entity.getRadius();
+		double vx = entity.getxVelocity(), vy = entity.getyVelocity();
+		double horizontal = Math.min(x - r, this.width - x - r);
+		double vertical = Math.min(y - r, this.height - y - r);
+		if (horizontal <= vertical) {
+			vx = -vx;
+		}
+		if (vertical <= horizontal) {
+			vy = -vy;
+		}
+		entity.setVelocity(vx, vy);
+	}
+
+	/**
+	 * Resolve the collision between the given entities.
+	 *
+	 * @effect The listener, if any, is notified of the collision, and the collision is added to the batch, if any.
+	 * @effect Two colliding ships bounce off each other.
+	 * @effect A bullet colliding with the ship that fired it is loaded on that ship again.
+	 * @effect In all other cases both entities are terminated.
+	 */
+	private void resolveCollision(Entity first, Entity second, CollisionListener collisionListener,
+			CollisionBatch batch) {
+		double dx = second.getxCoordinate() - first.getxCoordinate();
+		double dy = second.getyCoordinate() - first.getyCoordinate();
+		if (this.isToroidal) {
+			dx = wrapDifference(dx, this.width);
+			dy = wrapDifference(dy, this.height);
+		}
+		if (collisionListener != null || batch != null) {
+			double r1 = first.getRadius(), r2 = second.getRadius();
+			double x = first.getxCoordinate() + dx * r1 / (r1 + r2);
+			double y = first.getyCoordinate() + dy * r1 / (r1 + r2);
+			if (this.isToroidal) {
+				x = wrapCoordinate(x, this.width);
+				y = wrapCoordinate(y, this.height);
+			}
+			if (collisionListener != null) {
+				collisionListener.objectCollision(first, second, x, y);
+			}
+			if (batch != null) {
+				batch.addObjectCollision(first, second, x, y, this.time);
+			}
+		}
+		if (first instanceof Ship && second instanceof Ship) {
+			bounce((Ship) first, (Ship) second, dx, dy);
+		} else if (first instanceof Bullet && ((Bullet) first).getSource() == second) {
+			removeEntity(first);
+			((Ship) second).loadBullet((Bullet) first);
+		} else if (second instanceof Bullet && ((Bullet) second).getSource() == first) {
+			removeEntity(second);
+			((Ship) first).loadBullet((Bullet) second);
+		} else {
+			first.terminate();
+			second.terminate();
+		}
+	}
+
+	/**
+	 * Let the given touching ships bounce off each other elastically, where the centre of the second
+	 * ship lies at the given displacement from the centre of the first one.
+	 */
+	private static void bounce(Ship first, Ship second, double dx, double dy) {
+		double m1 = first.getTotalMass(), m2 = second.getTotalMass();
+		double dvx = second.getxVelocity() - first.getxVelocity();
+		double dvy = second.getyVelocity() - first.getyVelocity();
+		double sigma = first.getRadius() + second.getRadius();
+		double impulse = 2 * m1 * m2 * (dvx*dx + dvy*dy) / (sigma * (m1 + m2));
+		double jx = impulse * dx / sigma, jy = impulse * dy / sigma;
+		first.setVelocity(first.getxVelocity() + jx / m1, first.getyVelocity() + jy / m1);
+		second.setVelocity(second.getxVelocity() - jx / m2, second.getyVelocity() - jy / m2);
+	}
+}
@@ -0,0 +1,494 @@
+package asteroids.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A class collecting the methods to save a world, with its ships, its bullets and the bullets loaded
+ * on its ships, in a compact binary form, and to load it again.
+ *
+ * The saved form is a header followed by columns of primitive values, one column per field, in little
+ * endian byte order:
+ *
+ *   header   int magic, int VERSION, double width, double height, double time,
+ *            int broad phase type, int options, int number of entities n, int number of loaded bullets m
+ *   n        double x, y, vx, vy, radius, mass, orientation; int type and thruster flags;
+ *            int source slot of bullets (-1 if none), int number of bounces of bullets
+ *   m        int slot of the carrying ship; double x, y, vx, vy, radius; int source slot; int bounces
+ *
+ * Entities are saved in the order of the slots of the store of their world, so that the loaded world
+ * resolves simultaneous collisions in the same order as the saved one. Collisions predicted before saving
+ * are not saved but predicted again, which may round differently. Bullets loaded on a ship are saved in the order in which that
+ * ship fires them. Entities refer to one another by their slot in the saved world. Identifiers are not
+ * saved: the entities of a loaded world are new entities.
+ *
+ * Columns go through a single direct buffer of BLOCK_SIZE bytes, so that saving and loading a world
+ * copies arrays in large blocks. On loading, the columns of the entities of the world are read straight
+ * into the store of the new world; only the handles of the entities are created one by one.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public final class WorldFile {
+
+	/**
+	 * The first four bytes of a saved world.
+	 */
+	public static final int MAGIC = 0x41535457;
+
+	/**
+	 * The version of the saved form written by this class.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The number of bytes moved to or from a channel at once.
+	 */
+	public static final int BLOCK_SIZE = 1 << 20;
+
+	private static final int PARALLEL = 1;
+	private static final int DETERMINISTIC = 2;
+	private static final int PUBLISHING_SNAPSHOTS = 4;
+	private static final int TOROIDAL = 8;
+
+	private static final int ENTITY_BYTES = 7 * Double.BYTES + 3 * Integer.BYTES;
+	private static final int LOADED_BULLET_BYTES = 5 * Double.BYTES + 3 * Integer.BYTES;
+
+	private static final int SAVED_FLAGS = EntityStore.SHIP | EntityStore.BULLET | EntityStore.THRUSTER_ACTIVE;
+
+	private WorldFile() {
+	}
+
+	/**
+	 * Save the given world to the file at the given path, replacing what that file held.
+	 *
+	 * @effect | write(world, FileChannel.open(path, ...))
+	 */
+	public static void save(World world, Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(world, channel);
+		}
+	}
+
+	/**
+	 * Return the world saved in the file at the given path.
+	 *
+	 * @effect | read(FileChannel.open(path, ...))
+	 */
+	public static World load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+	/**
+	 * Write the given world to the given channel.
+	 *
+	 * @param  world
+	 * 		   The world to write.
+	 * @param  channel
+	 * 		   The channel to write the world to.
+	 * @throws IllegalArgumentException
+	 * 		   | world == null || world.isTerminated()
+	 * @throws IOException
+	 * 		   The world could not be written to the channel.
+	 */
+	public static void write(World world, WritableByteChannel channel) throws IOException {
+		if (world == null || world.isTerminated()) {
+			throw new IllegalArgumentException();
+		}
+		Blocks out = new Blocks(channel);
+		out.putInt(MAGIC);
+		out.putInt(VERSION);
+		out.putDouble(world.getWidth());
+		out.putDouble(world.getHeight());
+		out.putDouble(world.getTime());
+		out.putInt(world.getBroadPhaseType().ordinal());
+		out.putInt((world.isParallel() ? PARALLEL : 0) | (world.isDeterministic() ? DETERMINISTIC : 0)
+				| (world.isPublishingSnapshots() ? PUBLISHING_SNAPSHOTS : 0) | (world.isToroidal() ? TOROIDAL : 0));
+		writeEntities(world, null, world.getStore().getNbEntities(), out);
+		out.flush();
+	}
+
+	/**
+	 * Write the entities of the given world in the given slots, with the bullets loaded on them, to the
+	 * given blocks, in the form of the entities of a saved world.
+	 *
+	 * @param  slots
+	 * 		   The slots of the entities to write, in increasing order, or null to write the entities in
+	 * 		   the first n slots.
+	 * @param  n
+	 * 		   The number of entities to write.
+	 * @note   A bullet refers to its source by its index among the written entities. A bullet whose
+	 * 		   source is not written is written as a bullet without a source.
+	 */
+	static void writeEntities(World world, int[] slots, int n, Blocks out) throws IOException {
+		EntityStore store = world.getStore();
+		store.syncAll();
+		int[] indices = null;
+		double[] x = store.x, y = store.y, vx = store.vx, vy = store.vy;
+		double[] radius = store.radius, mass = store.mass, orientation = store.orientation;
+		if (slots != null) {
+			indices = new int[store.getNbEntities()];
+			Arrays.fill(indices, -1);
+			x = new double[n]; y = new double[n]; vx = new double[n]; vy = new double[n];
+			radius = new double[n]; mass = new double[n]; orientation = new double[n];
+			for (int i = 0; i < n; i++) {
+				int slot = slots[i];
+				indices[slot] = i;
+				x[i] = store.x[slot]; y[i] = store.y[slot]; vx[i] = store.vx[slot]; vy[i] = store.vy[slot];
+				radius[i] = store.radius[slot]; mass[i] = store.mass[slot]; orientation[i] = store.orientation[slot];
+			}
+		}
+		int[] flags = new int[n];
+		int[] sources = new int[n];
+		int[] bounces = new int[n];
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			int slot = (slots == null) ? i : slots[i];
+			Entity entity = store.getEntityAt(slot);
+			flags[i] = store.flags[slot] & SAVED_FLAGS;
+			if (entity instanceof Bullet) {
+				sources[i] = getSourceIndex((Bullet) entity, world, indices);
+				bounces[i] = ((Bullet) entity).getNbBounces();
+			} else {
+				sources[i] = -1;
+				m += ((Ship) entity).getNbBullets();
+			}
+		}
+		int[] carriers = new int[m];
+		double[] loaded = new double[5 * m];
+		int[] loadedSources = new int[m];
+		int[] loadedBounces = new int[m];
+		int k = 0;
+		for (int i = 0; i < n; i++) {
+			Entity entity = store.getEntityAt((slots == null) ? i : slots[i]);
+			if (entity instanceof Ship && ((Ship) entity).getNbBullets() > 0) {
+				for (Bullet bullet : ((Ship) entity).getBullets()) {
+					carriers[k] = i;
+					loaded[k] = bullet.getxCoordinate();
+					loaded[m + k] = bullet.getyCoordinate();
+					loaded[2*m + k] = bullet.getxVelocity();
+					loaded[3*m + k] = bullet.getyVelocity();
+					loaded[4*m + k] = bullet.getRadius();
+					loadedSources[k] = getSourceIndex(bullet, world, indices);
+					loadedBounces[k] = bullet.getNbBounces();
+					k++;
+				}
+			}
+		}
+
+		out.putInt(n);
+		out.putInt(m);
+		out.putDoubles(x, 0, n);
+		out.putDoubles(y, 0, n);
+		out.putDoubles(vx, 0, n);
+		out.putDoubles(vy, 0, n);
+		out.putDoubles(radius, 0, n);
+		out.putDoubles(mass, 0, n);
+		out.putDoubles(orientation, 0, n);
+		out.putInts(flags, 0, n);
+		out.putInts(sources, 0, n);
+		out.putInts(bounces, 0, n);
+		out.putInts(carriers, 0, m);
+		out.putDoubles(loaded, 0, 5 * m);
+		out.putInts(loadedSources, 0, m);
+		out.putInts(loadedBounces, 0, m);
+	}
+
+	/**
+	 * Return the index among the written entities of the ship that fired the given bullet in the given
+	 * world, or -1 if the bullet was not fired or its source is not written.
+	 *
+	 * @param  indices
+	 * 		   The index of the entity in each slot of the store of the world among the written entities,
+	 * 		   or -1 if it is not written, or null if the entities are written in the order of their slots.
+	 */
+	private static int getSourceIndex(Bullet bullet, World world, int[] indices) {
+		Ship source = bullet.getSource();
+		if (source == null || source.getWorld() != world) {
+			return -1;
+		}
+		return (indices == null) ? source.getSlot() : indices[source.getSlot()];
+	}
+
+	/**
+	 * Return a new world holding what was written to the given channel by write.
+	 *
+	 * @param  channel
+	 * 		   The channel to read the world from.
+	 * @return A world with the width, height, toroidality, time, broad phase type and options of the written world,
+	 * 		   holding ships and bullets with the state of the written ones, in the same order, and
+	 * 		   ships carrying bullets with the state of the bullets the written ships carried.
+	 * @throws IOException
+	 * 		   The channel does not hold a world written by this version, or it could not be read.
+	 * @note   The state of every entity is checked against the invariants of its class, but entities
+	 * 		   are not checked for overlap: a world that was written by write has none.
+	 */
+	public static World read(ReadableByteChannel channel) throws IOException {
+		Blocks in = new Blocks(channel);
+		if (in.getInt() != MAGIC) {
+			throw new IOException("not a saved world");
+		}
+		int version = in.getInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported version of saved world: " + version);
+		}
+		double width = in.getDouble(), height = in.getDouble(), time = in.getDouble();
+		int broadPhaseType = in.getInt(), options = in.getInt();
+		BroadPhaseType[] types = BroadPhaseType.values();
+		if (! World.isValidDimension(width) || ! World.isValidDimension(height) || broadPhaseType < 0
+				|| broadPhaseType >= types.length) {
+			throw corrupt("header");
+		}
+		World world = new World(width, height, (options & TOROIDAL) != 0);
+		world.setBroadPhaseType(types[broadPhaseType]);
+		world.setTime(time);
+		readEntities(in, world);
+		world.setDeterministic((options & DETERMINISTIC) != 0);
+		world.setParallel((options & PARALLEL) != 0);
+		world.setPublishingSnapshots((options & PUBLISHING_SNAPSHOTS) != 0);
+		return world;
+	}
+
+	/**
+	 * Read entities written by writeEntities from the given blocks, and add them to the end of the
+	 * store of the given world.
+	 *
+	 * @return The first slot of the store of the world holding the entities read.
+	 * @throws IOException
+	 * 		   The blocks do not hold valid entities for the world, or they could not be read.
+	 * @note   The entities are not checked for overlap with one another or with the entities of the world.
+	 */
+	static int readEntities(Blocks in, World world) throws IOException {
+		int n = in.getInt(), m = in.getInt();
+		if (n < 0 || m < 0) {
+			throw corrupt("number of entities");
+		}
+		long available = in.available();
+		if (available >= 0 && available < (long) n * ENTITY_BYTES + (long) m * LOADED_BULLET_BYTES) {
+			throw new EOFException("saved world ends too soon");
+		}
+
+		EntityStore store = world.getStore();
+		int first = store.reserve(n);
+		in.getDoubles(store.x, first, n);
+		in.getDoubles(store.y, first, n);
+		in.getDoubles(store.vx, first, n);
+		in.getDoubles(store.vy, first, n);
+		in.getDoubles(store.radius, first, n);
+		in.getDoubles(store.mass, first, n);
+		in.getDoubles(store.orientation, first, n);
+		in.getInts(store.flags, first, n);
+		int[] sources = new int[n], bounces = new int[n];
+		in.getInts(sources, 0, n);
+		in.getInts(bounces, 0, n);
+		for (int i = 0; i < n; i++) {
+			int slot = first + i;
+			int type = store.flags[slot] & (EntityStore.SHIP | EntityStore.BULLET);
+			if ((store.flags[slot] & ~SAVED_FLAGS) != 0 || (type != EntityStore.SHIP && type != EntityStore.BULLET)) {
+				throw corrupt("type of entity " + i);
+			}
+			Entity entity = (type == EntityStore.SHIP) ? new Ship(store, slot) : new Bullet(store, slot);
+			if (! entity.isValidRadius(store.radius[slot])
+					|| ! Entity.isValidPosition(store.x[slot], store.y[slot]) || ! entity.liesWithin(world)
+					|| ! Entity.isValidVelocity(store.vx[slot], store.vy[slot])
+					|| (entity instanceof Ship && ! Ship.isValidMass(store.mass[slot], store.radius[slot]))) {
+				throw corrupt("state of entity " + i);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			Entity entity = store.getEntityAt(first + i);
+			if (entity instanceof Bullet) {
+				restoreSource((Bullet) entity, store, first, n, sources[i], bounces[i]);
+			}
+		}
+
+		int[] carriers = new int[m];
+		double[] loaded = new double[5 * m];
+		int[] loadedSources = new int[m], loadedBounces = new int[m];
+		in.getInts(carriers, 0, m);
+		in.getDoubles(loaded, 0, 5 * m);
+		in.getInts(loadedSources, 0, m);
+		in.getInts(loadedBounces, 0, m);
+		for (int k = 0; k < m; k++) {
+			int carrier = carriers[k];
+			if (carrier < 0 || carrier >= n || ! (store.getEntityAt(first + carrier) instanceof Ship)) {
+				throw corrupt("carrier of loaded bullet " + k);
+			}
+			Ship ship = (Ship) store.getEntityAt(first + carrier);
+			try {
+				Bullet bullet = new Bullet(loaded[k], loaded[m + k], loaded[2*m + k], loaded[3*m + k], loaded[4*m + k]);
+				ship.loadBullet(bullet);
+				bullet.setPosition(loaded[k], loaded[m + k]);
+				restoreSource(bullet, store, first, n, loadedSources[k], loadedBounces[k]);
+			} catch (IllegalArgumentException exc) {
+				throw corrupt("state of loaded bullet " + k);
+			}
+		}
+
+		world.adoptSlots(first);
+		return first;
+	}
+
+	/**
+	 * Give the given bullet the ship in the given saved slot as its source, with the given number of bounces.
+	 */
+	private static void restoreSource(Bullet bullet, EntityStore store, int first, int n, int source, int nbBounces)
+			throws IOException {
+		if (source < -1 || source >= n || nbBounces < 0 || nbBounces > Bullet.MAXIMAL_BOUNCES
+				|| (source >= 0 && ! (store.getEntityAt(first + source) instanceof Ship))) {
+			throw corrupt("source of bullet");
+		}
+		bullet.restoreSource((source < 0) ? null : (Ship) store.getEntityAt(first + source), nbBounces);
+	}
+
+	private static IOException corrupt(String what) {
+		return new IOException("corrupt saved world: invalid " + what);
+	}
+
+	/**
+	 * A class of block buffers moving primitive values to or from a channel a block at a time.
+	 */
+	static class Blocks {
+
+		Blocks(WritableByteChannel channel) {
+			this.out = channel;
+			this.in = null;
+		}
+
+		Blocks(ReadableByteChannel channel) {
+			this.out = null;
+			this.in = channel;
+			this.buffer.limit(0);
+		}
+
+		private final WritableByteChannel out;
+		private final ReadableByteChannel in;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		void putInt(int value) throws IOException {
+			if (this.buffer.remaining() < Integer.BYTES) {
+				flush();
+			}
+			this.buffer.putInt(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			if (this.buffer.remaining() < Double.BYTES) {
+				flush();
+			}
+			this.buffer.putDouble(value);
+		}
+
+		void putDoubles(double[] values, int from, int count) throws IOException {
+			while (count > 0) {
+				if (this.buffer.remaining() < Double.BYTES) {
+					flush();
+				}
+				int length = Math.min(count, this.buffer.remaining() / Double.BYTES);
+				this.buffer.asDoubleBuffer().put(values, from, length);
+				this.buffer.position(this.buffer.position() + length * Double.BYTES);
+				from += length;
+				count -= length;
+			}
+		}
+
+		void putInts(int[] values, int from, int count) throws IOException {
+			while (count > 0) {
+				if (this.buffer.remaining() < Integer.BYTES) {
+					flush();
+				}
+				int length = Math.min(count, this.buffer.remaining() / Integer.BYTES);
+				this.buffer.asIntBuffer().put(values, from, length);
+				this.buffer.position(this.buffer.position() + length * Integer.BYTES);
+				from += length;
+				count -= length;
+			}
+		}
+
+		/**
+		 * Write all values put so far to the channel.
+		 */
+		void flush() throws IOException {
+			this.buffer.flip();
+			while (this.buffer.hasRemaining()) {
+				this.out.write(this.buffer);
+			}
+			this.buffer.clear();
+		}
+
+		int getInt() throws IOException {
+			fill(Integer.BYTES);
+			return this.buffer.getInt();
+		}
+
+		double getDouble() throws IOException {
+			fill(Double.BYTES);
+			return this.buffer.getDouble();
+		}
+
+		void getDoubles(double[] values, int from, int count) throws IOException {
+			while (count > 0) {
+				fill(Double.BYTES);
+				int length = Math.min(count, this.buffer.remaining() / Double.BYTES);
+				this.buffer.asDoubleBuffer().get(values, from, length);
+				this.buffer.position(this.buffer.position() + length * Double.BYTES);
+				from += length;
+				count -= length;
+			}
+		}
+
+		void getInts(int[] values, int from, int count) throws IOException {
+			while (count > 0) {
+				fill(Integer.BYTES);
+				int length = Math.min(count, this.buffer.remaining() / Integer.BYTES);
+				this.buffer.asIntBuffer().get(values, from, length);
+				this.buffer.position(this.buffer.position() + length * Integer.BYTES);
+				from += length;
+				count -= length;
+			}
+		}
+
+		/**
+		 * Return the number of bytes left to read, or -1 if the channel cannot tell.
+		 */
+		long available() throws IOException {
+			if (! (this.in instanceof SeekableByteChannel)) {
+				return -1;
+			}
+			SeekableByteChannel channel = (SeekableByteChannel) this.in;
+			return this.buffer.remaining() + channel.size() - channel.position();
+		}
+
+		/**
+		 * Make sure at least the given number of bytes can be read from the buffer, reading the next
+		 * block from the channel if needed.
+		 *
+		 * @throws EOFException
+		 * 		   The channel ends before that many bytes could be read.
+		 */
+		private void fill(int bytes) throws IOException {
+			if (this.buffer.remaining() >= bytes) {
+				return;
+			}
+			this.buffer.compact();
+			while (this.buffer.position() < bytes) {
+				if (this.in.read(this.buffer) < 0) {
+					throw new EOFException("saved world ends too soon");
+				}
+			}
+			this.buffer.flip();
+		}
+	}
+}
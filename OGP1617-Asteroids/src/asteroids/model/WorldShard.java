@@ -0,0 +1,621 @@
+package asteroids.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of shards of a bounded world, each evolving the entities in one vertical strip of that
+ * world, in a process of its own, and exchanging the entities near the edges of its strip with the
+ * shards of the neighbouring strips over socket channels.
+ *
+ * A world split over n shards is cut into n vertical strips of equal width. A shard owns the entities
+ * whose centre lies in its strip, and keeps them in a local world with the width and the height of
+ * the whole world. The shards evolve in lockstep, in steps of equal length. At the start of each step,
+ * every shard sends a copy of the entities it owns within a ghost margin of a common edge to the
+ * neighbouring shard, which adds them to its local world as ghosts. The margin is twice the distance
+ * that an entity of either shard can cover towards an entity of the other one during the step, so
+ * that a ghost that is hit by an entity of its own shard before it reaches the strip of the neighbour
+ * is mirrored along with that entity. Each shard then evolves its local world over the step, drops
+ * its ghosts, and hands the entities it owns that left its strip to the neighbouring shard.
+ *
+ * A collision between an entity and a ghost is resolved by both shards involved; each keeps the
+ * outcome for its own entity, and only the shard whose strip holds the point of contact notifies its
+ * listener of it. The shards send each other the collisions across their common edge they notified,
+ * so that each can check them against the ones it resolved itself. They only disagree if a chain of
+ * collisions during one step reaches further than the ghost margin, which is counted as a divergence.
+ *
+ * Messages are compact binary blocks in little endian byte order, in the form of the entities of a
+ * saved world (see WorldFile). Every common edge is served by one blocking channel; the edges between
+ * a shard with an even index and the next shard exchange their messages first, the other edges next,
+ * and on each edge the shard with the lower index writes first, so that two shards never both wait
+ * for the other to read.
+ *
+ *   statistics  double largest radius, double largest speed over the step
+ *   ghosts      the owned entities within the ghost margin of the common edge
+ *   migrants    int number of collisions c; c times double time, x, y;
+ *               the owned entities that crossed the common edge
+ *
+ * A bullet keeps its source only if that ship travels along in the same message; bullets whose ship
+ * stays behind become bullets without a source.
+ *
+ * @invar  | getIndex() >= 0 && getIndex() < getNbShards()
+ * @invar  Each entity of the local world of a shard lies in its strip between steps.
+ *       | for each entity in getWorld().getEntities():
+ *       |   owns(entity.getxCoordinate())
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class WorldShard {
+
+	/**
+	 * Initialize this new shard with the given index among the given number of shards of the given
+	 * world, evolving in steps no longer than the given step.
+	 *
+	 * @param  world
+	 * 		   The world to split.
+	 * @param  index
+	 * 		   The index of the strip of the new shard, counting from the left.
+	 * @param  nbShards
+	 * 		   The number of shards the world is split over.
+	 * @param  step
+	 * 		   The longest time the new shard evolves without exchanging entities with its neighbours.
+	 * @post   | new.getIndex() == index && new.getNbShards() == nbShards && new.getStep() == step
+	 * @post   The local world of the new shard has the width, height, time and broad phase type of the
+	 * 		   given world, and holds a copy of each of its entities whose centre lies in the strip of the
+	 * 		   new shard. The given world is left unchanged.
+	 * @throws IllegalArgumentException
+	 * 		   | world == null || world.isTerminated() || world.isToroidal() || nbShards < 1
+	 * 		   |	|| index < 0 || index >= nbShards || ! (step > 0) || step == Double.POSITIVE_INFINITY
+	 */
+	public WorldShard(World world, int index, int nbShards, double step) throws IllegalArgumentException {
+		if (world == null || world.isTerminated() || world.isToroidal() || nbShards < 1 || index < 0
+				|| index >= nbShards || ! (step > 0) || step == Double.POSITIVE_INFINITY) {
+			throw new IllegalArgumentException();
+		}
+		this.index = index;
+		this.nbShards = nbShards;
+		this.step = step;
+		this.minX = world.getWidth() * index / nbShards;
+		this.maxX = (index == nbShards - 1) ? world.getWidth() : world.getWidth() * (index + 1) / nbShards;
+		this.world = new World(world.getWidth(), world.getHeight());
+		this.world.setBroadPhaseType(world.getBroadPhaseType());
+		this.world.setTime(world.getTime());
+		this.world.setDeterministic(world.isDeterministic());
+		EntityStore store = world.getStore();
+		store.syncAll();
+		int[] slots = new int[store.getNbEntities()];
+		int count = 0;
+		for (int slot = 0; slot < store.getNbEntities(); slot++) {
+			if (owns(store.x[slot])) {
+				slots[count++] = slot;
+			}
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			WorldFile.Blocks out = new WorldFile.Blocks(Channels.newChannel(bytes));
+			WorldFile.writeEntities(world, slots, count, out);
+			out.flush();
+			WorldFile.readEntities(new WorldFile.Blocks(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()))),
+					this.world);
+		} catch (IOException exc) {
+			throw new UncheckedIOException(exc);
+		}
+		this.isConnected = (nbShards == 1);
+	}
+
+	/**
+	 * Return the index of the strip of this shard, counting from the left.
+	 */
+	@Basic @Immutable
+	public int getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Return the number of shards the world of this shard is split over.
+	 */
+	@Basic @Immutable
+	public int getNbShards() {
+		return this.nbShards;
+	}
+
+	/**
+	 * Return the longest time this shard evolves without exchanging entities with its neighbours.
+	 */
+	@Basic @Immutable
+	public double getStep() {
+		return this.step;
+	}
+
+	/**
+	 * Return the x coordinate of the left edge of the strip of this shard.
+	 */
+	@Basic @Immutable
+	public double getMinX() {
+		return this.minX;
+	}
+
+	/**
+	 * Return the x coordinate of the right edge of the strip of this shard.
+	 */
+	@Basic @Immutable
+	public double getMaxX() {
+		return this.maxX;
+	}
+
+	/**
+	 * Check whether this shard owns the entities with their centre at the given x coordinate.
+	 *
+	 * @return The leftmost shard also owns everything to the left of its strip, and the rightmost
+	 * 		   shard everything to the right of it.
+	 * 		   | result == ((getIndex() == 0 || x >= getMinX()) && (getIndex() == getNbShards() - 1 || x < getMaxX()))
+	 */
+	public boolean owns(double x) {
+		return (this.index == 0 || x >= this.minX) && (this.index == this.nbShards - 1 || x < this.maxX);
+	}
+
+	/**
+	 * Return the local world of this shard, holding the entities this shard owns between steps.
+	 */
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	/**
+	 * Variables registering the index of the strip of this shard, the number of shards, the step,
+	 * the edges of the strip and the local world of this shard.
+	 */
+	private final int index;
+	private final int nbShards;
+	private final double step;
+	private final double minX;
+	private final double maxX;
+	private final World world;
+
+	/**
+	 * Return the number of collisions across the edges of the strip of this shard that this shard and
+	 * one of its neighbours did not both resolve.
+	 */
+	@Basic
+	public long getNbDivergences() {
+		return this.nbDivergences;
+	}
+
+	/**
+	 * Variable registering the number of collisions across the edges of the strip of this shard that
+	 * this shard and one of its neighbours did not both resolve.
+	 */
+	private long nbDivergences = 0;
+
+	/**
+	 * Check whether this shard is connected to its neighbours.
+	 */
+	@Basic
+	public boolean isConnected() {
+		return this.isConnected;
+	}
+
+	/**
+	 * Connect this shard to the shards of the neighbouring strips through the given channels.
+	 *
+	 * @param  left
+	 * 		   The channel to the shard of the strip to the left, or null if this is the leftmost shard.
+	 * @param  right
+	 * 		   The channel to the shard of the strip to the right, or null if this is the rightmost shard.
+	 * @post   | new.isConnected()
+	 * @throws IllegalArgumentException
+	 * 		   This shard is connected to a neighbour already, a channel is missing or given for a
+	 * 		   neighbour that does not exist, or a channel is not blocking.
+	 * 		   | (isConnected() && getNbShards() > 1) || (left == null) != (getIndex() == 0)
+	 * 		   |	|| (right == null) != (getIndex() == getNbShards() - 1)
+	 * 		   |	|| (left != null && ! left.isBlocking()) || (right != null && ! right.isBlocking())
+	 * @throws IOException
+	 * 		   The options of a channel could not be set.
+	 */
+	public void connect(SocketChannel left, SocketChannel right) throws IllegalArgumentException, IOException {
+		if (this.left != null || this.right != null || (left == null) != (this.index == 0) || (right == null) != (this.index == this.nbShards - 1)
+				|| (left != null && ! left.isBlocking()) || (right != null && ! right.isBlocking())) {
+			throw new IllegalArgumentException();
+		}
+		if (left != null) {
+			this.left = new Link(left, this.index - 1);
+		}
+		if (right != null) {
+			this.right = new Link(right, this.index);
+		}
+		this.isConnected = true;
+	}
+
+	/**
+	 * Close the channels of this shard.
+	 */
+	public void close() throws IOException {
+		for (Link link : new Link[] { this.left, this.right }) {
+			if (link != null) {
+				link.channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Variable registering whether this shard is connected to its neighbours.
+	 */
+	private boolean isConnected;
+
+	/**
+	 * Variables registering the links to the shards of the strips to the left and to the right,
+	 * or null if there is no such strip.
+	 */
+	private Link left;
+	private Link right;
+
+	/**
+	 * Evolve the entities of this shard for the given duration, in lockstep with the other shards,
+	 * notifying the given listener of every collision this shard is in charge of.
+	 *
+	 * @param  duration
+	 * 		   The duration to evolve for, which must be the same for all shards.
+	 * @param  collisionListener
+	 * 		   The listener to notify, or null.
+	 * @effect The duration is split into the smallest number of steps of equal length that are no longer
+	 * 		   than the step of this shard, and each of them is taken in turn.
+	 * @effect The listener is notified of the collisions of the entities of this shard with one another
+	 * 		   and with the boundaries, and of the collisions with ghosts whose point of contact lies in
+	 * 		   the strip of this shard.
+	 * @post   | new.getWorld().getTime() == getWorld().getTime() + duration, up to rounding
+	 * @throws IllegalArgumentException
+	 * 		   | ! (duration >= 0) || ! isConnected()
+	 * @throws IOException
+	 * 		   The entities could not be exchanged with a neighbour.
+	 */
+	public void evolve(double duration, CollisionListener collisionListener) throws IllegalArgumentException, IOException {
+		if (! (duration >= 0) || ! this.isConnected) {
+			throw new IllegalArgumentException();
+		}
+		int nbSteps = (int) Math.ceil(duration / this.step);
+		for (int k = 0; k < nbSteps; k++) {
+			step(duration / nbSteps, collisionListener);
+		}
+	}
+
+	/**
+	 * Take a step of the given duration: exchange ghosts with the neighbours, evolve the local world,
+	 * and exchange the entities that left the strip of this shard.
+	 */
+	private void step(double duration, CollisionListener collisionListener) throws IOException {
+		EntityStore store = this.world.getStore();
+		this.nbOwned = store.getNbEntities();
+		this.duration = duration;
+		exchange(STATISTICS);
+		exchange(GHOSTS);
+		this.world.evolve(duration, new Filter(collisionListener));
+		for (int slot = store.getNbEntities() - 1; slot >= 0; slot--) {
+			// removing an entity moves the last one into its slot, which was visited already
+			if (store.hasFlag(slot, EntityStore.GHOST)) {
+				this.world.removeEntity(store.getEntityAt(slot));
+			}
+		}
+		store.syncAll();
+		exchange(MIGRANTS);
+	}
+
+	/**
+	 * Variables registering the number of entities this shard owned at the start of the current step,
+	 * which occupy the first slots of the store of its local world until it evolves, and the duration
+	 * of the step.
+	 */
+	private int nbOwned;
+	private double duration;
+
+	/**
+	 * Constants registering the kinds of messages the shards exchange.
+	 */
+	private static final int STATISTICS = 0;
+	private static final int GHOSTS = 1;
+	private static final int MIGRANTS = 2;
+
+	/**
+	 * Exchange a message of the given kind with each neighbour, first across the edges to the right of
+	 * the strips with an even index, then across the other edges.
+	 */
+	private void exchange(int kind) throws IOException {
+		for (int phase = 0; phase < 2; phase++) {
+			for (Link link : new Link[] { this.left, this.right }) {
+				if (link != null && link.edge % 2 == phase) {
+					boolean lower = (link == this.right);
+					if (lower) {
+						send(link, kind);
+						receive(link, kind);
+					} else {
+						receive(link, kind);
+						send(link, kind);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send a message of the given kind to the neighbour at the other end of the given link.
+	 */
+	private void send(Link link, int kind) throws IOException {
+		EntityStore store = this.world.getStore();
+		WorldFile.Blocks out = link.out;
+		boolean toLeft = (link == this.left);
+		if (kind == STATISTICS) {
+			computeStatistics();
+			out.putDouble(this.maxRadius);
+			out.putDouble(this.maxSpeed);
+		} else if (kind == GHOSTS) {
+			double margin = 2 * (this.maxRadius + link.maxRadius + (this.maxSpeed + link.maxSpeed) * this.duration);
+			int count = 0;
+			for (int slot = 0; slot < this.nbOwned; slot++) {
+				if (toLeft ? store.x[slot] - this.minX < margin : this.maxX - store.x[slot] < margin) {
+					this.slots[count++] = slot;
+				}
+			}
+			WorldFile.writeEntities(this.world, this.slots, count, out);
+		} else {
+			out.putInt(link.nbReported);
+			out.putDoubles(link.reported, 0, 3 * link.nbReported);
+			int count = 0;
+			for (int slot = 0; slot < store.getNbEntities(); slot++) {
+				if (toLeft ? store.x[slot] < this.minX : store.x[slot] >= this.maxX) {
+					this.slots[count++] = slot;
+				}
+			}
+			WorldFile.writeEntities(this.world, this.slots, count, out);
+			for (int k = count - 1; k >= 0; k--) {
+				this.world.removeEntity(store.getEntityAt(this.slots[k]));
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Receive a message of the given kind from the neighbour at the other end of the given link.
+	 *
+	 * @throws IOException
+	 * 		   The message could not be read or is not valid.
+	 */
+	private void receive(Link link, int kind) throws IOException {
+		EntityStore store = this.world.getStore();
+		WorldFile.Blocks in = link.in;
+		if (kind == STATISTICS) {
+			link.maxRadius = in.getDouble();
+			link.maxSpeed = in.getDouble();
+			link.nbReported = 0;
+			link.nbPending = 0;
+		} else if (kind == GHOSTS) {
+			int first = WorldFile.readEntities(in, this.world);
+			int n = store.getNbEntities();
+			if (link.ghosts.length < n - first) {
+				link.ghosts = new Entity[Math.max(n - first, 2 * link.ghosts.length)];
+			}
+			for (int slot = first; slot < n; slot++) {
+				store.setFlag(slot, EntityStore.GHOST, true);
+				link.ghosts[slot - first] = store.getEntityAt(slot);
+			}
+			Arrays.fill(link.ghosts, n - first, Math.max(n - first, link.nbGhosts), null);
+			link.nbGhosts = n - first;
+		} else {
+			int nbCollisions = in.getInt();
+			if (nbCollisions < 0) {
+				throw new IOException("invalid number of collisions: " + nbCollisions);
+			}
+			double[] collisions = new double[3 * nbCollisions];
+			in.getDoubles(collisions, 0, collisions.length);
+			this.nbDivergences += link.match(collisions, nbCollisions);
+			WorldFile.readEntities(in, this.world);
+		}
+		if (this.slots.length < store.getNbEntities()) {
+			this.slots = new int[Math.max(store.getNbEntities(), 2 * this.slots.length)];
+		}
+	}
+
+	/**
+	 * Compute the largest radius of the entities this shard owns, and the largest speed any of them
+	 * can reach during the current step.
+	 */
+	private void computeStatistics() {
+		EntityStore store = this.world.getStore();
+		double maxRadius = 0.0, maxSpeed = 0.0;
+		for (int slot = 0; slot < this.nbOwned; slot++) {
+			double speed = Math.sqrt(store.vx[slot]*store.vx[slot] + store.vy[slot]*store.vy[slot]);
+			if (store.hasFlag(slot, EntityStore.THRUSTER_ACTIVE)) {
+				speed += ((Ship) store.getEntityAt(slot)).getAcceleration() * this.duration;
+			}
+			maxRadius = Math.max(maxRadius, store.radius[slot]);
+			maxSpeed = Math.max(maxSpeed, speed);
+		}
+		this.maxRadius = maxRadius;
+		this.maxSpeed = maxSpeed;
+		if (this.slots.length < this.nbOwned) {
+			this.slots = new int[Math.max(this.nbOwned, 2 * this.slots.length)];
+		}
+	}
+
+	/**
+	 * Variables registering the largest radius of the entities this shard owns and the largest speed
+	 * any of them can reach during the current step.
+	 */
+	private double maxRadius;
+	private double maxSpeed;
+
+	/**
+	 * Variable registering the slots of the entities to send in a message.
+	 */
+	private int[] slots = new int[0];
+
+	/**
+	 * Return the link the given ghost was received over.
+	 */
+	private Link getLinkOf(Entity ghost) {
+		Link link = this.left;
+		if (link != null) {
+			for (int k = 0; k < link.nbGhosts; k++) {
+				if (link.ghosts[k] == ghost) {
+					return link;
+				}
+			}
+		}
+		return this.right;
+	}
+
+	/**
+	 * A class of links to the shard of a neighbouring strip.
+	 */
+	private static class Link {
+
+		Link(SocketChannel channel, int edge) throws IOException {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			this.channel = channel;
+			this.edge = edge;
+			this.in = new WorldFile.Blocks((ReadableByteChannel) channel);
+			this.out = new WorldFile.Blocks((WritableByteChannel) channel);
+		}
+
+		/**
+		 * Variables registering the channel of this link, the index of the edge it serves, counting
+		 * the edge between the first two strips as 0, and the blocks reading from and writing to
+		 * the channel.
+		 */
+		final SocketChannel channel;
+		final int edge;
+		final WorldFile.Blocks in;
+		final WorldFile.Blocks out;
+
+		/**
+		 * Variables registering the largest radius and speed of the entities of the neighbour
+		 * during the current step.
+		 */
+		double maxRadius;
+		double maxSpeed;
+
+		/**
+		 * Variables registering the ghosts received over this link during the current step.
+		 */
+		Entity[] ghosts = new Entity[0];
+		int nbGhosts;
+
+		/**
+		 * Variables registering the time and the point of contact of the collisions with ghosts of
+		 * this link during the current step that were notified by this shard, and of those that
+		 * were left to the neighbour.
+		 */
+		double[] reported = new double[0];
+		int nbReported;
+		double[] pending = new double[0];
+		int nbPending;
+
+		/**
+		 * Register a collision at the given time and point with a ghost of this link, notified by
+		 * this shard if it is reported.
+		 */
+		void add(boolean reported, double time, double x, double y) {
+			if (reported) {
+				this.reported = append(this.reported, this.nbReported++, time, x, y);
+			} else {
+				this.pending = append(this.pending, this.nbPending++, time, x, y);
+			}
+		}
+
+		private static double[] append(double[] collisions, int index, double time, double x, double y) {
+			if (collisions.length < 3 * (index + 1)) {
+				collisions = Arrays.copyOf(collisions, Math.max(48, 2 * collisions.length));
+			}
+			collisions[3 * index] = time;
+			collisions[3 * index + 1] = x;
+			collisions[3 * index + 2] = y;
+			return collisions;
+		}
+
+		/**
+		 * Match the given collisions notified by the neighbour with the collisions left to the
+		 * neighbour by this shard.
+		 *
+		 * @return The number of collisions in either list without a match in the other one.
+		 */
+		int match(double[] collisions, int count) {
+			boolean[] matched = new boolean[this.nbPending];
+			int nbUnmatched = 0;
+			for (int k = 0; k < count; k++) {
+				int found = -1;
+				for (int p = 0; p < this.nbPending && found < 0; p++) {
+					if (! matched[p] && isClose(collisions[3*k], this.pending[3*p])
+							&& isClose(collisions[3*k + 1], this.pending[3*p + 1])
+							&& isClose(collisions[3*k + 2], this.pending[3*p + 2])) {
+						found = p;
+					}
+				}
+				if (found < 0) {
+					nbUnmatched++;
+				} else {
+					matched[found] = true;
+				}
+			}
+			for (boolean isMatched : matched) {
+				if (! isMatched) {
+					nbUnmatched++;
+				}
+			}
+			return nbUnmatched;
+		}
+
+		private static boolean isClose(double first, double second) {
+			return Math.abs(first - second) <= 1e-6 * (1 + Math.abs(first));
+		}
+	}
+
+	/**
+	 * A class of listeners passing on the collisions a shard is in charge of.
+	 */
+	private class Filter implements CollisionListener {
+
+		Filter(CollisionListener listener) {
+			this.listener = listener;
+		}
+
+		private final CollisionListener listener;
+
+		@Override
+		public void boundaryCollision(Object entity, double x, double y) {
+			if (! isGhost(entity) && this.listener != null) {
+				this.listener.boundaryCollision(entity, x, y);
+			}
+		}
+
+		@Override
+		public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			boolean isGhost1 = isGhost(entity1), isGhost2 = isGhost(entity2);
+			if (isGhost1 && isGhost2) {
+				return;
+			}
+			boolean reported = true;
+			if (isGhost1 || isGhost2) {
+				reported = owns(x);
+				getLinkOf((Entity) (isGhost1 ? entity1 : entity2)).add(reported, world.getTime(), x, y);
+			}
+			if (reported && this.listener != null) {
+				this.listener.objectCollision(entity1, entity2, x, y);
+			}
+		}
+
+		private boolean isGhost(Object entity) {
+			return world.getStore().hasFlag(((Entity) entity).getSlot(), EntityStore.GHOST);
+		}
+	}
+}
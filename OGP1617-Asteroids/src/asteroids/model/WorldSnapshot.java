@@ -0,0 +1,180 @@
+package asteroids.model;
+
+import java.util.Arrays;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of snapshots of the state of all entities of a world at the end of an evolve,
+ * kept in flat primitive arrays, one array per field, indexed in the order of the entities
+ * in World.getEntities().
+ *
+ * Snapshots are immutable. A world publishes a new snapshot through a volatile field after each
+ * evolve, so that a thread reading a snapshot obtained from World.getSnapshot() sees all of it,
+ * while the world may already be evolving on another thread. Any number of readers can each hold
+ * on to the snapshots they obtained, for as long as they like, without locking.
+ *
+ * @invar  The number of entities of each snapshot is not negative.
+ *       | getNbEntities() >= 0
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class WorldSnapshot {
+
+	/**
+	 * Initialize this new snapshot with the state of the entities in the given store.
+	 *
+	 * @post   | new.getNbEntities() == store.getNbEntities()
+	 * @post   | for each i in 0..store.getNbEntities()-1:
+	 * 		   |	new.getX(i) == store.getX(i) && ...
+	 * @post   | new.getSequence() == sequence && new.getTime() == time
+	 * @post   | new.getWidth() == width && new.getHeight() == height
+	 */
+	WorldSnapshot(EntityStore store, long sequence, double time, double width, double height) {
+		store.syncAll();
+		int n = store.getNbEntities();
+		this.id = new long[n];
+		for (int i = 0; i < n; i++) {
+			this.id[i] = store.getEntityAt(i).getId();
+		}
+		this.flags = Arrays.copyOf(store.flags, n);
+		this.x = Arrays.copyOf(store.x, n);
+		this.y = Arrays.copyOf(store.y, n);
+		this.vx = Arrays.copyOf(store.vx, n);
+		this.vy = Arrays.copyOf(store.vy, n);
+		this.radius = Arrays.copyOf(store.radius, n);
+		this.orientation = Arrays.copyOf(store.orientation, n);
+		this.size = n;
+		this.sequence = sequence;
+		this.time = time;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Return the number of the evolve after which this snapshot was taken.
+	 * Snapshots taken later by the same world have a higher sequence number.
+	 */
+	@Basic
+	public long getSequence() {
+		return this.sequence;
+	}
+
+	/**
+	 * Return the time of the world at which this snapshot was taken.
+	 */
+	@Basic
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Return the width of the world of which this snapshot was taken.
+	 */
+	@Basic
+	public double getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Return the height of the world of which this snapshot was taken.
+	 */
+	@Basic
+	public double getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Return the number of entities in this snapshot.
+	 */
+	@Basic
+	public int getNbEntities() {
+		return this.size;
+	}
+
+	/**
+	 * Return the identifier of the entity at the given index in this snapshot.
+	 */
+	public long getId(int index) {
+		return this.id[index];
+	}
+
+	/**
+	 * Check whether the entity at the given index in this snapshot is a ship.
+	 */
+	public boolean isShip(int index) {
+		return (this.flags[index] & EntityStore.SHIP) != 0;
+	}
+
+	/**
+	 * Check whether the entity at the given index in this snapshot is a bullet.
+	 */
+	public boolean isBullet(int index) {
+		return (this.flags[index] & EntityStore.BULLET) != 0;
+	}
+
+	/**
+	 * Check whether the entity at the given index in this snapshot is a ship with an active thruster.
+	 */
+	public boolean isThrusterActive(int index) {
+		return (this.flags[index] & EntityStore.THRUSTER_ACTIVE) != 0;
+	}
+
+	public double getX(int index) {
+		return this.x[index];
+	}
+
+	public double getY(int index) {
+		return this.y[index];
+	}
+
+	public double getVx(int index) {
+		return this.vx[index];
+	}
+
+	public double getVy(int index) {
+		return this.vy[index];
+	}
+
+	public double getRadius(int index) {
+		return this.radius[index];
+	}
+
+	public double getOrientation(int index) {
+		return this.orientation[index];
+	}
+
+	/**
+	 * Return the index of the entity with the given identifier in this snapshot, or -1 if
+	 * this snapshot holds no such entity.
+	 */
+	public int indexOf(long id) {
+		long[] ids = this.id;
+		for (int i = 0; i < this.size; i++) {
+			if (ids[i] == id) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private final long sequence;
+	private final double time;
+	private final double width;
+	private final double height;
+	private final int size;
+
+	/**
+	 * Variables registering the state of the entities, indexed in the order of the entities
+	 * in the world.
+	 */
+	private final long[] id;
+	private final int[] flags;
+	private final double[] x;
+	private final double[] y;
+	private final double[] vx;
+	private final double[] vy;
+	private final double[] radius;
+	private final double[] orientation;
+}
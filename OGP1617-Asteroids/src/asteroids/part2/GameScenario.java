@@ -0,0 +1,169 @@
+package asteroids.part2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import asteroids.model.Bullet;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.part2.facade.IFacade;
+import asteroids.util.ModelException;
+
+/**
+ * A class of game set-ups: a world holding a player and between 1 and 10 enemy ships, all loaded with
+ * bullets, and a few free bullets, as the game starts.
+ *
+ * A set-up is built from a seed only, through the facade, so that building it again from the same seed
+ * on the same facade yields the same world. This is what allows a recorded match to be replayed.
+ * The random generator the set-up was built with is handed on, for the random decisions of the match.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class GameScenario {
+
+	/**
+	 * Initialize this new set-up by building a world of the given size through the given facade,
+	 * drawing all random choices from a generator with the given seed.
+	 */
+	public GameScenario(IFacade facade, double width, double height, long seed) throws ModelException {
+		this.facade = facade;
+		this.seed = seed;
+		this.width = width;
+		this.height = height;
+		this.random = new Random(seed);
+		this.world = facade.createWorld(width, height);
+		Ship player = facade.createShip(width / 2., height / 2., 1, 6, 40, 0, 3e17);
+		this.baseId = facade.getEntityId(player);
+		facade.addShipToWorld(this.world, player);
+		this.ships.add(player);
+		for (int i = 1; i < 1000; i++) {
+			Bullet bullet = facade.createBullet(this.world, width / 2.0, height / 2.0, 0, 0,
+					this.random.nextDouble() * 10 + 5);
+			facade.loadBulletOnShip(player, bullet);
+		}
+		int nbEnemyShips = (int) (this.random.nextDouble() * 10 + 1);
+		for (int j = 0; j < nbEnemyShips; j++) {
+			try {
+				Ship enemyShip = facade.createShip(this.random.nextDouble() * width, this.random.nextDouble() * height,
+						25, 50, 10.0 + this.random.nextDouble() * 40, this.random.nextDouble() * 2 * Math.PI / 3, 1.0E22);
+				facade.addShipToWorld(this.world, enemyShip);
+				for (int i = 1; i < 10; i++) {
+					Bullet bullet = facade.createBullet(this.world, facade.getShipX(enemyShip),
+							facade.getShipY(enemyShip), 0, 0, Math.PI);
+					facade.loadBulletOnShip(enemyShip, bullet);
+				}
+				this.ships.add(enemyShip);
+			} catch (ModelException exc) {
+				// so be it
+			}
+		}
+		int nbBullets = (int) (this.random.nextDouble() * 3);
+		for (int j = 0; j < nbBullets; j++) {
+			try {
+				Bullet bullet = facade.createBullet(this.world, this.random.nextDouble() * width, this.random.nextDouble() * height,
+						10, 12, this.random.nextDouble() * 5 + 3);
+				facade.addBulletToWorld(this.world, bullet);
+			} catch (ModelException exc) {
+				// so be it
+			}
+		}
+	}
+
+	private final IFacade facade;
+
+	/**
+	 * Return the seed this set-up was built from.
+	 */
+	public long getSeed() {
+		return this.seed;
+	}
+
+	private final long seed;
+
+	/**
+	 * Return the width of the world of this set-up.
+	 */
+	public double getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * Return the height of the world of this set-up.
+	 */
+	public double getHeight() {
+		return this.height;
+	}
+
+	private final double width;
+	private final double height;
+
+	/**
+	 * Return the random generator this set-up was built with, for the random decisions of the match.
+	 */
+	public Random getRandom() {
+		return this.random;
+	}
+
+	private final Random random;
+
+	/**
+	 * Return the world of this set-up.
+	 */
+	public World getWorld() {
+		return this.world;
+	}
+
+	private final World world;
+
+	/**
+	 * Return the ship of the player.
+	 */
+	public Ship getPlayer() {
+		return this.ships.get(0);
+	}
+
+	/**
+	 * Return the ships of this set-up, the player first and the enemies in the order in which they were
+	 * created. The index of a ship in this list identifies it in every build from the same seed.
+	 */
+	public List<Ship> getShips() {
+		return Collections.unmodifiableList(this.ships);
+	}
+
+	/**
+	 * Return the index of the given ship in getShips(), or -1 if it is not a ship of this set-up.
+	 */
+	public int indexOf(Ship ship) {
+		return this.ships.indexOf(ship);
+	}
+
+	private final List<Ship> ships = new ArrayList<Ship>();
+
+	/**
+	 * Let the given ship, located in the given world, fire a bullet through the given facade. A ship
+	 * that has no bullets left is first loaded with one, taken from the bullets terminated in the world
+	 * if there are any. Matches are played and replayed through this method, so that a replay reloads
+	 * exactly where the recorded match did.
+	 */
+	public static void fireBullet(IFacade facade, World world, Ship ship) throws ModelException {
+		if (facade.getNbBulletsOnShip(ship) == 0) {
+			facade.loadBulletOnShip(ship, facade.createBullet(world, facade.getShipX(ship), facade.getShipY(ship),
+					0, 0, 3));
+		}
+		facade.fireBullet(ship);
+	}
+
+	/**
+	 * Return the identifier of the given entity relative to the first entity of this set-up. Every
+	 * build from the same seed gives the corresponding entities the same relative identifier, as long
+	 * as no other entities are created while the match is played.
+	 */
+	public long getRelativeId(Object entity) throws ModelException {
+		return this.facade.getEntityId(entity) - this.baseId;
+	}
+
+	private final long baseId;
+}
@@ -0,0 +1,303 @@
+package asteroids.part2;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.part2.facade.IFacade;
+import asteroids.util.ModelException;
+
+/**
+ * A headless entry point that runs simulations without a display, as fast as the machine allows.
+ *
+ * Each run builds a scenario through the facade, from its own seed, and evolves it in steps of fixed
+ * length until the requested amount of simulated time has passed. For each run, the number of steps
+ * and collisions per second of wall-clock time and the number of bytes allocated per second by the
+ * simulating thread are reported, one line per run.
+ *
+ * Usage: Headless [-scenario game|crowd] [-ships n] [-seconds s] [-step dt] [-runs r] [-seed n] [-fire p]
+ *                [-record file] [-view file]
+ *
+ * In the game scenario a world of the size of the game window holds a player and a number of enemy
+ * ships, loaded with bullets as in the game; in the crowd scenario a world holds the given number of
+ * ships at a constant density. Every ship fires with the given probability per second; a ship that
+ * has run out of bullets is first loaded with a new one, reusing a bullet its world terminated before
+ * where it can.
+ *
+ * Runs of the game scenario can be recorded to a replay log, to be replayed by a ReplayPlayer; each
+ * run replaces the log of the run before it.
+ *
+ * The world of each run can be published as a shared view, to be followed by a Spectator in another
+ * process while the run goes on; each run replaces the view of the run before it.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class Headless {
+
+	public static void main(String[] args) {
+		Headless headless = new Headless(new asteroids.facade.Facade());
+		try {
+			for (int k = 0; k < args.length; k++) {
+				String option = args[k];
+				if (k + 1 == args.length) {
+					System.out.println("missing value for option: " + option);
+					return;
+				}
+				String value = args[++k];
+				switch (option) {
+				case "-scenario":
+					if (! value.equals("game") && ! value.equals("crowd")) {
+						System.out.println("unknown scenario: " + value);
+						return;
+					}
+					headless.scenario = value;
+					break;
+				case "-ships":
+					headless.nbShips = Integer.parseInt(value);
+					break;
+				case "-seconds":
+					headless.seconds = Double.parseDouble(value);
+					break;
+				case "-step":
+					headless.step = Double.parseDouble(value);
+					break;
+				case "-runs":
+					headless.nbRuns = Integer.parseInt(value);
+					break;
+				case "-seed":
+					headless.seed = Long.parseLong(value);
+					break;
+				case "-fire":
+					headless.fireRate = Double.parseDouble(value);
+					break;
+				case "-record":
+					headless.replayFile = Paths.get(value);
+					break;
+				case "-view":
+					headless.viewFile = Paths.get(value);
+					break;
+				default:
+					System.out.println("unknown option: " + option);
+					return;
+				}
+			}
+		} catch (NumberFormatException exc) {
+			System.out.println("invalid number: " + exc.getMessage());
+			return;
+		}
+		if (! (headless.step > 0) || ! (headless.seconds >= 0) || headless.nbShips < 1 || headless.nbRuns < 1) {
+			System.out.println("step, seconds, ships and runs must be positive");
+			return;
+		}
+		try {
+			headless.runAll();
+		} catch (ModelException | IOException exc) {
+			exc.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Initialize this new runner on the given facade, with the default options.
+	 */
+	public Headless(IFacade facade) {
+		this.facade = facade;
+	}
+
+	private final IFacade facade;
+
+	private String scenario = "game";
+	private int nbShips = 1000;
+	private double seconds = 60;
+	private double step = 1.0 / 30;
+	private int nbRuns = 1;
+	private long seed = 42;
+	private double fireRate = 0.5;
+	private Path replayFile;
+	private Path viewFile;
+
+	/**
+	 * Perform all runs, one after the other, and print a line for each of them.
+	 */
+	public void runAll() throws ModelException, IOException {
+		System.out.printf("%-8s %6s %8s %8s %12s %12s %14s %10s%n", "scenario", "run", "entities", "steps",
+				"steps/s", "collisions/s", "alloc MB/s", "seconds");
+		for (int run = 0; run < this.nbRuns; run++) {
+			Result result = run(this.seed + run);
+			System.out.printf("%-8s %6d %8d %8d %12.1f %12.1f %14s %10.3f%n", this.scenario, run, result.nbEntities,
+					result.nbSteps, result.nbSteps / result.wallSeconds, result.nbCollisions / result.wallSeconds,
+					(result.allocatedBytes < 0) ? "n/a"
+							: String.format("%.1f", result.allocatedBytes / result.wallSeconds / 1e6),
+					result.wallSeconds);
+		}
+	}
+
+	/**
+	 * Build the scenario from the given seed, evolve it for the requested simulated time and return
+	 * what was measured.
+	 */
+	public Result run(long seed) throws ModelException, IOException {
+		Counter counter = new Counter();
+		Random random;
+		World world;
+		ReplayRecorder recorder = null;
+		if (this.scenario.equals("crowd")) {
+			random = new Random(seed);
+			world = createCrowd(random);
+		} else {
+			GameScenario game = new GameScenario(this.facade, 1024, 768, seed);
+			random = game.getRandom();
+			world = game.getWorld();
+			if (this.replayFile != null) {
+				recorder = new ReplayRecorder(this.replayFile, game, counter);
+			}
+		}
+		CollisionListener listener = (recorder != null) ? recorder : counter;
+		if (this.viewFile != null) {
+			world.setSharedView(this.viewFile);
+		}
+		List<Ship> ships = new ArrayList<Ship>(this.facade.getWorldShips(world));
+		long nbSteps = (long) Math.ceil(this.seconds / this.step);
+		double fireChance = this.fireRate * this.step;
+
+		long allocatedBefore = getAllocatedBytes();
+		long start = System.nanoTime();
+		for (long k = 0; k < nbSteps; k++) {
+			for (int i = 0, n = ships.size(); i < n; i++) {
+				if (random.nextDouble() < fireChance) {
+					Ship ship = ships.get(i);
+					if (this.facade.isTerminatedShip(ship)) {
+						ships.set(i, ships.get(n - 1));
+						ships.remove(--n);
+						i--;
+					} else {
+						if (recorder != null) {
+							recorder.recordFire(ship);
+						}
+						GameScenario.fireBullet(this.facade, world, ship);
+					}
+				}
+			}
+			if (recorder != null) {
+				recorder.recordEvolve(this.step);
+			}
+			this.facade.evolve(world, this.step, listener);
+		}
+		if (recorder != null) {
+			recorder.close();
+		}
+		if (this.viewFile != null) {
+			world.setSharedView(null);
+		}
+		double wallSeconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+		long allocatedAfter = getAllocatedBytes();
+
+		Result result = new Result();
+		result.nbEntities = this.facade.getEntities(world).size();
+		result.nbSteps = nbSteps;
+		result.nbCollisions = counter.nbCollisions;
+		result.wallSeconds = wallSeconds;
+		result.allocatedBytes = (allocatedBefore < 0 || allocatedAfter < 0) ? -1 : allocatedAfter - allocatedBefore;
+		return result;
+	}
+
+	/**
+	 * Return a world holding the requested number of ships, one per square of 200 by 200 on average,
+	 * each loaded with a few bullets.
+	 */
+	private World createCrowd(Random random) throws ModelException {
+		double side = 200 * Math.sqrt(this.nbShips);
+		World world = this.facade.createWorld(side, side);
+		int added = 0;
+		while (added < this.nbShips) {
+			double radius = 10.5 + 30 * random.nextDouble();
+			Ship ship = this.facade.createShip(radius + (side - 2*radius) * random.nextDouble(),
+					radius + (side - 2*radius) * random.nextDouble(), 100 * random.nextDouble() - 50,
+					100 * random.nextDouble() - 50, radius, 2 * Math.PI * random.nextDouble(), 1.0E20);
+			try {
+				this.facade.addShipToWorld(world, ship);
+				added++;
+			} catch (ModelException exc) {
+				// overlaps another ship: try elsewhere
+				continue;
+			}
+			for (int i = 0; i < 3; i++) {
+				this.facade.loadBulletOnShip(ship, this.facade.createBullet(world, this.facade.getShipX(ship),
+						this.facade.getShipY(ship), 0, 0, 3));
+			}
+		}
+		return world;
+	}
+
+	/**
+	 * Return the number of bytes allocated so far by the current thread, or -1 if the virtual machine
+	 * does not measure it.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A class of listeners counting the collisions they are notified of.
+	 */
+	private static class Counter implements CollisionListener {
+
+		private long nbCollisions;
+
+		@Override
+		public void boundaryCollision(Object entity, double x, double y) {
+			this.nbCollisions++;
+		}
+
+		@Override
+		public void objectCollision(Object entity1, Object entity2, double x, double y) {
+			this.nbCollisions++;
+		}
+	}
+
+	/**
+	 * A class of results of a single run.
+	 */
+	public static class Result {
+
+		/**
+		 * The number of entities left in the world at the end of the run.
+		 */
+		public int nbEntities;
+
+		/**
+		 * The number of steps taken.
+		 */
+		public long nbSteps;
+
+		/**
+		 * The number of collisions the world reported.
+		 */
+		public long nbCollisions;
+
+		/**
+		 * The wall-clock time the steps took, in seconds.
+		 */
+		public double wallSeconds;
+
+		/**
+		 * The number of bytes the simulating thread allocated during the steps, or -1 if unknown.
+		 */
+		public long allocatedBytes;
+	}
+}
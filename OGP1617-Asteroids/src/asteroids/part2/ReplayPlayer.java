@@ -0,0 +1,296 @@
+package asteroids.part2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.part2.facade.IFacade;
+import asteroids.util.ModelException;
+
+/**
+ * A class of players replaying a replay log written by a ReplayRecorder, without a display and as fast
+ * as the machine allows.
+ *
+ * The set-up of the match is built again from the seed in the log, after which the inputs are applied
+ * and the world is evolved as the log prescribes. The collisions reported by every evolve are checked
+ * against the collisions recorded for it; every collision that is reported but not recorded, or
+ * recorded but not reported, counts as a mismatch. A log that was never closed is replayed up to its
+ * last record.
+ *
+ * Usage: ReplayPlayer file
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class ReplayPlayer implements CollisionListener, AutoCloseable {
+
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.out.println("usage: ReplayPlayer file");
+			return;
+		}
+		try (ReplayPlayer player = new ReplayPlayer(new asteroids.facade.Facade(), Paths.get(args[0]))) {
+			Result result = player.play();
+			System.out.printf("%8s %8s %10s %10s %14s %12s %10s%n", "ticks", "inputs", "collisions", "mismatches",
+					"first mismatch", "ticks/s", "seconds");
+			System.out.printf("%8d %8d %10d %10d %14d %12.1f %10.3f%n", result.nbTicks, result.nbInputs,
+					result.nbCollisions, result.nbMismatches, result.firstMismatchTick,
+					result.nbTicks / result.wallSeconds, result.wallSeconds);
+			if (result.nbMismatches > 0) {
+				System.exit(2);
+			}
+		} catch (IOException | ModelException exc) {
+			exc.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Initialize this new player on the given facade, replaying the log in the file at the given path.
+	 *
+	 * @throws IOException
+	 *         The file cannot be read, or it does not start with the header of a log of this version.
+	 */
+	public ReplayPlayer(IFacade facade, Path path) throws IOException {
+		this.facade = facade;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.nbRecords = this.channel.size() / ReplayRecorder.RECORD_SIZE;
+		if (this.nbRecords == 0 || getType(0) != ReplayRecorder.HEADER || getFirst(0) != ReplayRecorder.VERSION
+				|| getSecond(0) != ReplayRecorder.RECORD_SIZE) {
+			this.channel.close();
+			throw new IOException("not a replay log of version " + ReplayRecorder.VERSION + ": " + path);
+		}
+	}
+
+	private final IFacade facade;
+	private final FileChannel channel;
+	private final long nbRecords;
+
+	/**
+	 * Replay the log and return what was found.
+	 *
+	 * @throws ModelException
+	 *         The set-up of the match cannot be built again.
+	 */
+	public Result play() throws ModelException {
+		this.scenario = new GameScenario(this.facade, getReal1(0), getReal2(0), getOperand(0));
+		this.result = new Result();
+		List<Ship> ships = this.scenario.getShips();
+		World world = this.scenario.getWorld();
+		long start = System.nanoTime();
+		long k = 1;
+		replay: while (k < this.nbRecords) {
+			int type = getType(k);
+			try {
+				switch (type) {
+				case ReplayRecorder.TURN:
+					this.result.nbInputs++;
+					this.facade.turn(ships.get(getFirst(k)), getReal1(k));
+					break;
+				case ReplayRecorder.THRUST:
+					this.result.nbInputs++;
+					this.facade.setThrusterActive(ships.get(getFirst(k)), getSecond(k) != 0);
+					break;
+				case ReplayRecorder.FIRE:
+					this.result.nbInputs++;
+					GameScenario.fireBullet(this.facade, world, ships.get(getFirst(k)));
+					break;
+				case ReplayRecorder.EVOLVE:
+					long nbEvolves = getOperand(k);
+					double duration = getReal1(k);
+					try {
+						// the recorded collisions belong to the last evolve of the run
+						for (long i = 1; i <= nbEvolves; i++) {
+							this.tick = this.result.nbTicks++;
+							this.cursor = (i == nbEvolves) ? k + 1 : -1;
+							this.facade.evolve(world, duration, this);
+						}
+					} finally {
+						this.cursor = Math.max(this.cursor, k + 1);
+						while (isCollision(this.cursor)) {
+							mismatch();
+							this.cursor++;
+						}
+						k = this.cursor - 1;
+					}
+					break;
+				case ReplayRecorder.BOUNDARY_COLLISION:
+				case ReplayRecorder.OBJECT_COLLISION:
+					mismatch();
+					break;
+				default:
+					// the end of the match, or the unwritten tail of a log that was never closed
+					break replay;
+				}
+			} catch (ModelException exc) {
+				// the game ignored the failing input as well
+			}
+			k++;
+		}
+		this.result.wallSeconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+		return this.result;
+	}
+
+	private GameScenario scenario;
+	private Result result;
+	private long tick;
+
+	/**
+	 * The index of the next recorded collision of the evolve being replayed, or -1 if no collisions
+	 * were recorded for it.
+	 */
+	private long cursor;
+
+	@Override
+	public void boundaryCollision(Object entity, double x, double y) {
+		this.result.nbCollisions++;
+		long k = this.cursor;
+		if (getType(k) == ReplayRecorder.BOUNDARY_COLLISION && getFirst(k) == relativeId(entity)
+				&& getReal1(k) == x && getReal2(k) == y) {
+			this.cursor++;
+		} else {
+			mismatch();
+			if (isCollision(k)) {
+				this.cursor++;
+			}
+		}
+	}
+
+	@Override
+	public void objectCollision(Object entity1, Object entity2, double x, double y) {
+		this.result.nbCollisions++;
+		long k = this.cursor;
+		if (getType(k) == ReplayRecorder.OBJECT_COLLISION && getFirst(k) == relativeId(entity1)
+				&& getSecond(k) == relativeId(entity2) && getReal1(k) == x && getReal2(k) == y) {
+			this.cursor++;
+		} else {
+			mismatch();
+			if (isCollision(k)) {
+				this.cursor++;
+			}
+		}
+	}
+
+	private void mismatch() {
+		if (this.result.nbMismatches++ == 0) {
+			this.result.firstMismatchTick = this.tick;
+		}
+	}
+
+	private int relativeId(Object entity) {
+		try {
+			return (int) this.scenario.getRelativeId(entity);
+		} catch (ModelException exc) {
+			return -1;
+		}
+	}
+
+	private boolean isCollision(long k) {
+		int type = getType(k);
+		return type == ReplayRecorder.BOUNDARY_COLLISION || type == ReplayRecorder.OBJECT_COLLISION;
+	}
+
+	/**
+	 * Return the type of the record at the given index, or 0 if the log has no such record.
+	 */
+	private int getType(long k) {
+		return (k >= 0 && k < this.nbRecords) ? chunkOf(k).getInt(offsetOf(k)) : 0;
+	}
+
+	private int getFirst(long k) {
+		return chunkOf(k).getInt(offsetOf(k) + 4);
+	}
+
+	private int getSecond(long k) {
+		return chunkOf(k).getInt(offsetOf(k) + 8);
+	}
+
+	private long getOperand(long k) {
+		return chunkOf(k).getLong(offsetOf(k) + 16);
+	}
+
+	private double getReal1(long k) {
+		return chunkOf(k).getDouble(offsetOf(k) + 24);
+	}
+
+	private double getReal2(long k) {
+		return chunkOf(k).getDouble(offsetOf(k) + 32);
+	}
+
+	private static int offsetOf(long k) {
+		return (int) (k % ReplayRecorder.CHUNK_RECORDS) * ReplayRecorder.RECORD_SIZE;
+	}
+
+	/**
+	 * Return the mapped chunk of the log holding the record at the given index, mapping it if needed.
+	 */
+	private MappedByteBuffer chunkOf(long k) {
+		long index = k / ReplayRecorder.CHUNK_RECORDS;
+		if (this.chunk == null || index != this.chunkIndex) {
+			long first = index * ReplayRecorder.CHUNK_RECORDS;
+			long nbChunkRecords = Math.min(ReplayRecorder.CHUNK_RECORDS, this.nbRecords - first);
+			try {
+				this.chunk = this.channel.map(FileChannel.MapMode.READ_ONLY, first * ReplayRecorder.RECORD_SIZE,
+						nbChunkRecords * ReplayRecorder.RECORD_SIZE);
+			} catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+			this.chunk.order(ByteOrder.nativeOrder());
+			this.chunkIndex = index;
+		}
+		return this.chunk;
+	}
+
+	private MappedByteBuffer chunk;
+	private long chunkIndex;
+
+	@Override
+	public void close() throws IOException {
+		this.chunk = null;
+		this.channel.close();
+	}
+
+	/**
+	 * A class of results of a replay.
+	 */
+	public static class Result {
+
+		/**
+		 * The number of evolves replayed.
+		 */
+		public long nbTicks;
+
+		/**
+		 * The number of turn, thrust and fire inputs replayed.
+		 */
+		public long nbInputs;
+
+		/**
+		 * The number of collisions the world reported during the replay.
+		 */
+		public long nbCollisions;
+
+		/**
+		 * The number of collisions that were reported but not recorded, or recorded but not reported.
+		 */
+		public long nbMismatches;
+
+		/**
+		 * The number of the first evolve with a mismatch, or -1 if there was none.
+		 */
+		public long firstMismatchTick = -1;
+
+		/**
+		 * The wall-clock time the replay took, in seconds.
+		 */
+		public double wallSeconds;
+	}
+}
@@ -0,0 +1,229 @@
+package asteroids.part2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import asteroids.model.CollisionBatch;
+import asteroids.model.Ship;
+import asteroids.util.ModelException;
+
+/**
+ * A class of recorders writing a match to an append-only replay log: the seed of its set-up, the turn,
+ * thrust and fire inputs, the duration of every evolve and the collisions reported by every evolve.
+ *
+ * The log is a memory-mapped file of records of RECORD_SIZE bytes each, mapped a chunk of CHUNK_RECORDS
+ * records at a time, so that recording a record amounts to a few stores into memory:
+ *
+ *   offset  0  int     the type of the record
+ *   offset  4  int     first integer operand: a ship index or a relative entity identifier
+ *   offset  8  int     second integer operand
+ *   offset 12  int     unused
+ *   offset 16  long    long operand: the seed, the number of evolves or the tick
+ *   offset 24  double  first real operand
+ *   offset 32  double  second real operand
+ *
+ * Ships are identified by their index in the ships of the set-up, other entities by their identifier
+ * relative to the set-up. All values are in the native byte order of the machine.
+ *
+ * Successive evolves for the same duration share a single record, holding their number, that is only
+ * written when some other record follows them. Recording an evolve thus amounts to counting it, as
+ * long as nothing happens. Collisions reported by an evolve follow the record of the run of evolves
+ * ending with that evolve.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class ReplayRecorder implements CollisionListener, AutoCloseable {
+
+	public static final int HEADER = 0x41535452;
+	public static final int TURN = 1;
+	public static final int THRUST = 2;
+	public static final int FIRE = 3;
+	public static final int EVOLVE = 4;
+	public static final int BOUNDARY_COLLISION = 5;
+	public static final int OBJECT_COLLISION = 6;
+	public static final int END = 7;
+
+	public static final int VERSION = 1;
+	public static final int RECORD_SIZE = 40;
+	public static final int CHUNK_RECORDS = 1 << 15;
+
+	/**
+	 * Initialize this new recorder writing the match played on the given set-up to the file at the given
+	 * path, replacing what that file held, and notifying the given listener, which may be null, of
+	 * every collision it records.
+	 *
+	 * @effect A header holding the seed and the size of the world of the set-up is recorded.
+	 */
+	public ReplayRecorder(Path path, GameScenario scenario, CollisionListener listener) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.scenario = scenario;
+		this.listener = listener;
+		write(HEADER, VERSION, RECORD_SIZE, scenario.getSeed(), scenario.getWidth(), scenario.getHeight());
+	}
+
+	private final FileChannel channel;
+	private final GameScenario scenario;
+	private final CollisionListener listener;
+
+	/**
+	 * Record that the given ship turns over the given angle.
+	 */
+	public void recordTurn(Ship ship, double angle) {
+		flushEvolves();
+		write(TURN, this.scenario.indexOf(ship), 0, this.nbTicks, angle, 0);
+	}
+
+	/**
+	 * Record that the thruster of the given ship is switched on or off.
+	 */
+	public void recordThrust(Ship ship, boolean active) {
+		flushEvolves();
+		write(THRUST, this.scenario.indexOf(ship), active ? 1 : 0, this.nbTicks, 0, 0);
+	}
+
+	/**
+	 * Record that the given ship fires a bullet.
+	 */
+	public void recordFire(Ship ship) {
+		flushEvolves();
+		write(FIRE, this.scenario.indexOf(ship), 0, this.nbTicks, 0, 0);
+	}
+
+	/**
+	 * Record that the world of the set-up is evolved for the given duration. The collisions reported to
+	 * this recorder from now on are recorded as collisions of this evolve.
+	 */
+	public void recordEvolve(double duration) {
+		if (this.nbPendingTicks > 0 && duration != this.pendingDuration) {
+			flushEvolves();
+		}
+		this.pendingDuration = duration;
+		this.nbPendingTicks++;
+		this.nbTicks++;
+	}
+
+	/**
+	 * Write the record of the evolves counted since the last record, if any.
+	 */
+	private void flushEvolves() {
+		if (this.nbPendingTicks > 0) {
+			write(EVOLVE, 0, 0, this.nbPendingTicks, this.pendingDuration, 0);
+			this.nbPendingTicks = 0;
+		}
+	}
+
+	private double pendingDuration;
+	private long nbPendingTicks;
+
+	/**
+	 * Return the number of evolves recorded so far.
+	 */
+	public long getNbTicks() {
+		return this.nbTicks;
+	}
+
+	private long nbTicks;
+
+	@Override
+	public void boundaryCollision(Object entity, double x, double y) {
+		flushEvolves();
+		write(BOUNDARY_COLLISION, relativeId(entity), 0, this.nbTicks - 1, x, y);
+		if (this.listener != null) {
+			this.listener.boundaryCollision(entity, x, y);
+		}
+	}
+
+	@Override
+	public void objectCollision(Object entity1, Object entity2, double x, double y) {
+		flushEvolves();
+		write(OBJECT_COLLISION, relativeId(entity1), relativeId(entity2), this.nbTicks - 1, x, y);
+		if (this.listener != null) {
+			this.listener.objectCollision(entity1, entity2, x, y);
+		}
+	}
+
+	/**
+	 * Record the collisions in the given batch, in their order in the batch, as collisions reported by
+	 * the last evolve recorded. The listener of this recorder is not notified of them.
+	 */
+	public void recordCollisions(CollisionBatch batch) {
+		int n = batch.getNbCollisions();
+		if (n > 0) {
+			flushEvolves();
+		}
+		for (int i = 0; i < n; i++) {
+			if (batch.isBoundaryCollision(i)) {
+				write(BOUNDARY_COLLISION, relativeId(batch.getFirst(i)), 0, this.nbTicks - 1, batch.getX(i),
+						batch.getY(i));
+			} else {
+				write(OBJECT_COLLISION, relativeId(batch.getFirst(i)), relativeId(batch.getSecond(i)),
+						this.nbTicks - 1, batch.getX(i), batch.getY(i));
+			}
+		}
+	}
+
+	private int relativeId(Object entity) {
+		try {
+			return (int) this.scenario.getRelativeId(entity);
+		} catch (ModelException exc) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Append a record with the given fields to the log.
+	 */
+	private void write(int type, int first, int second, long operand, double real1, double real2) {
+		if (this.chunk == null || ! this.chunk.hasRemaining()) {
+			mapNextChunk();
+		}
+		MappedByteBuffer chunk = this.chunk;
+		int position = chunk.position();
+		chunk.putInt(position, type);
+		chunk.putInt(position + 4, first);
+		chunk.putInt(position + 8, second);
+		chunk.putLong(position + 16, operand);
+		chunk.putDouble(position + 24, real1);
+		chunk.putDouble(position + 32, real2);
+		chunk.position(position + RECORD_SIZE);
+		this.nbRecords++;
+	}
+
+	/**
+	 * Map the chunk of the file following the chunk mapped so far.
+	 */
+	private void mapNextChunk() {
+		try {
+			long offset = this.nbRecords * RECORD_SIZE;
+			this.chunk = this.channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) CHUNK_RECORDS * RECORD_SIZE);
+			this.chunk.order(ByteOrder.nativeOrder());
+		} catch (IOException exc) {
+			throw new UncheckedIOException(exc);
+		}
+	}
+
+	private MappedByteBuffer chunk;
+	private long nbRecords;
+
+	/**
+	 * Record the end of the match, and cut the file off after the last record.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (! this.channel.isOpen()) {
+			return;
+		}
+		flushEvolves();
+		write(END, 0, 0, this.nbTicks, 0, 0);
+		this.chunk = null;
+		this.channel.truncate(this.nbRecords * RECORD_SIZE);
+		this.channel.close();
+	}
+}
@@ -0,0 +1,122 @@
+package asteroids.part2;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import asteroids.model.SharedWorldView;
+
+/**
+ * A spectator following a world published as a shared view by another process, such as a Headless run
+ * with the -view option, without a display and without ever holding up the process it follows.
+ *
+ * The spectator reads a frame every poll interval, straight from the mapped file, and prints a line
+ * every second of wall-clock time: the time of the world, the number of frames published so far, the
+ * number of frames read, the number of ships and bullets in the last frame read, the mean speed of its
+ * entities and the number of reads that overlapped the writing of a frame and were tried again. It stops
+ * when the world stops publishing.
+ *
+ * Usage: Spectator file [-poll ms]
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class Spectator {
+
+	public static void main(String[] args) {
+		if (args.length != 1 && ! (args.length == 3 && args[1].equals("-poll"))) {
+			System.out.println("usage: Spectator file [-poll ms]");
+			return;
+		}
+		long poll;
+		try {
+			poll = (args.length == 3) ? Long.parseLong(args[2]) : 10;
+		} catch (NumberFormatException exc) {
+			System.out.println("invalid number: " + exc.getMessage());
+			return;
+		}
+		try (SharedWorldView view = SharedWorldView.open(Paths.get(args[0]))) {
+			new Spectator(view).follow(poll);
+		} catch (IOException | InterruptedException exc) {
+			exc.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Initialize this new spectator on the given view.
+	 */
+	public Spectator(SharedWorldView view) {
+		this.view = view;
+	}
+
+	private final SharedWorldView view;
+
+	/**
+	 * Read a frame from the view of this spectator every given number of milliseconds, and print a line
+	 * every second, until the world stops publishing.
+	 */
+	public void follow(long poll) throws InterruptedException {
+		System.out.printf("%10s %10s %10s %8s %8s %12s %8s%n", "time", "published", "read", "ships", "bullets",
+				"mean speed", "retries");
+		long nextReport = System.nanoTime() + 1_000_000_000L;
+		boolean closed;
+		do {
+			closed = this.view.isClosed();
+			read();
+			if (closed || System.nanoTime() >= nextReport) {
+				System.out.printf("%10.3f %10d %10d %8d %8d %12.3f %8d%n", this.time, this.view.getNbFrames(),
+						this.nbFrames, this.nbShips, this.nbBullets, this.meanSpeed, this.nbRetries);
+				nextReport += 1_000_000_000L;
+			}
+			if (! closed) {
+				Thread.sleep(poll);
+			}
+		} while (! closed);
+	}
+
+	/**
+	 * Read the frame currently in the view of this spectator, unless it was read already.
+	 */
+	private void read() {
+		SharedWorldView view = this.view;
+		long sequence;
+		double time, speed;
+		int nbShips, nbBullets, n;
+		while (true) {
+			sequence = view.beginRead();
+			if (sequence == this.lastSequence) {
+				return;
+			}
+			time = view.getTime();
+			n = view.getNbEntities();
+			nbShips = nbBullets = 0;
+			speed = 0;
+			for (int i = 0; i < n; i++) {
+				if (view.isShip(i)) {
+					nbShips++;
+				} else if (view.isBullet(i)) {
+					nbBullets++;
+				}
+				speed += Math.hypot(view.getVx(i), view.getVy(i));
+			}
+			if (view.endRead(sequence)) {
+				break;
+			}
+			this.nbRetries++;
+		}
+		this.lastSequence = sequence;
+		this.nbFrames++;
+		this.time = time;
+		this.nbShips = nbShips;
+		this.nbBullets = nbBullets;
+		this.meanSpeed = (n == 0) ? 0 : speed / n;
+	}
+
+	private long lastSequence = -1;
+	private long nbFrames;
+	private long nbRetries;
+	private double time;
+	private int nbShips;
+	private int nbBullets;
+	private double meanSpeed;
+}
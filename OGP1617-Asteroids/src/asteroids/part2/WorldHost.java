@@ -0,0 +1,476 @@
+package asteroids.part2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import asteroids.model.World;
+import asteroids.part2.facade.IFacade;
+import asteroids.util.ModelException;
+
+/**
+ * A service hosting many independent worlds in one virtual machine, each evolved through the facade
+ * in ticks of the same length.
+ *
+ * Worlds are ticked in rounds. In every round each hosted world is evolved exactly once, by a task of
+ * its own on a work-stealing pool, so that no world falls behind the others and a world is never
+ * evolved by two threads at the same time. The worlds that used the least time so far are started
+ * first. Rounds either follow each other as fast as possible, or are paced at the tick length by a
+ * background thread.
+ *
+ * Every world has a budget per tick. The time each tick takes is accounted to its world, and ticks
+ * over budget are counted. The service keeps the number of ticks per second and a histogram of the
+ * tick latencies of all worlds, from which percentiles are read.
+ *
+ * @version 1.0
+ * @author Jasper Callaerts and Arno Goedhuys
+ */
+public class WorldHost implements AutoCloseable {
+
+	/**
+	 * Initialize this new host evolving worlds through the given facade in ticks of the given length,
+	 * with the given budget per tick, on a pool of the given number of threads.
+	 *
+	 * @param  facade
+	 * 		   The facade through which the worlds are evolved.
+	 * @param  tickLength
+	 * 		   The time in seconds each tick advances a world.
+	 * @param  tickBudgetNanos
+	 * 		   The wall-clock time in nanoseconds a tick of a world may take.
+	 * @param  parallelism
+	 * 		   The number of threads ticking worlds.
+	 * @throws IllegalArgumentException
+	 * 		   | facade == null || ! (tickLength > 0) || tickBudgetNanos <= 0 || parallelism < 1
+	 */
+	public WorldHost(IFacade facade, double tickLength, long tickBudgetNanos, int parallelism)
+			throws IllegalArgumentException {
+		if (facade == null || ! (tickLength > 0) || Double.isInfinite(tickLength) || tickBudgetNanos <= 0
+				|| parallelism < 1) {
+			throw new IllegalArgumentException();
+		}
+		this.facade = facade;
+		this.tickLength = tickLength;
+		this.tickBudgetNanos = tickBudgetNanos;
+		this.pool = new ForkJoinPool(parallelism);
+		this.startNanos = System.nanoTime();
+	}
+
+	private final IFacade facade;
+	private final double tickLength;
+	private final long tickBudgetNanos;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Return the time in seconds each tick advances a world.
+	 */
+	public double getTickLength() {
+		return this.tickLength;
+	}
+
+	/**
+	 * Start hosting the given world, notifying the given listener, which may be null, of its collisions.
+	 * The world is ticked from the next round on, and must not be evolved by anyone else from now on.
+	 *
+	 * @return The handle of the hosted world.
+	 */
+	public HostedWorld host(World world, CollisionListener listener) {
+		if (world == null) {
+			throw new IllegalArgumentException();
+		}
+		HostedWorld hosted = new HostedWorld(world, listener);
+		synchronized (this.pending) {
+			this.pending.add(hosted);
+		}
+		return hosted;
+	}
+
+	/**
+	 * Stop hosting the given world. It is not ticked from the next round on.
+	 */
+	public void remove(HostedWorld hosted) {
+		hosted.removed = true;
+	}
+
+	/**
+	 * Return the number of worlds ticked in the last round.
+	 */
+	public int getNbWorlds() {
+		return this.nbWorlds;
+	}
+
+	/**
+	 * Worlds added since the last round, and the worlds ticked every round.
+	 */
+	private final List<HostedWorld> pending = new ArrayList<HostedWorld>();
+	private HostedWorld[] worlds = new HostedWorld[0];
+	private volatile int nbWorlds;
+
+	/**
+	 * Tick every hosted world once, and return when all of them are done.
+	 * Rounds must not be run by several threads at the same time.
+	 */
+	public synchronized void runRound() {
+		HostedWorld[] worlds = collectWorlds();
+		ForkJoinTask<?> round = this.pool.submit(new Round(worlds, 0, this.nbWorlds));
+		round.join();
+		this.rounds.increment();
+	}
+
+	/**
+	 * Tick every hosted world the given number of times, as fast as possible.
+	 */
+	public void runRounds(int nbRounds) {
+		for (int k = 0; k < nbRounds; k++) {
+			runRound();
+		}
+	}
+
+	/**
+	 * Return the worlds to tick in this round, least used first, after adding the pending worlds
+	 * and dropping the removed and failed ones.
+	 */
+	private HostedWorld[] collectWorlds() {
+		HostedWorld[] worlds = this.worlds;
+		int n = 0;
+		for (int i = 0, size = this.nbWorlds; i < size; i++) {
+			if (! worlds[i].removed && worlds[i].failure == null) {
+				worlds[n++] = worlds[i];
+			}
+		}
+		synchronized (this.pending) {
+			if (n + this.pending.size() > worlds.length) {
+				worlds = Arrays.copyOf(worlds, Math.max(16, 2 * (n + this.pending.size())));
+			}
+			for (HostedWorld hosted : this.pending) {
+				worlds[n++] = hosted;
+			}
+			this.pending.clear();
+		}
+		Arrays.fill(worlds, n, Math.min(worlds.length, Math.max(n, this.nbWorlds)), null);
+		Arrays.sort(worlds, 0, n, BY_USED_TIME);
+		this.worlds = worlds;
+		this.nbWorlds = n;
+		return worlds;
+	}
+
+	private static final Comparator<HostedWorld> BY_USED_TIME = Comparator.comparingLong(HostedWorld::getUsedNanos);
+
+	/**
+	 * A class of tasks ticking a range of worlds, split in halves until a task per world remains, so
+	 * that idle threads steal the ticks of busy ones.
+	 */
+	@SuppressWarnings("serial")
+	private static class Round extends RecursiveAction {
+
+		Round(HostedWorld[] worlds, int from, int to) {
+			this.worlds = worlds;
+			this.from = from;
+			this.to = to;
+		}
+
+		private final HostedWorld[] worlds;
+		private final int from, to;
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= 1) {
+				if (this.from < this.to) {
+					this.worlds[this.from].tick();
+				}
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new Round(this.worlds, this.from, middle), new Round(this.worlds, middle, this.to));
+		}
+	}
+
+	/**
+	 * Start a background thread running rounds paced at the tick length, until stop() is invoked.
+	 * A round that starts late does not shift the rounds after it, unless it is more than
+	 * MAXIMAL_LAG rounds late; rounds missed beyond that are skipped.
+	 */
+	public synchronized void start() {
+		if (this.pacer != null) {
+			return;
+		}
+		this.running = true;
+		this.pacer = new Thread(this::pace, "world-host-pacer");
+		this.pacer.setDaemon(true);
+		this.pacer.start();
+	}
+
+	/**
+	 * Stop the background thread started by start(), after its current round.
+	 */
+	public void stop() {
+		Thread pacer;
+		synchronized (this) {
+			pacer = this.pacer;
+			this.running = false;
+		}
+		if (pacer != null) {
+			try {
+				pacer.join();
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (this) {
+				this.pacer = null;
+			}
+		}
+	}
+
+	private void pace() {
+		long period = (long) (this.tickLength * 1e9);
+		long deadline = System.nanoTime();
+		while (this.running) {
+			runRound();
+			deadline += period;
+			long now = System.nanoTime();
+			if (now - deadline > MAXIMAL_LAG * period) {
+				deadline = now;
+			}
+			if (deadline > now) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(deadline - now);
+				} catch (InterruptedException exc) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constant registering the number of rounds the paced rounds may fall behind before they are skipped.
+	 */
+	public static final int MAXIMAL_LAG = 5;
+
+	private Thread pacer;
+	private volatile boolean running;
+
+	/**
+	 * Stop the background thread, if any, and shut the pool of this host down.
+	 */
+	@Override
+	public void close() {
+		stop();
+		this.pool.shutdown();
+	}
+
+	/**
+	 * A class of handles of worlds hosted by a host, accounting the time their ticks take.
+	 */
+	public class HostedWorld {
+
+		private HostedWorld(World world, CollisionListener listener) {
+			this.world = world;
+			this.listener = listener;
+		}
+
+		private final World world;
+		private final CollisionListener listener;
+		private volatile boolean removed;
+		private volatile ModelException failure;
+
+		/**
+		 * Tick the world of this handle once and account the time it took.
+		 */
+		private void tick() {
+			long start = System.nanoTime();
+			try {
+				WorldHost.this.facade.evolve(this.world, WorldHost.this.tickLength, this.listener);
+			} catch (ModelException exc) {
+				this.failure = exc;
+			}
+			long duration = System.nanoTime() - start;
+			this.usedNanos += duration;
+			this.nbTicks++;
+			if (duration > WorldHost.this.tickBudgetNanos) {
+				this.nbOverruns++;
+			}
+			WorldHost.this.record(duration);
+		}
+
+		public World getWorld() {
+			return this.world;
+		}
+
+		/**
+		 * Return the number of times the world of this handle was ticked.
+		 */
+		public long getNbTicks() {
+			return this.nbTicks;
+		}
+
+		/**
+		 * Return the wall-clock time all ticks of the world of this handle took, in nanoseconds.
+		 */
+		public long getUsedNanos() {
+			return this.usedNanos;
+		}
+
+		/**
+		 * Return the number of ticks of the world of this handle that took longer than the budget per tick.
+		 */
+		public long getNbOverruns() {
+			return this.nbOverruns;
+		}
+
+		/**
+		 * Return the exception a tick of the world of this handle failed with, or null if there is none.
+		 * A world whose tick failed is no longer ticked.
+		 */
+		public ModelException getFailure() {
+			return this.failure;
+		}
+
+		private volatile long nbTicks;
+		private volatile long usedNanos;
+		private volatile long nbOverruns;
+	}
+
+	/**
+	 * Record a tick of the given duration in the statistics of this host.
+	 */
+	private void record(long duration) {
+		this.ticks.increment();
+		this.latencies.incrementAndGet(bucketOf(duration));
+	}
+
+	/**
+	 * Return the bucket of the latency histogram holding the given duration in nanoseconds.
+	 * Durations below 2^SUB_BUCKET_BITS nanoseconds have a bucket each; above that, every power of
+	 * two is split in 2^SUB_BUCKET_BITS buckets, so that the relative error stays below 1/2^SUB_BUCKET_BITS.
+	 */
+	private static int bucketOf(long duration) {
+		if (duration < (1 << SUB_BUCKET_BITS)) {
+			return (int) Math.max(0, duration);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(duration) - SUB_BUCKET_BITS;
+		int sub = (int) (duration >>> exponent) - (1 << SUB_BUCKET_BITS);
+		return Math.min(NB_BUCKETS - 1, ((exponent + 1) << SUB_BUCKET_BITS) + sub);
+	}
+
+	/**
+	 * Return the smallest duration in nanoseconds falling in the given bucket of the latency histogram.
+	 */
+	private static long lowerBoundOf(int bucket) {
+		if (bucket < (1 << SUB_BUCKET_BITS)) {
+			return bucket;
+		}
+		int exponent = (bucket >>> SUB_BUCKET_BITS) - 1;
+		long sub = bucket & ((1 << SUB_BUCKET_BITS) - 1);
+		return ((1L << SUB_BUCKET_BITS) + sub) << exponent;
+	}
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int NB_BUCKETS = (64 - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS;
+
+	private final LongAdder ticks = new LongAdder();
+	private final LongAdder rounds = new LongAdder();
+	private final AtomicLongArray latencies = new AtomicLongArray(NB_BUCKETS);
+	private volatile long startNanos;
+
+	/**
+	 * Return the statistics of this host since it was created or its statistics were last reset.
+	 */
+	public Statistics getStatistics() {
+		long[] counts = new long[NB_BUCKETS];
+		long total = 0;
+		for (int b = 0; b < NB_BUCKETS; b++) {
+			counts[b] = this.latencies.get(b);
+			total += counts[b];
+		}
+		double seconds = Math.max(1e-9, (System.nanoTime() - this.startNanos) / 1e9);
+		return new Statistics(this.nbWorlds, this.rounds.sum(), this.ticks.sum(), this.ticks.sum() / seconds,
+				percentile(counts, total, 0.5), percentile(counts, total, 0.99), percentile(counts, total, 1.0));
+	}
+
+	/**
+	 * Forget all ticks recorded so far in the statistics of this host.
+	 */
+	public void resetStatistics() {
+		for (int b = 0; b < NB_BUCKETS; b++) {
+			this.latencies.set(b, 0);
+		}
+		this.ticks.reset();
+		this.rounds.reset();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Return the lower bound of the bucket holding the given fraction of the recorded ticks.
+	 */
+	private static long percentile(long[] counts, long total, double fraction) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int b = 0; b < counts.length; b++) {
+			seen += counts[b];
+			if (seen >= rank) {
+				return lowerBoundOf(b);
+			}
+		}
+		return lowerBoundOf(counts.length - 1);
+	}
+
+	/**
+	 * A class of statistics of a host at some point in time.
+	 */
+	public static class Statistics {
+
+		private Statistics(int nbWorlds, long nbRounds, long nbTicks, double ticksPerSecond, long medianNanos,
+				long p99Nanos, long maxNanos) {
+			this.nbWorlds = nbWorlds;
+			this.nbRounds = nbRounds;
+			this.nbTicks = nbTicks;
+			this.ticksPerSecond = ticksPerSecond;
+			this.medianNanos = medianNanos;
+			this.p99Nanos = p99Nanos;
+			this.maxNanos = maxNanos;
+		}
+
+		/**
+		 * The number of worlds ticked in the last round.
+		 */
+		public final int nbWorlds;
+
+		/**
+		 * The number of rounds run.
+		 */
+		public final long nbRounds;
+
+		/**
+		 * The number of world ticks.
+		 */
+		public final long nbTicks;
+
+		/**
+		 * The number of world ticks per second of wall-clock time.
+		 */
+		public final double ticksPerSecond;
+
+		/**
+		 * The median, the 99th percentile and the largest tick latency, in nanoseconds, each
+		 * within 1/16 of the true value.
+		 */
+		public final long medianNanos;
+		public final long p99Nanos;
+		public final long maxNanos;
+
+		@Override
+		public String toString() {
+			return String.format("%d worlds, %d rounds, %.1f ticks/s, p50 %.3f ms, p99 %.3f ms, max %.3f ms", this.nbWorlds,
+					this.nbRounds, this.ticksPerSecond, this.medianNanos / 1e6, this.p99Nanos / 1e6, this.maxNanos / 1e6);
+		}
+	}
+}
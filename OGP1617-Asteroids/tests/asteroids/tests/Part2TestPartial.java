@@ -1,15 +1,53 @@
 package asteroids.tests;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.DoubleBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import asteroids.model.BroadPhaseType;
 import asteroids.model.Bullet;
+import asteroids.model.CollisionBatch;
+import asteroids.model.CollisionKernel;
+import asteroids.model.Entity;
+import asteroids.model.FreeFlight;
+import asteroids.model.SharedWorldView;
 import asteroids.model.Ship;
 import asteroids.model.World;
+import asteroids.model.WorldShard;
+import asteroids.model.WorldSnapshot;
 import asteroids.facade.Facade;
+import asteroids.part2.CollisionListener;
+import asteroids.part2.GameScenario;
+import asteroids.part2.ReplayPlayer;
+import asteroids.part2.ReplayRecorder;
+import asteroids.part2.WorldHost;
 import asteroids.part2.facade.IFacade;
 import asteroids.util.ModelException;
 
@@ -56,4 +94,1093 @@ public class Part2TestPartial {
 		assertEquals(0, facade.getShipVelocity(ship)[1], EPSILON);
 	}
 
+	@Test
+	public void testEvolveBoundaryCollision() throws ModelException {
+		World world = facade.createWorld(1000, 1000);
+		Ship ship = facade.createShip(100, 500, -10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship);
+		assertEquals(5, facade.getTimeNextCollision(world), EPSILON);
+		facade.evolve(world, 6, null);
+		assertEquals(60, facade.getShipPosition(ship)[0], EPSILON);
+		assertEquals(10, facade.getShipVelocity(ship)[0], EPSILON);
+	}
+
+	@Test
+	public void testEvolveShipCollisionPredictedAgain() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship1 = facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20);
+		Ship ship2 = facade.createShip(1300, 1000, -10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		assertEquals(10, facade.getTimeNextCollision(world), EPSILON);
+		ship2.setVelocity(0, 0);
+		assertEquals(20, facade.getTimeNextCollision(world), EPSILON);
+		facade.evolve(world, 25, null);
+		assertEquals(0, facade.getShipVelocity(ship1)[0], EPSILON);
+		assertEquals(10, facade.getShipVelocity(ship2)[0], EPSILON);
+		assertEquals(1350, facade.getShipPosition(ship2)[0], EPSILON);
+	}
+
+	@Test
+	public void testEvolveSweepAndPrune() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		world.setBroadPhaseType(BroadPhaseType.SWEEP_AND_PRUNE);
+		Ship ship1 = facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20);
+		Ship ship2 = facade.createShip(1300, 1000, -10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		assertEquals(10, facade.getTimeNextCollision(world), EPSILON);
+		facade.evolve(world, 15, null);
+		assertEquals(-10, facade.getShipVelocity(ship1)[0], EPSILON);
+		assertEquals(10, facade.getShipVelocity(ship2)[0], EPSILON);
+		assertEquals(ship1, facade.getEntityAt(world, 1050, 1000));
+	}
+
+	@Test
+	public void testEvolveParallelDeterministic() throws ModelException {
+		assertEvolveParallelDeterministic(createCrowdedWorld(false, 600, 4000), createCrowdedWorld(true, 600, 4000), 30);
+	}
+
+	@Test
+	public void testEvolveParallelDeterministicMovingInParallel() throws ModelException {
+		World serial = createCrowdedWorld(false, 20000, 20000), parallel = createCrowdedWorld(true, 20000, 20000);
+		// enough entities to move them in parallel chunks, see ParallelEvolution.MOTION_THRESHOLD
+		assertTrue(parallel.getNbEntities() >= 1 << 14);
+		assertEvolveParallelDeterministic(serial, parallel, 5);
+	}
+
+	private void assertEvolveParallelDeterministic(World serial, World parallel, int nbTicks) throws ModelException {
+		for (int tick = 0; tick < nbTicks; tick++) {
+			facade.evolve(serial, 1.0 / 30, null);
+			facade.evolve(parallel, 1.0 / 30, null);
+		}
+		Object[] expected = serial.getEntities().toArray(), actual = parallel.getEntities().toArray();
+		assertEquals(expected.length, actual.length);
+		for (int k = 0; k < expected.length; k++) {
+			assertEquals(((Ship) expected[k]).getxCoordinate(), ((Ship) actual[k]).getxCoordinate(), 0.0);
+			assertEquals(((Ship) expected[k]).getyCoordinate(), ((Ship) actual[k]).getyCoordinate(), 0.0);
+			assertEquals(((Ship) expected[k]).getxVelocity(), ((Ship) actual[k]).getxVelocity(), 0.0);
+		}
+	}
+
+	private World createCrowdedWorld(boolean parallel, int nbShips, double size) throws ModelException {
+		World world = facade.createWorld(size, size);
+		world.setParallel(parallel);
+		Random random = new Random(3);
+		for (int k = 0; k < nbShips; k++) {
+			Ship ship = facade.createShip(50 + (size - 100) * random.nextDouble(), 50 + (size - 100) * random.nextDouble(),
+					200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100, 20, 0, 1.0E20);
+			if (world.canHaveAsEntity(ship)) {
+				facade.addShipToWorld(world, ship);
+				facade.setThrusterActive(ship, k % 2 == 0);
+			}
+		}
+		return world;
+	}
+
+	@Test
+	public void testGetEntityAtAfterEvolve() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship1 = facade.createShip(1000, 1000, 100, 0, 50, 0, 1.0E20);
+		Ship ship2 = facade.createShip(3000, 3000, 0, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		assertEquals(ship1, facade.getEntityAt(world, 1020, 1000));
+		facade.evolve(world, 10, null);
+		assertEquals(null, facade.getEntityAt(world, 1020, 1000));
+		assertEquals(ship1, facade.getEntityAt(world, 2020, 1000));
+		facade.removeShipFromWorld(world, ship2);
+		assertEquals(null, facade.getEntityAt(world, 3000, 3000));
+	}
+
+	@Test
+	public void testFacadeGettersAfterRemovals() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship[] ships = new Ship[6];
+		Bullet[] bullets = new Bullet[6];
+		for (int k = 0; k < 6; k++) {
+			ships[k] = facade.createShip(300 + 600 * k, 1000, k, -k, 40 + k, 0.1 * k, 1.0E20 * (k + 1));
+			facade.addShipToWorld(world, ships[k]);
+		}
+		for (int k = 0; k < 6; k++) {
+			bullets[k] = facade.createBullet(300 + 600 * k, 3000, 0, k, 5 + k);
+			facade.addBulletToWorld(world, bullets[k]);
+		}
+		assertEquals(191, facade.getTimeNextBoundaryCollision(world), EPSILON);
+		facade.removeShipFromWorld(world, ships[1]);
+		facade.terminateBullet(bullets[5]);
+		facade.terminateShip(ships[0]);
+		facade.removeBulletFromWorld(world, bullets[2]);
+		facade.removeShipFromWorld(world, ships[3]);
+
+		assertEquals(7, facade.getEntities(world).size());
+		assertNull(facade.getShipWorld(ships[1]));
+		assertEquals(900, facade.getShipPosition(ships[1])[0], EPSILON);
+		assertEquals(-1, facade.getShipVelocity(ships[1])[1], EPSILON);
+		for (int k : new int[] { 2, 4, 5 }) {
+			assertSame(world, facade.getShipWorld(ships[k]));
+			assertEquals(300 + 600 * k, facade.getShipPosition(ships[k])[0], EPSILON);
+			assertEquals(1000, facade.getShipPosition(ships[k])[1], EPSILON);
+			assertEquals(k, facade.getShipVelocity(ships[k])[0], EPSILON);
+			assertEquals(-k, facade.getShipVelocity(ships[k])[1], EPSILON);
+			assertEquals(40 + k, facade.getShipRadius(ships[k]), EPSILON);
+			assertEquals(0.1 * k, facade.getShipOrientation(ships[k]), EPSILON);
+			assertEquals(1.0E20 * (k + 1), facade.getShipMass(ships[k]), 1.0E10);
+			assertSame(ships[k], facade.getEntityAt(world, 300 + 600 * k, 1000));
+		}
+		for (int k : new int[] { 0, 1, 3, 4 }) {
+			assertSame(world, facade.getBulletWorld(bullets[k]));
+			assertEquals(300 + 600 * k, facade.getBulletPosition(bullets[k])[0], EPSILON);
+			assertEquals(k, facade.getBulletVelocity(bullets[k])[1], EPSILON);
+			assertEquals(5 + k, facade.getBulletRadius(bullets[k]), EPSILON);
+		}
+		// the ship added last among the ships left hits the bottom boundary first
+		assertEquals(191, facade.getTimeNextBoundaryCollision(world), EPSILON);
+		assertEquals(4255, facade.getPositionNextBoundaryCollision(world)[0], EPSILON);
+		ships[5].setVelocity(0, 0);
+		assertEquals(239, facade.getTimeNextBoundaryCollision(world), EPSILON);
+		facade.addBulletToWorld(world, facade.createBullet(4900, 2500, 10, 0, 5));
+		assertEquals(9.5, facade.getTimeNextBoundaryCollision(world), EPSILON);
+
+		facade.evolve(world, 10, null);
+		for (int k : new int[] { 2, 4 }) {
+			assertEquals(300 + 610 * k, facade.getShipPosition(ships[k])[0], EPSILON);
+			assertEquals(1000 - 10 * k, facade.getShipPosition(ships[k])[1], EPSILON);
+		}
+		assertEquals(3300, facade.getShipPosition(ships[5])[0], EPSILON);
+		assertEquals(229, facade.getTimeNextBoundaryCollision(world), EPSILON);
+		for (int k : new int[] { 0, 1, 3, 4 }) {
+			assertEquals(3000 + 10 * k, facade.getBulletPosition(bullets[k])[1], EPSILON);
+		}
+	}
+
+	@Test
+	public void testGetEntitiesWithin() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship1 = facade.createShip(1000, 1000, 0, 0, 50, 0, 1.0E20);
+		Ship ship2 = facade.createShip(1200, 1000, 0, 0, 50, 0, 1.0E20);
+		Bullet bullet = facade.createBullet(4000, 4000, 0, 0, 10);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		facade.addBulletToWorld(world, bullet);
+		assertEquals(2, world.getEntitiesWithin(900, 900, 1160, 1100).size());
+		assertEquals(1, world.getEntitiesWithin(1040, 900, 1140, 1100).size());
+		assertTrue(world.getEntitiesWithin(2000, 2000, 3000, 3000).isEmpty());
+		assertTrue(world.getEntitiesWithin(3995, 3995, 4005, 4005).contains(bullet));
+	}
+
+	@Test
+	public void testAccessorsIntoDestination() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship1 = facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20);
+		Ship ship2 = facade.createShip(1300, 1000, -10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		assertEquals(1000, facade.getShipX(ship1), EPSILON);
+		assertEquals(-10, facade.getShipVelocityX(ship2), EPSILON);
+		double[] destination = new double[2];
+		assertSame(destination, facade.getShipPosition(ship2, destination));
+		assertEquals(1300, destination[0], EPSILON);
+		assertSame(destination, facade.getPositionCollisionEntity(ship1, ship2, destination));
+		assertArrayEquals(facade.getPositionCollisionEntity(ship1, ship2), destination, EPSILON);
+		assertSame(destination, facade.getPositionNextCollision(world, destination));
+		assertEquals(1150, destination[0], EPSILON);
+		assertEquals(1000, destination[1], EPSILON);
+	}
+
+	@Test
+	public void testExportEntities() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship = facade.createShip(1000, 1000, 10, 0, 50, 0.5, 1.0E20);
+		Bullet bullet = facade.createBullet(3000, 2000, 0, -20, 10);
+		facade.addShipToWorld(world, ship);
+		facade.addBulletToWorld(world, bullet);
+		double[] state = new double[1 + 2 * World.STATE_STRIDE];
+		assertEquals(2, facade.exportEntities(world, state, 1));
+		assertEquals(ship.getId(), state[1], 0);
+		assertEquals(World.STATE_SHIP, state[2], 0);
+		assertEquals(1000, state[3], EPSILON);
+		assertEquals(0.5, state[8], EPSILON);
+		assertEquals(bullet.getId(), state[1 + World.STATE_STRIDE], 0);
+		assertEquals(World.STATE_BULLET, state[2 + World.STATE_STRIDE], 0);
+		assertEquals(-20, state[6 + World.STATE_STRIDE], EPSILON);
+
+		facade.evolve(world, 1, null);
+		DoubleBuffer buffer = DoubleBuffer.allocate(2 * World.STATE_STRIDE);
+		assertEquals(2, facade.exportEntities(world, buffer));
+		assertEquals(0, buffer.remaining());
+		assertEquals(ship.getId(), buffer.get(0), 0);
+		assertEquals(1010, buffer.get(2), EPSILON);
+		assertEquals(1980, buffer.get(3 + World.STATE_STRIDE), EPSILON);
+		try {
+			facade.exportEntities(world, new double[World.STATE_STRIDE], 0);
+			fail();
+		} catch (ModelException exc) {
+		}
+	}
+
+	@Test
+	public void testCreateBulletReusesTerminatedBullet() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Bullet bullet = facade.createBullet(world, 1000, 1000, 10, 0, 10);
+		facade.addBulletToWorld(world, bullet);
+		long id = facade.getEntityId(bullet);
+		facade.terminateBullet(bullet);
+		assertTrue(bullet.isTerminated(id));
+		assertTrue(facade.isTerminatedBullet(bullet, id));
+
+		Bullet reused = facade.createBullet(world, 2000, 3000, 0, -20, 5);
+		assertSame(bullet, reused);
+		assertFalse(facade.isTerminatedBullet(reused));
+		assertTrue(reused.isTerminated(id));
+		assertFalse(reused.isTerminated(facade.getEntityId(reused)));
+		assertTrue(facade.isTerminatedBullet(reused, id));
+		assertFalse(facade.isTerminatedBullet(reused, facade.getEntityId(reused)));
+		assertEquals(2000, facade.getBulletX(reused), EPSILON);
+		assertEquals(-20, facade.getBulletVelocityY(reused), EPSILON);
+		assertEquals(5, facade.getBulletRadius(reused), EPSILON);
+		assertNull(facade.getBulletWorld(reused));
+		assertNull(facade.getBulletSource(reused));
+		facade.addBulletToWorld(world, reused);
+		assertEquals(1, facade.getWorldBullets(world).size());
+
+		assertNotSame(reused, facade.createBullet(world, 1000, 1000, 10, 0, 10));
+
+		// collisions predicted for the bullet before it was terminated no longer apply once it is reused
+		Ship ship = facade.createShip(500, 500, 0, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship);
+		Bullet moving = facade.createBullet(world, 1000, 1000, -10, -10, 10);
+		facade.addBulletToWorld(world, moving);
+		double collision = facade.getTimeNextCollision(world);
+		facade.terminateBullet(moving);
+		Bullet still = facade.createBullet(world, 900, 900, 0, 0, 10);
+		assertSame(moving, still);
+		facade.addBulletToWorld(world, still);
+		assertEquals(149.75, facade.getTimeNextCollision(world), EPSILON);
+		facade.evolve(world, collision + 1, null);
+		assertFalse(facade.isTerminatedBullet(still));
+		assertEquals(900, facade.getBulletX(still), EPSILON);
+		assertEquals(0, facade.getShipVelocity(ship)[0], EPSILON);
+		assertEquals(500, facade.getShipX(ship), EPSILON);
+	}
+
+	@Test
+	public void testSnapshotPublishedAfterEvolve() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship = facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship);
+		assertNull(world.getSnapshot());
+		world.setPublishingSnapshots(true);
+		WorldSnapshot first = world.getSnapshot();
+		assertEquals(1, first.getNbEntities());
+		assertEquals(1000, first.getX(0), EPSILON);
+
+		facade.evolve(world, 1, null);
+		WorldSnapshot second = world.getSnapshot();
+		assertNotSame(first, second);
+		assertTrue(second.getSequence() > first.getSequence());
+		assertEquals(1010, second.getX(0), EPSILON);
+		assertEquals(0, second.indexOf(ship.getId()));
+		assertTrue(second.isShip(0));
+
+		facade.evolve(world, 1, null);
+		facade.evolve(world, 1, null);
+		assertEquals(1010, second.getX(0), EPSILON);
+		assertEquals(1030, world.getSnapshot().getX(0), EPSILON);
+	}
+
+	@Test
+	public void testSnapshotsHeldByTwoReaders() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship = facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship);
+		world.setPublishingSnapshots(true);
+		facade.evolve(world, 1, null);
+		WorldSnapshot first = world.getSnapshot();
+		facade.evolve(world, 1, null);
+		WorldSnapshot second = world.getSnapshot();
+		for (int k = 0; k < 5; k++) {
+			facade.evolve(world, 1, null);
+			assertEquals(1010, first.getX(0), EPSILON);
+			assertEquals(1020, second.getX(0), EPSILON);
+			// a reader keeps taking the latest snapshot, while the other two hold on to theirs
+			assertEquals(1030 + 10 * k, world.getSnapshot().getX(0), EPSILON);
+		}
+		facade.addShipToWorld(world, facade.createShip(3000, 3000, 0, 0, 50, 0, 1.0E20));
+		facade.evolve(world, 1, null);
+		assertEquals(2, world.getSnapshot().getNbEntities());
+		assertEquals(1, first.getNbEntities());
+		assertEquals(1010, first.getX(0), EPSILON);
+		assertEquals(1020, second.getX(0), EPSILON);
+	}
+
+	@Test
+	public void testSharedViewFollowsWorld() throws ModelException, IOException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship = facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20);
+		facade.addShipToWorld(world, ship);
+		Path file = Files.createTempFile("asteroids", ".view");
+		try {
+			world.setSharedView(file);
+			try (SharedWorldView view = SharedWorldView.open(file)) {
+				long first = view.beginRead();
+				assertEquals(1, view.getNbEntities());
+				assertEquals(1000, view.getX(0), EPSILON);
+				assertEquals(ship.getId(), view.getId(0));
+				assertTrue(view.isShip(0));
+				assertTrue(view.endRead(first));
+
+				for (int k = 0; k < 1500; k++) {
+					facade.addBulletToWorld(world, facade.createBullet(2000 + 50 * (k % 40), 100 + 100 * (k / 40), 0, 0, 2));
+				}
+				facade.evolve(world, 1, null);
+				assertFalse(view.endRead(first));
+				long second = view.beginRead();
+				assertTrue(second > first);
+				assertEquals(1501, view.getNbEntities());
+				assertEquals(1.0, view.getTime(), EPSILON);
+				assertEquals(1010, view.getX(0), EPSILON);
+				assertTrue(view.isBullet(1500));
+				assertEquals(2000 + 50 * (1499 % 40), view.getX(1500), EPSILON);
+				assertEquals(100 + 100 * (1499 / 40), view.getY(1500), EPSILON);
+				assertTrue(view.endRead(second));
+
+				assertFalse(view.isClosed());
+				world.terminate();
+				assertTrue(view.isClosed());
+				assertNull(world.getSharedViewPath());
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testWorldHostTicksEveryWorldEachRound() throws ModelException {
+		try (WorldHost host = new WorldHost(facade, 0.1, 1_000_000_000L, 2)) {
+			WorldHost.HostedWorld[] hosted = new WorldHost.HostedWorld[20];
+			for (int k = 0; k < hosted.length; k++) {
+				World world = facade.createWorld(5000, 5000);
+				facade.addShipToWorld(world, facade.createShip(1000, 1000, 10, 0, 50, 0, 1.0E20));
+				hosted[k] = host.host(world, null);
+			}
+			host.runRounds(10);
+			host.remove(hosted[0]);
+			host.runRounds(5);
+			assertEquals(10, hosted[0].getNbTicks());
+			assertEquals(1.0, hosted[0].getWorld().getTime(), EPSILON);
+			for (int k = 1; k < hosted.length; k++) {
+				assertEquals(15, hosted[k].getNbTicks());
+				assertEquals(1.5, hosted[k].getWorld().getTime(), EPSILON);
+				assertNull(hosted[k].getFailure());
+			}
+			WorldHost.Statistics statistics = host.getStatistics();
+			assertEquals(19, statistics.nbWorlds);
+			assertEquals(15, statistics.nbRounds);
+			assertEquals(10 * 20 + 5 * 19, statistics.nbTicks);
+			assertTrue(statistics.p99Nanos <= statistics.maxNanos);
+		}
+	}
+
+	@Test
+	public void testReplayReproducesRecordedMatch() throws ModelException, IOException {
+		Path file = Files.createTempFile("asteroids", ".replay");
+		try {
+			GameScenario scenario = new GameScenario(facade, 1024, 768, 7);
+			try (ReplayRecorder recorder = new ReplayRecorder(file, scenario, null)) {
+				Ship player = scenario.getPlayer();
+				for (int k = 0; k < 600; k++) {
+					if (k % 30 == 0) {
+						recorder.recordTurn(player, Math.PI / 12);
+						facade.turn(player, Math.PI / 12);
+						for (Ship ship : scenario.getShips()) {
+							if (! facade.isTerminatedShip(ship)) {
+								recorder.recordFire(ship);
+								GameScenario.fireBullet(facade, scenario.getWorld(), ship);
+							}
+						}
+					}
+					recorder.recordEvolve(1.0 / 30);
+					facade.evolve(scenario.getWorld(), 1.0 / 30, recorder);
+				}
+			}
+			try (ReplayPlayer player = new ReplayPlayer(facade, file)) {
+				ReplayPlayer.Result result = player.play();
+				assertEquals(600, result.nbTicks);
+				assertTrue(result.nbCollisions > 0);
+				assertEquals(0, result.nbMismatches);
+				assertEquals(-1, result.firstMismatchTick);
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testSaveAndLoadWorld() throws ModelException, IOException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship = facade.createShip(1000, 1000, 10, -5, 50, 1, 1.0E20);
+		Ship other = facade.createShip(3000, 1000, -10, 0, 40, 0, 1.0E20);
+		Bullet free = facade.createBullet(2000, 4000, 0, 100, 5);
+		facade.addShipToWorld(world, ship);
+		facade.addShipToWorld(world, other);
+		facade.addBulletToWorld(world, free);
+		for (int k = 0; k < 3; k++) {
+			facade.loadBulletOnShip(ship, facade.createBullet(1000, 1000, 0, 0, 5 + k));
+		}
+		facade.fireBullet(ship);
+		facade.setThrusterActive(other, true);
+		facade.evolve(world, 1, null);
+
+		Path file = Files.createTempFile("asteroids", ".world");
+		try {
+			facade.saveWorld(world, file.toString());
+			World loaded = facade.loadWorld(file.toString());
+			assertEquals(facade.getWorldSize(world)[0], facade.getWorldSize(loaded)[0], EPSILON);
+			assertEquals(world.getTime(), loaded.getTime(), 0);
+			assertEquals(4, facade.getEntities(loaded).size());
+
+			Ship loadedShip = null;
+			for (Ship candidate : facade.getWorldShips(loaded)) {
+				if (facade.getNbBulletsOnShip(candidate) == 2) {
+					loadedShip = candidate;
+				}
+			}
+			assertEquals(facade.getShipMass(ship), facade.getShipMass(loadedShip), EPSILON);
+			int nbFired = 0;
+			for (Bullet bullet : facade.getWorldBullets(loaded)) {
+				if (facade.getBulletSource(bullet) != null) {
+					assertSame(loadedShip, facade.getBulletSource(bullet));
+					nbFired++;
+				}
+			}
+			assertEquals(1, nbFired);
+
+			double[] expected = new double[4 * World.STATE_STRIDE], actual = new double[4 * World.STATE_STRIDE];
+			for (int step = 0; step < 2; step++) {
+				facade.exportEntities(world, expected, 0);
+				facade.exportEntities(loaded, actual, 0);
+				for (int k = 0; k < expected.length; k++) {
+					if (k % World.STATE_STRIDE != 0) {
+						assertEquals(expected[k], actual[k], EPSILON);
+					}
+				}
+				facade.evolve(world, 10, null);
+				facade.evolve(loaded, 10, null);
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(expected = ModelException.class)
+	public void testLoadWorldRejectsOtherFile() throws ModelException, IOException {
+		Path file = Files.createTempFile("asteroids", ".world");
+		try {
+			Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+			facade.loadWorld(file.toString());
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testEvolveBulletHitsShip() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship = facade.createShip(1000, 1000, 0, 0, 50, 0, 1.0E20);
+		Bullet bullet = facade.createBullet(1200, 1000, -50, 0, 10);
+		facade.addShipToWorld(world, ship);
+		facade.addBulletToWorld(world, bullet);
+		facade.evolve(world, 5, null);
+		assertTrue(facade.isTerminatedShip(ship));
+		assertTrue(facade.isTerminatedBullet(bullet));
+		assertTrue(facade.getEntities(world).isEmpty());
+	}
+
+	@Test
+	public void testEvolveBatchedDeliversCollisionsAfterStep() throws ModelException {
+		World world = facade.createWorld(5000, 5000);
+		Ship ship1 = facade.createShip(1000, 1000, -100, 0, 50, 0, 1.0E20);
+		Ship ship2 = facade.createShip(3000, 1000, 0, 0, 50, 0, 1.0E20);
+		Bullet bullet = facade.createBullet(3200, 1000, -50, 0, 10);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		facade.addBulletToWorld(world, bullet);
+		long bulletId = facade.getEntityId(bullet);
+		CollisionBatch[] delivered = new CollisionBatch[1];
+		facade.evolveBatched(world, 10, batch -> {
+			// the step has finished by the time the collisions are delivered
+			assertNull(delivered[0]);
+			assertTrue(ship2.isTerminated());
+			assertEquals(100, ship1.getxCoordinate(), EPSILON);
+			delivered[0] = batch;
+		});
+		CollisionBatch batch = delivered[0];
+		assertSame(world.getCollisionBatch(), batch);
+		assertEquals(2, batch.getNbCollisions());
+		assertFalse(batch.isBoundaryCollision(0));
+		assertTrue(batch.getFirstId(0) == bulletId || batch.getSecondId(0) == bulletId);
+		assertEquals(3050, batch.getX(0), EPSILON);
+		assertEquals(1000, batch.getY(0), EPSILON);
+		assertEquals(2.8, batch.getTime(0), EPSILON);
+		assertTrue(batch.isBoundaryCollision(1));
+		assertSame(ship1, batch.getFirst(1));
+		assertNull(batch.getSecond(1));
+		assertEquals(0, batch.getX(1), EPSILON);
+		assertEquals(1000, batch.getY(1), EPSILON);
+		assertEquals(9.5, batch.getTime(1), EPSILON);
+		facade.evolveBatched(world, 1, null);
+		assertEquals(0, batch.getNbCollisions());
+	}
+
+	@Test
+	public void testFreeFlightVectorMatchesScalar() {
+		assumeTrue(FreeFlight.isVectorAvailable());
+		Random random = new Random(7);
+		int n = 1003;
+		double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = 1.0E4 * random.nextDouble();
+			y[i] = 1.0E4 * random.nextDouble();
+			vx[i] = 200 * random.nextDouble() - 100;
+			vy[i] = 200 * random.nextDouble() - 100;
+		}
+		double[] x2 = x.clone(), y2 = y.clone();
+		FreeFlight.advanceScalar(x, y, vx, vy, 3, n - 1, 1.0 / 30);
+		FreeFlight.advanceVector(x2, y2, vx, vy, 3, n - 1, 1.0 / 30);
+		assertArrayEquals(x, x2, 0);
+		assertArrayEquals(y, y2, 0);
+	}
+
+	@Test
+	public void testCollisionsWithEntitiesMatchPairwise() throws ModelException {
+		World world = facade.createWorld(1.0E4, 1.0E4);
+		Random random = new Random(11);
+		Ship selected = facade.createShip(5000, 5000, 30, -20, 40, 0, 1.0E20);
+		facade.addShipToWorld(world, selected);
+		while (facade.getEntities(world).size() < 101) {
+			Ship ship = facade.createShip(100 + 9800 * random.nextDouble(), 100 + 9800 * random.nextDouble(),
+					200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100, 10 + 30 * random.nextDouble(), 0,
+					1.0E20);
+			try {
+				facade.addShipToWorld(world, ship);
+			} catch (ModelException exc) {
+				// overlaps another ship
+			}
+		}
+		int n = facade.getEntities(world).size();
+		double[] state = new double[n * World.STATE_STRIDE];
+		double[] times = new double[n], positions = new double[2 * n];
+		assertEquals(n, facade.exportEntities(world, state, 0));
+		assertEquals(n, facade.getCollisionsWithEntities(world, selected, times, positions));
+		int nbCollisions = 0;
+		for (Object entity : facade.getEntities(world)) {
+			int k = 0;
+			while ((long) state[k * World.STATE_STRIDE] != facade.getEntityId(entity)) {
+				k++;
+			}
+			assertEquals(facade.getTimeCollisionEntity(selected, entity), times[k], 0);
+			double[] position = facade.getPositionCollisionEntity(selected, entity);
+			if (position == null) {
+				assertTrue(Double.isNaN(positions[2 * k]) && Double.isNaN(positions[2 * k + 1]));
+			} else {
+				nbCollisions++;
+				assertEquals(position[0], positions[2 * k], 0);
+				assertEquals(position[1], positions[2 * k + 1], 0);
+			}
+		}
+		assertTrue(nbCollisions > 0);
+	}
+
+	@Test
+	public void testFacadeDefaultsAgreeWithFacade() throws ModelException {
+		World world = createCrowdedWorld(59);
+		Random random = new Random(61);
+		addBullets(world, random, 30);
+		IFacade defaults = createDefaultsFacade();
+		Ship selected = facade.getWorldShips(world).iterator().next();
+		int n = facade.getNbEntities(world);
+		assertEquals(n, defaults.getNbEntities(world));
+		double[] expected = new double[n * World.STATE_STRIDE], actual = new double[n * World.STATE_STRIDE];
+		assertEquals(n, facade.exportEntities(world, expected, 0));
+		assertEquals(n, defaults.exportEntities(world, actual, 0));
+		assertArrayEquals(expected, actual, 0);
+		DoubleBuffer buffer = DoubleBuffer.allocate(n * World.STATE_STRIDE);
+		assertEquals(n, defaults.exportEntities(world, buffer));
+		assertArrayEquals(expected, buffer.array(), 0);
+		double[] expectedTimes = new double[n], actualTimes = new double[n];
+		double[] expectedPositions = new double[2 * n], actualPositions = new double[2 * n];
+		facade.getCollisionsWithEntities(world, selected, expectedTimes, expectedPositions);
+		defaults.getCollisionsWithEntities(world, selected, actualTimes, actualPositions);
+		assertArrayEquals(expectedTimes, actualTimes, EPSILON);
+		assertArrayEquals(expectedPositions, actualPositions, EPSILON);
+		boolean[] expectedOverlaps = new boolean[n], actualOverlaps = new boolean[n];
+		Bullet probe = facade.createBullet(facade.getShipX(selected) + facade.getShipRadius(selected), facade.getShipY(selected), 0, 0, 10);
+		facade.getOverlapsWithEntities(world, probe, expectedOverlaps);
+		defaults.getOverlapsWithEntities(world, probe, actualOverlaps);
+		assertArrayEquals(expectedOverlaps, actualOverlaps);
+		assertEquals(facade.getTimeNextBoundaryCollision(world), defaults.getTimeNextBoundaryCollision(world), EPSILON);
+		assertArrayEquals(facade.getPositionNextBoundaryCollision(world), defaults.getPositionNextBoundaryCollision(world), EPSILON);
+		try {
+			defaults.createWorld(1000, 1000, true);
+			fail();
+		} catch (ModelException exc) {
+			// expected
+		}
+		assertFalse(defaults.createWorld(1000, 1000, false).isToroidal());
+	}
+
+	/**
+	 * Return a facade answering the methods IFacade has default implementations for through those
+	 * implementations, and all others through the facade of this test.
+	 */
+	private IFacade createDefaultsFacade() {
+		return (IFacade) Proxy.newProxyInstance(IFacade.class.getClassLoader(), new Class<?>[] { IFacade.class },
+				(proxy, method, args) -> {
+					try {
+						return method.isDefault() ? InvocationHandler.invokeDefault(proxy, method, args)
+								: method.invoke(facade, args);
+					} catch (InvocationTargetException exc) {
+						throw exc.getCause();
+					}
+				});
+	}
+
+	@Test
+	public void testCollisionKernelVectorMatchesScalar() {
+		assumeTrue(FreeFlight.isVectorAvailable());
+		Random random = new Random(13);
+		int n = 1001;
+		double[] x = new double[n], y = new double[n], vx = new double[n], vy = new double[n], r = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = 1000 * random.nextDouble();
+			y[i] = 1000 * random.nextDouble();
+			vx[i] = 200 * random.nextDouble() - 100;
+			vy[i] = 200 * random.nextDouble() - 100;
+			r[i] = 5 + 20 * random.nextDouble();
+		}
+		double[] times = new double[n], px = new double[n], py = new double[n];
+		double[] times2 = new double[n], px2 = new double[n], py2 = new double[n];
+		CollisionKernel.getCollisionsScalar(500, 500, 10, -5, 20, x, y, vx, vy, r, 0, n, times, px, py);
+		CollisionKernel.getCollisionsVector(500, 500, 10, -5, 20, x, y, vx, vy, r, 0, n, times2, px2, py2);
+		assertArrayEquals(times, times2, 0);
+		assertArrayEquals(px, px2, 0);
+		assertArrayEquals(py, py2, 0);
+	}
+
+	@Test
+	public void testFastForwardMatchesEvolve() throws ModelException {
+		World evolved = createCrowdedWorld(17);
+		World forwarded = createCrowdedWorld(17);
+		int[] nbCollisions = new int[2];
+		facade.evolveBatched(evolved, 20, batch -> nbCollisions[0] = batch.getNbCollisions());
+		facade.fastForward(forwarded, 20, batch -> nbCollisions[1] = batch.getNbCollisions());
+		assertTrue(nbCollisions[0] > 10);
+		assertEquals(nbCollisions[0], nbCollisions[1]);
+		assertEquals(20, forwarded.getTime(), EPSILON);
+		int n = facade.getEntities(evolved).size();
+		assertEquals(n, facade.getEntities(forwarded).size());
+		double[] expected = new double[n * World.STATE_STRIDE], actual = new double[n * World.STATE_STRIDE];
+		facade.exportEntities(evolved, expected, 0);
+		facade.exportEntities(forwarded, actual, 0);
+		for (int k = 0; k < expected.length; k++) {
+			if (k % World.STATE_STRIDE != 0) {
+				assertEquals(expected[k], actual[k], EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testNextBoundaryCollisionFromIndex() throws ModelException {
+		World world = createCrowdedWorld(23);
+		facade.evolve(world, 15, null);
+		double earliest = Double.POSITIVE_INFINITY;
+		Ship first = null;
+		for (Ship ship : facade.getWorldShips(world)) {
+			double time = facade.getTimeCollisionBoundary(ship);
+			double x = ship.getxCoordinate() + ship.getxVelocity() * time;
+			double y = ship.getyCoordinate() + ship.getyVelocity() * time;
+			double r = ship.getRadius();
+			assertEquals(0, Math.min(Math.min(x - r, 3000 - x - r), Math.min(y - r, 3000 - y - r)), 1E-6);
+			if (time < earliest) {
+				earliest = time;
+				first = ship;
+			}
+		}
+		assertEquals(earliest, facade.getTimeNextBoundaryCollision(world), EPSILON);
+		assertEquals(first, world.getEntityNextBoundaryCollision());
+		assertArrayEquals(facade.getPositionCollisionBoundary(first), facade.getPositionNextBoundaryCollision(world),
+				EPSILON);
+		Ship ship = facade.getWorldShips(world).stream().filter(other -> other != world.getEntityNextBoundaryCollision())
+				.findFirst().get();
+		ship.setVelocity(ship.getxCoordinate() > 1500 ? 290 : -290, 0);
+		double expected = ship.getxCoordinate() > 1500 ? (3000 - ship.getRadius() - ship.getxCoordinate()) / 290
+				: (ship.getxCoordinate() - ship.getRadius()) / 290;
+		assertEquals(expected, facade.getTimeCollisionBoundary(ship), EPSILON);
+		assertEquals(Math.min(earliest, expected), facade.getTimeNextBoundaryCollision(world), EPSILON);
+		facade.removeShipFromWorld(world, first);
+		assertTrue(world.getEntityNextBoundaryCollision() != first);
+		assertTrue(facade.getTimeNextBoundaryCollision(world) >= Math.min(earliest, expected) - EPSILON);
+	}
+
+	@Test
+	public void testToroidalWorldWrapsAround() throws ModelException {
+		World world = facade.createWorld(1000, 1000, true);
+		Ship ship1 = facade.createShip(30, 500, -50, 0, 15, 0, 1.0E20);
+		Ship ship2 = facade.createShip(970, 500, 50, 0, 15, 0, 1.0E20);
+		Ship ship3 = facade.createShip(500, 980, 0, 100, 30, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		facade.addShipToWorld(world, ship3);
+		assertEquals(Double.POSITIVE_INFINITY, facade.getTimeCollisionBoundary(ship3), EPSILON);
+		assertEquals(0.3, facade.getTimeCollisionEntity(ship1, ship2), EPSILON);
+		assertEquals(0.3, facade.getTimeNextCollision(world), EPSILON);
+		double[] position = facade.getPositionNextCollision(world);
+		assertEquals(0, Math.min(position[0], 1000 - position[0]), EPSILON);
+		assertEquals(500, position[1], EPSILON);
+		int[] nbCollisions = new int[2];
+		facade.evolve(world, 1, new CollisionListener() {
+			public void boundaryCollision(Object entity, double x, double y) {
+				nbCollisions[0]++;
+			}
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				nbCollisions[1]++;
+			}
+		});
+		assertEquals(0, nbCollisions[0]);
+		assertEquals(1, nbCollisions[1]);
+		assertEquals(50, ship1.getxVelocity(), EPSILON);
+		assertEquals(-50, ship2.getxVelocity(), EPSILON);
+		assertEquals(50, ship1.getxCoordinate(), EPSILON);
+		assertEquals(950, ship2.getxCoordinate(), EPSILON);
+		assertEquals(80, ship3.getyCoordinate(), EPSILON);
+	}
+
+	@Test
+	public void testPickEntitiesAcrossEdges() throws ModelException {
+		World world = facade.createWorld(1000, 1000, true);
+		Ship ship1 = facade.createShip(10, 500, 0, 0, 20, 0, 1.0E20);
+		Ship ship2 = facade.createShip(500, 985, 0, 0, 30, 0, 1.0E20);
+		Ship ship3 = facade.createShip(500, 500, 0, 0, 20, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		facade.addShipToWorld(world, ship3);
+		assertEquals(ship1, facade.getEntityAt(world, 995, 500));
+		assertEquals(ship1, facade.getEntityAt(world, 25, 500));
+		assertEquals(ship2, facade.getEntityAt(world, 510, 5));
+		assertNull(facade.getEntityAt(world, 975, 500));
+		assertEquals(Set.of(ship1), world.getEntitiesWithin(980, 490, 995, 510));
+		assertEquals(Set.of(ship2), world.getEntitiesWithin(480, 0, 520, 10));
+		assertEquals(Set.of(ship1, ship2, ship3), world.getEntitiesWithin(-100, -100, 1100, 1100));
+		assertTrue(world.getEntitiesWithin(950, 400, 985, 450).isEmpty());
+	}
+
+	@Test
+	public void testOverlapsWithEntitiesAcrossEdges() throws ModelException {
+		World world = facade.createWorld(1000, 1000, true);
+		Ship ship1 = facade.createShip(10, 500, 0, 0, 15, 0, 1.0E20);
+		Ship ship2 = facade.createShip(980, 500, 0, 0, 15.2, 0, 1.0E20);
+		Ship ship3 = facade.createShip(500, 500, 0, 0, 20, 0, 1.0E20);
+		facade.addShipToWorld(world, ship1);
+		facade.addShipToWorld(world, ship2);
+		facade.addShipToWorld(world, ship3);
+		assertEquals(3, facade.getNbEntities(world));
+		double[] state = new double[3 * World.STATE_STRIDE];
+		boolean[] overlaps = new boolean[3];
+		assertEquals(3, facade.exportEntities(world, state, 0));
+		assertEquals(3, facade.getOverlapsWithEntities(world, ship1, overlaps));
+		for (Ship ship : new Ship[] { ship1, ship2, ship3 }) {
+			int k = 0;
+			while ((long) state[k * World.STATE_STRIDE] != facade.getEntityId(ship)) {
+				k++;
+			}
+			assertEquals(ship == ship2, overlaps[k]);
+			assertEquals(facade.overlap(ship1, ship), overlaps[k]);
+		}
+	}
+
+	@Test
+	public void testToroidalWorldBroadPhasesAgree() throws ModelException {
+		World grid = createCrowdedWorld(29, true);
+		World sweep = createCrowdedWorld(29, true);
+		sweep.setBroadPhaseType(BroadPhaseType.SWEEP_AND_PRUNE);
+		int[] nbCollisions = new int[2];
+		facade.evolveBatched(grid, 20, batch -> nbCollisions[0] = batch.getNbCollisions());
+		facade.evolveBatched(sweep, 20, batch -> nbCollisions[1] = batch.getNbCollisions());
+		assertTrue(nbCollisions[0] > 10);
+		assertEquals(nbCollisions[0], nbCollisions[1]);
+		Ship[] ships = facade.getWorldShips(grid).toArray(new Ship[0]);
+		Ship[] others = facade.getWorldShips(sweep).toArray(new Ship[0]);
+		for (int k = 0; k < ships.length; k++) {
+			assertEquals(ships[k].getxCoordinate(), others[k].getxCoordinate(), EPSILON);
+			assertEquals(ships[k].getyCoordinate(), others[k].getyCoordinate(), EPSILON);
+			assertTrue(ships[k].liesWithin(grid));
+			for (int m = 0; m < k; m++) {
+				assertFalse(ships[k].overlapSignificantly(ships[m]));
+			}
+		}
+	}
+
+	@Test
+	public void testTerminatedWorldReleasesItsEntities() throws ModelException {
+		World world = facade.createWorld(1000, 1000);
+		Ship ship = facade.createShip(100, 100, 10, 5, 20, 0, 1.0E20);
+		Bullet bullet = facade.createBullet(500, 500, -7, 3, 2);
+		facade.addShipToWorld(world, ship);
+		facade.addBulletToWorld(world, bullet);
+		for (int k = 0; k < 3; k++) {
+			facade.removeBulletFromWorld(world, bullet);
+			facade.addBulletToWorld(world, bullet);
+		}
+		facade.evolve(world, 2, null);
+		facade.terminateWorld(world);
+		assertTrue(facade.isTerminatedWorld(world));
+		assertEquals(120, facade.getShipX(ship), EPSILON);
+		assertEquals(110, facade.getShipY(ship), EPSILON);
+		assertEquals(486, facade.getBulletX(bullet), EPSILON);
+		assertEquals(-7, facade.getBulletVelocityX(bullet), EPSILON);
+		World other = facade.createWorld(1000, 1000);
+		facade.addShipToWorld(other, ship);
+		facade.addBulletToWorld(other, bullet);
+		facade.evolve(other, 1, null);
+		assertEquals(130, facade.getShipX(ship), EPSILON);
+		assertEquals(479, facade.getBulletX(bullet), EPSILON);
+	}
+
+	@Test
+	public void testShardedWorldMatchesSingleWorld() throws Exception {
+		World reference = createCrowdedWorld(37);
+		WorldShard[] shards = new WorldShard[3];
+		SocketChannel[] toRight = new SocketChannel[shards.length], toLeft = new SocketChannel[shards.length];
+		for (int k = 0; k < shards.length; k++) {
+			shards[k] = new WorldShard(reference, k, shards.length, 0.5);
+		}
+		for (int k = 0; k + 1 < shards.length; k++) {
+			try (ServerSocketChannel server = ServerSocketChannel.open()) {
+				server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+				toRight[k] = SocketChannel.open(server.getLocalAddress());
+				toLeft[k + 1] = server.accept();
+			}
+		}
+		int[] nbCollisions = new int[shards.length + 1];
+		Thread[] threads = new Thread[shards.length];
+		Exception[] failures = new Exception[shards.length];
+		for (int k = 0; k < shards.length; k++) {
+			int index = k;
+			shards[k].connect(toLeft[k], toRight[k]);
+			threads[k] = new Thread(() -> {
+				try {
+					shards[index].evolve(20, counter(nbCollisions, index));
+				} catch (Exception exc) {
+					failures[index] = exc;
+					try {
+						shards[index].close();
+					} catch (IOException ignored) {
+					}
+				}
+			});
+			threads[k].start();
+		}
+		for (int step = 0; step < 40; step++) {
+			reference.evolve(0.5, counter(nbCollisions, shards.length));
+		}
+		for (int k = 0; k < shards.length; k++) {
+			threads[k].join();
+			shards[k].close();
+			assertNull(failures[k]);
+			assertEquals(0, shards[k].getNbDivergences());
+		}
+		assertTrue(nbCollisions[shards.length] > 10);
+		assertEquals(nbCollisions[shards.length], nbCollisions[0] + nbCollisions[1] + nbCollisions[2]);
+		List<Ship> expected = new ArrayList<>(reference.getShips()), actual = new ArrayList<>();
+		for (WorldShard shard : shards) {
+			for (Ship ship : shard.getWorld().getShips()) {
+				assertTrue(shard.owns(ship.getxCoordinate()));
+				actual.add(ship);
+			}
+		}
+		Comparator<Ship> byPosition = Comparator.comparingDouble(Ship::getxCoordinate);
+		expected.sort(byPosition);
+		actual.sort(byPosition);
+		assertEquals(expected.size(), actual.size());
+		for (int k = 0; k < expected.size(); k++) {
+			assertEquals(expected.get(k).getxCoordinate(), actual.get(k).getxCoordinate(), EPSILON);
+			assertEquals(expected.get(k).getyCoordinate(), actual.get(k).getyCoordinate(), EPSILON);
+			assertEquals(expected.get(k).getxVelocity(), actual.get(k).getxVelocity(), EPSILON);
+		}
+	}
+
+	private CollisionListener counter(int[] nbCollisions, int index) {
+		return new CollisionListener() {
+			public void boundaryCollision(Object entity, double x, double y) {
+				nbCollisions[index]++;
+			}
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				nbCollisions[index]++;
+			}
+		};
+	}
+
+	@Test
+	public void testUniformGridOverlapsAgreeWithBruteForce() throws ModelException {
+		for (boolean toroidal : new boolean[] { false, true }) {
+			World world = createCrowdedWorld(41, toroidal);
+			Random random = new Random(43);
+			addBullets(world, random, 300);
+			assertOverlapsAgree(world, random, 400);
+
+			// entities added since the grid was built wait in its pending list
+			List<Bullet> added = addBullets(world, random, 10);
+			for (Bullet bullet : added) {
+				assertNotNull(world.getOverlappingEntity(facade.createBullet(bullet.getxCoordinate(),
+						bullet.getyCoordinate(), 0, 0, 1)));
+			}
+			assertOverlapsAgree(world, random, 400);
+
+			// entities that left the world are skipped until the grid is built again
+			Ship[] ships = facade.getWorldShips(world).toArray(new Ship[0]);
+			for (int k = 0; k < 5; k++) {
+				facade.removeShipFromWorld(world, ships[k]);
+				Entity found = world.getOverlappingEntity(facade.createBullet(ships[k].getxCoordinate(),
+						ships[k].getyCoordinate(), 0, 0, 1));
+				assertTrue(found == null || found.getWorld() == world);
+			}
+			assertOverlapsAgree(world, random, 400);
+
+			// the entities drift away from the cells they were hashed into, until the grid is built again
+			for (int step = 0; step < 10; step++) {
+				facade.evolve(world, 0.2, null);
+				assertOverlapsAgree(world, random, 100);
+			}
+		}
+	}
+
+	@Test
+	public void testUniformGridPredictionsAgreeWithBruteForce() throws ModelException {
+		World world = createCrowdedWorld(47);
+		Random random = new Random(53);
+		addBullets(world, random, 300);
+		assertNextCollisionAgrees(world);
+		addBullets(world, random, 10);
+		assertNextCollisionAgrees(world);
+		Ship[] ships = facade.getWorldShips(world).toArray(new Ship[0]);
+		for (int k = 0; k < 5; k++) {
+			facade.removeShipFromWorld(world, ships[k]);
+		}
+		assertNextCollisionAgrees(world);
+		for (int step = 0; step < 10; step++) {
+			facade.evolve(world, 0.2, null);
+			assertNextCollisionAgrees(world);
+		}
+	}
+
+	/**
+	 * Add up to the given number of small bullets at random positions in the given world where they
+	 * fit, and return the bullets added.
+	 */
+	private List<Bullet> addBullets(World world, Random random, int count) throws ModelException {
+		List<Bullet> added = new ArrayList<>();
+		for (int k = 0; k < count; k++) {
+			double radius = 3 + 5 * random.nextDouble();
+			Bullet bullet = facade.createBullet(radius + (world.getWidth() - 2 * radius) * random.nextDouble(),
+					radius + (world.getHeight() - 2 * radius) * random.nextDouble(), 200 * random.nextDouble() - 100,
+					200 * random.nextDouble() - 100, radius);
+			try {
+				facade.addBulletToWorld(world, bullet);
+				added.add(bullet);
+			} catch (ModelException exc) {
+				// overlaps another entity
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Check, for the given number of probes, that the world finds an overlapping entity exactly when
+	 * testing every entity of the world finds one. Half of the probes lie at random, the other half
+	 * just about touch an entity of the world, so that many straddle the borders of the cells.
+	 */
+	private void assertOverlapsAgree(World world, Random random, int nbProbes) throws ModelException {
+		Entity[] entities = world.getEntities().toArray(new Entity[0]);
+		for (int k = 0; k < nbProbes; k++) {
+			double radius = 1 + 60 * random.nextDouble(), x, y;
+			if (k % 2 == 0) {
+				x = radius + (world.getWidth() - 2 * radius) * random.nextDouble();
+				y = radius + (world.getHeight() - 2 * radius) * random.nextDouble();
+			} else {
+				Entity near = entities[random.nextInt(entities.length)];
+				double angle = 2 * Math.PI * random.nextDouble();
+				double distance = (near.getRadius() + radius) * (0.97 + 0.04 * random.nextDouble());
+				x = near.getxCoordinate() + distance * Math.cos(angle);
+				y = near.getyCoordinate() + distance * Math.sin(angle);
+			}
+			Bullet probe = facade.createBullet(x, y, 0, 0, radius);
+			Entity expected = null;
+			for (Entity entity : entities) {
+				if (overlaps(world, probe, entity)) {
+					expected = entity;
+				}
+			}
+			Entity found = world.getOverlappingEntity(probe);
+			assertEquals(expected == null, found == null);
+			assertTrue(found == null || overlaps(world, probe, found));
+		}
+	}
+
+	/**
+	 * Check whether the given probe significantly overlaps the given entity of the given world,
+	 * also across the edges of a toroidal world.
+	 */
+	private static boolean overlaps(World world, Entity probe, Entity entity) {
+		double dx = entity.getxCoordinate() - probe.getxCoordinate();
+		double dy = entity.getyCoordinate() - probe.getyCoordinate();
+		if (world.isToroidal()) {
+			if (Math.abs(dx) > 0.5 * world.getWidth()) {
+				dx -= world.getWidth() * Math.rint(dx / world.getWidth());
+			}
+			if (Math.abs(dy) > 0.5 * world.getHeight()) {
+				dy -= world.getHeight() * Math.rint(dy / world.getHeight());
+			}
+		}
+		double sigma = 0.99 * (probe.getRadius() + entity.getRadius());
+		return dx*dx + dy*dy < sigma*sigma;
+	}
+
+	/**
+	 * Check that the time to the next collision in the given world is the smallest time to a collision
+	 * of any two entities of the world, or of any entity with a boundary.
+	 */
+	private void assertNextCollisionAgrees(World world) throws ModelException {
+		Entity[] entities = world.getEntities().toArray(new Entity[0]);
+		double expected = Double.POSITIVE_INFINITY;
+		for (int k = 0; k < entities.length; k++) {
+			expected = Math.min(expected, facade.getTimeCollisionBoundary(entities[k]));
+			for (int m = 0; m < k; m++) {
+				expected = Math.min(expected, facade.getTimeCollisionEntity(entities[k], entities[m]));
+			}
+		}
+		assertEquals(expected, facade.getTimeNextCollision(world), EPSILON);
+	}
+
+	private World createCrowdedWorld(long seed) throws ModelException {
+		return createCrowdedWorld(seed, false);
+	}
+
+	private World createCrowdedWorld(long seed, boolean toroidal) throws ModelException {
+		World world = facade.createWorld(3000, 3000, toroidal);
+		Random random = new Random(seed);
+		while (facade.getEntities(world).size() < 40) {
+			double radius = 20 + 30 * random.nextDouble();
+			Ship ship = facade.createShip(radius + (3000 - 2 * radius) * random.nextDouble(),
+					radius + (3000 - 2 * radius) * random.nextDouble(), 200 * random.nextDouble() - 100,
+					200 * random.nextDouble() - 100, radius, 0, 1.0E20);
+			try {
+				facade.addShipToWorld(world, ship);
+			} catch (ModelException exc) {
+				// overlaps another ship
+			}
+		}
+		return world;
+	}
+
 }